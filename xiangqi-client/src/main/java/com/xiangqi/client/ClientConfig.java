@@ -0,0 +1,101 @@
+package com.xiangqi.client;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client settings read from client.properties in the working directory.
+ * Missing keys and unparsable values fall back to the caller's default.
+ */
+public final class ClientConfig {
+    private static final Logger LOGGER = Logger.getLogger(ClientConfig.class.getName());
+    
+    public static final String DEFAULT_CONFIG_FILE = "client.properties";
+    
+    private static ClientConfig instance;
+    
+    private final Properties properties;
+    
+    public ClientConfig(Properties properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * Gets the settings loaded from the default configuration file.
+     */
+    public static synchronized ClientConfig getInstance() {
+        if (instance == null) {
+            instance = load(new File(DEFAULT_CONFIG_FILE));
+        }
+        return instance;
+    }
+    
+    /**
+     * Loads settings from a file, or returns empty settings if it cannot be read.
+     */
+    public static ClientConfig load(File file) {
+        Properties properties = new Properties();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not load client configuration " + file + ", using defaults", e);
+            }
+        }
+        return new ClientConfig(properties);
+    }
+    
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? value.trim() : defaultValue;
+    }
+    
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+    
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+    
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+    
+    public double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
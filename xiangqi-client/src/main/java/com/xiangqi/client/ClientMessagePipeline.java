@@ -0,0 +1,147 @@
+package com.xiangqi.client;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Moves client message handling off the event dispatch thread.
+ * Model changes run in arrival order on a single background thread. The UI
+ * updates they produce are collected by key and handed to the event dispatch
+ * thread at most once per frame, so a burst of messages costs one UI update
+ * per key instead of one per message.
+ */
+final class ClientMessagePipeline {
+    private static final Logger LOGGER = Logger.getLogger(ClientMessagePipeline.class.getName());
+    
+    static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    
+    private final ScheduledExecutorService worker;
+    private final Executor uiExecutor;
+    
+    // UI updates waiting for the next frame, by key; guarded by this
+    private Map<String, List<Runnable>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private long lastFlushNanos;
+    private long coalesced;
+    private long flushes;
+    
+    ClientMessagePipeline() {
+        this(SwingUtilities::invokeLater);
+    }
+    
+    /**
+     * @param uiExecutor runs the per-frame UI update; the event dispatch thread outside tests
+     */
+    ClientMessagePipeline(Executor uiExecutor) {
+        this.uiExecutor = uiExecutor;
+        this.lastFlushNanos = System.nanoTime() - FRAME_NANOS;
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GameClient-Pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Runs model work on the pipeline thread after all earlier work.
+     */
+    void execute(Runnable work) {
+        try {
+            worker.execute(() -> {
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Client message handling failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.fine("Pipeline shut down, dropping message work");
+        }
+    }
+    
+    /**
+     * Schedules a UI update for the next frame, replacing any update for the
+     * same key that has not run yet.
+     */
+    void post(String key, Runnable update) {
+        enqueue(key, update, true);
+    }
+    
+    /**
+     * Schedules a UI update for the next frame after any pending updates for
+     * the same key, for updates that must all be applied in order.
+     */
+    void append(String key, Runnable update) {
+        enqueue(key, update, false);
+    }
+    
+    private synchronized void enqueue(String key, Runnable update, boolean replace) {
+        List<Runnable> updates = pending.computeIfAbsent(key, k -> new ArrayList<>());
+        if (replace) {
+            coalesced += updates.size();
+            updates.clear();
+        }
+        updates.add(update);
+        
+        if (!flushScheduled) {
+            flushScheduled = true;
+            long delay = Math.max(0, lastFlushNanos + FRAME_NANOS - System.nanoTime());
+            try {
+                worker.schedule(() -> uiExecutor.execute(this::flush), delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                flushScheduled = false;
+            }
+        }
+    }
+    
+    /**
+     * Runs every pending UI update.
+     */
+    private void flush() {
+        Map<String, List<Runnable>> updates;
+        synchronized (this) {
+            updates = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+            lastFlushNanos = System.nanoTime();
+            flushes++;
+        }
+        for (List<Runnable> keyed : updates.values()) {
+            for (Runnable update : keyed) {
+                try {
+                    update.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "UI update failed", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets how many UI updates were replaced before they ran.
+     */
+    synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+    
+    /**
+     * Gets how many frames of UI updates have been run.
+     */
+    synchronized long getFlushCount() {
+        return flushes;
+    }
+    
+    void shutdown() {
+        worker.shutdownNow();
+    }
+}
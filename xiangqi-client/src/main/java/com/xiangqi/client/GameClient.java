@@ -11,9 +11,9 @@ import com.xiangqi.shared.network.NetworkMessageHandler;
 import com.xiangqi.shared.network.messages.*;
 
 import javax.swing.*;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,22 +26,37 @@ public class GameClient implements NetworkMessageHandler {
     private static final Logger LOGGER = Logger.getLogger(GameClient.class.getName());
     private static final String DEFAULT_SERVER_ADDRESS = "localhost";
     private static final int DEFAULT_SERVER_PORT = 8888;
+    private static final int PLAYER_PAGE_SIZE = 50;
+    // A resync the server has not answered by then may be requested again
+    private static final long RESYNC_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
     
     // UI Components
     private LoginFrame loginFrame;
     private LobbyFrame lobbyFrame;
     private GameFrame gameFrame;
+    private String gameFrameSessionId; // The game gameFrame was built for; only touched on the EDT
     
     // Network and multimedia
     private NetworkClient networkClient;
     private AudioManager audioManager;
     private ResourceManager resourceManager;
     
-    // Game state
-    private Player currentPlayer;
-    private GameSession currentGameSession;
+    // Game and lobby messages are applied off the EDT, with UI updates batched per frame
+    private final ClientMessagePipeline pipeline = new ClientMessagePipeline();
+    
+    // Game state; the session's GameState is only mutated on the pipeline thread, the UI gets copies
+    private volatile Player currentPlayer;
+    private volatile GameSession currentGameSession;
     private final ConcurrentMap<String, String> pendingInvitations = new ConcurrentHashMap<>();
     
+    // Lobby version last applied; only touched on the pipeline thread
+    private long lobbyVersion = -1;
+    private boolean lobbySnapshotRequested;
+    
+    // Set when the local game state diverged and a full state was requested; only touched on the pipeline thread
+    private boolean gameResyncRequested;
+    private long gameResyncRequestedNanos;
+    
     // Connection settings
     private String serverAddress = DEFAULT_SERVER_ADDRESS;
     private int serverPort = DEFAULT_SERVER_PORT;
@@ -127,6 +142,11 @@ public class GameClient implements NetworkMessageHandler {
             public void onInvitationResponse(String invitationId, boolean accepted) {
                 handleInvitationResponse(invitationId, accepted);
             }
+            
+            @Override
+            public void onPlayerQuery(String namePrefix, PlayerListRequestMessage.SortKey sortKey, int offset) {
+                handlePlayerQuery(namePrefix, sortKey, offset);
+            }
         });
     }
     
@@ -178,7 +198,7 @@ public class GameClient implements NetworkMessageHandler {
     /**
      * Shows the game interface.
      */
-    private void showGameInterface(GameSession gameSession) {
+    private void showGameInterface(GameSession gameSession, GameState initialState) {
         SwingUtilities.invokeLater(() -> {
             lobbyFrame.hideLobby();
             
@@ -187,6 +207,7 @@ public class GameClient implements NetworkMessageHandler {
             }
             
             gameFrame = new GameFrame(currentPlayer, networkClient);
+            gameFrameSessionId = gameSession.getSessionId();
             gameFrame.setGameEventListener(new GameFrame.GameEventListener() {
                 @Override
                 public void onMoveAttempted(Move move) {
@@ -219,8 +240,7 @@ public class GameClient implements NetworkMessageHandler {
                 }
             });
             
-            currentGameSession = gameSession;
-            gameFrame.updateGameState(gameSession.getGameState());
+            gameFrame.updateGameState(initialState);
             gameFrame.setVisible(true);
             
             // Play game start sound
@@ -269,9 +289,30 @@ public class GameClient implements NetworkMessageHandler {
      * Handle refresh request from lobby.
      */
     private void handleRefreshRequest() {
-        // Request updated player and game lists
-        networkClient.sendMessage(new PlayerListRequestMessage(currentPlayer.getPlayerId()));
-        networkClient.sendMessage(new GameListRequestMessage(currentPlayer.getPlayerId()));
+        // Lobby is kept current by deltas; a manual refresh asks for a full snapshot
+        pipeline.execute(this::requestLobbySnapshot);
+    }
+    
+    /**
+     * Handle a player search/sort request from lobby by asking the server for one page.
+     */
+    private void handlePlayerQuery(String namePrefix, PlayerListRequestMessage.SortKey sortKey, int offset) {
+        if (currentPlayer == null) {
+            return;
+        }
+        networkClient.sendMessage(new PlayerListRequestMessage(
+            currentPlayer.getPlayerId(), offset, PLAYER_PAGE_SIZE, sortKey, namePrefix));
+    }
+    
+    /**
+     * Requests a full lobby snapshot unless one is already on its way.
+     */
+    private void requestLobbySnapshot() {
+        if (lobbySnapshotRequested || currentPlayer == null) {
+            return;
+        }
+        lobbySnapshotRequested = true;
+        networkClient.sendMessage(new LobbySnapshotRequestMessage(currentPlayer.getPlayerId()));
     }
     
     /**
@@ -412,6 +453,7 @@ public class GameClient implements NetworkMessageHandler {
         if (gameFrame != null) {
             gameFrame = null;
         }
+        gameFrameSessionId = null;
         currentGameSession = null;
         
         // Show lobby interface
@@ -454,54 +496,134 @@ public class GameClient implements NetworkMessageHandler {
                         "无效移动",
                         JOptionPane.WARNING_MESSAGE);
                 });
-                return;
             }
-            
-            // Move succeeded - play sound
-            // Game state update will come in separate GAME_STATE_UPDATE message
-            Move move = message.getMove();
-            if (move != null) {
-                SwingUtilities.invokeLater(() -> {
-                    // Play appropriate sound based on move type
-                    if (move.getCapturedPiece() != null) {
-                        audioManager.playSound("eat");
-                    } else {
-                        audioManager.playSound("go");
-                    }
-                });
+            // Successful moves arrive as MOVE_DELTA messages, which also play the move sound
+        }
+    }
+    
+    @Override
+    public void handleMoveDelta(MoveDeltaMessage message) {
+        pipeline.execute(() -> applyMoveDelta(message));
+    }
+    
+    /**
+     * Applies a move delta to the local game state on the pipeline thread.
+     */
+    private void applyMoveDelta(MoveDeltaMessage message) {
+        GameSession session = currentGameSession;
+        if (session == null || !message.getGameId().equals(session.getSessionId())) {
+            LOGGER.warning("Received move delta for different session or no active session");
+            return;
+        }
+        
+        GameState state = session.getGameState();
+        int expected = state.getMoveCount() + 1;
+        if (message.getSequence() < expected) {
+            return; // Already reflected in the local state
+        }
+        if (message.getSequence() > expected) {
+            LOGGER.warning("Move delta gap: expected " + expected + ", got " + message.getSequence());
+            requestGameResync();
+            return;
+        }
+        
+        Move applied = state.applyValidatedMove(message.getFrom(), message.getTo());
+        if (applied != null) {
+            state.setStatus(message.getResultingStatus());
+        }
+        if (applied == null || state.stateHash() != message.getStateHash()) {
+            LOGGER.warning("Local game state diverged at move " + message.getSequence());
+            requestGameResync();
+            return;
+        }
+        
+        // A burst of moves shows only the latest position and sound
+        GameState snapshot = state.copy();
+        String sound = message.isCapture() ? "eat" : "go";
+        postGameUpdate(session, () -> {
+            if (gameFrame != null) {
+                gameFrame.updateGameState(snapshot);
+            }
+            audioManager.playSound(sound);
+        });
+    }
+    
+    /**
+     * Schedules a game UI update for the next frame. The update is dropped if
+     * by the time it runs another game has replaced the session it was made for.
+     */
+    private void postGameUpdate(GameSession session, Runnable update) {
+        String sessionId = session.getSessionId();
+        pipeline.post("game", () -> runGameUpdate(sessionId, update, true));
+    }
+    
+    /**
+     * Runs a game UI update on the EDT if its game is still current and shown.
+     * @param mayDefer whether an update for a game whose frame is not built yet may wait for it once
+     */
+    private void runGameUpdate(String sessionId, Runnable update, boolean mayDefer) {
+        GameSession current = currentGameSession;
+        if (current == null || !current.getSessionId().equals(sessionId)) {
+            return; // Made for a game that has since been left or replaced
+        }
+        if (!sessionId.equals(gameFrameSessionId)) {
+            // The game's frame was queued on the EDT when the game started, before this update
+            if (mayDefer) {
+                SwingUtilities.invokeLater(() -> runGameUpdate(sessionId, update, false));
             }
+            return;
+        }
+        update.run();
+    }
+    
+    /**
+     * Asks the server for the full game state unless a request is already
+     * pending. A request left unanswered for RESYNC_TIMEOUT_NANOS is given up
+     * on, so a later divergence asks again.
+     */
+    private void requestGameResync() {
+        GameSession session = currentGameSession;
+        if (currentPlayer == null || session == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (gameResyncRequested && now - gameResyncRequestedNanos < RESYNC_TIMEOUT_NANOS) {
+            return;
         }
+        gameResyncRequested = true;
+        gameResyncRequestedNanos = now;
+        networkClient.sendMessage(new GameStateResyncRequestMessage(
+            currentPlayer.getPlayerId(), session.getSessionId()));
     }
     
     @Override
     public void handleGameStateUpdate(GameStateUpdateMessage message) {
-        if (currentGameSession != null && message.getGameId().equals(currentGameSession.getSessionId())) {
-            // Update the game state
+        pipeline.execute(() -> applyGameStateUpdate(message));
+    }
+    
+    /**
+     * Replaces the local game state with a full state from the server, on the pipeline thread.
+     */
+    private void applyGameStateUpdate(GameStateUpdateMessage message) {
+        gameResyncRequested = false;
+        GameSession session = currentGameSession;
+        if (session != null && message.getGameId().equals(session.getSessionId())) {
             GameState updatedState = message.getGameState();
-            
-            LOGGER.info("=== Received GameStateUpdate ===");
-            LOGGER.info("Current player: " + 
-                (updatedState.getCurrentPlayer() != null ? 
-                    updatedState.getCurrentPlayer().getUsername() : "null"));
-            LOGGER.info("Move count: " + updatedState.getMoveHistory().size());
-            LOGGER.info("Status: " + updatedState.getStatus());
-            
-            // Print first 3 moves for debugging
-            List<Move> moves = updatedState.getMoveHistory();
-            for (int i = 0; i < Math.min(3, moves.size()); i++) {
-                Move m = moves.get(i);
-                LOGGER.info("  Move " + (i+1) + ": " + m.getFrom() + " -> " + m.getTo());
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Received game state update: move count " + updatedState.getMoveCount()
+                    + ", status " + updatedState.getStatus() + ", current player "
+                    + (updatedState.getCurrentPlayer() != null ? updatedState.getCurrentPlayer().getUsername() : "null"));
             }
             
-            currentGameSession.setGameState(updatedState);
+            session.setGameState(updatedState);
             
-            // Update the UI
-            if (gameFrame != null) {
-                SwingUtilities.invokeLater(() -> {
-                    gameFrame.updateGameState(updatedState);
-                    LOGGER.info("UI updated with new game state");
-                });
-            }
+            // Supersedes any move update still waiting for the next frame
+            GameState snapshot = updatedState.copy();
+            postGameUpdate(session, () -> {
+                if (gameFrame != null) {
+                    gameFrame.updateGameState(snapshot);
+                }
+            });
         } else {
             LOGGER.warning("Received game state update for different session or no active session");
         }
@@ -591,6 +713,10 @@ public class GameClient implements NetworkMessageHandler {
         currentPlayer = null;
         currentGameSession = null;
         pendingInvitations.clear();
+        pipeline.execute(() -> {
+            lobbyVersion = -1;
+            lobbySnapshotRequested = false;
+        });
     }
     
     @Override
@@ -614,11 +740,39 @@ public class GameClient implements NetworkMessageHandler {
     
     @Override
     public void handleLobbyUpdate(LobbyUpdateMessage message) {
-        SwingUtilities.invokeLater(() -> {
-            if (lobbyFrame != null) {
-                lobbyFrame.updatePlayerList(message.getPlayers());
-                lobbyFrame.updateGameList(message.getGames());
+        pipeline.execute(() -> {
+            lobbySnapshotRequested = false;
+            if (message.getVersion() < lobbyVersion) {
+                return; // Older than what is already shown
+            }
+            lobbyVersion = message.getVersion();
+            // A snapshot makes any deltas still waiting for the next frame redundant
+            pipeline.post("lobby", () -> {
+                if (lobbyFrame != null) {
+                    lobbyFrame.updatePlayerList(message.getPlayers());
+                    lobbyFrame.updateGameList(message.getGames());
+                }
+            });
+        });
+    }
+    
+    @Override
+    public void handleLobbyDelta(LobbyDeltaMessage message) {
+        pipeline.execute(() -> {
+            if (lobbyVersion < 0 || message.getVersion() <= lobbyVersion) {
+                return; // No snapshot yet, or already applied
+            }
+            if (message.getVersion() != lobbyVersion + 1) {
+                LOGGER.info("Lobby delta gap: have " + lobbyVersion + ", got " + message.getVersion());
+                requestLobbySnapshot();
+                return;
             }
+            lobbyVersion = message.getVersion();
+            pipeline.append("lobby", () -> {
+                if (lobbyFrame != null) {
+                    lobbyFrame.applyLobbyDelta(message);
+                }
+            });
         });
     }
     
@@ -626,7 +780,7 @@ public class GameClient implements NetworkMessageHandler {
     public void handlePlayerListResponse(PlayerListResponseMessage message) {
         SwingUtilities.invokeLater(() -> {
             if (lobbyFrame != null) {
-                lobbyFrame.updatePlayerList(message.getPlayers());
+                lobbyFrame.showPlayerPage(message.getPlayers(), message.getOffset(), message.getTotalCount());
             }
         });
     }
@@ -665,7 +819,7 @@ public class GameClient implements NetworkMessageHandler {
                     showErrorDialog("移动错误", description);
                 }
                 break;
-                
+            
             case "GAME_STATE_ERROR":
                 // Critical game error - may need to restart game
                 showErrorDialog("游戏状态错误", description + "\n建议重新开始游戏。");
@@ -673,19 +827,19 @@ public class GameClient implements NetworkMessageHandler {
                     gameFrame.appendChatMessage("系统", "游戏状态错误，建议重新开始");
                 }
                 break;
-                
+            
             case "CONNECTION_ERROR":
                 // Network error - attempt reconnection
                 showErrorDialog("连接错误", description);
                 attemptReconnection();
                 break;
-                
+            
             case "AUTHENTICATION_ERROR":
                 // Auth error - return to login
                 showErrorDialog("认证错误", description);
                 showLoginInterface();
                 break;
-                
+            
             default:
                 // Generic error - use legacy handling for compatibility
                 String errorMsg = message.getErrorDescription();
@@ -781,12 +935,17 @@ public class GameClient implements NetworkMessageHandler {
      * Handle game start message from server.
      */
     public void handleGameStart(GameStartMessage message) {
-        SwingUtilities.invokeLater(() -> {
+        pipeline.execute(() -> {
             GameSession gameSession = message.getGameSession();
-            showGameInterface(gameSession);
-            
-            // Play game start sound
-            audioManager.playSound("jiang");
+            currentGameSession = gameSession;
+            gameResyncRequested = false; // A request for the previous game will not be answered
+            GameState initialState = gameSession.getGameState().copy();
+            SwingUtilities.invokeLater(() -> {
+                showGameInterface(gameSession, initialState);
+                
+                // Play game start sound
+                audioManager.playSound("jiang");
+            });
         });
     }
     
@@ -811,6 +970,7 @@ public class GameClient implements NetworkMessageHandler {
         if (networkClient != null && networkClient.isConnected()) {
             networkClient.disconnect();
         }
+        pipeline.shutdown();
         
         if (audioManager != null) {
             audioManager.cleanup();
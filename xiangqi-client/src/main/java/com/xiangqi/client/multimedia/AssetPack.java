@@ -0,0 +1,168 @@
+package com.xiangqi.client.multimedia;
+
+import com.xiangqi.client.ClientConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only view of an asset pack: many small resource files stored in one
+ * indexed file and memory-mapped, so loading them costs one open and page
+ * faults on a contiguous region instead of a file open and read per asset.
+ *
+ * <p>Layout, big-endian: the magic {@code XQAP}, a format version, the entry
+ * count, then per entry the UTF-8 name length and bytes, data offset and data
+ * length, followed by the entry data. Names are the relative paths the client
+ * would otherwise open, such as {@code source/qizi/1.gif}. Packs are written by
+ * {@link AssetPackBuilder}.</p>
+ */
+public final class AssetPack {
+    private static final Logger LOGGER = Logger.getLogger(AssetPack.class.getName());
+    
+    static final int MAGIC = 0x58514150; // "XQAP"
+    static final int VERSION = 1;
+    
+    // Where the client looks for a pack, overridable with resources.assetPack
+    public static final String DEFAULT_PACK_FILE = "assets.pack";
+    
+    private static final AssetPack EMPTY = new AssetPack(null, Collections.emptyMap());
+    private static AssetPack defaultPack;
+    
+    private final ByteBuffer data;
+    private final Map<String, Entry> entries;
+    
+    private AssetPack(ByteBuffer data, Map<String, Entry> entries) {
+        this.data = data;
+        this.entries = entries;
+    }
+    
+    /**
+     * Gets the pack named by the client configuration, or an empty pack if
+     * there is none, in which case callers read loose files as before.
+     */
+    public static synchronized AssetPack getDefault() {
+        if (defaultPack == null) {
+            File file = new File(ClientConfig.getInstance().getString("resources.assetPack", DEFAULT_PACK_FILE));
+            defaultPack = EMPTY;
+            if (file.isFile()) {
+                try {
+                    defaultPack = open(file);
+                    LOGGER.info("Loaded asset pack " + file + " with " + defaultPack.size() + " entries");
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not read asset pack " + file + ", using loose files", e);
+                }
+            }
+        }
+        return defaultPack;
+    }
+    
+    /**
+     * Maps a pack file and reads its index.
+     * @throws IOException if the file cannot be read or is not a valid pack
+     */
+    public static AssetPack open(File file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        try {
+            if (data.getInt() != MAGIC) {
+                throw new IOException("Not an asset pack: " + file);
+            }
+            int version = data.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported asset pack version " + version + ": " + file);
+            }
+            int count = data.getInt();
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[data.getShort() & 0xffff];
+                data.get(name);
+                int offset = data.getInt();
+                int length = data.getInt();
+                if (offset < 0 || length < 0 || (long) offset + length > data.capacity()) {
+                    throw new IOException("Corrupt asset pack entry " + i + ": " + file);
+                }
+                entries.put(new String(name, StandardCharsets.UTF_8), new Entry(offset, length));
+            }
+            return new AssetPack(data, entries);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt asset pack: " + file, e);
+        }
+    }
+    
+    /**
+     * Checks whether the pack holds an asset.
+     */
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+    
+    /**
+     * Gets a read-only view of an asset's bytes without copying them.
+     * @return the bytes, or null if the pack does not hold the asset
+     */
+    public ByteBuffer getBuffer(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        return data.asReadOnlyBuffer().position(entry.offset).limit(entry.offset + entry.length).slice();
+    }
+    
+    /**
+     * Copies an asset's bytes out of the pack.
+     * @return the bytes, or null if the pack does not hold the asset
+     */
+    public byte[] read(String name) {
+        ByteBuffer buffer = getBuffer(name);
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    /**
+     * Opens an asset as a stream.
+     * @return the stream, or null if the pack does not hold the asset
+     */
+    public InputStream openStream(String name) {
+        byte[] bytes = read(name);
+        return bytes != null ? new ByteArrayInputStream(bytes) : null;
+    }
+    
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    private static final class Entry {
+        final int offset;
+        final int length;
+        
+        Entry(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.xiangqi.client.multimedia;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes an {@link AssetPack} from loose resource files.
+ *
+ * <p>Run from the directory the client starts in to pack its resources:</p>
+ * <pre>
+ * java -cp xiangqi-client.jar com.xiangqi.client.multimedia.AssetPackBuilder assets.pack source
+ * </pre>
+ */
+public final class AssetPackBuilder {
+    // Sorted, so entries in one directory sit next to each other in the pack
+    private final Map<String, byte[]> assets = new TreeMap<>();
+    
+    /**
+     * Adds an asset under a name.
+     */
+    public AssetPackBuilder add(String name, byte[] data) {
+        if (name.getBytes(StandardCharsets.UTF_8).length > 0xffff) {
+            throw new IllegalArgumentException("Asset name too long: " + name);
+        }
+        assets.put(name, data);
+        return this;
+    }
+    
+    /**
+     * Adds every file under a directory, named by its path relative to the
+     * working directory with forward slashes, such as {@code source/qizi/1.gif}.
+     */
+    public AssetPackBuilder addDirectory(File directory) throws IOException {
+        return addDirectory(directory, directory.getPath().replace(File.separatorChar, '/'));
+    }
+    
+    private AssetPackBuilder addDirectory(File directory, String prefix) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = prefix + "/" + file.getName();
+            if (file.isDirectory()) {
+                addDirectory(file, name);
+            } else {
+                add(name, Files.readAllBytes(file.toPath()));
+            }
+        }
+        return this;
+    }
+    
+    public int size() {
+        return assets.size();
+    }
+    
+    /**
+     * Writes the pack.
+     */
+    public void write(File file) throws IOException {
+        long indexSize = 12;
+        for (String name : assets.keySet()) {
+            indexSize += 2 + name.getBytes(StandardCharsets.UTF_8).length + 8;
+        }
+        long dataSize = 0;
+        for (byte[] data : assets.values()) {
+            dataSize += data.length;
+        }
+        if (indexSize + dataSize > Integer.MAX_VALUE) {
+            throw new IOException("Asset pack would exceed 2 GB");
+        }
+        
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(AssetPack.MAGIC);
+            out.writeInt(AssetPack.VERSION);
+            out.writeInt(assets.size());
+            
+            int offset = (int) indexSize;
+            for (Map.Entry<String, byte[]> asset : assets.entrySet()) {
+                byte[] name = asset.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(offset);
+                out.writeInt(asset.getValue().length);
+                offset += asset.getValue().length;
+            }
+            for (byte[] data : assets.values()) {
+                out.write(data);
+            }
+        }
+    }
+    
+    /**
+     * Packs directories into a file.
+     * Usage: AssetPackBuilder &lt;output&gt; &lt;directory&gt;...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: AssetPackBuilder <output> <directory>...");
+            System.exit(1);
+        }
+        
+        AssetPackBuilder builder = new AssetPackBuilder();
+        for (int i = 1; i < args.length; i++) {
+            builder.addDirectory(new File(args[i]));
+        }
+        builder.write(new File(args[0]));
+        System.out.println("Packed " + builder.size() + " assets into " + args[0]);
+    }
+}
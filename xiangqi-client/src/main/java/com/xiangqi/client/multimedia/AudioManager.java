@@ -1,21 +1,27 @@
 package com.xiangqi.client.multimedia;
 
-import javax.sound.sampled.*;
+import com.xiangqi.client.ClientConfig;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AudioManager handles loading and playing sound effects for the Xiangqi game.
  * It manages audio resources and provides methods to play sounds for different game events.
+ * Sounds are decoded once and played through a single {@link AudioMixer}, so
+ * overlapping sounds mix instead of cutting each other off.
  */
 public class AudioManager {
     private static AudioManager instance;
-    private final Map<String, Clip> audioClips;
+    private final Map<String, short[]> sounds;
+    private final AudioMixer mixer;
     private final String audioBasePath;
     private boolean soundEnabled;
+    private final CompletableFuture<Void> loaded;
     
     // Audio file constants
     public static final String SOUND_EAT = "eat.wav";      // Piece capture sound
@@ -24,11 +30,21 @@ public class AudioManager {
     public static final String SOUND_SEAT = "seat.wav";    // Player join/seat sound
     public static final String SOUND_SELECT = "select.wav"; // Piece selection sound
     
+    // Master volume, overridable with audio.volume
+    public static final float DEFAULT_VOLUME = 0.8f;
+    
     private AudioManager() {
-        this.audioClips = new ConcurrentHashMap<>();
+        ClientConfig config = ClientConfig.getInstance();
+        this.sounds = new ConcurrentHashMap<>();
         this.audioBasePath = "source/audio/";
-        this.soundEnabled = true;
-        loadAudioFiles();
+        this.soundEnabled = config.getBoolean("audio.enabled", true);
+        this.mixer = new AudioMixer((float) config.getDouble("audio.volume", DEFAULT_VOLUME));
+        // Decoding sounds and opening the line is slow, so it happens off the startup path
+        this.loaded = CompletableFuture.runAsync(this::loadAudioFiles, runnable -> {
+            Thread thread = new Thread(runnable, "AudioManager-Loader");
+            thread.setDaemon(true);
+            thread.start();
+        });
     }
     
     /**
@@ -54,23 +70,30 @@ public class AudioManager {
                 System.err.println("Failed to load audio file: " + fileName + " - " + e.getMessage());
             }
         }
+        
+        if (!sounds.isEmpty()) {
+            mixer.open();
+        }
     }
     
     /**
-     * Loads a specific audio file into memory
+     * Decodes a specific audio file into memory
      */
-    private void loadAudioFile(String fileName) throws UnsupportedAudioFileException, IOException, LineUnavailableException {
+    private void loadAudioFile(String fileName) throws UnsupportedAudioFileException, IOException {
+        // Prefer the asset pack, falling back to loose files in development
+        byte[] packed = AssetPack.getDefault().read(audioBasePath + fileName);
+        if (packed != null) {
+            sounds.put(fileName, AudioMixer.decode(packed));
+            return;
+        }
+        
         File audioFile = new File(audioBasePath + fileName);
         if (!audioFile.exists()) {
             System.err.println("Audio file not found: " + audioFile.getAbsolutePath());
             return;
         }
         
-        AudioInputStream audioStream = AudioSystem.getAudioInputStream(audioFile);
-        Clip clip = AudioSystem.getClip();
-        clip.open(audioStream);
-        audioClips.put(fileName, clip);
-        audioStream.close();
+        sounds.put(fileName, AudioMixer.decode(audioFile));
     }
     
     /**
@@ -81,20 +104,25 @@ public class AudioManager {
             return;
         }
         
-        Clip clip = audioClips.get(soundName);
-        if (clip != null) {
-            // Stop the clip if it's already playing
-            if (clip.isRunning()) {
-                clip.stop();
-            }
-            // Reset to beginning and play
-            clip.setFramePosition(0);
-            clip.start();
+        short[] samples = sounds.get(soundName);
+        if (samples == null && !loaded.isDone()) {
+            // Still loading at startup; skip the sound rather than wait
+            return;
+        }
+        if (samples != null) {
+            mixer.play(samples);
         } else {
             System.err.println("Sound not found: " + soundName);
         }
     }
     
+    /**
+     * Gets a future that completes once all audio files have been loaded
+     */
+    public CompletableFuture<Void> whenLoaded() {
+        return loaded;
+    }
+    
     /**
      * Plays sound when a piece is moved
      */
@@ -144,25 +172,33 @@ public class AudioManager {
         return soundEnabled;
     }
     
+    /**
+     * Sets the master volume, from 0 (silent) to 1 (full scale)
+     */
+    public void setVolume(float volume) {
+        mixer.setVolume(volume);
+    }
+    
+    /**
+     * Returns the master volume
+     */
+    public float getVolume() {
+        return mixer.getVolume();
+    }
+    
     /**
      * Stops all currently playing sounds
      */
     public void stopAllSounds() {
-        for (Clip clip : audioClips.values()) {
-            if (clip.isRunning()) {
-                clip.stop();
-            }
-        }
+        mixer.stopAll();
     }
     
     /**
      * Releases all audio resources
      */
     public void cleanup() {
-        stopAllSounds();
-        for (Clip clip : audioClips.values()) {
-            clip.close();
-        }
-        audioClips.clear();
+        loaded.join();
+        mixer.close();
+        sounds.clear();
     }
 }
\ No newline at end of file
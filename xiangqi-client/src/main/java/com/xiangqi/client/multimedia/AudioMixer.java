@@ -0,0 +1,275 @@
+package com.xiangqi.client.multimedia;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Software mixer that plays any number of overlapping sounds through one
+ * audio line.
+ * Sounds are decoded once to 16-bit mono PCM at the mixer's sample rate. A
+ * dedicated thread sums the active voices in small chunks and writes them to
+ * a short line buffer, so a new sound starts within a few chunks and never
+ * cuts off one that is already playing.
+ */
+class AudioMixer {
+    private static final Logger LOGGER = Logger.getLogger(AudioMixer.class.getName());
+    
+    static final float SAMPLE_RATE = 44100f;
+    static final AudioFormat OUTPUT_FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+    
+    // 10 ms per chunk, with four chunks buffered in the line
+    static final int CHUNK_FRAMES = 441;
+    private static final int BUFFERED_CHUNKS = 4;
+    
+    // Beyond this many voices the oldest is dropped
+    static final int MAX_VOICES = 8;
+    
+    // Marker queued by stopAll to silence the voices already playing
+    private static final Voice STOP = new Voice(new short[0]);
+    
+    private final LinkedBlockingQueue<Voice> pending = new LinkedBlockingQueue<>();
+    private volatile float volume;
+    private volatile boolean running;
+    private SourceDataLine line;
+    private Thread mixerThread;
+    
+    AudioMixer(float volume) {
+        setVolume(volume);
+    }
+    
+    /**
+     * Opens the output line and starts the mixer thread.
+     * @return false if no audio line is available, in which case nothing plays
+     */
+    synchronized boolean open() {
+        if (running) {
+            return true;
+        }
+        try {
+            line = AudioSystem.getSourceDataLine(OUTPUT_FORMAT);
+            line.open(OUTPUT_FORMAT, CHUNK_FRAMES * BUFFERED_CHUNKS * OUTPUT_FORMAT.getFrameSize());
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            LOGGER.log(Level.WARNING, "No audio output line available, sounds are disabled", e);
+            line = null;
+            return false;
+        }
+        
+        running = true;
+        mixerThread = new Thread(this::mixLoop, "AudioMixer");
+        mixerThread.setDaemon(true);
+        mixerThread.start();
+        return true;
+    }
+    
+    /**
+     * Starts playing a decoded sound alongside any that are already playing.
+     */
+    void play(short[] samples) {
+        if (running && samples != null && samples.length > 0) {
+            pending.offer(new Voice(samples));
+        }
+    }
+    
+    /**
+     * Silences every sound that is playing.
+     */
+    void stopAll() {
+        pending.clear();
+        if (running) {
+            pending.offer(STOP);
+        }
+    }
+    
+    /**
+     * Sets the master volume, from 0 (silent) to 1 (full scale).
+     */
+    void setVolume(float volume) {
+        this.volume = Math.max(0f, Math.min(1f, volume));
+    }
+    
+    float getVolume() {
+        return volume;
+    }
+    
+    boolean isOpen() {
+        return running;
+    }
+    
+    /**
+     * Stops the mixer thread and closes the output line.
+     */
+    synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        mixerThread.interrupt();
+        try {
+            mixerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        line.stop();
+        line.close();
+        line = null;
+        pending.clear();
+    }
+    
+    private void mixLoop() {
+        List<Voice> active = new ArrayList<>();
+        short[] mixed = new short[CHUNK_FRAMES];
+        byte[] buffer = new byte[CHUNK_FRAMES * 2];
+        
+        try {
+            while (running) {
+                if (active.isEmpty()) {
+                    // Idle until the next sound, rather than writing silence
+                    addVoice(active, pending.take());
+                }
+                Voice next;
+                while ((next = pending.poll()) != null) {
+                    addVoice(active, next);
+                }
+                if (active.isEmpty()) {
+                    continue;
+                }
+                
+                mix(active, mixed, volume);
+                for (int i = 0; i < CHUNK_FRAMES; i++) {
+                    buffer[2 * i] = (byte) mixed[i];
+                    buffer[2 * i + 1] = (byte) (mixed[i] >> 8);
+                }
+                // Blocks while the line's buffer is full, which paces the loop
+                line.write(buffer, 0, buffer.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Audio mixer stopped", e);
+            running = false;
+        }
+    }
+    
+    private static void addVoice(List<Voice> active, Voice voice) {
+        if (voice == STOP) {
+            active.clear();
+            return;
+        }
+        if (active.size() >= MAX_VOICES) {
+            active.remove(0);
+        }
+        active.add(voice);
+    }
+    
+    /**
+     * Sums the next chunk of every voice into the output, clipping to the
+     * 16-bit range, and removes voices that have finished.
+     */
+    static void mix(List<Voice> voices, short[] out, float volume) {
+        int frames = out.length;
+        int[] sum = new int[frames];
+        for (Iterator<Voice> it = voices.iterator(); it.hasNext(); ) {
+            Voice voice = it.next();
+            int count = Math.min(frames, voice.samples.length - voice.position);
+            for (int i = 0; i < count; i++) {
+                sum[i] += voice.samples[voice.position + i];
+            }
+            voice.position += count;
+            if (voice.position >= voice.samples.length) {
+                it.remove();
+            }
+        }
+        for (int i = 0; i < frames; i++) {
+            int sample = Math.round(sum[i] * volume);
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+        }
+    }
+    
+    /**
+     * Decodes a sound file to 16-bit mono samples at the mixer's sample rate.
+     */
+    static short[] decode(File file) throws UnsupportedAudioFileException, IOException {
+        return decode(AudioSystem.getAudioInputStream(file));
+    }
+    
+    /**
+     * Decodes the bytes of a sound file to 16-bit mono samples at the mixer's sample rate.
+     */
+    static short[] decode(byte[] data) throws UnsupportedAudioFileException, IOException {
+        return decode(AudioSystem.getAudioInputStream(new ByteArrayInputStream(data)));
+    }
+    
+    private static short[] decode(AudioInputStream stream) throws IOException {
+        try (AudioInputStream source = stream) {
+            AudioFormat sourceFormat = source.getFormat();
+            int channels = sourceFormat.getChannels();
+            AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sourceFormat.getSampleRate(),
+                16, channels, channels * 2, sourceFormat.getSampleRate(), false);
+            
+            byte[] bytes;
+            try (AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, source)) {
+                bytes = pcm.readAllBytes();
+            }
+            
+            // Downmix to mono
+            int frames = bytes.length / (channels * 2);
+            short[] mono = new short[frames];
+            for (int f = 0; f < frames; f++) {
+                int total = 0;
+                for (int c = 0; c < channels; c++) {
+                    int offset = (f * channels + c) * 2;
+                    total += (short) ((bytes[offset] & 0xff) | (bytes[offset + 1] << 8));
+                }
+                mono[f] = (short) (total / channels);
+            }
+            return resample(mono, sourceFormat.getSampleRate(), SAMPLE_RATE);
+        }
+    }
+    
+    /**
+     * Converts samples between rates by linear interpolation.
+     */
+    static short[] resample(short[] samples, float fromRate, float toRate) {
+        if (fromRate == toRate || samples.length == 0) {
+            return samples;
+        }
+        double step = fromRate / toRate;
+        int length = (int) Math.ceil(samples.length / step);
+        short[] out = new short[length];
+        for (int i = 0; i < length; i++) {
+            double position = i * step;
+            int index = (int) position;
+            double fraction = position - index;
+            int current = samples[Math.min(index, samples.length - 1)];
+            int following = samples[Math.min(index + 1, samples.length - 1)];
+            out[i] = (short) Math.round(current + (following - current) * fraction);
+        }
+        return out;
+    }
+    
+    /**
+     * One playing sound and how far through it the mixer has got.
+     */
+    static final class Voice {
+        final short[] samples;
+        int position;
+        
+        Voice(short[] samples) {
+            this.samples = samples;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.xiangqi.client.multimedia;
+
+import javax.swing.ImageIcon;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used image cache bounded by entry count and by an estimate
+ * of decoded pixel memory.
+ * Evicted images are kept behind soft references, so the garbage collector
+ * can reclaim them under memory pressure but a later request can still
+ * recover them without going back to disk.
+ */
+public class ImageCache {
+    private final int maxEntries;
+    private final long maxBytes;
+    
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, ImageIcon> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, SoftEntry> evicted = new HashMap<>();
+    private final ReferenceQueue<ImageIcon> cleared = new ReferenceQueue<>();
+    private long bytes;
+    
+    private long hits;
+    private long softHits;
+    private long misses;
+    private long evictions;
+    
+    /**
+     * @param maxEntries the most images held strongly
+     * @param maxBytes the most decoded pixel memory held strongly
+     */
+    public ImageCache(int maxEntries, long maxBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+    
+    /**
+     * Gets a cached image, recovering it from the soft tier if it was evicted
+     * and has not been collected yet.
+     * @return the image, or null on a miss
+     */
+    public synchronized ImageIcon get(String key) {
+        ImageIcon image = entries.get(key);
+        if (image != null) {
+            hits++;
+            return image;
+        }
+        
+        purgeCleared();
+        SoftEntry soft = evicted.remove(key);
+        image = soft != null ? soft.get() : null;
+        if (image != null) {
+            softHits++;
+            insert(key, image);
+            return image;
+        }
+        misses++;
+        return null;
+    }
+    
+    /**
+     * Adds an image, evicting least recently used images over the limits.
+     */
+    public synchronized void put(String key, ImageIcon image) {
+        evicted.remove(key);
+        ImageIcon previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= sizeOf(previous);
+        }
+        insert(key, image);
+    }
+    
+    /**
+     * Checks whether an image is held strongly, without counting a hit or miss.
+     */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+        evicted.clear();
+        bytes = 0;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Gets the estimated decoded size of the images held strongly.
+     */
+    public synchronized long getByteSize() {
+        return bytes;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+    
+    public synchronized long getHitCount() {
+        return hits;
+    }
+    
+    public synchronized long getSoftHitCount() {
+        return softHits;
+    }
+    
+    public synchronized long getMissCount() {
+        return misses;
+    }
+    
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+    
+    /**
+     * Gets the share of lookups served without loading, or 0 before any lookup.
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + softHits + misses;
+        return lookups == 0 ? 0 : (double) (hits + softHits) / lookups;
+    }
+    
+    /**
+     * Estimates the decoded size of an image at four bytes per pixel.
+     */
+    static long sizeOf(ImageIcon image) {
+        return (long) Math.max(0, image.getIconWidth()) * Math.max(0, image.getIconHeight()) * 4;
+    }
+    
+    private void insert(String key, ImageIcon image) {
+        entries.put(key, image);
+        bytes += sizeOf(image);
+        
+        Iterator<Map.Entry<String, ImageIcon>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && entries.size() > 1) {
+            Map.Entry<String, ImageIcon> entry = eldest.next();
+            eldest.remove();
+            bytes -= sizeOf(entry.getValue());
+            evicted.put(entry.getKey(), new SoftEntry(entry.getKey(), entry.getValue(), cleared));
+            evictions++;
+        }
+    }
+    
+    private void purgeCleared() {
+        SoftEntry entry;
+        while ((entry = (SoftEntry) cleared.poll()) != null) {
+            evicted.remove(entry.key, entry);
+        }
+    }
+    
+    /**
+     * Soft reference that remembers its key, so collected images can be removed from the map.
+     */
+    private static final class SoftEntry extends SoftReference<ImageIcon> {
+        final String key;
+        
+        SoftEntry(String key, ImageIcon image, ReferenceQueue<ImageIcon> queue) {
+            super(image, queue);
+            this.key = key;
+        }
+    }
+}
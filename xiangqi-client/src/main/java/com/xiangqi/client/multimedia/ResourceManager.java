@@ -1,11 +1,23 @@
 package com.xiangqi.client.multimedia;
 
+import com.xiangqi.client.ClientConfig;
+
 import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ResourceManager handles loading and caching of graphical and audio resources.
@@ -13,9 +25,24 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class ResourceManager {
     private static ResourceManager instance;
-    private final Map<String, ImageIcon> imageCache;
+    private final ImageCache imageCache;
     private final Map<String, String> resourcePaths;
     private final AudioManager audioManager;
+    private final AssetPack assetPack;
+    
+    // Background decoding; loads in flight are shared so an image is never decoded twice at once
+    private final Executor loader;
+    private final Map<String, CompletableFuture<ImageIcon>> pendingLoads = new ConcurrentHashMap<>();
+    private CompletableFuture<Void> boardImagesLoaded;
+    
+    // Piece atlases by sprite size and screen scale; resizing or moving to another screen evicts the oldest
+    private static final int MAX_PIECE_ATLASES = 2;
+    private final Map<String, SpriteAtlas> pieceAtlases = new LinkedHashMap<String, SpriteAtlas>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SpriteAtlas> eldest) {
+            return size() > MAX_PIECE_ATLASES;
+        }
+    };
     
     // Resource path constants
     public static final String QIZI_PATH = "source/qizi/";
@@ -23,6 +50,10 @@ public class ResourceManager {
     public static final String FACE_PATH = "source/face/";
     public static final String AUDIO_PATH = "source/audio/";
     
+    // Cache bounds, overridable with resources.cacheSize and resources.cacheMemoryMB
+    public static final int DEFAULT_CACHE_SIZE = 50;
+    public static final int DEFAULT_CACHE_MEMORY_MB = 32;
+    
     // Chess piece image constants (based on typical xiangqi numbering)
     public static final String BOARD_IMAGE = "xqboard.gif";
     public static final String SELECT_IMAGE = "select.gif";
@@ -33,9 +64,21 @@ public class ResourceManager {
     public static final String PLAYER_AVATAR = "boy1.gif";
     public static final String NO_PLAYER = "noone.gif";
     
-    private ResourceManager() {
-        this.imageCache = new ConcurrentHashMap<>();
-        this.resourcePaths = new HashMap<>();
+    ResourceManager() {
+        this(createLoader());
+    }
+    
+    /**
+     * Creates a resource manager that decodes images on the given executor
+     */
+    ResourceManager(Executor loader) {
+        ClientConfig config = ClientConfig.getInstance();
+        this.imageCache = new ImageCache(
+            config.getInt("resources.cacheSize", DEFAULT_CACHE_SIZE),
+            config.getLong("resources.cacheMemoryMB", DEFAULT_CACHE_MEMORY_MB) * 1024 * 1024);
+        this.resourcePaths = new ConcurrentHashMap<>();
+        this.loader = loader;
+        this.assetPack = AssetPack.getDefault();
         this.audioManager = AudioManager.getInstance();
         initializeResourcePaths();
         preloadResources();
@@ -73,31 +116,91 @@ public class ResourceManager {
     }
     
     /**
-     * Preloads essential resources into cache
+     * Creates the daemon pool that decodes images in the background
+     */
+    private static Executor createLoader() {
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ResourceManager-Loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Starts loading resources in the background, without blocking startup.
+     * The board and piece images are queued first since the first game
+     * board needs them; the remaining images follow.
      */
     private void preloadResources() {
-        // Preload essential game images
-        String[] essentialImages = {
-            BOARD_IMAGE, SELECT_IMAGE, XIANGQI_LOGO, START_IMAGE, 
-            PLAYER_AVATAR, NO_PLAYER
-        };
-        
-        for (String imageName : essentialImages) {
-            loadImage(imageName);
+        List<CompletableFuture<ImageIcon>> boardImages = new ArrayList<>();
+        boardImages.add(getImageAsync(BOARD_IMAGE));
+        boardImages.add(getImageAsync(SELECT_IMAGE));
+        for (int i = 1; i <= 32; i++) {
+            boardImages.add(getImageAsync(i + ".gif"));
         }
+        boardImagesLoaded = CompletableFuture.allOf(boardImages.toArray(new CompletableFuture<?>[0]));
         
-        // Preload all chess piece images
-        for (int i = 1; i <= 32; i++) {
-            loadImage(i + ".gif");
+        String[] otherImages = {XIANGQI_LOGO, START_IMAGE, PLAYER_AVATAR, NO_PLAYER};
+        for (String imageName : otherImages) {
+            getImageAsync(imageName);
+        }
+    }
+    
+    /**
+     * Gets an image without blocking, loading it on the background pool if it
+     * is not cached. The future completes with null if the image cannot be loaded.
+     */
+    public CompletableFuture<ImageIcon> getImageAsync(String imageName) {
+        ImageIcon cached = imageCache.get(imageName);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<ImageIcon> future = new CompletableFuture<>();
+        CompletableFuture<ImageIcon> pending = pendingLoads.putIfAbsent(imageName, future);
+        if (pending != null) {
+            return pending;
         }
+        loader.execute(() -> {
+            try {
+                future.complete(loadImage(imageName));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                pendingLoads.remove(imageName, future);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Gets a future that completes once the board, selection and all piece
+     * images have been loaded, so the board can wait for just those.
+     */
+    public CompletableFuture<Void> whenBoardImagesLoaded() {
+        return boardImagesLoaded;
+    }
+    
+    /**
+     * Gets a chat emoticon from the face directory without blocking.
+     * Emoticons are loaded on first use rather than at startup, since there
+     * are far more of them than the image cache holds.
+     * @param emoticonName the file name, such as "1-1.gif"
+     */
+    public CompletableFuture<ImageIcon> getEmoticonAsync(String emoticonName) {
+        String key = FACE_PATH + emoticonName;
+        resourcePaths.putIfAbsent(key, key);
+        return getImageAsync(key);
     }
     
     /**
      * Loads an image from the resource path
      */
     private ImageIcon loadImage(String imageName) {
-        if (imageCache.containsKey(imageName)) {
-            return imageCache.get(imageName);
+        ImageIcon cached = imageCache.get(imageName);
+        if (cached != null) {
+            return cached;
         }
         
         String imagePath = resourcePaths.get(imageName);
@@ -106,6 +209,18 @@ public class ResourceManager {
             return null;
         }
         
+        // Prefer the asset pack, falling back to loose files in development
+        byte[] packed = assetPack.read(imagePath);
+        if (packed != null) {
+            ImageIcon imageIcon = new ImageIcon(packed);
+            if (imageIcon.getIconWidth() == -1) {
+                System.err.println("Failed to load packed image: " + imagePath);
+                return null;
+            }
+            imageCache.put(imageName, imageIcon);
+            return imageIcon;
+        }
+        
         File imageFile = new File(imagePath);
         if (!imageFile.exists()) {
             System.err.println("Image file not found: " + imageFile.getAbsolutePath());
@@ -127,14 +242,16 @@ public class ResourceManager {
     }
     
     /**
-     * Gets an image by name, loading it if not cached
+     * Gets an image by name, loading it if not cached.
+     * If the image is still being loaded in the background this returns null
+     * rather than waiting; use getImageAsync to be told when it is ready.
      */
     public ImageIcon getImage(String imageName) {
-        ImageIcon image = imageCache.get(imageName);
-        if (image == null) {
-            image = loadImage(imageName);
+        CompletableFuture<ImageIcon> pending = pendingLoads.get(imageName);
+        if (pending != null) {
+            return pending.getNow(null);
         }
-        return image;
+        return loadImage(imageName);
     }
     
     /**
@@ -150,7 +267,12 @@ public class ResourceManager {
         ImageIcon scaledImage = imageCache.get(scaledKey);
         
         if (scaledImage == null) {
-            Image scaledImg = originalImage.getImage().getScaledInstance(width, height, Image.SCALE_SMOOTH);
+            // Drawing with bilinear filtering is much faster than getScaledInstance's area averaging
+            BufferedImage scaledImg = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = scaledImg.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(originalImage.getImage(), 0, 0, width, height, null);
+            g2d.dispose();
             scaledImage = new ImageIcon(scaledImg);
             imageCache.put(scaledKey, scaledImage);
         }
@@ -169,6 +291,35 @@ public class ResourceManager {
         return getImage(pieceNumber + ".gif");
     }
     
+    /**
+     * Gets all 32 piece images pre-scaled into one atlas for the given screen.
+     * Sprite {@code n - 1} holds piece image {@code n}. Atlases are cached by
+     * size and scale factor, so callers can ask again after every resize.
+     * An atlas asked for before the piece images have loaded is not cached,
+     * so asking again once they have gives the complete atlas.
+     * @param width the logical width pieces are drawn at
+     * @param height the logical height pieces are drawn at
+     * @param config the screen pieces are drawn to, or null when headless
+     */
+    public SpriteAtlas getPieceAtlas(int width, int height, GraphicsConfiguration config) {
+        String key = width + "x" + height + "@" + SpriteAtlas.getScale(config);
+        synchronized (pieceAtlases) {
+            SpriteAtlas atlas = pieceAtlases.get(key);
+            if (atlas == null) {
+                Image[] sources = new Image[32];
+                for (int i = 1; i <= 32; i++) {
+                    ImageIcon icon = getImage(i + ".gif");
+                    sources[i - 1] = icon != null ? icon.getImage() : null;
+                }
+                atlas = SpriteAtlas.build(sources, width, height, config);
+                if (boardImagesLoaded.isDone()) {
+                    pieceAtlases.put(key, atlas);
+                }
+            }
+            return atlas;
+        }
+    }
+    
     /**
      * Gets the chess board background image
      */
@@ -226,15 +377,27 @@ public class ResourceManager {
         if (path == null) {
             return false;
         }
-        return new File(path).exists();
+        return assetPack.contains(path) || new File(path).exists();
     }
     
     /**
      * Gets cache statistics
      */
     public String getCacheStats() {
-        return String.format("Images cached: %d, Resource paths: %d", 
-                           imageCache.size(), resourcePaths.size());
+        return String.format("Images cached: %d/%d (%d/%d KB), Resource paths: %d, "
+                           + "Hits: %d, Soft hits: %d, Misses: %d, Evictions: %d, Hit rate: %.1f%%",
+                           imageCache.size(), imageCache.getMaxEntries(),
+                           imageCache.getByteSize() / 1024, imageCache.getMaxBytes() / 1024,
+                           resourcePaths.size(), imageCache.getHitCount(), imageCache.getSoftHitCount(),
+                           imageCache.getMissCount(), imageCache.getEvictionCount(),
+                           imageCache.getHitRate() * 100);
+    }
+    
+    /**
+     * Gets the image cache, for inspecting its statistics
+     */
+    public ImageCache getImageCache() {
+        return imageCache;
     }
     
     /**
@@ -242,6 +405,9 @@ public class ResourceManager {
      */
     public void clearCache() {
         imageCache.clear();
+        synchronized (pieceAtlases) {
+            pieceAtlases.clear();
+        }
     }
     
     /**
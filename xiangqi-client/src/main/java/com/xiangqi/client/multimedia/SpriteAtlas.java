@@ -0,0 +1,141 @@
+package com.xiangqi.client.multimedia;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+/**
+ * A set of sprites pre-scaled once into a single sheet image.
+ * Sprites are rendered at device resolution for the screen's scale factor,
+ * so on a HiDPI display drawing a sprite at its logical size copies pixels
+ * one to one instead of resampling a small GIF on every paint.
+ */
+public final class SpriteAtlas {
+    private static final int COLUMNS = 8;
+    
+    private final BufferedImage sheet;
+    private final boolean[] present;
+    private final int spriteWidth;
+    private final int spriteHeight;
+    private final double scale;
+    
+    private SpriteAtlas(BufferedImage sheet, boolean[] present, int spriteWidth, int spriteHeight, double scale) {
+        this.sheet = sheet;
+        this.present = present;
+        this.spriteWidth = spriteWidth;
+        this.spriteHeight = spriteHeight;
+        this.scale = scale;
+    }
+    
+    /**
+     * Renders the sources into a new atlas.
+     * @param sources the sprite images by index; null entries are left empty
+     * @param width the logical width each sprite is drawn at
+     * @param height the logical height each sprite is drawn at
+     * @param config the screen the atlas is drawn to, or null when headless
+     */
+    public static SpriteAtlas build(Image[] sources, int width, int height, GraphicsConfiguration config) {
+        double scale = getScale(config);
+        int spriteWidth = (int) Math.ceil(width * scale);
+        int spriteHeight = (int) Math.ceil(height * scale);
+        int rows = Math.max(1, (sources.length + COLUMNS - 1) / COLUMNS);
+        int sheetWidth = spriteWidth * COLUMNS;
+        int sheetHeight = spriteHeight * rows;
+        
+        BufferedImage sheet = config != null
+            ? config.createCompatibleImage(sheetWidth, sheetHeight, Transparency.TRANSLUCENT)
+            : new BufferedImage(sheetWidth, sheetHeight, BufferedImage.TYPE_INT_ARGB);
+        boolean[] present = new boolean[sources.length];
+        
+        Graphics2D g2d = sheet.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] != null) {
+                g2d.drawImage(sources[i], (i % COLUMNS) * spriteWidth, (i / COLUMNS) * spriteHeight,
+                    spriteWidth, spriteHeight, null);
+                present[i] = true;
+            }
+        }
+        g2d.dispose();
+        
+        return new SpriteAtlas(sheet, present, spriteWidth, spriteHeight, scale);
+    }
+    
+    /**
+     * Gets the device pixels per logical pixel of a screen.
+     */
+    public static double getScale(GraphicsConfiguration config) {
+        if (config == null) {
+            return 1.0;
+        }
+        AffineTransform transform = config.getDefaultTransform();
+        return Math.max(1.0, Math.max(transform.getScaleX(), transform.getScaleY()));
+    }
+    
+    /**
+     * Checks whether a sprite was loaded for an index.
+     */
+    public boolean contains(int index) {
+        return index >= 0 && index < present.length && present[index];
+    }
+    
+    /**
+     * Checks whether any sprite was loaded.
+     */
+    public boolean isEmpty() {
+        for (boolean loaded : present) {
+            if (loaded) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Draws a sprite into a logical rectangle.
+     * @return false if the atlas has no sprite for the index
+     */
+    public boolean draw(Graphics g, int index, int x, int y, int width, int height) {
+        if (!contains(index)) {
+            return false;
+        }
+        int sx = (index % COLUMNS) * spriteWidth;
+        int sy = (index / COLUMNS) * spriteHeight;
+        g.drawImage(sheet, x, y, x + width, y + height, sx, sy, sx + spriteWidth, sy + spriteHeight, null);
+        return true;
+    }
+    
+    /**
+     * Gets the scale factor the sprites were rendered for.
+     */
+    public double getScale() {
+        return scale;
+    }
+    
+    /**
+     * Gets the width of one sprite in device pixels.
+     */
+    public int getSpriteWidth() {
+        return spriteWidth;
+    }
+    
+    /**
+     * Gets the height of one sprite in device pixels.
+     */
+    public int getSpriteHeight() {
+        return spriteHeight;
+    }
+    
+    /**
+     * Gets the approximate memory held by the sheet in bytes.
+     */
+    public long getByteSize() {
+        return (long) sheet.getWidth() * sheet.getHeight() * 4;
+    }
+}
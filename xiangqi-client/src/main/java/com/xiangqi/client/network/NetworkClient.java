@@ -1,5 +1,6 @@
 package com.xiangqi.client.network;
 
+import com.xiangqi.shared.network.MessageOutputStream;
 import com.xiangqi.shared.network.NetworkMessage;
 import com.xiangqi.shared.network.NetworkMessageHandler;
 import com.xiangqi.shared.network.messages.DisconnectMessage;
@@ -27,7 +28,7 @@ public class NetworkClient {
     
     private Socket socket;
     private ObjectInputStream inputStream;
-    private ObjectOutputStream outputStream;
+    private MessageOutputStream outputStream;
     private NetworkMessageHandler messageHandler;
     
     private final AtomicBoolean connected = new AtomicBoolean(false);
@@ -41,6 +42,7 @@ public class NetworkClient {
     private String serverAddress;
     private int serverPort;
     private String clientId;
+    private int streamResetInterval = MessageOutputStream.DEFAULT_RESET_INTERVAL;
     
     /**
      * Constructs a new NetworkClient with the specified message handler.
@@ -79,7 +81,7 @@ public class NetworkClient {
             socket.setSoTimeout(SOCKET_TIMEOUT);
             
             // Create streams
-            outputStream = new ObjectOutputStream(socket.getOutputStream());
+            outputStream = new MessageOutputStream(socket.getOutputStream(), streamResetInterval);
             outputStream.flush(); // Important: flush before creating input stream
             inputStream = new ObjectInputStream(socket.getInputStream());
             
@@ -99,6 +101,23 @@ public class NetworkClient {
         }
     }
     
+    /**
+     * Sets how many messages are written between output stream resets.
+     * Takes effect on the next connection; 0 disables resets.
+     */
+    public void setStreamResetInterval(int streamResetInterval) {
+        this.streamResetInterval = Math.max(0, streamResetInterval);
+    }
+    
+    /**
+     * Gets the serialized bytes currently pinned by the output stream's
+     * back-reference table.
+     */
+    public long getRetainedStreamBytes() {
+        MessageOutputStream stream = outputStream;
+        return stream != null ? stream.getRetainedBytes() : 0;
+    }
+    
     /**
      * Sends a message to the server.
      * 
@@ -253,8 +272,7 @@ public class NetworkClient {
                 NetworkMessage message = outgoingMessages.take();
                 
                 synchronized (outputStream) {
-                    outputStream.writeObject(message);
-                    outputStream.flush();
+                    outputStream.writeMessage(message);
                 }
                 
             } catch (InterruptedException e) {
@@ -305,6 +323,11 @@ public class NetworkClient {
                         messageHandler.handleLobbyUpdate((com.xiangqi.shared.network.messages.LobbyUpdateMessage) message);
                     }
                     break;
+                case LOBBY_DELTA:
+                    if (message instanceof com.xiangqi.shared.network.messages.LobbyDeltaMessage) {
+                        messageHandler.handleLobbyDelta((com.xiangqi.shared.network.messages.LobbyDeltaMessage) message);
+                    }
+                    break;
                 case MOVE_RESPONSE:
                     if (message instanceof com.xiangqi.shared.network.messages.MoveResponseMessage) {
                         messageHandler.handleMoveResponse((com.xiangqi.shared.network.messages.MoveResponseMessage) message);
@@ -334,6 +357,11 @@ public class NetworkClient {
                             (message != null ? message.getClass().getName() : "null"));
                     }
                     break;
+                case MOVE_DELTA:
+                    if (message instanceof com.xiangqi.shared.network.messages.MoveDeltaMessage) {
+                        messageHandler.handleMoveDelta((com.xiangqi.shared.network.messages.MoveDeltaMessage) message);
+                    }
+                    break;
                 case GAME_END:
                     if (message instanceof com.xiangqi.shared.network.messages.GameEndMessage) {
                         LOGGER.info("Received GAME_END message, dispatching to handler");
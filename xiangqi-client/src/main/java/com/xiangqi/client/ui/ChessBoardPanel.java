@@ -1,15 +1,16 @@
 package com.xiangqi.client.ui;
 
 import com.xiangqi.shared.model.*;
+import com.xiangqi.client.ClientConfig;
 import com.xiangqi.client.multimedia.ResourceManager;
 import com.xiangqi.client.multimedia.AudioManager;
+import com.xiangqi.client.multimedia.SpriteAtlas;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,13 +24,17 @@ public class ChessBoardPanel extends JPanel {
     private static final int BOARD_HEIGHT = 577;
     private static final int CELL_WIDTH = BOARD_WIDTH / Position.BOARD_COLS;
     private static final int CELL_HEIGHT = BOARD_HEIGHT / Position.BOARD_ROWS;
+    private static final Color MOVE_HIGHLIGHT = new Color(0, 255, 0, 100); // Semi-transparent green
     
     private GameState gameState;
     private Player localPlayer;  // The player viewing this board
     private boolean boardFlipped; // True if board should be flipped (for black player)
     private Position selectedPosition;
     private List<Position> validMoves;
-    private Map<String, Image> pieceImages;
+    private final LegalMoveCache legalMoves = new LegalMoveCache(this::onLegalMovesReady);
+    private Map<String, Integer> pieceImageNumbers;
+    private Map<String, Image> pieceImages; // Placeholders, drawn until the piece images have loaded
+    private SpriteAtlas pieceAtlas;
     private ResourceManager resourceManager;
     private AudioManager audioManager;
     
@@ -38,6 +43,20 @@ public class ChessBoardPanel extends JPanel {
     private Point dragOffset;
     private boolean isDragging;
     
+    // Move animation, configured with ui.enableAnimations and ui.animationSpeed
+    private final boolean animationsEnabled;
+    private final PieceAnimator animator;
+    private ChessPiece animatedPiece;
+    private Position animatedTo;
+    private ChessPiece fadingPiece;
+    private int displayedMoveCount = -1;
+    
+    // Board, highlights and pieces rendered once per game state or selection; moving pieces are painted over it
+    private BufferedImage boardLayer;
+    private boolean boardLayerValid;
+    private double boardLayerScale;
+    private int boardLayerBuilds;
+    
     // Event listeners
     private BoardEventListener eventListener;
     
@@ -54,71 +73,66 @@ public class ChessBoardPanel extends JPanel {
         resourceManager = ResourceManager.getInstance();
         audioManager = resourceManager.getAudioManager();
         
+        ClientConfig config = ClientConfig.getInstance();
+        animationsEnabled = config.getBoolean("ui.enableAnimations", true);
+        animator = new PieceAnimator(this, PieceAnimator.getDurationMillis(config.getString("ui.animationSpeed", "normal")));
+        
         loadImages();
         setupMouseListeners();
     }
     
     /**
-     * Load all chess piece images and board graphics using ResourceManager.
+     * Map each piece to its image number; the images themselves are drawn from
+     * ResourceManager's piece atlas. Placeholders are drawn until the images
+     * have loaded, and the board is redrawn once they have.
      */
     private void loadImages() {
+        pieceImageNumbers = new HashMap<>();
         pieceImages = new HashMap<>();
         
-        // Load piece images using ResourceManager - mapping piece types to image numbers
         // Red pieces (1-16): General(5), Advisor(4,6), Elephant(3,7), Horse(8,2), 
         // Chariot(1,9), Cannon(10,11), Soldier(12,13,14,15,16)
-        ImageIcon redGeneral = resourceManager.getPieceImage(5);
-        if (redGeneral != null) pieceImages.put("red_general", redGeneral.getImage());
-        
-        ImageIcon redAdvisor = resourceManager.getPieceImage(4);
-        if (redAdvisor != null) pieceImages.put("red_advisor", redAdvisor.getImage());
-        
-        ImageIcon redElephant = resourceManager.getPieceImage(3);
-        if (redElephant != null) pieceImages.put("red_elephant", redElephant.getImage());
-        
-        ImageIcon redHorse = resourceManager.getPieceImage(8);
-        if (redHorse != null) pieceImages.put("red_horse", redHorse.getImage());
-        
-        ImageIcon redChariot = resourceManager.getPieceImage(1);
-        if (redChariot != null) pieceImages.put("red_chariot", redChariot.getImage());
-        
-        ImageIcon redCannon = resourceManager.getPieceImage(10);
-        if (redCannon != null) pieceImages.put("red_cannon", redCannon.getImage());
-        
-        ImageIcon redSoldier = resourceManager.getPieceImage(12);
-        if (redSoldier != null) pieceImages.put("red_soldier", redSoldier.getImage());
+        pieceImageNumbers.put("red_general", 5);
+        pieceImageNumbers.put("red_advisor", 4);
+        pieceImageNumbers.put("red_elephant", 3);
+        pieceImageNumbers.put("red_horse", 8);
+        pieceImageNumbers.put("red_chariot", 1);
+        pieceImageNumbers.put("red_cannon", 10);
+        pieceImageNumbers.put("red_soldier", 12);
         
         // Black pieces (17-32): General(21), Advisor(20,22), Elephant(19,23), Horse(18,24),
         // Chariot(17,25), Cannon(26,27), Soldier(28,29,30,31,32)
-        ImageIcon blackGeneral = resourceManager.getPieceImage(21);
-        if (blackGeneral != null) pieceImages.put("black_general", blackGeneral.getImage());
-        
-        ImageIcon blackAdvisor = resourceManager.getPieceImage(20);
-        if (blackAdvisor != null) pieceImages.put("black_advisor", blackAdvisor.getImage());
-        
-        ImageIcon blackElephant = resourceManager.getPieceImage(23);
-        if (blackElephant != null) pieceImages.put("black_elephant", blackElephant.getImage());
-        
-        ImageIcon blackHorse = resourceManager.getPieceImage(18);
-        if (blackHorse != null) pieceImages.put("black_horse", blackHorse.getImage());
-        
-        ImageIcon blackChariot = resourceManager.getPieceImage(17);
-        if (blackChariot != null) pieceImages.put("black_chariot", blackChariot.getImage());
-        
-        ImageIcon blackCannon = resourceManager.getPieceImage(26);
-        if (blackCannon != null) pieceImages.put("black_cannon", blackCannon.getImage());
-        
-        ImageIcon blackSoldier = resourceManager.getPieceImage(28);
-        if (blackSoldier != null) pieceImages.put("black_soldier", blackSoldier.getImage());
-        
-        // If any images failed to load, create placeholders
-        if (pieceImages.isEmpty()) {
-            createPlaceholderImages();
+        pieceImageNumbers.put("black_general", 21);
+        pieceImageNumbers.put("black_advisor", 20);
+        pieceImageNumbers.put("black_elephant", 23);
+        pieceImageNumbers.put("black_horse", 18);
+        pieceImageNumbers.put("black_chariot", 17);
+        pieceImageNumbers.put("black_cannon", 26);
+        pieceImageNumbers.put("black_soldier", 28);
+        
+        createPlaceholderImages();
+        
+        // The board and piece images are preloaded first; redraw with them once they are in
+        resourceManager.whenBoardImagesLoaded().thenRun(() -> SwingUtilities.invokeLater(() -> {
+            pieceAtlas = null;
+            invalidateBoardLayer(null);
+        }));
+    }
+    
+    /**
+     * Get the piece atlas for the screen the panel is on, fetching a new one
+     * after the panel moves to a screen with a different scale factor.
+     */
+    private SpriteAtlas getPieceAtlas() {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (pieceAtlas == null || pieceAtlas.getScale() != SpriteAtlas.getScale(config)) {
+            pieceAtlas = resourceManager.getPieceAtlas(CELL_WIDTH, CELL_HEIGHT, config);
         }
+        return pieceAtlas;
     }
     
     /**
-     * Create simple placeholder images if the actual images cannot be loaded.
+     * Create simple placeholder images for when the actual images are not loaded.
      */
     private void createPlaceholderImages() {
         pieceImages = new HashMap<>();
@@ -129,13 +143,13 @@ public class ChessBoardPanel extends JPanel {
         
         for (String color : colors) {
             for (String type : types) {
-                BufferedImage img = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+                BufferedImage img = new BufferedImage(CELL_WIDTH, CELL_HEIGHT, BufferedImage.TYPE_INT_ARGB);
                 Graphics2D g2d = img.createGraphics();
                 g2d.setColor(color.equals("red") ? Color.RED : Color.BLACK);
-                g2d.fillOval(2, 2, 36, 36);
+                g2d.fillOval(2, 2, CELL_WIDTH - 4, CELL_HEIGHT - 4);
                 g2d.setColor(Color.WHITE);
-                g2d.setFont(new Font("Arial", Font.BOLD, 8));
-                g2d.drawString(type.substring(0, 1).toUpperCase(), 15, 25);
+                g2d.setFont(new Font("Arial", Font.BOLD, 12));
+                g2d.drawString(type.substring(0, 1).toUpperCase(), CELL_WIDTH / 2 - 4, CELL_HEIGHT / 2 + 4);
                 g2d.dispose();
                 
                 pieceImages.put(color + "_" + type, img);
@@ -223,8 +237,8 @@ public class ChessBoardPanel extends JPanel {
                 // Clicked on another piece of same player, switch selection
                 selectPiece(clickedPosition);
             } else {
-                // Try to move to clicked position (empty square or opponent piece)
-                if (eventListener != null) {
+                // Try to move to clicked position (empty square or opponent piece); illegal moves are not sent
+                if (eventListener != null && legalMoves.isLegal(selectedPosition, clickedPosition)) {
                     eventListener.onMoveAttempted(selectedPosition, clickedPosition);
                 }
                 // Clear selection after attempting move
@@ -237,6 +251,7 @@ public class ChessBoardPanel extends JPanel {
      * Select a piece and highlight its valid moves.
      */
     private void selectPiece(Position position) {
+        repaintSelection();
         selectedPosition = position;
         
         // Play selection sound
@@ -244,14 +259,10 @@ public class ChessBoardPanel extends JPanel {
             audioManager.playSelectSound();
         }
         
-        // Get valid moves for the selected piece
+        // Get legal moves for the selected piece, usually already worked out in the background
         ChessPiece piece = gameState.getPiece(position);
         if (piece != null) {
-            List<Move> moves = piece.getValidMoves(gameState);
-            validMoves = new ArrayList<>();
-            for (Move move : moves) {
-                validMoves.add(move.getTo());
-            }
+            validMoves = legalMoves.getMoves(position);
             
             // Log selection with position info
             String pieceName = getPieceDisplayName(piece);
@@ -265,7 +276,23 @@ public class ChessBoardPanel extends JPanel {
             eventListener.onPieceSelected(position);
         }
         
-        repaint();
+        repaintSelection();
+    }
+    
+    /**
+     * Narrow the selected piece's highlights to its legal moves once the
+     * moves of the current state have been worked out.
+     */
+    private void onLegalMovesReady() {
+        if (selectedPosition == null || validMoves == null) {
+            return;
+        }
+        List<Position> moves = legalMoves.getMoves(selectedPosition);
+        if (!moves.equals(validMoves)) {
+            repaintSelection();
+            validMoves = moves;
+            repaintSelection();
+        }
     }
     
     /**
@@ -291,9 +318,35 @@ public class ChessBoardPanel extends JPanel {
      * Clear the current selection and valid move highlights.
      */
     public void clearSelection() {
+        repaintSelection();
         selectedPosition = null;
         validMoves = null;
-        repaint();
+    }
+    
+    /**
+     * Schedule a repaint of the cells covered by the selection and move highlights.
+     * They are drawn under the pieces, so the board layer is rendered again.
+     */
+    private void repaintSelection() {
+        if (selectedPosition != null || validMoves != null) {
+            boardLayerValid = false;
+        }
+        if (selectedPosition != null) {
+            repaint(getCellBounds(selectedPosition));
+        }
+        if (validMoves != null) {
+            for (Position move : validMoves) {
+                repaint(getCellBounds(move));
+            }
+        }
+    }
+    
+    /**
+     * Get the screen area of a board cell.
+     */
+    private Rectangle getCellBounds(Position position) {
+        Point center = getPointFromPosition(position);
+        return new Rectangle(center.x - CELL_WIDTH / 2, center.y - CELL_HEIGHT / 2, CELL_WIDTH, CELL_HEIGHT);
     }
     
     /**
@@ -348,11 +401,15 @@ public class ChessBoardPanel extends JPanel {
      * Set the local player and determine if board should be flipped.
      */
     public void setLocalPlayer(Player player, GameState state) {
+        boolean wasFlipped = boardFlipped;
         this.localPlayer = player;
         // Flip board if local player is black (so they see their pieces at bottom)
         if (state != null) {
             this.boardFlipped = state.isBlackPlayer(player);
         }
+        if (boardFlipped != wasFlipped) {
+            invalidateBoardLayer(null);
+        }
     }
     
     /**
@@ -360,14 +417,13 @@ public class ChessBoardPanel extends JPanel {
      */
     public void updateGameState(GameState newState) {
         if (newState == null) {
-            System.out.println("[ChessBoardPanel] updateGameState called with null state");
             return;
         }
         
-        System.out.println("[ChessBoardPanel] Updating game state, move count: " + 
-            newState.getMoveHistory().size());
-        
+        animator.finish();
+        boolean wasFlipped = boardFlipped;
         this.gameState = newState;
+        legalMoves.update(newState);
         
         // Update board flip status if local player is set
         if (localPlayer != null) {
@@ -377,10 +433,71 @@ public class ChessBoardPanel extends JPanel {
         // Clear selection when state changes
         clearSelection();
         
-        // Force repaint to show updated board
-        System.out.println("[ChessBoardPanel] Calling repaint()");
-        repaint();
-        revalidate();
+        // After a single move only its two squares need repainting; otherwise repaint the whole board
+        Move move = getSingleNewMove(newState);
+        displayedMoveCount = newState.getMoveCount();
+        if (move != null && wasFlipped == boardFlipped) {
+            startMoveAnimation(newState, move);
+            invalidateBoardLayer(move.getFrom());
+            repaint(getCellBounds(move.getTo()));
+        } else {
+            invalidateBoardLayer(null);
+        }
+    }
+    
+    /**
+     * Get the move that takes the displayed position to the new state, or null
+     * if the new state is not exactly one move further on. The state may be
+     * updated in place, so the displayed move count is compared rather than
+     * the states themselves.
+     */
+    private Move getSingleNewMove(GameState newState) {
+        Move move = newState.getLastMove();
+        if (displayedMoveCount < 0 || move == null || move.isResignation()
+                || newState.getMoveCount() != displayedMoveCount + 1) {
+            return null;
+        }
+        return move;
+    }
+    
+    /**
+     * Slide a newly made move's piece to its new square, fading out any piece
+     * it captured.
+     */
+    private void startMoveAnimation(GameState newState, Move move) {
+        if (!animationsEnabled) {
+            return;
+        }
+        ChessPiece piece = newState.getPiece(move.getTo());
+        if (piece == null) {
+            return;
+        }
+        
+        animatedPiece = piece;
+        animatedTo = move.getTo();
+        fadingPiece = move.getCapturedPiece();
+        Rectangle destination = getCellBounds(move.getTo());
+        animator.start(getCellBounds(move.getFrom()), destination, fadingPiece != null ? destination : null, () -> {
+            Position arrived = animatedTo;
+            animatedPiece = null;
+            animatedTo = null;
+            fadingPiece = null;
+            invalidateBoardLayer(arrived);
+        });
+    }
+    
+    /**
+     * Checks whether a move is being animated.
+     */
+    boolean isAnimating() {
+        return animator.isRunning();
+    }
+    
+    /**
+     * Jumps a running move animation to its end.
+     */
+    void finishAnimation() {
+        animator.finish();
     }
     
     /**
@@ -414,34 +531,68 @@ public class ChessBoardPanel extends JPanel {
         this.eventListener = listener;
     }
     
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    /**
+     * Mark the board layer stale after the pieces or board orientation changed.
+     * @param changed the only cell that changed, or null to repaint the whole board
+     */
+    private void invalidateBoardLayer(Position changed) {
+        boardLayerValid = false;
+        if (changed != null) {
+            repaint(getCellBounds(changed));
+        } else {
+            repaint();
+        }
+    }
+    
+    /**
+     * Gets how many times the board layer has been rendered.
+     */
+    int getBoardLayerBuildCount() {
+        return boardLayerBuilds;
+    }
+    
+    /**
+     * Render the board image, the selection and move highlights, and every
+     * piece except a dragged or animated one into the board layer.
+     */
+    private void buildBoardLayer() {
+        // Rendered at device resolution so HiDPI screens copy it without rescaling
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        double scale = SpriteAtlas.getScale(config);
+        if (boardLayer == null || boardLayerScale != scale) {
+            int width = (int) Math.ceil(BOARD_WIDTH * scale);
+            int height = (int) Math.ceil(BOARD_HEIGHT * scale);
+            boardLayer = config != null
+                ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            boardLayerScale = scale;
+        }
         
-        Graphics2D g2d = (Graphics2D) g.create();
+        Graphics2D g2d = boardLayer.createGraphics();
+        g2d.scale(scale, scale);
+        g2d.setColor(getBackground());
+        g2d.fillRect(0, 0, BOARD_WIDTH, BOARD_HEIGHT);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
         
         // Draw board background (always upright)
         ImageIcon boardIcon = resourceManager.getBoardImage();
         if (boardIcon != null) {
-            g2d.drawImage(boardIcon.getImage(), 0, 0, BOARD_WIDTH, BOARD_HEIGHT, this);
+            g2d.drawImage(boardIcon.getImage(), 0, 0, BOARD_WIDTH, BOARD_HEIGHT, null);
         }
         
         // Draw selection highlight
         if (selectedPosition != null) {
             ImageIcon selectIcon = resourceManager.getSelectImage();
             if (selectIcon != null) {
-                Point pos = getPointFromPosition(selectedPosition);
-                g2d.drawImage(selectIcon.getImage(), 
-                    pos.x - CELL_WIDTH / 2, 
-                    pos.y - CELL_HEIGHT / 2, 
-                    CELL_WIDTH, CELL_HEIGHT, this);
+                Rectangle cell = getCellBounds(selectedPosition);
+                g2d.drawImage(selectIcon.getImage(), cell.x, cell.y, cell.width, cell.height, null);
             }
         }
         
         // Draw valid move highlights
         if (validMoves != null) {
-            g2d.setColor(new Color(0, 255, 0, 100)); // Semi-transparent green
+            g2d.setColor(MOVE_HIGHLIGHT);
             for (Position move : validMoves) {
                 Point pos = getPointFromPosition(move);
                 g2d.fillOval(pos.x - 10, pos.y - 10, 20, 20);
@@ -455,24 +606,62 @@ public class ChessBoardPanel extends JPanel {
                     Position position = new Position(row, col);
                     ChessPiece piece = gameState.getPiece(position);
                     
-                    if (piece != null && piece != draggedPiece) {
+                    // Dragged and animated pieces are painted over the layer instead
+                    if (piece != null && piece != draggedPiece && !position.equals(animatedTo)) {
                         drawPiece(g2d, piece, position);
                     }
                 }
             }
         }
         
+        g2d.dispose();
+        boardLayerValid = true;
+        boardLayerBuilds++;
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // Recreate the layer in a format matching the screen the panel is now on
+        boardLayer = null;
+        boardLayerValid = false;
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        
+        if (!boardLayerValid || boardLayerScale != SpriteAtlas.getScale(getGraphicsConfiguration())) {
+            buildBoardLayer();
+        }
+        
+        // Copies only the clipped area, which is a single cell for most repaints
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.drawImage(boardLayer, 0, 0, BOARD_WIDTH, BOARD_HEIGHT, null);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        
+        // Draw the captured piece fading out under the moving piece
+        if (fadingPiece != null && animatedTo != null) {
+            Graphics2D faded = (Graphics2D) g2d.create();
+            float alpha = (float) (1 - animator.getProgress());
+            faded.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, Math.max(0f, alpha)));
+            drawPiece(faded, fadingPiece, animatedTo);
+            faded.dispose();
+        }
+        
+        // Draw the moving piece between its squares
+        if (animatedPiece != null && animator.isRunning()) {
+            Rectangle bounds = animator.getSpriteBounds();
+            drawPieceImage(g2d, animatedPiece, bounds.x, bounds.y);
+        }
+        
         // Draw dragged piece at mouse position
         if (isDragging && draggedPiece != null) {
             Point mousePos = getMousePosition();
             if (mousePos != null && dragOffset != null) {
-                Image pieceImage = pieceImages.get(getPieceImageKey(draggedPiece));
-                if (pieceImage != null) {
-                    g2d.drawImage(pieceImage, 
-                        mousePos.x - dragOffset.x - CELL_WIDTH / 2,
-                        mousePos.y - dragOffset.y - CELL_HEIGHT / 2,
-                        CELL_WIDTH, CELL_HEIGHT, this);
-                }
+                drawPieceImage(g2d, draggedPiece,
+                    mousePos.x - dragOffset.x - CELL_WIDTH / 2,
+                    mousePos.y - dragOffset.y - CELL_HEIGHT / 2);
             }
         }
         
@@ -483,16 +672,8 @@ public class ChessBoardPanel extends JPanel {
      * Draw a chess piece at the specified position.
      */
     private void drawPiece(Graphics2D g2d, ChessPiece piece, Position position) {
-        String imageKey = getPieceImageKey(piece);
-        Image pieceImage = pieceImages.get(imageKey);
-        
-        if (pieceImage != null) {
-            Point pos = getPointFromPosition(position);
-            g2d.drawImage(pieceImage, 
-                pos.x - CELL_WIDTH / 2, 
-                pos.y - CELL_HEIGHT / 2,
-                CELL_WIDTH, CELL_HEIGHT, this);
-        } else {
+        Rectangle cell = getCellBounds(position);
+        if (!drawPieceImage(g2d, piece, cell.x, cell.y)) {
             // Fallback: draw text representation
             Point pos = getPointFromPosition(position);
             g2d.setColor(piece.isRed() ? Color.RED : Color.BLACK);
@@ -506,4 +687,23 @@ public class ChessBoardPanel extends JPanel {
                 pos.y + textHeight / 4);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Draw a piece's image with its top-left corner at the given point.
+     * @return false if there is no image for the piece
+     */
+    private boolean drawPieceImage(Graphics2D g2d, ChessPiece piece, int x, int y) {
+        String imageKey = getPieceImageKey(piece);
+        Integer number = pieceImageNumbers.get(imageKey);
+        if (number != null && getPieceAtlas().draw(g2d, number - 1, x, y, CELL_WIDTH, CELL_HEIGHT)) {
+            return true;
+        }
+        
+        Image placeholder = pieceImages.get(imageKey);
+        if (placeholder != null) {
+            g2d.drawImage(placeholder, x, y, null);
+            return true;
+        }
+        return false;
+    }
+}
@@ -331,7 +331,8 @@ public class GameFrame extends JFrame implements ChessBoardPanel.BoardEventListe
     public void updateGameState(GameState newState) {
         this.gameState = newState;
         
-        SwingUtilities.invokeLater(() -> {
+        // Already on the EDT when called from the client's per-frame update
+        runOnEventDispatchThread(() -> {
             // Set local player if not already set
             boardPanel.setLocalPlayer(localPlayer, newState);
             
@@ -366,6 +367,14 @@ public class GameFrame extends JFrame implements ChessBoardPanel.BoardEventListe
         });
     }
     
+    private static void runOnEventDispatchThread(Runnable update) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            update.run();
+        } else {
+            SwingUtilities.invokeLater(update);
+        }
+    }
+    
     /**
      * Get human-readable status text.
      */
@@ -0,0 +1,235 @@
+package com.xiangqi.client.ui;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * List model that keeps its elements sorted and indexed by id, for lobby
+ * lists with thousands of rows.
+ * Looking up an element by id is a hash lookup and finding its row is a
+ * binary search. Each change fires one event covering only the rows it
+ * touched, and replacing or extending the whole list fires at most two
+ * events rather than one per row.
+ * Elements that compare equal, or all elements when there is no comparator,
+ * keep the order in which they were first added.
+ */
+class IndexedListModel<T> extends AbstractListModel<T> {
+    private final Function<T, String> idOf;
+    private Comparator<? super T> order;
+    
+    private final List<Entry<T>> rows = new ArrayList<>();
+    private final Map<String, Entry<T>> byId = new HashMap<>();
+    private long nextSequence;
+    
+    // Sorts by the element order, then by when the element was first added
+    private final Comparator<Entry<T>> rowOrder = (a, b) -> {
+        if (order != null) {
+            int result = order.compare(a.value, b.value);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Long.compare(a.sequence, b.sequence);
+    };
+    
+    /**
+     * @param idOf gets the id that identifies an element across updates
+     * @param order the row order, or null to keep elements in the order they were added
+     */
+    IndexedListModel(Function<T, String> idOf, Comparator<? super T> order) {
+        this.idOf = idOf;
+        this.order = order;
+    }
+    
+    @Override
+    public int getSize() {
+        return rows.size();
+    }
+    
+    @Override
+    public T getElementAt(int index) {
+        return rows.get(index).value;
+    }
+    
+    /**
+     * Gets the element with an id, or null if there is none.
+     */
+    T get(String id) {
+        Entry<T> entry = byId.get(id);
+        return entry != null ? entry.value : null;
+    }
+    
+    /**
+     * Gets the row of the element with an id, or -1 if there is none.
+     */
+    int indexOf(String id) {
+        Entry<T> entry = byId.get(id);
+        return entry != null ? Collections.binarySearch(rows, entry, rowOrder) : -1;
+    }
+    
+    /**
+     * Adds an element, or replaces the element with the same id. A replaced
+     * element that sorts to the same row is updated in place.
+     */
+    void put(T value) {
+        String id = idOf.apply(value);
+        Entry<T> existing = byId.get(id);
+        if (existing != null) {
+            int index = Collections.binarySearch(rows, existing, rowOrder);
+            Entry<T> updated = new Entry<>(value, existing.sequence);
+            if (staysAt(index, updated)) {
+                rows.set(index, updated);
+                byId.put(id, updated);
+                fireContentsChanged(this, index, index);
+                return;
+            }
+            rows.remove(index);
+            byId.remove(id);
+            fireIntervalRemoved(this, index, index);
+            insert(id, updated);
+            return;
+        }
+        insert(id, new Entry<>(value, nextSequence++));
+    }
+    
+    /**
+     * Removes the element with an id.
+     * @return false if there was none
+     */
+    boolean remove(String id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        rows.remove(index);
+        byId.remove(id);
+        fireIntervalRemoved(this, index, index);
+        return true;
+    }
+    
+    /**
+     * Replaces every element.
+     */
+    void setAll(Collection<? extends T> values) {
+        int oldSize = rows.size();
+        rows.clear();
+        byId.clear();
+        appendSorted(values);
+        fireReplaced(oldSize);
+    }
+    
+    /**
+     * Adds elements, such as the next page of a query, with one or two events.
+     */
+    void addAll(Collection<? extends T> values) {
+        int oldSize = rows.size();
+        boolean appendOnly = order == null;
+        for (T value : values) {
+            if (byId.containsKey(idOf.apply(value))) {
+                appendOnly = false;
+            }
+        }
+        appendSorted(values);
+        
+        if (appendOnly) {
+            if (rows.size() > oldSize) {
+                fireIntervalAdded(this, oldSize, rows.size() - 1);
+            }
+        } else {
+            fireReplaced(oldSize);
+        }
+    }
+    
+    void clear() {
+        int oldSize = rows.size();
+        rows.clear();
+        byId.clear();
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+    
+    /**
+     * Changes the row order and re-sorts.
+     * @param order the new order, or null to order rows by when they were added
+     */
+    void setOrder(Comparator<? super T> order) {
+        this.order = order;
+        rows.sort(rowOrder);
+        if (!rows.isEmpty()) {
+            fireContentsChanged(this, 0, rows.size() - 1);
+        }
+    }
+    
+    private void insert(String id, Entry<T> entry) {
+        int index = -(Collections.binarySearch(rows, entry, rowOrder) + 1);
+        rows.add(index, entry);
+        byId.put(id, entry);
+        fireIntervalAdded(this, index, index);
+    }
+    
+    /**
+     * Checks whether an updated entry still sorts between the neighbours of its row.
+     */
+    private boolean staysAt(int index, Entry<T> updated) {
+        return (index == 0 || rowOrder.compare(rows.get(index - 1), updated) < 0)
+            && (index == rows.size() - 1 || rowOrder.compare(updated, rows.get(index + 1)) < 0);
+    }
+    
+    /**
+     * Adds values without firing events, keeping the earlier sequence of any
+     * element already present, and re-sorts once.
+     */
+    private void appendSorted(Collection<? extends T> values) {
+        Set<Entry<T>> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (T value : values) {
+            String id = idOf.apply(value);
+            Entry<T> previous = byId.get(id);
+            Entry<T> entry = new Entry<>(value, previous != null ? previous.sequence : nextSequence++);
+            if (previous != null) {
+                replaced.add(previous);
+            }
+            rows.add(entry);
+            byId.put(id, entry);
+        }
+        if (!replaced.isEmpty()) {
+            rows.removeIf(replaced::contains);
+        }
+        rows.sort(rowOrder);
+    }
+    
+    /**
+     * Fires the fewest events describing a change from oldSize rows to the current rows.
+     */
+    private void fireReplaced(int oldSize) {
+        int newSize = rows.size();
+        int common = Math.min(oldSize, newSize);
+        if (oldSize > newSize) {
+            fireIntervalRemoved(this, newSize, oldSize - 1);
+        } else if (newSize > oldSize) {
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        }
+        if (common > 0) {
+            fireContentsChanged(this, 0, common - 1);
+        }
+    }
+    
+    private static final class Entry<T> {
+        final T value;
+        final long sequence;
+        
+        Entry(T value, long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.xiangqi.client.ui;
+
+import com.xiangqi.shared.engine.RuleValidator;
+import com.xiangqi.shared.model.ChessPiece;
+import com.xiangqi.shared.model.GameState;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Position;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Legal moves for the side to move, worked out once per game state on a
+ * background thread.
+ * Pieces only know their pseudo-legal moves, which include moves that would
+ * leave their own general in check. This cache filters every piece's moves
+ * with the same RuleValidator the server uses, so the board can highlight
+ * exactly the squares a piece may move to, and can refuse an illegal move
+ * without sending it to the server.
+ * Nothing here waits for the worker. Until the moves of the latest state are
+ * ready, a piece's pseudo-legal moves are given instead, and the server still
+ * checks those.
+ */
+class LegalMoveCache {
+    private static final Logger LOGGER = Logger.getLogger(LegalMoveCache.class.getName());
+    
+    // One worker for every board; a game state takes a few milliseconds to work through
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LegalMoveCache-Worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final RuleValidator ruleValidator = new RuleValidator();
+    private final Runnable onReady;
+    private volatile CompletableFuture<Map<Position, List<Position>>> current =
+        CompletableFuture.completedFuture(Collections.emptyMap());
+    private GameState state; // The latest state, used on the thread that calls update
+    
+    LegalMoveCache() {
+        this(null);
+    }
+    
+    /**
+     * Creates a cache that runs a callback on the event dispatch thread each
+     * time the legal moves of the latest state are ready.
+     */
+    LegalMoveCache(Runnable onReady) {
+        this.onReady = onReady;
+    }
+    
+    /**
+     * Starts working out the legal moves for a new game state. The state is
+     * copied first, because rule checks briefly move pieces around and the
+     * original is still being painted.
+     */
+    void update(GameState state) {
+        CompletableFuture<Map<Position, List<Position>>> future = new CompletableFuture<>();
+        current = future;
+        this.state = state;
+        if (state == null || !isPlaying(state.getStatus())) {
+            future.complete(Collections.emptyMap());
+            return;
+        }
+        
+        if (onReady != null) {
+            future.thenRun(() -> SwingUtilities.invokeLater(() -> {
+                if (future == current) {
+                    onReady.run();
+                }
+            }));
+        }
+        GameState copy = state.copy();
+        WORKER.execute(() -> {
+            if (future != current) {
+                // A newer state arrived before this one was started
+                future.complete(Collections.emptyMap());
+                return;
+            }
+            try {
+                future.complete(computeLegalMoves(copy));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not work out legal moves", e);
+                future.complete(Collections.emptyMap());
+            }
+        });
+    }
+    
+    /**
+     * Gets the squares the piece on a square may legally move to, or its
+     * pseudo-legal moves while the latest state is still being worked out.
+     */
+    List<Position> getMoves(Position from) {
+        Map<Position, List<Position>> legalMoves = current.getNow(null);
+        if (legalMoves == null) {
+            return getPseudoLegalMoves(from);
+        }
+        List<Position> moves = legalMoves.get(from);
+        return moves != null ? moves : Collections.emptyList();
+    }
+    
+    /**
+     * Checks whether moving the piece on one square to another is legal in the
+     * latest state, or pseudo-legal if that state is still being worked out.
+     */
+    boolean isLegal(Position from, Position to) {
+        return getMoves(from).contains(to);
+    }
+    
+    /**
+     * Checks whether the legal moves of the latest state have been worked out.
+     */
+    boolean isReady() {
+        return current.isDone();
+    }
+    
+    /**
+     * Waits until the legal moves of the latest state have been worked out.
+     * Not for use on the event dispatch thread.
+     * @return false if they were not ready within the timeout
+     */
+    boolean awaitReady(long timeoutMillis) throws InterruptedException {
+        try {
+            current.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Gets the destinations the piece offers itself, which may leave its own general in check.
+     */
+    private List<Position> getPseudoLegalMoves(Position from) {
+        GameState shown = state;
+        ChessPiece piece = shown != null ? shown.getPiece(from) : null;
+        if (piece == null || !piece.getOwner().equals(shown.getCurrentPlayer())) {
+            return Collections.emptyList();
+        }
+        List<Position> destinations = new ArrayList<>();
+        for (Move move : piece.getValidMoves(shown)) {
+            destinations.add(move.getTo());
+        }
+        return destinations;
+    }
+    
+    private static boolean isPlaying(GameStatus status) {
+        return status == GameStatus.IN_PROGRESS || status == GameStatus.CHECK;
+    }
+    
+    /**
+     * Gets the legal destinations of every piece belonging to the side to move.
+     */
+    private Map<Position, List<Position>> computeLegalMoves(GameState state) {
+        Map<Position, List<Position>> legalMoves = new HashMap<>();
+        for (int row = 0; row < Position.BOARD_ROWS; row++) {
+            for (int col = 0; col < Position.BOARD_COLS; col++) {
+                Position position = new Position(row, col);
+                ChessPiece piece = state.getPiece(position);
+                if (piece == null || !piece.getOwner().equals(state.getCurrentPlayer())) {
+                    continue;
+                }
+                
+                // Make sure the piece agrees with the board about where it is
+                piece.setPosition(position);
+                List<Position> destinations = new ArrayList<>();
+                for (Move move : piece.getValidMoves(state)) {
+                    if (ruleValidator.isValidMove(move, state)) {
+                        destinations.add(move.getTo());
+                    }
+                }
+                if (!destinations.isEmpty()) {
+                    legalMoves.put(position, Collections.unmodifiableList(destinations));
+                }
+            }
+        }
+        return Collections.unmodifiableMap(legalMoves);
+    }
+}
@@ -3,12 +3,16 @@ package com.xiangqi.client.ui;
 import com.xiangqi.shared.model.GameSession;
 import com.xiangqi.shared.model.Player;
 import com.xiangqi.shared.model.PlayerStatus;
+import com.xiangqi.shared.network.messages.LobbyDeltaMessage;
+import com.xiangqi.shared.network.messages.PlayerListRequestMessage;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -16,8 +20,13 @@ import java.util.List;
  * 实现需求 2.1, 2.2, 2.3, 2.4, 2.5
  */
 public class LobbyFrame extends JFrame {
-    private DefaultListModel<Player> playerListModel;
-    private DefaultListModel<GameSession> gameListModel;
+    // 大厅默认按用户名排序；搜索结果保持服务器返回的顺序
+    private static final Comparator<Player> LOBBY_ORDER =
+        Comparator.comparing(Player::getUsername, String.CASE_INSENSITIVE_ORDER);
+    
+    // 按ID索引的列表模型，增量变更只通知受影响的行
+    private IndexedListModel<Player> playerListModel;
+    private IndexedListModel<GameSession> gameListModel;
     private JList<Player> playerList;
     private JList<GameSession> gameList;
     private JButton inviteButton;
@@ -25,6 +34,15 @@ public class LobbyFrame extends JFrame {
     private JButton logoutButton;
     private JLabel statusLabel;
     private JLabel currentPlayerLabel;
+    private JTextField searchField;
+    private JComboBox<String> sortComboBox;
+    private JButton moreButton;
+    
+    // 玩家搜索/排序状态：激活时列表显示服务器分页查询结果，而不是增量推送的全体玩家
+    private boolean playerQueryActive;
+    private String queryPrefix = "";
+    private PlayerListRequestMessage.SortKey querySortKey = PlayerListRequestMessage.SortKey.NAME;
+    private int nextQueryOffset; // 服务器已返回的结果数，本地列表会去掉当前玩家
     
     private Timer refreshTimer;
     private Player currentPlayer;
@@ -56,22 +74,32 @@ public class LobbyFrame extends JFrame {
      */
     private void initializeComponents() {
         // 列表模型
-        playerListModel = new DefaultListModel<>();
-        gameListModel = new DefaultListModel<>();
+        playerListModel = new IndexedListModel<>(Player::getPlayerId, LOBBY_ORDER);
+        gameListModel = new IndexedListModel<>(GameSession::getSessionId, null);
         
-        // 列表组件
+        // 列表组件；原型单元格固定行高和宽度，列表只需渲染可见行，而不必逐行测量
+        Player prototypePlayer = new Player("prototype", "WWWWWWWWWWWWWWWW");
         playerList = new JList<>(playerListModel);
         playerList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         playerList.setCellRenderer(new PlayerListCellRenderer());
+        playerList.setPrototypeCellValue(prototypePlayer);
         
         gameList = new JList<>(gameListModel);
         gameList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         gameList.setCellRenderer(new GameListCellRenderer());
+        gameList.setPrototypeCellValue(new GameSession("prototype", prototypePlayer, prototypePlayer));
         
         // 按钮
         inviteButton = new JButton("邀请游戏");
         refreshButton = new JButton("刷新");
         logoutButton = new JButton("退出登录");
+        moreButton = new JButton("更多");
+        moreButton.setEnabled(false);
+        
+        // 搜索与排序
+        searchField = new JTextField(12);
+        searchField.setToolTipText("输入用户名前缀后按回车搜索");
+        sortComboBox = new JComboBox<>(new String[] {"默认", "按等级", "按状态"});
         
         // 标签
         statusLabel = new JLabel("欢迎来到象棋大厅");
@@ -104,6 +132,12 @@ public class LobbyFrame extends JFrame {
         JPanel playerPanel = new JPanel(new BorderLayout());
         playerPanel.setBorder(new TitledBorder("在线玩家"));
         
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.add(new JLabel("搜索:"));
+        searchPanel.add(searchField);
+        searchPanel.add(sortComboBox);
+        playerPanel.add(searchPanel, BorderLayout.NORTH);
+        
         JScrollPane playerScrollPane = new JScrollPane(playerList);
         playerScrollPane.setPreferredSize(new Dimension(350, 400));
         playerPanel.add(playerScrollPane, BorderLayout.CENTER);
@@ -111,6 +145,7 @@ public class LobbyFrame extends JFrame {
         JPanel playerButtonPanel = new JPanel(new FlowLayout());
         playerButtonPanel.add(inviteButton);
         playerButtonPanel.add(refreshButton);
+        playerButtonPanel.add(moreButton);
         playerPanel.add(playerButtonPanel, BorderLayout.SOUTH);
         
         splitPane.setLeftComponent(playerPanel);
@@ -168,12 +203,19 @@ public class LobbyFrame extends JFrame {
         refreshButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (lobbyListener != null) {
+                if (playerQueryActive) {
+                    requestPlayerQuery(0);
+                } else if (lobbyListener != null) {
                     lobbyListener.onRefreshRequest();
                 }
             }
         });
         
+        // 搜索与排序 - 由服务器分页查询
+        searchField.addActionListener(e -> requestPlayerQuery(0));
+        sortComboBox.addActionListener(e -> requestPlayerQuery(0));
+        moreButton.addActionListener(e -> requestPlayerQuery(nextQueryOffset));
+        
         // 退出登录按钮
         logoutButton.addActionListener(new ActionListener() {
             @Override
@@ -245,24 +287,103 @@ public class LobbyFrame extends JFrame {
         }
     }
     
+    /**
+     * 根据搜索框和排序选项请求一页玩家；两者都为默认值时恢复完整列表
+     */
+    private void requestPlayerQuery(int offset) {
+        queryPrefix = searchField.getText().trim();
+        switch (sortComboBox.getSelectedIndex()) {
+            case 1:
+                querySortKey = PlayerListRequestMessage.SortKey.RATING;
+                break;
+            case 2:
+                querySortKey = PlayerListRequestMessage.SortKey.STATUS;
+                break;
+            default:
+                querySortKey = PlayerListRequestMessage.SortKey.NAME;
+                break;
+        }
+        
+        boolean wasActive = playerQueryActive;
+        playerQueryActive = !queryPrefix.isEmpty() || sortComboBox.getSelectedIndex() != 0;
+        if (!(lobbyListener instanceof ExtendedLobbyListener)) {
+            playerQueryActive = false;
+            return;
+        }
+        if (playerQueryActive) {
+            ((ExtendedLobbyListener) lobbyListener).onPlayerQuery(queryPrefix, querySortKey, offset);
+        } else {
+            moreButton.setEnabled(false);
+            if (wasActive) {
+                lobbyListener.onRefreshRequest();
+            }
+        }
+    }
+    
+    /**
+     * 显示一页玩家查询结果；offset为0时替换列表，否则追加
+     */
+    public void showPlayerPage(List<Player> players, int offset, int totalCount) {
+        runOnEventDispatchThread(() -> {
+            if (!playerQueryActive) {
+                return; // 查询已取消
+            }
+            List<Player> shown = withoutCurrentPlayer(players);
+            if (offset == 0) {
+                playerListModel.setOrder(null);
+                replacePlayers(shown);
+            } else {
+                playerListModel.addAll(shown);
+            }
+            nextQueryOffset = offset + (players != null ? players.size() : 0);
+            moreButton.setEnabled(nextQueryOffset < totalCount);
+            statusLabel.setText("找到玩家: " + totalCount + " 人");
+        });
+    }
+    
     /**
      * 更新玩家列表
      */
     public void updatePlayerList(List<Player> players) {
-        SwingUtilities.invokeLater(() -> {
-            playerListModel.clear();
-            if (players != null) {
-                for (Player player : players) {
-                    // 不显示当前玩家自己
-                    if (currentPlayer == null || !player.equals(currentPlayer)) {
-                        playerListModel.addElement(player);
-                    }
-                }
+        runOnEventDispatchThread(() -> {
+            if (playerQueryActive) {
+                return; // 正在显示搜索结果
             }
+            playerListModel.setOrder(LOBBY_ORDER);
+            replacePlayers(withoutCurrentPlayer(players));
             statusLabel.setText("在线玩家: " + playerListModel.getSize() + " 人");
         });
     }
     
+    /**
+     * 替换全部玩家，并按ID保留选中的玩家
+     */
+    private void replacePlayers(List<Player> players) {
+        Player selected = playerList.getSelectedValue();
+        playerListModel.setAll(players);
+        int index = selected != null ? playerListModel.indexOf(selected.getPlayerId()) : -1;
+        if (index >= 0) {
+            playerList.setSelectedIndex(index);
+        } else {
+            playerList.clearSelection();
+        }
+    }
+    
+    /**
+     * 不显示当前玩家自己
+     */
+    private List<Player> withoutCurrentPlayer(List<Player> players) {
+        List<Player> shown = new ArrayList<>();
+        if (players != null) {
+            for (Player player : players) {
+                if (currentPlayer == null || !player.equals(currentPlayer)) {
+                    shown.add(player);
+                }
+            }
+        }
+        return shown;
+    }
+    
     /**
      * 根据玩家ID查找玩家
      */
@@ -276,31 +397,69 @@ public class LobbyFrame extends JFrame {
             return currentPlayer;
         }
         
-        // Search in the player list
-        for (int i = 0; i < playerListModel.getSize(); i++) {
-            Player player = playerListModel.getElementAt(i);
-            if (playerId.equals(player.getPlayerId())) {
-                return player;
-            }
-        }
-        
-        return null;
+        return playerListModel.get(playerId);
     }
     
     /**
      * 更新游戏列表
      */
     public void updateGameList(List<GameSession> games) {
-        SwingUtilities.invokeLater(() -> {
-            gameListModel.clear();
-            if (games != null) {
-                for (GameSession game : games) {
-                    gameListModel.addElement(game);
-                }
+        runOnEventDispatchThread(() -> {
+            GameSession selected = gameList.getSelectedValue();
+            gameListModel.setAll(games != null ? games : new ArrayList<>());
+            int index = selected != null ? gameListModel.indexOf(selected.getSessionId()) : -1;
+            if (index >= 0) {
+                gameList.setSelectedIndex(index);
+            } else {
+                gameList.clearSelection();
+            }
+        });
+    }
+    
+    /**
+     * 应用一条增量大厅变更，只修改受影响的行
+     */
+    public void applyLobbyDelta(LobbyDeltaMessage delta) {
+        runOnEventDispatchThread(() -> {
+            switch (delta.getChangeType()) {
+                case PLAYER_JOINED:
+                case PLAYER_STATUS_CHANGED:
+                    Player player = delta.getPlayer();
+                    // 不显示当前玩家自己；搜索结果只更新已显示的玩家
+                    if ((currentPlayer == null || !player.equals(currentPlayer))
+                            && (!playerQueryActive || playerListModel.get(delta.getSubjectId()) != null)) {
+                        playerListModel.put(player);
+                    }
+                    break;
+                case PLAYER_LEFT:
+                    playerListModel.remove(delta.getSubjectId());
+                    break;
+                case GAME_STARTED:
+                    if (gameListModel.get(delta.getSubjectId()) == null) {
+                        gameListModel.put(delta.getGame());
+                    }
+                    break;
+                case GAME_ENDED:
+                    gameListModel.remove(delta.getSubjectId());
+                    break;
+            }
+            if (!playerQueryActive) {
+                statusLabel.setText("在线玩家: " + playerListModel.getSize() + " 人");
             }
         });
     }
     
+    /**
+     * 已在事件分发线程上时直接执行，否则排队执行，保证快照与其后的增量按顺序应用
+     */
+    private static void runOnEventDispatchThread(Runnable update) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            update.run();
+        } else {
+            SwingUtilities.invokeLater(update);
+        }
+    }
+    
     /**
      * 显示游戏邀请对话框
      */
@@ -362,11 +521,8 @@ public class LobbyFrame extends JFrame {
      * 显示大厅界面
      */
     public void showLobby() {
+        // 大厅数据由服务器增量推送，不再定时轮询
         setVisible(true);
-        startAutoRefresh();
-        if (lobbyListener != null) {
-            lobbyListener.onRefreshRequest(); // 立即刷新一次
-        }
     }
     
     /**
@@ -382,6 +538,11 @@ public class LobbyFrame extends JFrame {
      */
     public interface ExtendedLobbyListener extends LobbyListener {
         void onInvitationResponse(String invitationId, boolean accepted);
+        
+        /**
+         * 请求一页玩家搜索结果
+         */
+        default void onPlayerQuery(String namePrefix, PlayerListRequestMessage.SortKey sortKey, int offset) {}
     }
     
     /**
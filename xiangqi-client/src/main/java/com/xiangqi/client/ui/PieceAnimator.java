@@ -0,0 +1,147 @@
+package com.xiangqi.client.ui;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import java.awt.Rectangle;
+
+/**
+ * Drives one sliding sprite across a component with a fixed-rate Swing timer.
+ * Each tick repaints only the area the sprite left and entered. Position is
+ * derived from elapsed time rather than from the number of ticks, so when the
+ * event dispatch thread is busy the timer coalesces ticks and the animation
+ * skips frames instead of slowing down.
+ */
+class PieceAnimator {
+    static final int FRAME_MILLIS = 16; // About 60 frames per second
+    
+    static final int SLOW_MILLIS = 400;
+    static final int NORMAL_MILLIS = 250;
+    static final int FAST_MILLIS = 150;
+    
+    private final JComponent target;
+    private final Timer timer;
+    private final int durationMillis;
+    
+    private Rectangle from;
+    private Rectangle to;
+    private Rectangle extraDirty; // Also repainted every frame, such as a fading capture
+    private Rectangle lastBounds;
+    private long startNanos;
+    private double progress;
+    private Runnable onFinished;
+    
+    /**
+     * @param target the component the sprite is drawn on
+     * @param durationMillis how long each animation runs
+     */
+    PieceAnimator(JComponent target, int durationMillis) {
+        this.target = target;
+        this.durationMillis = Math.max(1, durationMillis);
+        this.timer = new Timer(FRAME_MILLIS, e -> tick());
+        this.timer.setCoalesce(true);
+    }
+    
+    /**
+     * Gets the duration for a ui.animationSpeed setting: slow, normal or fast.
+     */
+    static int getDurationMillis(String speed) {
+        if ("slow".equalsIgnoreCase(speed)) {
+            return SLOW_MILLIS;
+        }
+        if ("fast".equalsIgnoreCase(speed)) {
+            return FAST_MILLIS;
+        }
+        return NORMAL_MILLIS;
+    }
+    
+    /**
+     * Starts sliding a sprite, first finishing any animation still running.
+     * @param extraDirty an area to repaint on every frame as well, or null
+     * @param onFinished run on the event dispatch thread when the sprite arrives
+     */
+    void start(Rectangle from, Rectangle to, Rectangle extraDirty, Runnable onFinished) {
+        finish();
+        this.from = from;
+        this.to = to;
+        this.extraDirty = extraDirty;
+        this.onFinished = onFinished;
+        this.lastBounds = from;
+        this.progress = 0;
+        this.startNanos = System.nanoTime();
+        timer.start();
+    }
+    
+    /**
+     * Jumps a running animation to its end.
+     */
+    void finish() {
+        if (!timer.isRunning()) {
+            return;
+        }
+        progress = 1;
+        complete();
+    }
+    
+    boolean isRunning() {
+        return timer.isRunning();
+    }
+    
+    /**
+     * Gets how far through the animation is, from 0 to 1, before easing.
+     */
+    double getProgress() {
+        return progress;
+    }
+    
+    /**
+     * Gets where the sprite is drawn this frame.
+     */
+    Rectangle getSpriteBounds() {
+        return interpolate(from, to, ease(progress));
+    }
+    
+    private void tick() {
+        progress = Math.min(1.0, (System.nanoTime() - startNanos) / (durationMillis * 1_000_000.0));
+        if (progress >= 1.0) {
+            complete();
+            return;
+        }
+        
+        Rectangle bounds = getSpriteBounds();
+        Rectangle dirty = bounds.union(lastBounds);
+        if (extraDirty != null) {
+            dirty = dirty.union(extraDirty);
+        }
+        target.repaint(dirty);
+        lastBounds = bounds;
+    }
+    
+    private void complete() {
+        timer.stop();
+        Rectangle dirty = lastBounds.union(to);
+        if (extraDirty != null) {
+            dirty = dirty.union(extraDirty);
+        }
+        target.repaint(dirty);
+        
+        Runnable finished = onFinished;
+        onFinished = null;
+        if (finished != null) {
+            finished.run();
+        }
+    }
+    
+    /**
+     * Eases out, so the sprite decelerates into its destination.
+     */
+    static double ease(double t) {
+        double remaining = 1 - t;
+        return 1 - remaining * remaining * remaining;
+    }
+    
+    static Rectangle interpolate(Rectangle from, Rectangle to, double t) {
+        int x = (int) Math.round(from.x + (to.x - from.x) * t);
+        int y = (int) Math.round(from.y + (to.y - from.y) * t);
+        return new Rectangle(x, y, to.width, to.height);
+    }
+}
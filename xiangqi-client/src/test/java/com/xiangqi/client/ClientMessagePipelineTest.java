@@ -0,0 +1,100 @@
+package com.xiangqi.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClientMessagePipeline.
+ */
+public class ClientMessagePipelineTest {
+    
+    // Runs frame updates on the pipeline thread in place of the EDT
+    private final ClientMessagePipeline pipeline = new ClientMessagePipeline(Runnable::run);
+    
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+    
+    @Test
+    void testBurstOfUpdatesCoalescesToLatest() throws InterruptedException {
+        List<Integer> shown = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        
+        pipeline.execute(() -> {
+            // Posted from one task, so all of them land before the first frame
+            for (int i = 1; i <= 100; i++) {
+                int value = i;
+                pipeline.post("game", () -> shown.add(value));
+            }
+            pipeline.post("done", done::countDown);
+        });
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(100), shown);
+        assertEquals(99, pipeline.getCoalescedCount());
+        assertEquals(1, pipeline.getFlushCount());
+    }
+    
+    @Test
+    void testAppendedUpdatesAllRunInOrder() throws InterruptedException {
+        List<String> applied = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        
+        pipeline.execute(() -> {
+            pipeline.append("lobby", () -> applied.add("delta 1"));
+            pipeline.post("lobby", () -> applied.add("snapshot"));
+            pipeline.append("lobby", () -> applied.add("delta 2"));
+            pipeline.append("lobby", () -> applied.add("delta 3"));
+            pipeline.post("done", done::countDown);
+        });
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("snapshot", "delta 2", "delta 3"), applied);
+    }
+    
+    @Test
+    void testFramesArePaced() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+        long[] times = new long[2];
+        
+        pipeline.execute(() -> pipeline.post("a", () -> {
+            times[0] = System.nanoTime();
+            first.countDown();
+        }));
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        pipeline.execute(() -> pipeline.post("a", () -> {
+            times[1] = System.nanoTime();
+            second.countDown();
+        }));
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        
+        // Less a millisecond for the time between starting a frame and running its update
+        assertTrue(times[1] - times[0] >= ClientMessagePipeline.FRAME_NANOS - TimeUnit.MILLISECONDS.toNanos(1),
+                   "Consecutive UI updates should be at least a frame apart");
+    }
+    
+    @Test
+    void testModelWorkRunsInOrderAndSurvivesFailures() throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        
+        pipeline.execute(() -> order.add(1));
+        pipeline.execute(() -> {
+            throw new IllegalStateException("bad message");
+        });
+        pipeline.execute(() -> order.add(2));
+        pipeline.execute(done::countDown);
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2), order);
+    }
+}
@@ -0,0 +1,90 @@
+package com.xiangqi.client.multimedia;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AssetPack and AssetPackBuilder.
+ */
+public class AssetPackTest {
+    
+    @TempDir
+    File tempDir;
+    
+    @Test
+    void testRoundTrip() throws IOException {
+        File pack = new File(tempDir, "test.pack");
+        new AssetPackBuilder()
+            .add("source/img/a.gif", bytes("first"))
+            .add("source/audio/b.wav", bytes("second asset"))
+            .add("source/empty", new byte[0])
+            .write(pack);
+        
+        AssetPack assets = AssetPack.open(pack);
+        assertEquals(3, assets.size());
+        assertArrayEquals(bytes("first"), assets.read("source/img/a.gif"));
+        assertArrayEquals(bytes("second asset"), assets.read("source/audio/b.wav"));
+        assertEquals(0, assets.read("source/empty").length);
+        assertFalse(assets.contains("source/img/missing.gif"));
+        assertNull(assets.read("source/img/missing.gif"));
+        
+        ByteBuffer buffer = assets.getBuffer("source/img/a.gif");
+        assertTrue(buffer.isReadOnly());
+        assertEquals(5, buffer.remaining());
+    }
+    
+    @Test
+    void testAddDirectoryUsesRelativePaths() throws IOException {
+        File source = new File(tempDir, "source");
+        File qizi = new File(source, "qizi");
+        assertTrue(qizi.mkdirs());
+        Files.write(new File(qizi, "1.gif").toPath(), bytes("piece"));
+        
+        AssetPackBuilder builder = new AssetPackBuilder();
+        builder.addDirectory(source);
+        File pack = new File(tempDir, "dir.pack");
+        builder.write(pack);
+        
+        String name = source.getPath().replace(File.separatorChar, '/') + "/qizi/1.gif";
+        assertArrayEquals(bytes("piece"), AssetPack.open(pack).read(name));
+    }
+    
+    @Test
+    void testRejectsFileThatIsNotAPack() throws IOException {
+        File file = new File(tempDir, "not.pack");
+        Files.write(file.toPath(), bytes("GIF89a, not a pack"));
+        assertThrows(IOException.class, () -> AssetPack.open(file));
+    }
+    
+    @Test
+    void testRejectsTruncatedPack() throws IOException {
+        File pack = new File(tempDir, "truncated.pack");
+        new AssetPackBuilder().add("a", bytes("some data")).write(pack);
+        byte[] whole = Files.readAllBytes(pack.toPath());
+        Files.write(pack.toPath(), Arrays.copyOf(whole, whole.length - 4));
+        assertThrows(IOException.class, () -> AssetPack.open(pack));
+    }
+    
+    @Test
+    void testDefaultPackFallsBackToEmpty() {
+        // No pack in the test working directory, so loose files are used
+        AssetPack assets = AssetPack.getDefault();
+        assertNotNull(assets);
+        if (!new File(AssetPack.DEFAULT_PACK_FILE).exists()) {
+            assertEquals(0, assets.size());
+        }
+    }
+    
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.xiangqi.client.multimedia;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AudioMixer.
+ */
+public class AudioMixerTest {
+    
+    @TempDir
+    File tempDir;
+    
+    @Test
+    void testOverlappingVoicesAreSummed() {
+        List<AudioMixer.Voice> voices = new ArrayList<>();
+        voices.add(new AudioMixer.Voice(constant(1000, 4)));
+        voices.add(new AudioMixer.Voice(constant(500, 2)));
+        
+        short[] out = new short[4];
+        AudioMixer.mix(voices, out, 1f);
+        
+        assertArrayEquals(new short[] {1500, 1500, 1000, 1000}, out);
+        assertTrue(voices.isEmpty(), "Finished voices should be removed");
+    }
+    
+    @Test
+    void testMixClipsAndAppliesVolume() {
+        List<AudioMixer.Voice> voices = new ArrayList<>();
+        voices.add(new AudioMixer.Voice(constant(30000, 2)));
+        voices.add(new AudioMixer.Voice(constant(30000, 2)));
+        short[] out = new short[2];
+        AudioMixer.mix(voices, out, 1f);
+        assertEquals(Short.MAX_VALUE, out[0]);
+        
+        voices.add(new AudioMixer.Voice(constant(1000, 2)));
+        AudioMixer.mix(voices, out, 0.5f);
+        assertEquals(500, out[0]);
+    }
+    
+    @Test
+    void testVoiceContinuesAcrossChunks() {
+        List<AudioMixer.Voice> voices = new ArrayList<>();
+        voices.add(new AudioMixer.Voice(new short[] {1, 2, 3}));
+        short[] out = new short[2];
+        
+        AudioMixer.mix(voices, out, 1f);
+        assertArrayEquals(new short[] {1, 2}, out);
+        AudioMixer.mix(voices, out, 1f);
+        assertArrayEquals(new short[] {3, 0}, out);
+        assertTrue(voices.isEmpty());
+    }
+    
+    @Test
+    void testDecodeConvertsEightBitToMixerRate() throws Exception {
+        // One second of 8-bit unsigned silence at 11025 Hz, like go.wav
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 11025f, 8, 1, 1, 11025f, false);
+        byte[] data = new byte[11025];
+        Arrays.fill(data, (byte) 128);
+        File file = new File(tempDir, "silence.wav");
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(data), format, data.length),
+                          AudioFileFormat.Type.WAVE, file);
+        
+        short[] samples = AudioMixer.decode(file);
+        assertEquals((int) AudioMixer.SAMPLE_RATE, samples.length);
+        for (short sample : samples) {
+            assertTrue(Math.abs(sample) <= 256, "Unsigned midpoint should decode to silence");
+        }
+    }
+    
+    @Test
+    void testVolumeIsClamped() {
+        AudioMixer mixer = new AudioMixer(2f);
+        assertEquals(1f, mixer.getVolume());
+        mixer.setVolume(-1f);
+        assertEquals(0f, mixer.getVolume());
+        assertFalse(mixer.isOpen());
+    }
+    
+    private short[] constant(int value, int length) {
+        short[] samples = new short[length];
+        Arrays.fill(samples, (short) value);
+        return samples;
+    }
+}
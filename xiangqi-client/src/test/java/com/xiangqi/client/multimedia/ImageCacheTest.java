@@ -0,0 +1,68 @@
+package com.xiangqi.client.multimedia;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.ImageIcon;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ImageCache functionality.
+ */
+public class ImageCacheTest {
+    
+    @Test
+    void testEvictsLeastRecentlyUsedOverEntryLimit() {
+        ImageCache cache = new ImageCache(2, Long.MAX_VALUE);
+        ImageIcon a = image(10, 10);
+        cache.put("a", a);
+        cache.put("b", image(10, 10));
+        assertSame(a, cache.get("a")); // "b" is now least recently used
+        cache.put("c", image(10, 10));
+        
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+    
+    @Test
+    void testEvictsOverByteLimit() {
+        ImageCache cache = new ImageCache(100, 10 * 10 * 4 * 2);
+        cache.put("a", image(10, 10));
+        cache.put("b", image(10, 10));
+        assertEquals(800, cache.getByteSize());
+        
+        cache.put("c", image(10, 10));
+        assertEquals(2, cache.size());
+        assertEquals(800, cache.getByteSize());
+        assertFalse(cache.contains("a"));
+    }
+    
+    @Test
+    void testEvictedImageRecoveredFromSoftTier() {
+        ImageCache cache = new ImageCache(1, Long.MAX_VALUE);
+        ImageIcon a = image(10, 10);
+        cache.put("a", a);
+        cache.put("b", image(10, 10));
+        
+        // Still strongly reachable here, so the soft reference cannot have been cleared
+        assertSame(a, cache.get("a"));
+        assertEquals(1, cache.getSoftHitCount());
+        assertNull(cache.get("missing"));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+    
+    @Test
+    void testCacheStatsReportBounds() {
+        String stats = ResourceManager.getInstance().getCacheStats();
+        assertTrue(stats.contains("Hits:"));
+        assertTrue(stats.contains("Evictions:"));
+    }
+    
+    private ImageIcon image(int width, int height) {
+        return new ImageIcon(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+    }
+}
@@ -2,6 +2,14 @@ package com.xiangqi.client.multimedia;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import javax.swing.ImageIcon;
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -117,4 +125,69 @@ public class ResourceManagerTest {
     void testCleanup() {
         assertDoesNotThrow(() -> resourceManager.cleanup(), "cleanup should not throw exception");
     }
+    
+    @Test
+    void testColdStartDoesNotWaitForImages() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // Every load waits on the latch, so nothing can finish before the test releases it
+            ResourceManager coldManager = new ResourceManager(task -> pool.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                task.run();
+            }));
+            
+            assertFalse(coldManager.whenBoardImagesLoaded().isDone(), "Constructor should return before images load");
+            assertNull(coldManager.getImage(ResourceManager.BOARD_IMAGE), "Pending image should not be waited for");
+            
+            release.countDown();
+            coldManager.whenBoardImagesLoaded().join();
+            if (new File(ResourceManager.QIZI_PATH + "1.gif").exists()) {
+                assertTrue(coldManager.getImageCache().contains("1.gif"), "Piece images should be cached once loaded");
+                assertNotNull(coldManager.getImage("1.gif"));
+            }
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testGetImageAsyncSharesPendingLoad() {
+        ResourceManager coldManager = new ResourceManager();
+        CompletableFuture<ImageIcon> first = coldManager.getImageAsync(ResourceManager.START_IMAGE);
+        CompletableFuture<ImageIcon> second = coldManager.getImageAsync(ResourceManager.START_IMAGE);
+        assertSame(first.join(), second.join(), "Concurrent requests should share one load");
+        assertSame(first.join(), coldManager.getImage(ResourceManager.START_IMAGE));
+    }
+    
+    @Test
+    void testColdStartTiming() {
+        long start = System.nanoTime();
+        ResourceManager coldManager = new ResourceManager();
+        long constructedMillis = (System.nanoTime() - start) / 1_000_000;
+        coldManager.whenBoardImagesLoaded().join();
+        long loadedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        System.out.println("ResourceManager constructed in " + constructedMillis
+                           + " ms, board images loaded after " + loadedMillis + " ms");
+        assertTrue(constructedMillis < 500, "Constructor took " + constructedMillis + " ms");
+    }
+    
+    @Test
+    void testGetEmoticonAsync() {
+        ResourceManager coldManager = new ResourceManager();
+        CompletableFuture<ImageIcon> emoticon = coldManager.getEmoticonAsync("1-1.gif");
+        assertNotNull(emoticon);
+        ImageIcon icon = emoticon.join();
+        if (new File(ResourceManager.FACE_PATH + "1-1.gif").exists()) {
+            assertNotNull(icon, "Emoticon should load from the face directory");
+            assertSame(icon, coldManager.getEmoticonAsync("1-1.gif").join(), "Loaded emoticons should be cached");
+        }
+        assertNull(coldManager.getEmoticonAsync("missing.gif").join(), "Missing emoticon should complete with null");
+    }
 }
\ No newline at end of file
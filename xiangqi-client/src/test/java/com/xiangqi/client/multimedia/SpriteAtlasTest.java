@@ -0,0 +1,57 @@
+package com.xiangqi.client.multimedia;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SpriteAtlas functionality.
+ */
+public class SpriteAtlasTest {
+    
+    @Test
+    void testDrawCopiesTheRightSprite() {
+        Image[] sources = new Image[10];
+        sources[0] = solid(Color.RED);
+        sources[9] = solid(Color.BLUE);
+        SpriteAtlas atlas = SpriteAtlas.build(sources, 10, 12, null);
+        
+        assertEquals(1.0, atlas.getScale());
+        assertEquals(10, atlas.getSpriteWidth());
+        assertTrue(atlas.contains(9));
+        assertFalse(atlas.contains(1));
+        assertFalse(atlas.isEmpty());
+        
+        BufferedImage target = new BufferedImage(20, 12, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = target.createGraphics();
+        assertTrue(atlas.draw(g2d, 0, 0, 0, 10, 12));
+        assertTrue(atlas.draw(g2d, 9, 10, 0, 10, 12));
+        assertFalse(atlas.draw(g2d, 1, 0, 0, 10, 12));
+        g2d.dispose();
+        
+        assertEquals(Color.RED.getRGB(), target.getRGB(5, 6));
+        assertEquals(Color.BLUE.getRGB(), target.getRGB(15, 6));
+    }
+    
+    @Test
+    void testPieceAtlasIsCachedBySize() {
+        ResourceManager resourceManager = ResourceManager.getInstance();
+        SpriteAtlas atlas = resourceManager.getPieceAtlas(57, 64, null);
+        assertSame(atlas, resourceManager.getPieceAtlas(57, 64, null));
+        assertNotSame(atlas, resourceManager.getPieceAtlas(40, 40, null));
+    }
+    
+    private Image solid(Color color) {
+        BufferedImage image = new BufferedImage(30, 30, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(color);
+        g2d.fillRect(0, 0, 30, 30);
+        g2d.dispose();
+        return image;
+    }
+}
@@ -6,6 +6,10 @@ import org.junit.jupiter.api.Test;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -76,4 +80,108 @@ public class ChessBoardPanelTest {
             boardPanel.setBoardEventListener(listener);
         });
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testBoardLayerRebuiltOnlyOnStateChange() {
+        gameState.initializeBoard();
+        boardPanel.setSize(boardPanel.getPreferredSize());
+        boardPanel.updateGameState(gameState);
+        
+        paint(boardPanel);
+        paint(boardPanel);
+        boardPanel.clearSelection();
+        paint(boardPanel);
+        assertEquals(1, boardPanel.getBoardLayerBuildCount());
+        
+        boardPanel.updateGameState(gameState);
+        paint(boardPanel);
+        assertEquals(2, boardPanel.getBoardLayerBuildCount());
+    }
+    
+    @Test
+    public void testSelectionIsDrawnIntoBoardLayer() {
+        gameState.initializeBoard();
+        boardPanel.setSize(boardPanel.getPreferredSize());
+        boardPanel.updateGameState(gameState);
+        paint(boardPanel);
+        assertEquals(1, boardPanel.getBoardLayerBuildCount());
+        
+        // The highlights sit under the pieces, so selecting renders the layer again
+        click(new Position(9, 0));
+        paint(boardPanel);
+        paint(boardPanel);
+        assertEquals(2, boardPanel.getBoardLayerBuildCount());
+        
+        click(new Position(9, 0));
+        paint(boardPanel);
+        assertEquals(3, boardPanel.getBoardLayerBuildCount());
+    }
+    
+    @Test
+    public void testNewMoveIsAnimatedUntilFinished() {
+        gameState.initializeBoard();
+        boardPanel.setSize(boardPanel.getPreferredSize());
+        boardPanel.updateGameState(gameState);
+        assertFalse(boardPanel.isAnimating(), "The first state shown should not animate");
+        
+        // The state is updated in place, as move deltas are applied
+        assertNotNull(gameState.applyValidatedMove(new Position(6, 0), new Position(5, 0)));
+        boardPanel.updateGameState(gameState);
+        assertTrue(boardPanel.isAnimating(), "A single new move should animate");
+        paint(boardPanel);
+        
+        boardPanel.finishAnimation();
+        assertFalse(boardPanel.isAnimating());
+        paint(boardPanel);
+        
+        // Jumping several moves at once, as after a resync, is not animated
+        gameState.applyValidatedMove(new Position(3, 0), new Position(4, 0));
+        gameState.applyValidatedMove(new Position(5, 0), new Position(4, 1));
+        boardPanel.updateGameState(gameState);
+        assertFalse(boardPanel.isAnimating());
+    }
+    
+    @Test
+    public void testOnlyLegalMovesAreAttempted() {
+        gameState.initializeBoard();
+        boardPanel.setSize(boardPanel.getPreferredSize());
+        boardPanel.updateGameState(gameState);
+        
+        List<Position> attempted = new ArrayList<>();
+        boardPanel.setBoardEventListener(new ChessBoardPanel.BoardEventListener() {
+            @Override
+            public void onMoveAttempted(Position from, Position to) {
+                attempted.add(to);
+            }
+            
+            @Override
+            public void onPieceSelected(Position position) {
+            }
+        });
+        
+        // The chariot is blocked by its own soldier, so this move never reaches the listener
+        click(new Position(9, 0));
+        click(new Position(5, 0));
+        assertTrue(attempted.isEmpty());
+        
+        click(new Position(9, 0));
+        click(new Position(7, 0));
+        assertEquals(List.of(new Position(7, 0)), attempted);
+    }
+    
+    private void click(Position position) {
+        int cellWidth = boardPanel.getPreferredSize().width / Position.BOARD_COLS;
+        int cellHeight = boardPanel.getPreferredSize().height / Position.BOARD_ROWS;
+        int x = position.getCol() * cellWidth + cellWidth / 2;
+        int y = position.getRow() * cellHeight + cellHeight / 2;
+        boardPanel.dispatchEvent(new MouseEvent(boardPanel, MouseEvent.MOUSE_CLICKED,
+            System.currentTimeMillis(), 0, x, y, 1, false, MouseEvent.BUTTON1));
+    }
+    
+    private void paint(JComponent component) {
+        BufferedImage image = new BufferedImage(component.getWidth(), component.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        component.paint(g2d);
+        g2d.dispose();
+    }
+}
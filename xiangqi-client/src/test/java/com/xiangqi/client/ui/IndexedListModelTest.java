@@ -0,0 +1,178 @@
+package com.xiangqi.client.ui;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IndexedListModel.
+ */
+public class IndexedListModelTest {
+    
+    private static final Comparator<String[]> BY_NAME = Comparator.comparing(row -> row[1]);
+    
+    private IndexedListModel<String[]> model;
+    private List<ListDataEvent> events;
+    
+    @BeforeEach
+    void setUp() {
+        model = new IndexedListModel<>(row -> row[0], BY_NAME);
+        events = new ArrayList<>();
+        model.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                events.add(e);
+            }
+            
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                events.add(e);
+            }
+            
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                events.add(e);
+            }
+        });
+    }
+    
+    private static String[] row(String id, String name) {
+        return new String[] {id, name};
+    }
+    
+    private List<String> names() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < model.getSize(); i++) {
+            names.add(model.getElementAt(i)[1]);
+        }
+        return names;
+    }
+    
+    @Test
+    void testPutInsertsInSortedPosition() {
+        model.put(row("1", "carol"));
+        model.put(row("2", "alice"));
+        model.put(row("3", "bob"));
+        
+        assertEquals(Arrays.asList("alice", "bob", "carol"), names());
+        assertEquals(1, model.indexOf("3"));
+        assertEquals("alice", model.get("2")[1]);
+        assertNull(model.get("missing"));
+        assertEquals(-1, model.indexOf("missing"));
+        
+        ListDataEvent last = events.get(events.size() - 1);
+        assertEquals(ListDataEvent.INTERVAL_ADDED, last.getType());
+        assertEquals(1, last.getIndex0());
+        assertEquals(1, last.getIndex1());
+    }
+    
+    @Test
+    void testUpdateInPlaceFiresSingleRowChange() {
+        model.setAll(Arrays.asList(row("1", "alice"), row("2", "bob"), row("3", "carol")));
+        events.clear();
+        
+        model.put(row("2", "bobby"));
+        
+        assertEquals(Arrays.asList("alice", "bobby", "carol"), names());
+        assertEquals(1, events.size());
+        assertEquals(ListDataEvent.CONTENTS_CHANGED, events.get(0).getType());
+        assertEquals(1, events.get(0).getIndex0());
+        assertEquals(1, events.get(0).getIndex1());
+    }
+    
+    @Test
+    void testUpdateThatChangesOrderMovesRow() {
+        model.setAll(Arrays.asList(row("1", "alice"), row("2", "bob"), row("3", "carol")));
+        events.clear();
+        
+        model.put(row("1", "dave"));
+        
+        assertEquals(Arrays.asList("bob", "carol", "dave"), names());
+        assertEquals(2, model.indexOf("1"));
+        assertEquals(2, events.size());
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, events.get(0).getType());
+        assertEquals(0, events.get(0).getIndex0());
+        assertEquals(ListDataEvent.INTERVAL_ADDED, events.get(1).getType());
+        assertEquals(2, events.get(1).getIndex0());
+    }
+    
+    @Test
+    void testRemove() {
+        model.setAll(Arrays.asList(row("1", "alice"), row("2", "bob")));
+        events.clear();
+        
+        assertTrue(model.remove("1"));
+        assertFalse(model.remove("1"));
+        
+        assertEquals(Arrays.asList("bob"), names());
+        assertNull(model.get("1"));
+        assertEquals(1, events.size());
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, events.get(0).getType());
+    }
+    
+    @Test
+    void testSetAllFiresAtMostTwoEvents() {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(row("id" + i, String.format("player%04d", 999 - i)));
+        }
+        model.setAll(rows);
+        
+        assertEquals(1000, model.getSize());
+        assertEquals("player0000", model.getElementAt(0)[1]);
+        assertEquals(1, events.size());
+        
+        events.clear();
+        model.setAll(rows.subList(0, 10));
+        assertEquals(10, model.getSize());
+        assertEquals(2, events.size());
+        assertEquals(ListDataEvent.INTERVAL_REMOVED, events.get(0).getType());
+        assertEquals(ListDataEvent.CONTENTS_CHANGED, events.get(1).getType());
+    }
+    
+    @Test
+    void testAddAllWithoutOrderAppendsPage() {
+        model.setOrder(null);
+        model.setAll(Arrays.asList(row("1", "zed"), row("2", "amy")));
+        events.clear();
+        
+        model.addAll(Arrays.asList(row("3", "kim"), row("4", "bea")));
+        
+        assertEquals(Arrays.asList("zed", "amy", "kim", "bea"), names());
+        assertEquals(1, events.size());
+        assertEquals(ListDataEvent.INTERVAL_ADDED, events.get(0).getType());
+        assertEquals(2, events.get(0).getIndex0());
+        assertEquals(3, events.get(0).getIndex1());
+    }
+    
+    @Test
+    void testAddAllReplacesExistingIdsKeepingPosition() {
+        model.setOrder(null);
+        model.setAll(Arrays.asList(row("1", "zed"), row("2", "amy")));
+        
+        model.addAll(Arrays.asList(row("1", "zoe"), row("3", "kim")));
+        
+        assertEquals(Arrays.asList("zoe", "amy", "kim"), names());
+        assertEquals(0, model.indexOf("1"));
+    }
+    
+    @Test
+    void testSetOrderResorts() {
+        model.setOrder(null);
+        model.setAll(Arrays.asList(row("1", "zed"), row("2", "amy")));
+        
+        model.setOrder(BY_NAME);
+        assertEquals(Arrays.asList("amy", "zed"), names());
+        
+        model.setOrder(null);
+        assertEquals(Arrays.asList("zed", "amy"), names());
+    }
+}
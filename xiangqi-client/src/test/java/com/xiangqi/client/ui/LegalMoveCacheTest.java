@@ -0,0 +1,157 @@
+package com.xiangqi.client.ui;
+
+import com.xiangqi.shared.model.*;
+import com.xiangqi.shared.model.pieces.Chariot;
+import com.xiangqi.shared.model.pieces.General;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LegalMoveCache.
+ */
+public class LegalMoveCacheTest {
+    
+    private Player redPlayer;
+    private Player blackPlayer;
+    private LegalMoveCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        redPlayer = new Player("red_player", "Red Player");
+        blackPlayer = new Player("black_player", "Black Player");
+        cache = new LegalMoveCache();
+    }
+    
+    private void update(GameState state) throws InterruptedException {
+        cache.update(state);
+        assertTrue(cache.awaitReady(5000), "Legal moves were not worked out in time");
+    }
+    
+    private void place(GameState state, ChessPiece piece, boolean red) {
+        piece.setRedSide(red);
+        state.setPiece(piece.getPosition(), piece);
+    }
+    
+    /**
+     * A red chariot pinned on the general's file by a black chariot.
+     */
+    private GameState createPinnedState() {
+        GameState state = new GameState(redPlayer, blackPlayer);
+        for (int row = 0; row < Position.BOARD_ROWS; row++) {
+            for (int col = 0; col < Position.BOARD_COLS; col++) {
+                state.setPiece(new Position(row, col), null);
+            }
+        }
+        place(state, new General(redPlayer, new Position(9, 4)), true);
+        place(state, new Chariot(redPlayer, new Position(5, 4)), true);
+        place(state, new General(blackPlayer, new Position(0, 3)), false);
+        place(state, new Chariot(blackPlayer, new Position(2, 4)), false);
+        return state;
+    }
+    
+    @Test
+    void testOpeningMovesForSideToMove() throws InterruptedException {
+        GameState state = new GameState(redPlayer, blackPlayer);
+        update(state);
+        
+        List<Position> chariotMoves = cache.getMoves(new Position(9, 0));
+        assertEquals(2, chariotMoves.size());
+        assertTrue(chariotMoves.contains(new Position(8, 0)));
+        assertTrue(chariotMoves.contains(new Position(7, 0)));
+        assertTrue(cache.isReady());
+        
+        // Black is not to move, so none of its pieces has moves
+        assertTrue(cache.getMoves(new Position(0, 0)).isEmpty());
+        assertTrue(cache.getMoves(new Position(4, 4)).isEmpty());
+    }
+    
+    @Test
+    void testPinnedPieceOnlyMovesAlongPin() throws InterruptedException {
+        GameState state = createPinnedState();
+        Position chariot = new Position(5, 4);
+        
+        // The piece itself offers a sideways move that would expose its general
+        boolean sidewaysPseudoLegal = state.getPiece(chariot).getValidMoves(state).stream()
+            .anyMatch(move -> move.getTo().equals(new Position(5, 0)));
+        assertTrue(sidewaysPseudoLegal);
+        
+        update(state);
+        
+        assertFalse(cache.isLegal(chariot, new Position(5, 0)));
+        assertTrue(cache.isLegal(chariot, new Position(2, 4)));
+        assertTrue(cache.isLegal(chariot, new Position(7, 4)));
+    }
+    
+    @Test
+    void testUpdateDoesNotChangeState() throws InterruptedException {
+        GameState state = createPinnedState();
+        long hash = state.stateHash();
+        
+        update(state);
+        cache.getMoves(new Position(5, 4));
+        
+        assertEquals(hash, state.stateHash());
+        assertEquals(new Position(5, 4), state.getPiece(new Position(5, 4)).getPosition());
+    }
+    
+    @Test
+    void testNoMovesWhenGameIsOver() {
+        GameState state = new GameState(redPlayer, blackPlayer);
+        state.setStatus(GameStatus.CHECKMATE);
+        cache.update(state);
+        
+        assertTrue(cache.getMoves(new Position(9, 0)).isEmpty());
+        
+        cache.update(null);
+        assertFalse(cache.isLegal(new Position(9, 0), new Position(8, 0)));
+    }
+    
+    @Test
+    void testLatestStateWins() throws InterruptedException {
+        GameState opening = new GameState(redPlayer, blackPlayer);
+        cache.update(opening);
+        update(createPinnedState());
+        
+        // The opening's chariot square is empty in the newer state
+        assertTrue(cache.getMoves(new Position(9, 0)).isEmpty());
+        assertFalse(cache.getMoves(new Position(5, 4)).isEmpty());
+    }
+    
+    @Test
+    void testMovesBeforeReadyArePseudoLegal() {
+        GameState state = createPinnedState();
+        cache.update(state);
+        
+        // Either the exact moves or, until they are ready, the piece's own moves
+        List<Position> moves = cache.getMoves(new Position(5, 4));
+        assertTrue(moves.contains(new Position(2, 4)));
+        if (!cache.isReady()) {
+            assertTrue(moves.contains(new Position(5, 0)));
+        }
+        assertTrue(cache.getMoves(new Position(2, 4)).isEmpty(), "Black is not to move");
+    }
+    
+    @Test
+    void testReadyCallbackRunsOnEventDispatchThread() throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(1);
+        AtomicBoolean onEventDispatchThread = new AtomicBoolean();
+        LegalMoveCache notifying = new LegalMoveCache(() -> {
+            onEventDispatchThread.set(SwingUtilities.isEventDispatchThread());
+            ready.countDown();
+        });
+        
+        notifying.update(new GameState(redPlayer, blackPlayer));
+        
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        assertTrue(onEventDispatchThread.get());
+        assertTrue(notifying.isReady());
+    }
+}
@@ -0,0 +1,64 @@
+package com.xiangqi.client.ui;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JPanel;
+import java.awt.Rectangle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PieceAnimator.
+ */
+public class PieceAnimatorTest {
+    
+    @Test
+    void testDurationFromSpeedSetting() {
+        assertEquals(PieceAnimator.SLOW_MILLIS, PieceAnimator.getDurationMillis("slow"));
+        assertEquals(PieceAnimator.NORMAL_MILLIS, PieceAnimator.getDurationMillis("normal"));
+        assertEquals(PieceAnimator.FAST_MILLIS, PieceAnimator.getDurationMillis("FAST"));
+        assertEquals(PieceAnimator.NORMAL_MILLIS, PieceAnimator.getDurationMillis(null));
+    }
+    
+    @Test
+    void testInterpolationEndpoints() {
+        Rectangle from = new Rectangle(0, 0, 57, 64);
+        Rectangle to = new Rectangle(114, 128, 57, 64);
+        
+        assertEquals(0.0, PieceAnimator.ease(0.0), 1e-9);
+        assertEquals(1.0, PieceAnimator.ease(1.0), 1e-9);
+        assertTrue(PieceAnimator.ease(0.5) > 0.5, "Easing out should be past halfway at the midpoint");
+        assertEquals(from, PieceAnimator.interpolate(from, to, 0.0));
+        assertEquals(to, PieceAnimator.interpolate(from, to, 1.0));
+        assertEquals(new Rectangle(57, 64, 57, 64), PieceAnimator.interpolate(from, to, 0.5));
+    }
+    
+    @Test
+    void testFinishRunsCallbackOnce() {
+        PieceAnimator animator = new PieceAnimator(new JPanel(), 10_000);
+        AtomicInteger finished = new AtomicInteger();
+        Rectangle to = new Rectangle(100, 100, 10, 10);
+        
+        animator.start(new Rectangle(0, 0, 10, 10), to, null, finished::incrementAndGet);
+        assertTrue(animator.isRunning());
+        
+        animator.finish();
+        animator.finish();
+        assertFalse(animator.isRunning());
+        assertEquals(1, finished.get());
+        assertEquals(to, animator.getSpriteBounds());
+    }
+    
+    @Test
+    void testStartingAgainFinishesRunningAnimation() {
+        PieceAnimator animator = new PieceAnimator(new JPanel(), 10_000);
+        AtomicInteger finished = new AtomicInteger();
+        
+        animator.start(new Rectangle(0, 0, 10, 10), new Rectangle(50, 0, 10, 10), null, finished::incrementAndGet);
+        animator.start(new Rectangle(0, 0, 10, 10), new Rectangle(0, 50, 10, 10), null, finished::incrementAndGet);
+        assertEquals(1, finished.get());
+        animator.finish();
+        assertEquals(2, finished.get());
+    }
+}
@@ -3,6 +3,7 @@ package com.xiangqi.server;
 import com.xiangqi.server.network.GameServer;
 import com.xiangqi.shared.model.GameSession;
 import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.network.MessageOutputStream;
 
 import java.io.*;
 import java.util.Properties;
@@ -27,6 +28,12 @@ public class GameServerMain {
     private static final int DEFAULT_MAX_CLIENTS = 100;
     private static final boolean DEFAULT_ENABLE_LOGGING = true;
     private static final int DEFAULT_STATS_INTERVAL = 60; // seconds
+    private static final String DEFAULT_JOURNAL_FILE = "data/moves.journal";
+    private static final int DEFAULT_METRICS_PORT = 9464;
+    private static final long DEFAULT_SLOW_MOVE_TRACE_MS = 250;
+    private static final String DEFAULT_ARCHIVE_DIRECTORY = "data/archive";
+    private static final String DEFAULT_SNAPSHOT_FILE = "data/games.snapshot";
+    private static final String DEFAULT_PLAYER_STORE_FILE = "data/players.db";
     
     // Server components
     private GameServer gameServer;
@@ -39,6 +46,19 @@ public class GameServerMain {
     private int maxClients;
     private boolean enableFileLogging;
     private int statsInterval;
+    private int streamResetInterval;
+    private int outboundQueueCapacity;
+    private int outboundHighWaterMark;
+    private long slowConsumerTimeoutMs;
+    private int metricsPort;
+    private long slowMoveTraceMs;
+    private String journalFile;
+    private long journalCommitDelayMs;
+    private String snapshotFile;
+    private long snapshotIntervalSeconds;
+    private String archiveDirectory;
+    private String playerStoreFile;
+    private boolean enableAuthentication;
     private String logLevel;
     
     /**
@@ -77,6 +97,17 @@ public class GameServerMain {
         
         // Initialize server components
         gameServer = new GameServer();
+        gameServer.setStreamResetInterval(streamResetInterval);
+        gameServer.setOutboundQueueLimits(outboundQueueCapacity, outboundHighWaterMark, slowConsumerTimeoutMs);
+        gameServer.setMetricsPort(metricsPort);
+        gameServer.setSlowMoveThresholdMillis(slowMoveTraceMs);
+        gameServer.setJournalFile(journalFile.isEmpty() ? null : new File(journalFile));
+        gameServer.setJournalCommitDelayMillis(journalCommitDelayMs);
+        gameServer.setSnapshotFile(snapshotFile.isEmpty() ? null : new File(snapshotFile));
+        gameServer.setSnapshotIntervalSeconds(snapshotIntervalSeconds);
+        gameServer.setArchiveDirectory(archiveDirectory.isEmpty() ? null : new File(archiveDirectory));
+        gameServer.setPlayerStoreFile(playerStoreFile.isEmpty() ? null : new File(playerStoreFile));
+        gameServer.setAuthenticationEnabled(enableAuthentication);
         scheduledExecutor = Executors.newScheduledThreadPool(2);
         
         LOGGER.info("Server initialization completed");
@@ -156,6 +187,19 @@ public class GameServerMain {
         config.setProperty("logging.enabled", String.valueOf(DEFAULT_ENABLE_LOGGING));
         config.setProperty("logging.level", "INFO");
         config.setProperty("stats.interval", String.valueOf(DEFAULT_STATS_INTERVAL));
+        config.setProperty("network.streamResetInterval", String.valueOf(MessageOutputStream.DEFAULT_RESET_INTERVAL));
+        config.setProperty("network.outboundQueueCapacity", String.valueOf(GameServer.DEFAULT_OUTBOUND_QUEUE_CAPACITY));
+        config.setProperty("network.outboundHighWaterMark", String.valueOf(GameServer.DEFAULT_OUTBOUND_HIGH_WATER_MARK));
+        config.setProperty("network.slowConsumerTimeoutMs", String.valueOf(GameServer.DEFAULT_SLOW_CONSUMER_TIMEOUT_MILLIS));
+        config.setProperty("server.metricsPort", String.valueOf(DEFAULT_METRICS_PORT));
+        config.setProperty("server.slowMoveTraceMs", String.valueOf(DEFAULT_SLOW_MOVE_TRACE_MS));
+        config.setProperty("persistence.journalFile", DEFAULT_JOURNAL_FILE);
+        config.setProperty("persistence.journalCommitDelayMs", "0");
+        config.setProperty("persistence.snapshotFile", DEFAULT_SNAPSHOT_FILE);
+        config.setProperty("persistence.snapshotIntervalSeconds", "300");
+        config.setProperty("persistence.archiveDirectory", DEFAULT_ARCHIVE_DIRECTORY);
+        config.setProperty("persistence.playerStoreFile", DEFAULT_PLAYER_STORE_FILE);
+        config.setProperty("security.enableAuthentication", "true");
         
         // Try to load from file
         File configFile = new File(CONFIG_FILE);
@@ -182,6 +226,23 @@ public class GameServerMain {
         enableFileLogging = Boolean.parseBoolean(config.getProperty("logging.enabled", String.valueOf(DEFAULT_ENABLE_LOGGING)));
         logLevel = config.getProperty("logging.level", "INFO");
         statsInterval = Integer.parseInt(config.getProperty("stats.interval", String.valueOf(DEFAULT_STATS_INTERVAL)));
+        streamResetInterval = Integer.parseInt(config.getProperty("network.streamResetInterval",
+            String.valueOf(MessageOutputStream.DEFAULT_RESET_INTERVAL)));
+        outboundQueueCapacity = Integer.parseInt(config.getProperty("network.outboundQueueCapacity",
+            String.valueOf(GameServer.DEFAULT_OUTBOUND_QUEUE_CAPACITY)));
+        outboundHighWaterMark = Integer.parseInt(config.getProperty("network.outboundHighWaterMark",
+            String.valueOf(GameServer.DEFAULT_OUTBOUND_HIGH_WATER_MARK)));
+        slowConsumerTimeoutMs = Long.parseLong(config.getProperty("network.slowConsumerTimeoutMs",
+            String.valueOf(GameServer.DEFAULT_SLOW_CONSUMER_TIMEOUT_MILLIS)));
+        metricsPort = Integer.parseInt(config.getProperty("server.metricsPort", String.valueOf(DEFAULT_METRICS_PORT)));
+        slowMoveTraceMs = Long.parseLong(config.getProperty("server.slowMoveTraceMs", String.valueOf(DEFAULT_SLOW_MOVE_TRACE_MS)));
+        journalFile = config.getProperty("persistence.journalFile", DEFAULT_JOURNAL_FILE).trim();
+        journalCommitDelayMs = Long.parseLong(config.getProperty("persistence.journalCommitDelayMs", "0"));
+        snapshotFile = config.getProperty("persistence.snapshotFile", DEFAULT_SNAPSHOT_FILE).trim();
+        snapshotIntervalSeconds = Long.parseLong(config.getProperty("persistence.snapshotIntervalSeconds", "300"));
+        archiveDirectory = config.getProperty("persistence.archiveDirectory", DEFAULT_ARCHIVE_DIRECTORY).trim();
+        playerStoreFile = config.getProperty("persistence.playerStoreFile", DEFAULT_PLAYER_STORE_FILE).trim();
+        enableAuthentication = Boolean.parseBoolean(config.getProperty("security.enableAuthentication", "true"));
     }
     
     /**
@@ -263,8 +324,12 @@ public class GameServerMain {
             int clientCount = gameServer.getClientCount();
             int gameCount = gameServer.getGameCount();
             
-            LOGGER.info(String.format("Server Stats - Clients: %d, Active Games: %d", 
-                       clientCount, gameCount));
+            LOGGER.info(String.format("Server Stats - Clients: %d, Active Games: %d, Retained stream bytes: %d", 
+                       clientCount, gameCount, gameServer.getRetainedStreamBytes()));
+            LOGGER.info(String.format("Latency p99 - Move end-to-end: %.3f ms, Move validation: %.3f ms, Broadcast fan-out: %.3f ms",
+                       gameServer.getMoveTracer().getTotalLatency().getValueAtQuantile(0.99) / 1e6,
+                       gameServer.getMoveValidationLatency().getValueAtQuantile(0.99) / 1e6,
+                       gameServer.getBroadcastLatency().getValueAtQuantile(0.99) / 1e6));
             
             // Log memory usage
             Runtime runtime = Runtime.getRuntime();
@@ -439,6 +504,15 @@ public class GameServerMain {
         System.out.println("  File Logging: " + enableFileLogging);
         System.out.println("  Log Level: " + logLevel);
         System.out.println("  Stats Interval: " + statsInterval + " seconds");
+        System.out.println("  Output Queue: " + outboundQueueCapacity + " messages, high-water mark " + outboundHighWaterMark
+            + ", slow consumers dropped after " + slowConsumerTimeoutMs + " ms");
+        System.out.println("  Slow Move Trace: " + (slowMoveTraceMs > 0 ? slowMoveTraceMs + " ms" : "disabled"));
+        System.out.println("  Metrics Endpoint: " + (metricsPort > 0 ? "http://127.0.0.1:" + metricsPort + "/metrics" : "disabled"));
+        System.out.println("  Move Journal: " + (journalFile.isEmpty() ? "disabled" : journalFile));
+        System.out.println("  Game Snapshot: " + (snapshotFile.isEmpty() ? "disabled" : snapshotFile + " every " + snapshotIntervalSeconds + "s"));
+        System.out.println("  Game Archive: " + (archiveDirectory.isEmpty() ? "disabled" : archiveDirectory));
+        System.out.println("  Player Store: " + (playerStoreFile.isEmpty() ? "in memory" : playerStoreFile));
+        System.out.println("  Authentication: " + enableAuthentication);
     }
     
     /**
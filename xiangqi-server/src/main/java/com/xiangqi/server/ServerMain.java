@@ -1,6 +1,8 @@
 package com.xiangqi.server;
 
 import com.xiangqi.server.network.GameServer;
+import com.xiangqi.shared.network.MessageOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Properties;
@@ -22,6 +24,12 @@ public class ServerMain {
     private static final int DEFAULT_MAX_CONNECTIONS = 100;
     private static final int DEFAULT_THREAD_POOL_SIZE = 20;
     private static final String DEFAULT_CONFIG_FILE = "server.properties";
+    private static final int DEFAULT_METRICS_PORT = 9464;
+    private static final long DEFAULT_SLOW_MOVE_TRACE_MS = 250;
+    private static final String DEFAULT_JOURNAL_FILE = "data/moves.journal";
+    private static final String DEFAULT_ARCHIVE_DIRECTORY = "data/archive";
+    private static final String DEFAULT_SNAPSHOT_FILE = "data/games.snapshot";
+    private static final String DEFAULT_PLAYER_STORE_FILE = "data/players.db";
     
     // 服务器配置
     private static int serverPort = DEFAULT_PORT;
@@ -30,6 +38,19 @@ public class ServerMain {
     private static String configFile = DEFAULT_CONFIG_FILE;
     private static boolean debugMode = false;
     private static boolean monitoringEnabled = true;
+    private static int streamResetInterval = MessageOutputStream.DEFAULT_RESET_INTERVAL;
+    private static int outboundQueueCapacity = GameServer.DEFAULT_OUTBOUND_QUEUE_CAPACITY;
+    private static int outboundHighWaterMark = GameServer.DEFAULT_OUTBOUND_HIGH_WATER_MARK;
+    private static long slowConsumerTimeoutMs = GameServer.DEFAULT_SLOW_CONSUMER_TIMEOUT_MILLIS;
+    private static int metricsPort = DEFAULT_METRICS_PORT;
+    private static long slowMoveTraceMs = DEFAULT_SLOW_MOVE_TRACE_MS;
+    private static String journalFile = DEFAULT_JOURNAL_FILE;
+    private static long journalCommitDelayMs = 0;
+    private static String snapshotFile = DEFAULT_SNAPSHOT_FILE;
+    private static long snapshotIntervalSeconds = 300;
+    private static String archiveDirectory = DEFAULT_ARCHIVE_DIRECTORY;
+    private static String playerStoreFile = DEFAULT_PLAYER_STORE_FILE;
+    private static boolean enableAuthentication = true;
     
     // 服务器实例和监控
     private static GameServer gameServer;
@@ -214,6 +235,58 @@ public class ServerMain {
                 monitoringEnabled = monitoringEnabled && Boolean.parseBoolean(props.getProperty("server.monitoring"));
             }
             
+            if (props.containsKey("server.metricsPort")) {
+                metricsPort = Integer.parseInt(props.getProperty("server.metricsPort"));
+            }
+            
+            if (props.containsKey("server.slowMoveTraceMs")) {
+                slowMoveTraceMs = Long.parseLong(props.getProperty("server.slowMoveTraceMs"));
+            }
+            
+            if (props.containsKey("network.streamResetInterval")) {
+                streamResetInterval = Integer.parseInt(props.getProperty("network.streamResetInterval"));
+            }
+            
+            if (props.containsKey("network.outboundQueueCapacity")) {
+                outboundQueueCapacity = Integer.parseInt(props.getProperty("network.outboundQueueCapacity"));
+            }
+            
+            if (props.containsKey("network.outboundHighWaterMark")) {
+                outboundHighWaterMark = Integer.parseInt(props.getProperty("network.outboundHighWaterMark"));
+            }
+            
+            if (props.containsKey("network.slowConsumerTimeoutMs")) {
+                slowConsumerTimeoutMs = Long.parseLong(props.getProperty("network.slowConsumerTimeoutMs"));
+            }
+            
+            if (props.containsKey("persistence.journalFile")) {
+                journalFile = props.getProperty("persistence.journalFile").trim();
+            }
+            
+            if (props.containsKey("persistence.journalCommitDelayMs")) {
+                journalCommitDelayMs = Long.parseLong(props.getProperty("persistence.journalCommitDelayMs"));
+            }
+            
+            if (props.containsKey("persistence.snapshotFile")) {
+                snapshotFile = props.getProperty("persistence.snapshotFile").trim();
+            }
+            
+            if (props.containsKey("persistence.snapshotIntervalSeconds")) {
+                snapshotIntervalSeconds = Long.parseLong(props.getProperty("persistence.snapshotIntervalSeconds"));
+            }
+            
+            if (props.containsKey("persistence.archiveDirectory")) {
+                archiveDirectory = props.getProperty("persistence.archiveDirectory").trim();
+            }
+            
+            if (props.containsKey("persistence.playerStoreFile")) {
+                playerStoreFile = props.getProperty("persistence.playerStoreFile").trim();
+            }
+            
+            if (props.containsKey("security.enableAuthentication")) {
+                enableAuthentication = Boolean.parseBoolean(props.getProperty("security.enableAuthentication"));
+            }
+            
         } catch (IOException e) {
             logger.log(Level.WARNING, "Could not load configuration file: " + configFile + ", using defaults", e);
         } catch (NumberFormatException e) {
@@ -226,6 +299,19 @@ public class ServerMain {
      */
     private static void startServer() throws IOException {
         gameServer = new GameServer();
+        gameServer.setStreamResetInterval(streamResetInterval);
+        gameServer.setOutboundQueueLimits(outboundQueueCapacity, outboundHighWaterMark, slowConsumerTimeoutMs);
+        // 仅在启用监控时开放本地指标端口
+        gameServer.setMetricsPort(monitoringEnabled ? metricsPort : 0);
+        gameServer.setSlowMoveThresholdMillis(slowMoveTraceMs);
+        // 空路径表示关闭对局日志
+        gameServer.setJournalFile(journalFile.isEmpty() ? null : new File(journalFile));
+        gameServer.setJournalCommitDelayMillis(journalCommitDelayMs);
+        gameServer.setSnapshotFile(snapshotFile.isEmpty() ? null : new File(snapshotFile));
+        gameServer.setSnapshotIntervalSeconds(snapshotIntervalSeconds);
+        gameServer.setArchiveDirectory(archiveDirectory.isEmpty() ? null : new File(archiveDirectory));
+        gameServer.setPlayerStoreFile(playerStoreFile.isEmpty() ? null : new File(playerStoreFile));
+        gameServer.setAuthenticationEnabled(enableAuthentication);
         gameServer.startServer(serverPort);
         logger.info("Game server started on port " + serverPort);
     }
@@ -256,8 +342,8 @@ public class ServerMain {
             int activeConnections = gameServer.getClientCount();
             int activeGames = gameServer.getGameCount();
             
-            logger.info(String.format("Server Status - Connections: %d/%d, Active Games: %d", 
-                       activeConnections, maxConnections, activeGames));
+            logger.info(String.format("Server Status - Connections: %d/%d, Active Games: %d, Retained stream bytes: %d", 
+                       activeConnections, maxConnections, activeGames, gameServer.getRetainedStreamBytes()));
             
             // 如果连接数接近上限，发出警告
             if (activeConnections > maxConnections * 0.8) {
@@ -0,0 +1,305 @@
+package com.xiangqi.server.lobby;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.network.NetworkMessage;
+import com.xiangqi.shared.network.messages.GameListRequestMessage;
+import com.xiangqi.shared.network.messages.GameListResponseMessage;
+import com.xiangqi.shared.network.messages.LobbyDeltaMessage;
+import com.xiangqi.shared.network.messages.LobbyUpdateMessage;
+import com.xiangqi.shared.network.messages.PlayerListRequestMessage;
+import com.xiangqi.shared.network.messages.PlayerListResponseMessage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Versioned model of what clients see in the lobby.
+ * Every change bumps the version and is published as a LobbyDeltaMessage;
+ * full snapshots are only produced for new clients or clients that fell behind.
+ * Entries are detached copies so later mutation of the live Player/GameSession
+ * objects never leaks into an already published message.
+ * <p>
+ * Sorted indexes over the entries are kept up to date on every change so
+ * paged list queries never have to sort the whole population.
+ */
+public class LobbyModel {
+    /** Largest page a single list query may return. */
+    public static final int MAX_PAGE_SIZE = 200;
+    
+    private static final Comparator<Player> BY_NAME = Comparator
+        .comparing((Player p) -> nameKey(p.getUsername()))
+        .thenComparing(Player::getPlayerId);
+    private static final Comparator<Player> BY_RATING = Comparator
+        .comparingInt(Player::getRating).reversed()
+        .thenComparing(BY_NAME);
+    private static final Comparator<Player> BY_STATUS = Comparator
+        .comparing(Player::getStatus, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(BY_NAME);
+    private static final Comparator<GameSession> NEWEST_FIRST = Comparator
+        .comparingLong(GameSession::getCreationTime).reversed()
+        .thenComparing(GameSession::getSessionId);
+    
+    private final Map<String, Player> players = new HashMap<>();
+    private final NavigableSet<Player> playersByName = new TreeSet<>(BY_NAME);
+    private final NavigableSet<Player> playersByRating = new TreeSet<>(BY_RATING);
+    private final NavigableSet<Player> playersByStatus = new TreeSet<>(BY_STATUS);
+    private final Map<String, GameSession> games = new HashMap<>();
+    private final NavigableSet<GameSession> gamesByAge = new TreeSet<>(NEWEST_FIRST);
+    // Match counts per name prefix, dropped whenever an entry joins or leaves
+    private final Map<String, Integer> playerCounts = new HashMap<>();
+    private final Map<String, Integer> gameCounts = new HashMap<>();
+    private final Consumer<NetworkMessage> publisher;
+    private long version;
+    
+    /**
+     * Creates a lobby model that publishes deltas through the given callback.
+     * The callback is invoked while the model lock is held so that deltas
+     * reach every client queue in version order.
+     */
+    public LobbyModel(Consumer<NetworkMessage> publisher) {
+        this.publisher = publisher;
+    }
+    
+    /**
+     * Records a player entering the lobby.
+     */
+    public synchronized void playerJoined(Player player) {
+        Player entry = copyOf(player);
+        indexPlayer(entry);
+        playerCounts.clear();
+        publisher.accept(LobbyDeltaMessage.playerJoined(++version, entry));
+    }
+    
+    /**
+     * Records a player leaving the lobby. Unknown players are ignored.
+     */
+    public synchronized void playerLeft(String playerId) {
+        if (unindexPlayer(playerId) != null) {
+            playerCounts.clear();
+            publisher.accept(LobbyDeltaMessage.playerLeft(++version, playerId));
+        }
+    }
+    
+    /**
+     * Records a status or rating change for a player already in the lobby.
+     */
+    public synchronized void playerStatusChanged(Player player) {
+        Player current = players.get(player.getPlayerId());
+        if (current == null) {
+            return;
+        }
+        if (current.getStatus() == player.getStatus() && current.getRating() == player.getRating()) {
+            return; // Nothing visible changed
+        }
+        Player entry = copyOf(player);
+        indexPlayer(entry);
+        publisher.accept(LobbyDeltaMessage.playerStatusChanged(++version, entry));
+    }
+    
+    /**
+     * Records a newly started game.
+     */
+    public synchronized void gameStarted(GameSession session) {
+        GameSession entry = new GameSession(session.getSessionId(),
+            copyOf(session.getRedPlayer()), copyOf(session.getBlackPlayer()));
+        GameSession previous = games.put(entry.getSessionId(), entry);
+        if (previous != null) {
+            gamesByAge.remove(previous);
+        }
+        gamesByAge.add(entry);
+        gameCounts.clear();
+        publisher.accept(LobbyDeltaMessage.gameStarted(++version, entry));
+    }
+    
+    /**
+     * Records a game leaving the lobby's game list. Unknown games are ignored.
+     */
+    public synchronized void gameEnded(String gameId) {
+        GameSession removed = games.remove(gameId);
+        if (removed != null) {
+            gamesByAge.remove(removed);
+            gameCounts.clear();
+            publisher.accept(LobbyDeltaMessage.gameEnded(++version, gameId));
+        }
+    }
+    
+    /**
+     * Sends a full snapshot of the current lobby to a single recipient.
+     * Delivered under the model lock so no later delta can overtake it.
+     */
+    public synchronized void sendSnapshot(Consumer<NetworkMessage> recipient) {
+        recipient.accept(snapshot());
+    }
+    
+    /**
+     * Builds a full snapshot of the current lobby.
+     */
+    public synchronized LobbyUpdateMessage snapshot() {
+        return new LobbyUpdateMessage(null, new ArrayList<>(playersByName),
+            new ArrayList<>(gamesByAge), version);
+    }
+    
+    /**
+     * Answers a paged, sorted and optionally prefix-filtered player query.
+     */
+    public synchronized PlayerListResponseMessage queryPlayers(PlayerListRequestMessage request) {
+        String prefix = nameKey(request.getNamePrefix());
+        Collection<Player> source;
+        Predicate<Player> filter = p -> true;
+        switch (request.getSortKey()) {
+            case RATING:
+                source = playersByRating;
+                break;
+            case STATUS:
+                source = playersByStatus;
+                break;
+            default:
+                source = playersByName;
+                break;
+        }
+        int total = players.size();
+        if (!prefix.isEmpty()) {
+            if (source == playersByName) {
+                source = playersWithPrefix(prefix);
+            } else {
+                filter = p -> nameKey(p.getUsername()).startsWith(prefix);
+            }
+            total = playerCounts.computeIfAbsent(prefix, key -> playersWithPrefix(key).size());
+        }
+        List<Player> page = new ArrayList<>();
+        collectPage(source, filter, request.getOffset(), pageSize(request.getLimit()), page);
+        return new PlayerListResponseMessage(null, page, request.getOffset(), total);
+    }
+    
+    /**
+     * Answers a paged and optionally player-filtered game query, newest games first.
+     */
+    public synchronized GameListResponseMessage queryGames(GameListRequestMessage request) {
+        String prefix = nameKey(request.getPlayerPrefix());
+        Predicate<GameSession> filter = g -> true;
+        int total = games.size();
+        if (!prefix.isEmpty()) {
+            filter = hasPlayerWithPrefix(prefix);
+            total = gameCounts.computeIfAbsent(prefix, key -> count(gamesByAge, hasPlayerWithPrefix(key)));
+        }
+        List<GameSession> page = new ArrayList<>();
+        collectPage(gamesByAge, filter, request.getOffset(), pageSize(request.getLimit()), page);
+        return new GameListResponseMessage(null, page, request.getOffset(), total);
+    }
+    
+    /**
+     * Gets the current lobby version.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Removes all entries without publishing deltas. The version keeps
+     * increasing so stale clients are still forced to resynchronize.
+     */
+    public synchronized void clear() {
+        players.clear();
+        playersByName.clear();
+        playersByRating.clear();
+        playersByStatus.clear();
+        games.clear();
+        gamesByAge.clear();
+        playerCounts.clear();
+        gameCounts.clear();
+        version++;
+    }
+    
+    private void indexPlayer(Player entry) {
+        unindexPlayer(entry.getPlayerId());
+        players.put(entry.getPlayerId(), entry);
+        playersByName.add(entry);
+        playersByRating.add(entry);
+        playersByStatus.add(entry);
+    }
+    
+    private Player unindexPlayer(String playerId) {
+        Player previous = players.remove(playerId);
+        if (previous != null) {
+            playersByName.remove(previous);
+            playersByRating.remove(previous);
+            playersByStatus.remove(previous);
+        }
+        return previous;
+    }
+    
+    /**
+     * Gets the players whose names start with a prefix; name order makes them a contiguous range.
+     */
+    private NavigableSet<Player> playersWithPrefix(String prefix) {
+        return playersByName.subSet(probe(prefix), true, probe(prefix + Character.MAX_VALUE), true);
+    }
+    
+    private static Predicate<GameSession> hasPlayerWithPrefix(String prefix) {
+        return g -> nameKey(g.getRedPlayer().getUsername()).startsWith(prefix)
+            || nameKey(g.getBlackPlayer().getUsername()).startsWith(prefix);
+    }
+    
+    /**
+     * Copies the matching entries in [offset, offset + limit) into page,
+     * stopping as soon as the page is full.
+     */
+    private static <T> void collectPage(Collection<T> source, Predicate<T> filter,
+                                        int offset, int limit, List<T> page) {
+        int matched = 0;
+        for (T entry : source) {
+            if (page.size() >= limit) {
+                return;
+            }
+            if (!filter.test(entry)) {
+                continue;
+            }
+            if (matched >= offset) {
+                page.add(entry);
+            }
+            matched++;
+        }
+    }
+    
+    private static <T> int count(Collection<T> source, Predicate<T> filter) {
+        int matched = 0;
+        for (T entry : source) {
+            if (filter.test(entry)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+    
+    private static int pageSize(int requested) {
+        return requested <= 0 ? MAX_PAGE_SIZE : Math.min(requested, MAX_PAGE_SIZE);
+    }
+    
+    private static String nameKey(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Builds a search key for the name index; the empty ID sorts before any real player.
+     */
+    private static Player probe(String nameKey) {
+        return new Player("", nameKey);
+    }
+    
+    private static Player copyOf(Player player) {
+        Player copy = new Player(player.getPlayerId(), player.getUsername());
+        copy.setStatus(player.getStatus());
+        copy.setRating(player.getRating());
+        return copy;
+    }
+}
@@ -0,0 +1,26 @@
+package com.xiangqi.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter. Increments are striped across cells so threads
+ * counting the same event do not contend on one cache line.
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+    
+    Counter() {
+    }
+    
+    public void increment() {
+        value.increment();
+    }
+    
+    public void add(long amount) {
+        value.add(amount);
+    }
+    
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,162 @@
+package com.xiangqi.server.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, gauges and latency histograms, rendered in the Prometheus
+ * text exposition format. Registration takes a lock; the returned counters
+ * and histograms are updated without one, and gauges are only evaluated
+ * when the registry is scraped.
+ */
+public class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    
+    private final Map<String, Family> families = new LinkedHashMap<>();
+    
+    /**
+     * Gets or creates a counter without labels.
+     */
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+    
+    /**
+     * Gets or creates the counter for one value of a label.
+     */
+    public synchronized Counter counter(String name, String help, String label, String value) {
+        Family family = family(name, help, "counter");
+        return (Counter) family.samples.computeIfAbsent(labels(label, value), key -> new Counter());
+    }
+    
+    /**
+     * Gets or creates a latency histogram, exported as a summary in seconds.
+     */
+    public LatencyHistogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+    
+    /**
+     * Gets or creates the latency histogram for one value of a label.
+     */
+    public synchronized LatencyHistogram histogram(String name, String help, String label, String value) {
+        Family family = family(name, help, "summary");
+        return (LatencyHistogram) family.samples.computeIfAbsent(labels(label, value), key -> new LatencyHistogram());
+    }
+    
+    /**
+     * Registers a gauge read when the registry is scraped.
+     */
+    public synchronized void gauge(String name, String help, LongSupplier supplier) {
+        family(name, help, "gauge").samples.put("", supplier);
+    }
+    
+    /**
+     * Registers a set of gauges sharing one label, such as one per client,
+     * whose members are read when the registry is scraped.
+     */
+    public synchronized void gaugeFamily(String name, String help, String label,
+                                         Supplier<Map<String, ? extends Number>> supplier) {
+        Family family = family(name, help, "gauge");
+        family.label = label;
+        family.samples.put("", supplier);
+    }
+    
+    /**
+     * Renders every metric in the Prometheus text format.
+     */
+    public String scrape() {
+        List<Family> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>();
+            for (Family family : families.values()) {
+                snapshot.add(family.copy());
+            }
+        }
+        
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : snapshot) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> sample : family.samples.entrySet()) {
+                writeSample(out, family, sample.getKey(), sample.getValue());
+            }
+        }
+        return out.toString();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void writeSample(StringBuilder out, Family family, String labels, Object metric) {
+        if (metric instanceof Counter) {
+            writeLine(out, family.name, labels, ((Counter) metric).get());
+        } else if (metric instanceof LongSupplier) {
+            writeLine(out, family.name, labels, ((LongSupplier) metric).getAsLong());
+        } else if (metric instanceof Supplier) {
+            Map<String, ? extends Number> values = ((Supplier<Map<String, ? extends Number>>) metric).get();
+            for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+                writeLine(out, family.name, labels(family.label, entry.getKey()), entry.getValue());
+            }
+        } else if (metric instanceof LatencyHistogram) {
+            LatencyHistogram histogram = (LatencyHistogram) metric;
+            String prefix = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+            for (double quantile : QUANTILES) {
+                writeLine(out, family.name, prefix + "quantile=\"" + quantile + "\"}",
+                    toSeconds(histogram.getValueAtQuantile(quantile)));
+            }
+            writeLine(out, family.name + "_sum", labels, toSeconds(histogram.getSum()));
+            writeLine(out, family.name + "_count", labels, histogram.getCount());
+        }
+    }
+    
+    private static void writeLine(StringBuilder out, String name, String labels, Number value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+    
+    private static double toSeconds(long nanos) {
+        return nanos / 1e9;
+    }
+    
+    private Family family(String name, String help, String type) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = new Family(name, help, type);
+            families.put(name, family);
+        } else if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+    
+    private static String labels(String label, String value) {
+        if (label == null) {
+            return "";
+        }
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{" + label + "=\"" + escaped + "\"}";
+    }
+    
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        final Map<String, Object> samples = new LinkedHashMap<>();
+        String label;
+        
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+        
+        Family copy() {
+            Family copy = new Family(name, help, type);
+            copy.label = label;
+            copy.samples.putAll(samples);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.xiangqi.server.metrics;
+
+import com.xiangqi.shared.engine.ChessEngine;
+
+/**
+ * Timestamps of one move on its way from the mover's socket to the
+ * opponent's socket. Stamps are {@link System#nanoTime()} readings taken by
+ * whichever thread owns the move at that point; the hand-off between the
+ * reader and the opponent's sender thread goes through a blocking queue,
+ * which makes the earlier stamps visible to the thread that completes it.
+ */
+public final class MoveTrace implements ChessEngine.MoveTimer {
+    
+    /**
+     * Points a move passes, in order. The time spent in a stage is the gap
+     * between its stamp and the previous one.
+     */
+    public enum Stage {
+        /** First bytes of the message read from the socket */
+        RECEIVED("receive"),
+        /** Message deserialized */
+        DECODED("decode"),
+        /** Game looked up and move handling started */
+        DISPATCHED("dispatch"),
+        /** Engine validated and applied the move */
+        VALIDATED("validation"),
+        /** Engine evaluated check, checkmate and stalemate */
+        END_CHECKED("checkmate_detection"),
+        /** Move made durable in the journal */
+        JOURNALED("journal"),
+        /** Move delta serialized for the broadcast */
+        ENCODED("encode"),
+        /** Opponent's sender thread took the delta from its queue */
+        DEQUEUED("queue_wait"),
+        /** Delta written and flushed to the opponent's socket */
+        WRITTEN("socket_write");
+        
+        private final String metricLabel;
+        
+        Stage(String metricLabel) {
+            this.metricLabel = metricLabel;
+        }
+        
+        /**
+         * Gets the name of the time spent reaching this stage.
+         */
+        public String getMetricLabel() {
+            return metricLabel;
+        }
+    }
+    
+    private static final Stage[] STAGES = Stage.values();
+    
+    private final MoveTracer tracer;
+    private final long[] stamps = new long[STAGES.length];
+    private String gameId;
+    private String moverId;
+    private int moveNumber;
+    
+    MoveTrace(MoveTracer tracer, long receivedNanos, long decodedNanos) {
+        this.tracer = tracer;
+        stamps[Stage.RECEIVED.ordinal()] = receivedNanos;
+        stamps[Stage.DECODED.ordinal()] = decodedNanos;
+    }
+    
+    /**
+     * Records that the move has reached a stage now.
+     */
+    public void stamp(Stage stage) {
+        stamps[stage.ordinal()] = System.nanoTime();
+    }
+    
+    void stamp(Stage stage, long nanoTime) {
+        stamps[stage.ordinal()] = nanoTime;
+    }
+    
+    /**
+     * Gets the stamp for a stage, or 0 if the move has not reached it.
+     */
+    public long getStamp(Stage stage) {
+        return stamps[stage.ordinal()];
+    }
+    
+    /**
+     * Gets the time spent reaching a stage from the previous stamped one,
+     * or -1 if the stage was not stamped.
+     */
+    public long getStageNanos(Stage stage) {
+        int index = stage.ordinal();
+        if (stamps[index] == 0) {
+            return -1;
+        }
+        for (int previous = index - 1; previous >= 0; previous--) {
+            if (stamps[previous] != 0) {
+                return stamps[index] - stamps[previous];
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Gets the time from the first bytes arriving to the last stamp taken.
+     */
+    public long getTotalNanos() {
+        for (int index = STAGES.length - 1; index > 0; index--) {
+            if (stamps[index] != 0) {
+                return stamps[index] - stamps[0];
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Identifies the move once the game has been found.
+     */
+    public void describe(String gameId, String moverId, int moveNumber) {
+        this.gameId = gameId;
+        this.moverId = moverId;
+        this.moveNumber = moveNumber;
+    }
+    
+    public String getGameId() {
+        return gameId;
+    }
+    
+    /**
+     * Gets the player who made the move; the trace ends at the other player.
+     */
+    public String getMoverId() {
+        return moverId;
+    }
+    
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+    
+    /**
+     * Records the final stamp and hands the trace to the tracer's statistics.
+     */
+    public void complete() {
+        stamp(Stage.WRITTEN);
+        tracer.complete(this);
+    }
+    
+    @Override
+    public void moveValidated(long nanoTime) {
+        stamp(Stage.VALIDATED, nanoTime);
+    }
+    
+    @Override
+    public void endConditionsChecked(long nanoTime) {
+        stamp(Stage.END_CHECKED, nanoTime);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("game=").append(gameId).append(" move=").append(moveNumber);
+        sb.append(" total=").append(formatMillis(getTotalNanos()));
+        for (int index = 1; index < STAGES.length; index++) {
+            long nanos = getStageNanos(STAGES[index]);
+            if (nanos >= 0) {
+                sb.append(' ').append(STAGES[index].getMetricLabel()).append('=').append(formatMillis(nanos));
+            }
+        }
+        return sb.toString();
+    }
+    
+    private static String formatMillis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,93 @@
+package com.xiangqi.server.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Aggregates completed move traces into per-stage latency histograms and
+ * writes slow moves to a trace log. At most one slow move is logged per
+ * sampling interval so a stall across many games does not flood the log.
+ */
+public class MoveTracer {
+    private static final Logger TRACE_LOGGER = Logger.getLogger(MoveTracer.class.getName());
+    
+    static final long DEFAULT_SAMPLE_INTERVAL_NANOS = 1_000_000_000L;
+    
+    private final Map<MoveTrace.Stage, LatencyHistogram> stageLatency = new EnumMap<>(MoveTrace.Stage.class);
+    private final LatencyHistogram totalLatency;
+    private final Counter slowMoves;
+    private final long sampleIntervalNanos;
+    private final AtomicLong lastSampleNanos = new AtomicLong();
+    private volatile long slowThresholdNanos;
+    
+    public MoveTracer(MetricsRegistry registry) {
+        this(registry, DEFAULT_SAMPLE_INTERVAL_NANOS);
+    }
+    
+    MoveTracer(MetricsRegistry registry, long sampleIntervalNanos) {
+        this.sampleIntervalNanos = sampleIntervalNanos;
+        for (MoveTrace.Stage stage : MoveTrace.Stage.values()) {
+            if (stage != MoveTrace.Stage.RECEIVED) {
+                stageLatency.put(stage, registry.histogram("xiangqi_move_stage_seconds",
+                    "Time a move spends in each stage between the mover's and the opponent's socket",
+                    "stage", stage.getMetricLabel()));
+            }
+        }
+        totalLatency = registry.histogram("xiangqi_move_end_to_end_seconds",
+            "Time from a move arriving to the opponent's update being written");
+        slowMoves = registry.counter("xiangqi_slow_moves_total", "Moves slower than the trace threshold");
+    }
+    
+    /**
+     * Starts tracing a move that has just been read and decoded.
+     */
+    public MoveTrace start(long receivedNanos, long decodedNanos) {
+        return new MoveTrace(this, receivedNanos, decodedNanos);
+    }
+    
+    /**
+     * Sets the end-to-end time above which a move is written to the trace
+     * log; 0 disables slow move sampling.
+     */
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdNanos = Math.max(0, slowThresholdMillis) * 1_000_000L;
+    }
+    
+    public LatencyHistogram getStageLatency(MoveTrace.Stage stage) {
+        return stageLatency.get(stage);
+    }
+    
+    public LatencyHistogram getTotalLatency() {
+        return totalLatency;
+    }
+    
+    /**
+     * Gets the number of moves that exceeded the slow threshold, logged or not.
+     */
+    public long getSlowMoveCount() {
+        return slowMoves.get();
+    }
+    
+    void complete(MoveTrace trace) {
+        for (Map.Entry<MoveTrace.Stage, LatencyHistogram> entry : stageLatency.entrySet()) {
+            long nanos = trace.getStageNanos(entry.getKey());
+            if (nanos >= 0) {
+                entry.getValue().record(nanos);
+            }
+        }
+        long total = trace.getTotalNanos();
+        totalLatency.record(total);
+        
+        long threshold = slowThresholdNanos;
+        if (threshold > 0 && total >= threshold) {
+            slowMoves.increment();
+            long now = System.nanoTime();
+            long last = lastSampleNanos.get();
+            if ((last == 0 || now - last >= sampleIntervalNanos) && lastSampleNanos.compareAndSet(last, now)) {
+                TRACE_LOGGER.warning("Slow move " + trace);
+            }
+        }
+    }
+}
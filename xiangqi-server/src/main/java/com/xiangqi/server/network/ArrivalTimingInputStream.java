@@ -0,0 +1,88 @@
+package com.xiangqi.server.network;
+
+import com.xiangqi.shared.profiling.MessageSerializationEvent;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Notes when the first bytes of the next message come off the socket, so
+ * move traces and decode events can start at arrival rather than while the
+ * reader is still blocked waiting for the client.
+ */
+class ArrivalTimingInputStream extends FilterInputStream {
+    private boolean armed;
+    private long arrivalNanos;
+    private long bytesRead;
+    private MessageSerializationEvent decodeEvent;
+    
+    ArrivalTimingInputStream(InputStream in) {
+        super(in);
+    }
+    
+    /**
+     * Starts watching for the next read that returns data.
+     */
+    void arm() {
+        arm(null);
+    }
+    
+    /**
+     * Starts watching for the next read that returns data, restarting the
+     * given event's timer when it arrives.
+     */
+    void arm(MessageSerializationEvent event) {
+        armed = true;
+        arrivalNanos = 0;
+        decodeEvent = event;
+    }
+    
+    /**
+     * Gets when data first arrived after {@link #arm()}, or the fallback if
+     * the message was already buffered from an earlier read.
+     */
+    long getArrivalNanos(long fallback) {
+        return arrivalNanos != 0 ? arrivalNanos : fallback;
+    }
+    
+    /**
+     * Gets the total number of bytes read from the underlying stream.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) {
+            bytesRead++;
+            if (armed) {
+                stamp();
+            }
+        }
+        return value;
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        if (count > 0) {
+            bytesRead += count;
+            if (armed) {
+                stamp();
+            }
+        }
+        return count;
+    }
+    
+    private void stamp() {
+        arrivalNanos = System.nanoTime();
+        armed = false;
+        if (decodeEvent != null) {
+            decodeEvent.begin();
+            decodeEvent = null;
+        }
+    }
+}
@@ -1,15 +1,16 @@
 package com.xiangqi.server.network;
 
+import com.xiangqi.server.metrics.MoveTrace;
+import com.xiangqi.shared.network.MessageOutputStream;
 import com.xiangqi.shared.network.NetworkMessage;
 import com.xiangqi.shared.network.NetworkMessageHandler;
 import com.xiangqi.shared.network.messages.*;
+import com.xiangqi.shared.profiling.MessageSerializationEvent;
 
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,16 +28,21 @@ public class ClientHandler implements Runnable {
     private final String clientId;
     
     private ObjectInputStream inputStream;
-    private ObjectOutputStream outputStream;
+    private ArrivalTimingInputStream arrivalStream;
+    private MessageOutputStream outputStream;
     private NetworkMessageHandler messageHandler;
     
     private final AtomicBoolean running = new AtomicBoolean(true);
-    private final BlockingQueue<NetworkMessage> outgoingMessages = new LinkedBlockingQueue<>();
+    private final OutboundQueue outgoingMessages;
     
     private Thread senderThread;
     private String playerId;
     private long lastHeartbeat;
     
+    // Reader thread only: when the message being handled arrived and was decoded
+    private long receivedNanos;
+    private long decodedNanos;
+    
     /**
      * Constructs a new ClientHandler for the given client socket.
      */
@@ -46,6 +52,7 @@ public class ClientHandler implements Runnable {
         this.clientId = clientId;
         this.lastHeartbeat = System.currentTimeMillis();
         this.messageHandler = gameServer; // GameServer implements NetworkMessageHandler
+        this.outgoingMessages = gameServer.createOutboundQueue();
     }
     
     /**
@@ -56,9 +63,10 @@ public class ClientHandler implements Runnable {
             clientSocket.setSoTimeout(SOCKET_TIMEOUT);
             
             // Create streams - output first, then input
-            outputStream = new ObjectOutputStream(clientSocket.getOutputStream());
+            outputStream = new MessageOutputStream(clientSocket.getOutputStream(), gameServer.getStreamResetInterval());
             outputStream.flush();
-            inputStream = new ObjectInputStream(clientSocket.getInputStream());
+            arrivalStream = new ArrivalTimingInputStream(clientSocket.getInputStream());
+            inputStream = new ObjectInputStream(arrivalStream);
             
             // Start sender thread
             senderThread = new Thread(this::sendMessages, "ClientHandler-Sender-" + clientId);
@@ -84,7 +92,17 @@ public class ClientHandler implements Runnable {
         
         while (running.get() && !Thread.currentThread().isInterrupted()) {
             try {
+                // The event restarts when bytes arrive; this begin only counts if they were already buffered
+                MessageSerializationEvent decodeEvent = new MessageSerializationEvent();
+                decodeEvent.begin();
+                arrivalStream.arm(decodeEvent);
+                long readStart = System.nanoTime();
+                long bytesBefore = arrivalStream.getBytesRead();
                 NetworkMessage message = (NetworkMessage) inputStream.readObject();
+                decodedNanos = System.nanoTime();
+                receivedNanos = arrivalStream.getArrivalNanos(readStart);
+                commitSerializationEvent(decodeEvent, MessageSerializationEvent.DECODE, message,
+                    arrivalStream.getBytesRead() - bytesBefore);
                 
                 // Update heartbeat timestamp
                 if (message.getType() == com.xiangqi.shared.network.MessageType.HEARTBEAT) {
@@ -123,15 +141,52 @@ public class ClientHandler implements Runnable {
      * Sends a message to the client.
      */
     public void sendMessage(NetworkMessage message) {
+        sendMessage(message, null);
+    }
+    
+    /**
+     * Sends a message to the client, completing the move trace once it has
+     * been written to the socket.
+     * @param trace the trace of the move this message reports, or null
+     */
+    public void sendMessage(NetworkMessage message, MoveTrace trace) {
         if (!running.get()) {
             return;
         }
         
+        if (outgoingMessages.offer(message, trace) == OutboundQueue.Outcome.REJECTED) {
+            LOGGER.warning("Client " + clientId + " is not keeping up with " + outgoingMessages.size()
+                + " queued messages, disconnecting");
+            disconnectSlowConsumer();
+        }
+    }
+    
+    /**
+     * Checks whether this client's output queue has stayed over its
+     * high-water mark for longer than the slow-consumer timeout.
+     */
+    public boolean isSlowConsumer() {
+        return outgoingMessages.isSlowConsumer();
+    }
+    
+    /**
+     * Disconnects a client that is not reading its messages. Only the socket
+     * is closed here, since flushing the output stream could block on the
+     * stalled connection; the reader thread then cleans up and removes the client.
+     */
+    void disconnectSlowConsumer() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        gameServer.recordSlowConsumerDisconnect();
+        outgoingMessages.clear();
+        if (senderThread != null) {
+            senderThread.interrupt();
+        }
         try {
-            outgoingMessages.put(message);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            LOGGER.log(Level.WARNING, "Interrupted while queuing message for client " + clientId, e);
+            clientSocket.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error closing socket for client " + clientId, e);
         }
     }
     
@@ -176,6 +231,31 @@ public class ClientHandler implements Runnable {
         return running.get() && !clientSocket.isClosed();
     }
     
+    /**
+     * Gets the serialized bytes currently pinned by this connection's
+     * output stream back-reference table.
+     */
+    public long getRetainedStreamBytes() {
+        MessageOutputStream stream = outputStream;
+        return stream != null ? stream.getRetainedBytes() : 0;
+    }
+    
+    /**
+     * Gets the number of objects currently pinned by this connection's
+     * output stream back-reference table.
+     */
+    public long getRetainedStreamObjects() {
+        MessageOutputStream stream = outputStream;
+        return stream != null ? stream.getRetainedObjectCount() : 0;
+    }
+    
+    /**
+     * Gets the number of messages waiting to be written to this client.
+     */
+    public int getQueuedMessageCount() {
+        return outgoingMessages.size();
+    }
+    
     /**
      * Gets the last heartbeat timestamp.
      */
@@ -189,11 +269,24 @@ public class ClientHandler implements Runnable {
     private void sendMessages() {
         while (running.get() && !Thread.currentThread().isInterrupted()) {
             try {
-                NetworkMessage message = outgoingMessages.take();
+                OutboundQueue.Entry outgoing = outgoingMessages.take();
+                NetworkMessage message = outgoing.message;
+                if (outgoing.trace != null) {
+                    outgoing.trace.stamp(MoveTrace.Stage.DEQUEUED);
+                }
                 
+                MessageSerializationEvent encodeEvent = new MessageSerializationEvent();
+                long bytesWritten;
                 synchronized (outputStream) {
-                    outputStream.writeObject(message);
-                    outputStream.flush();
+                    long bytesBefore = outputStream.getBytesWritten();
+                    encodeEvent.begin();
+                    outputStream.writeMessage(message);
+                    bytesWritten = outputStream.getBytesWritten() - bytesBefore;
+                }
+                commitSerializationEvent(encodeEvent, MessageSerializationEvent.ENCODE, message, bytesWritten);
+                gameServer.recordMessageSent(message.getType());
+                if (outgoing.trace != null) {
+                    outgoing.trace.complete();
                 }
                 
             } catch (InterruptedException e) {
@@ -209,10 +302,29 @@ public class ClientHandler implements Runnable {
         }
     }
     
+    /**
+     * Records a message serialization event with this connection as its client.
+     */
+    private void commitSerializationEvent(MessageSerializationEvent event, String direction,
+                                          NetworkMessage message, long payloadSize) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.direction = direction;
+            event.messageType = message != null ? String.valueOf(message.getType()) : null;
+            event.payloadSize = payloadSize;
+            event.clientId = clientId;
+            event.commit();
+        }
+    }
+    
     /**
      * Handles received messages by dispatching to the game server.
      */
     private void handleReceivedMessage(NetworkMessage message) {
+        if (message != null && message.getType() != null) {
+            gameServer.recordMessageReceived(message.getType());
+        }
+        
         try {
             // Validate message before processing
             if (!validateMessage(message)) {
@@ -229,7 +341,8 @@ public class ClientHandler implements Runnable {
                     
                 case MOVE_REQUEST:
                     if (message instanceof MoveMessage) {
-                        messageHandler.handleMoveMessage((MoveMessage) message);
+                        MoveTrace trace = gameServer.getMoveTracer().start(receivedNanos, decodedNanos);
+                        gameServer.handleMoveMessage((MoveMessage) message, trace);
                     }
                     break;
                     
@@ -263,6 +376,18 @@ public class ClientHandler implements Runnable {
                     }
                     break;
                     
+                case GAME_STATE_RESYNC_REQUEST:
+                    if (message instanceof GameStateResyncRequestMessage) {
+                        gameServer.handleGameStateResyncRequest((GameStateResyncRequestMessage) message, this);
+                    }
+                    break;
+                    
+                case LOBBY_SNAPSHOT_REQUEST:
+                    if (message instanceof LobbySnapshotRequestMessage) {
+                        gameServer.handleLobbySnapshotRequest((LobbySnapshotRequestMessage) message, this);
+                    }
+                    break;
+                    
                 case LOGOUT_REQUEST:
                     if (message instanceof LogoutMessage) {
                         gameServer.handleLogout((LogoutMessage) message, this);
@@ -365,4 +490,4 @@ public class ClientHandler implements Runnable {
         
         outgoingMessages.clear();
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,31 @@
 package com.xiangqi.server.network;
 
+import com.xiangqi.server.lobby.LobbyModel;
+import com.xiangqi.server.metrics.Counter;
+import com.xiangqi.server.metrics.LatencyHistogram;
+import com.xiangqi.server.metrics.MetricsHttpServer;
+import com.xiangqi.server.metrics.MetricsRegistry;
+import com.xiangqi.server.metrics.MoveTrace;
+import com.xiangqi.server.metrics.MoveTracer;
+import com.xiangqi.server.persistence.ArchivedGame;
+import com.xiangqi.server.persistence.GameArchive;
+import com.xiangqi.server.persistence.GameSnapshot;
+import com.xiangqi.server.persistence.LiveGameRecord;
+import com.xiangqi.server.persistence.MoveJournal;
+import com.xiangqi.server.persistence.PlayerStore;
+import com.xiangqi.server.rating.Leaderboard;
+import com.xiangqi.server.rating.RatingService;
 import com.xiangqi.shared.model.*;
 import com.xiangqi.shared.engine.ChessEngine;
 import com.xiangqi.shared.engine.GameEventListener;
+import com.xiangqi.shared.network.MessageOutputStream;
+import com.xiangqi.shared.network.MessageType;
 import com.xiangqi.shared.network.NetworkMessage;
 import com.xiangqi.shared.network.NetworkMessageHandler;
 import com.xiangqi.shared.network.messages.*;
+import com.xiangqi.shared.profiling.LobbyBroadcastEvent;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -15,6 +34,8 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -28,10 +49,20 @@ public class GameServer implements NetworkMessageHandler {
     private static final Logger LOGGER = Logger.getLogger(GameServer.class.getName());
     private static final int DEFAULT_PORT = 8888;
     private static final int THREAD_POOL_SIZE = 50;
+    static final long DEFAULT_SNAPSHOT_INTERVAL_SECONDS = 300;
+    public static final int DEFAULT_OUTBOUND_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_OUTBOUND_HIGH_WATER_MARK = 256;
+    public static final long DEFAULT_SLOW_CONSUMER_TIMEOUT_MILLIS = 10000;
     
     private ServerSocket serverSocket;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final AtomicInteger clientIdCounter = new AtomicInteger(0);
+    private volatile int streamResetInterval = MessageOutputStream.DEFAULT_RESET_INTERVAL;
+    
+    // Per-connection output queue bounds
+    private volatile int outboundQueueCapacity = DEFAULT_OUTBOUND_QUEUE_CAPACITY;
+    private volatile int outboundHighWaterMark = DEFAULT_OUTBOUND_HIGH_WATER_MARK;
+    private volatile long slowConsumerTimeoutMillis = DEFAULT_SLOW_CONSUMER_TIMEOUT_MILLIS;
     
     // Thread management
     private ExecutorService clientThreadPool;
@@ -43,9 +74,71 @@ public class GameServer implements NetworkMessageHandler {
     private final Map<String, Player> players = new ConcurrentHashMap<>();
     private final Map<String, GameSession> gameSessions = new ConcurrentHashMap<>();
     private final Map<String, ChessEngine> gameEngines = new ConcurrentHashMap<>();
+    // Games whose result has been recorded, until the session is swept
+    private final Set<String> recordedGames = ConcurrentHashMap.newKeySet();
     private final Map<String, String> clientToPlayer = new ConcurrentHashMap<>();
     private final Map<String, GameInvitationMessage> pendingInvitations = new ConcurrentHashMap<>();
     
+    // Lobby state published to clients as versioned deltas
+    private final LobbyModel lobbyModel = new LobbyModel(this::broadcastToAll);
+    
+    // Write-ahead journal of live games; null when persistence is disabled
+    private volatile File journalFile;
+    private volatile long journalCommitDelayMillis;
+    private MoveJournal moveJournal;
+    
+    // Snapshot of live games that lets old journal generations be deleted
+    private volatile File snapshotFile;
+    private volatile long snapshotIntervalSeconds = DEFAULT_SNAPSHOT_INTERVAL_SECONDS;
+    private ScheduledExecutorService snapshotScheduler;
+    private final Object snapshotLock = new Object();
+    
+    // Archive of finished games; null when archiving is disabled
+    private volatile File archiveDirectory;
+    private GameArchive gameArchive;
+    
+    // Player accounts, ratings and statistics; in memory unless a store file is set
+    private volatile File playerStoreFile;
+    private volatile boolean authenticationEnabled = true;
+    private volatile PlayerStore playerStore = PlayerStore.inMemory();
+    
+    // Ratings are updated in batches off the game threads
+    private final Leaderboard leaderboard = new Leaderboard();
+    private volatile RatingService ratingService;
+    
+    // Counters and latency histograms, served in Prometheus format when a metrics port is set
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final Map<MessageType, Counter> messagesReceived = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, Counter> messagesSent = new EnumMap<>(MessageType.class);
+    private final LatencyHistogram moveValidationLatency = metrics.histogram(
+        "xiangqi_move_validation_seconds", "Time to validate and apply a move in the engine");
+    private final LatencyHistogram broadcastLatency = metrics.histogram(
+        "xiangqi_broadcast_fanout_seconds", "Time to encode a broadcast and queue it for every recipient");
+    private final MoveTracer moveTracer = new MoveTracer(metrics);
+    private final Counter outboundCoalesced = metrics.counter("xiangqi_outbound_coalesced_total",
+        "Queued messages replaced by a newer lobby, list or game state update");
+    private final Counter outboundDropped = metrics.counter("xiangqi_outbound_dropped_total",
+        "Low-priority messages dropped for clients over the output queue high-water mark");
+    private final Counter slowConsumerDisconnects = metrics.counter("xiangqi_slow_consumer_disconnects_total",
+        "Clients disconnected for not keeping up with their output queue");
+    private final Counter journalSyncs = metrics.counter("xiangqi_journal_syncs_total",
+        "Move journal fsyncs");
+    private volatile int metricsPort;
+    private MetricsHttpServer metricsServer;
+    
+    public GameServer() {
+        for (MessageType type : MessageType.values()) {
+            messagesReceived.put(type, metrics.counter("xiangqi_messages_received_total",
+                "Messages received from clients", "type", type.name()));
+            messagesSent.put(type, metrics.counter("xiangqi_messages_sent_total",
+                "Messages written to clients", "type", type.name()));
+        }
+        metrics.gauge("xiangqi_clients", "Connected clients", clients::size);
+        metrics.gauge("xiangqi_active_games", "Games in progress", this::getActiveGameCount);
+        metrics.gaugeFamily("xiangqi_client_queue_depth", "Messages waiting in each client's output queue",
+            "client", this::getClientQueueDepths);
+    }
+    
     /**
      * Starts the game server on the default port.
      */
@@ -67,6 +160,14 @@ public class GameServer implements NetworkMessageHandler {
             clientThreadPool = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
             running.set(true);
             
+            // Rebuild games that were in progress before a crash or restart
+            openPlayerStore();
+            startRatingService();
+            openJournal();
+            openArchive();
+            startSnapshots();
+            startMetricsServer();
+            
             // Start acceptor thread
             acceptorThread = new Thread(this::acceptConnections, "GameServer-Acceptor");
             acceptorThread.start();
@@ -77,7 +178,7 @@ public class GameServer implements NetworkMessageHandler {
             maintenanceThread.start();
             
             LOGGER.info("Game server started on port " + port);
-            
+        
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Failed to start server on port " + port, e);
             running.set(false);
@@ -122,11 +223,23 @@ public class GameServer implements NetworkMessageHandler {
             maintenanceThread.interrupt();
         }
         
+        stopMetricsServer();
+        
+        // A final snapshot keeps the next startup from replaying this run's journal
+        stopSnapshots();
+        takeSnapshot();
+        closeJournal();
+        closeArchive();
+        stopRatingService();
+        closePlayerStore();
+        
         // Clear data structures
         players.clear();
         gameSessions.clear();
+        gameEngines.clear();
         clientToPlayer.clear();
         pendingInvitations.clear();
+        lobbyModel.clear();
         
         LOGGER.info("Game server stopped");
     }
@@ -149,7 +262,7 @@ public class GameServer implements NetworkMessageHandler {
                 } else {
                     LOGGER.warning("Failed to initialize client handler for " + clientId);
                 }
-                
+            
             } catch (SocketException e) {
                 if (running.get()) {
                     LOGGER.log(Level.WARNING, "Socket error in acceptor", e);
@@ -173,7 +286,7 @@ public class GameServer implements NetworkMessageHandler {
             String playerId = clientToPlayer.remove(clientId);
             if (playerId != null) {
                 players.remove(playerId);
-                broadcastLobbyUpdate();
+                lobbyModel.playerLeft(playerId);
             }
             
             LOGGER.info("Removed client: " + clientId);
@@ -184,9 +297,13 @@ public class GameServer implements NetworkMessageHandler {
      * Sends a message to a specific client.
      */
     public void sendToClient(String clientId, NetworkMessage message) {
+        sendToClient(clientId, message, null);
+    }
+    
+    private void sendToClient(String clientId, NetworkMessage message, MoveTrace trace) {
         ClientHandler client = clients.get(clientId);
         if (client != null) {
-            client.sendMessage(message);
+            client.sendMessage(message, trace);
         } else {
             LOGGER.warning("Attempted to send message to non-existent client: " + clientId);
         }
@@ -196,8 +313,23 @@ public class GameServer implements NetworkMessageHandler {
      * Broadcasts a message to all clients in a specific game.
      */
     public void broadcastToGame(String gameId, NetworkMessage message) {
+        broadcastToGame(gameId, message, null);
+    }
+    
+    /**
+     * Broadcasts a move's update to both players; the trace follows the copy
+     * sent to the mover's opponent.
+     */
+    private void broadcastToGame(String gameId, NetworkMessage message, MoveTrace trace) {
+        long start = System.nanoTime();
         GameSession session = gameSessions.get(gameId);
         if (session != null) {
+            // Encode once for both players
+            NetworkMessage encoded = encodeForBroadcast(message);
+            if (trace != null) {
+                trace.stamp(MoveTrace.Stage.ENCODED);
+            }
+            
             // Send to both players in the game
             String player1Id = session.getRedPlayer().getPlayerId();
             String player2Id = session.getBlackPlayer().getPlayerId();
@@ -209,38 +341,72 @@ public class GameServer implements NetworkMessageHandler {
                 ", client1Id=" + client1Id + ", client2Id=" + client2Id);
             
             if (client1Id != null) {
-                sendToClient(client1Id, message);
+                sendToClient(client1Id, encoded, traceFor(player1Id, trace));
             } else {
                 LOGGER.warning("Client1 not found for player " + player1Id);
             }
             if (client2Id != null) {
-                sendToClient(client2Id, message);
+                sendToClient(client2Id, encoded, traceFor(player2Id, trace));
             } else {
                 LOGGER.warning("Client2 not found for player " + player2Id);
             }
+            broadcastLatency.recordSince(start);
         } else {
             LOGGER.warning("GameSession not found for gameId: " + gameId);
         }
     }
     
+    private static MoveTrace traceFor(String recipientId, MoveTrace trace) {
+        return trace != null && !recipientId.equals(trace.getMoverId()) ? trace : null;
+    }
+    
     /**
      * Broadcasts a message to all connected clients.
      */
     public void broadcastToAll(NetworkMessage message) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        LobbyBroadcastEvent event = new LobbyBroadcastEvent();
+        event.begin();
+        long start = System.nanoTime();
+        NetworkMessage encoded = encodeForBroadcast(message);
+        int recipients = 0;
         for (ClientHandler client : clients.values()) {
-            client.sendMessage(message);
+            client.sendMessage(encoded);
+            recipients++;
+        }
+        broadcastLatency.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.messageType = String.valueOf(message.getType());
+            event.recipients = recipients;
+            event.payloadSize = encoded instanceof PreEncodedMessage ? ((PreEncodedMessage) encoded).getEncodedSize() : -1;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Serializes a broadcast once so every recipient's sender thread writes
+     * the same bytes instead of serializing the message again.
+     * Falls back to the original message if it cannot be encoded.
+     */
+    private NetworkMessage encodeForBroadcast(NetworkMessage message) {
+        try {
+            return PreEncodedMessage.encode(message);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to pre-encode " + message.getType() + " broadcast", e);
+            return message;
         }
     }
     
     /**
-     * Broadcasts lobby updates to all clients.
+     * Broadcasts a full lobby snapshot to all clients.
+     * Regular lobby changes are published as deltas by the lobby model;
+     * this is only needed to force every client to resynchronize.
      */
     public void broadcastLobbyUpdate() {
-        List<Player> playerList = new ArrayList<>(players.values());
-        List<GameSession> gameList = new ArrayList<>(gameSessions.values());
-        
-        LobbyUpdateMessage lobbyUpdate = new LobbyUpdateMessage(null, playerList, gameList);
-        broadcastToAll(lobbyUpdate);
+        lobbyModel.sendSnapshot(this::broadcastToAll);
     }
     
     // NetworkMessageHandler implementation
@@ -255,26 +421,30 @@ public class GameServer implements NetworkMessageHandler {
      * Handle login request with client context.
      */
     public void handleLoginRequest(LoginMessage message, ClientHandler client) {
-        // Simple authentication - in real implementation, validate against database
         String username = message.getUsername();
         String password = message.getPassword();
         String clientId = client.getClientId();
         
-        // For demo purposes, accept any non-empty username/password
-        boolean authenticated = username != null && !username.trim().isEmpty() && 
-                               password != null && !password.trim().isEmpty();
+        // Accounts are served from the store's memory; the first login registers the password
+        Player player = null;
+        if (username != null && !username.trim().isEmpty() && password != null && !password.trim().isEmpty()) {
+            player = authenticationEnabled ? playerStore.authenticate(username, password)
+                                           : playerStore.getOrCreatePlayer(username);
+        }
         
-        if (authenticated) {
-            // Create player
-            Player player = new Player(username, username);
+        if (player != null) {
             player.setStatus(PlayerStatus.ONLINE);  // 设置玩家为在线状态
             players.put(player.getPlayerId(), player);
             clientToPlayer.put(clientId, player.getPlayerId());
+            leaderboard.update(player.getPlayerId(), player.getRating());
             
             LoginResponseMessage response = LoginResponseMessage.success(player);
             sendToClient(clientId, response);
             
-            broadcastLobbyUpdate();
+            // New client gets the full lobby once, everyone else just the join delta
+            lobbyModel.sendSnapshot(client::sendMessage);
+            lobbyModel.playerJoined(player);
+            resumeGames(player, clientId);
             LOGGER.info("Player logged in: " + username + " with clientId: " + clientId);
         } else {
             // Send error response
@@ -285,6 +455,15 @@ public class GameServer implements NetworkMessageHandler {
     
     @Override
     public void handleMoveMessage(MoveMessage message) {
+        handleMoveMessage(message, null);
+    }
+    
+    /**
+     * Handles a move, stamping its trace as it passes validation, the journal
+     * and the broadcast to the opponent.
+     * @param trace the trace started when the move arrived, or null
+     */
+    public void handleMoveMessage(MoveMessage message, MoveTrace trace) {
         String gameId = message.getGameId();
         GameSession session = gameSessions.get(gameId);
         ChessEngine engine = gameEngines.get(gameId);
@@ -296,30 +475,68 @@ public class GameServer implements NetworkMessageHandler {
             if (move.isResignation()) {
                 // Handle resignation
                 Player resigningPlayer = move.getPiece().getOwner();
+                if (!session.hasPlayer(resigningPlayer)) {
+                    LOGGER.warning("Ignoring resignation from non-participant in game " + gameId);
+                    return;
+                }
                 Player winner = session.getOpponent(resigningPlayer);
                 GameResult result = GameResult.resignation(winner, resigningPlayer);
                 
-                // Update game state
-                session.getGameState().setStatus(GameStatus.RESIGNED);
+                // Update game state; a repeated resignation, or one after the game ended, is ignored
+                synchronized (session) {
+                    if (session.isEnded()) {
+                        LOGGER.info("Ignoring resignation for ended game " + gameId);
+                        return;
+                    }
+                    session.getGameState().setStatus(GameStatus.RESIGNED);
+                    journalGameEnded(gameId, GameStatus.RESIGNED);
+                    recordFinishedGame(session, session.getGameState(), result);
+                }
                 
                 // Reset both players' status to ONLINE
-                resigningPlayer.setStatus(PlayerStatus.ONLINE);
-                winner.setStatus(PlayerStatus.ONLINE);
+                updatePlayerStatus(resigningPlayer, PlayerStatus.ONLINE);
+                updatePlayerStatus(winner, PlayerStatus.ONLINE);
                 LOGGER.info("Reset players " + resigningPlayer.getUsername() + " and " + winner.getUsername() + " status to ONLINE after resignation");
                 
                 // Notify both players
                 GameEndMessage endMessage = new GameEndMessage(gameId, result);
                 broadcastToGame(gameId, endMessage);
                 
-                // Broadcast updated player list
-                broadcastLobbyUpdate();
+                // Remove the game from the lobby
+                lobbyModel.gameEnded(gameId);
                 
                 LOGGER.info("Player " + resigningPlayer.getUsername() + " resigned from game " + gameId);
                 return;
             }
             
-            // Execute the move using ChessEngine (which will check for check/checkmate)
-            boolean moveExecuted = engine.executeMove(move);
+            // Note captures before the board changes; the delta carries it for sound effects
+            boolean capture = engine.getCurrentState().getPiece(move.getTo()) != null;
+            
+            // Execute the move using ChessEngine (which will check for check/checkmate).
+            // The session is held until the move is journaled so a snapshot sees either
+            // both or neither.
+            boolean moveExecuted;
+            synchronized (session) {
+                if (trace != null) {
+                    Player mover = move.getPiece().getOwner();
+                    trace.describe(gameId, mover != null ? mover.getPlayerId() : message.getSenderId(),
+                        engine.getCurrentState().getMoveCount() + 1);
+                    trace.stamp(MoveTrace.Stage.DISPATCHED);
+                }
+                long start = System.nanoTime();
+                moveExecuted = engine.executeMove(move, trace);
+                moveValidationLatency.recordSince(start);
+                if (moveExecuted) {
+                    // Update session's game state
+                    session.setGameState(engine.getCurrentState());
+                    
+                    // Make the move durable before anyone is told about it
+                    journalMove(gameId, engine.getCurrentState(), move);
+                    if (trace != null) {
+                        trace.stamp(MoveTrace.Stage.JOURNALED);
+                    }
+                }
+            }
             
             if (moveExecuted) {
                 // Get the updated game state from engine
@@ -328,33 +545,24 @@ public class GameServer implements NetworkMessageHandler {
                 LOGGER.info("Move executed: " + move.getFrom() + " -> " + move.getTo() + 
                     ", Current player now: " + gameState.getCurrentPlayer().getUsername() +
                     ", Game status: " + gameState.getStatus() +
-                    ", Move count: " + gameState.getMoveHistory().size());
-                
-                // Update session's game state
-                session.setGameState(gameState);
+                    ", Move count: " + gameState.getMoveCount());
                 
-                // Move successful - broadcast success response
-                MoveResponseMessage response = MoveResponseMessage.success(gameId, move);
-                LOGGER.info("Broadcasting MoveResponse to game " + gameId);
-                broadcastToGame(gameId, response);
-                
-                // Broadcast updated game state to sync both clients
-                GameState stateCopy = gameState.copy();
-                LOGGER.info("Created state copy for broadcast, move count: " + stateCopy.getMoveHistory().size() + 
-                    ", status: " + stateCopy.getStatus());
-                GameStateUpdateMessage stateUpdate = new GameStateUpdateMessage(gameId, stateCopy);
-                LOGGER.info("Broadcasting GameStateUpdate to game " + gameId);
-                broadcastToGame(gameId, stateUpdate);
+                // Broadcast just the move; clients apply it locally and verify the hash.
+                // A full GameStateUpdate is only sent when a client asks to resync.
+                MoveDeltaMessage delta = new MoveDeltaMessage(gameId, gameState.getMoveCount(),
+                    move.getFrom(), move.getTo(), capture, gameState.getStatus(), gameState.stateHash());
+                broadcastToGame(gameId, delta, trace);
                 
                 session.updateLastActivity();
                 
                 // Check if game has ended (checkmate, stalemate, etc.)
-                // The ChessEngine event listener will have already sent GameEndMessage,
-                // but we ensure it's sent after the state update
+                // The ChessEngine event listener sends GameEndMessage shortly after,
+                // so it arrives after the move delta
                 GameStatus status = gameState.getStatus();
                 if (status == GameStatus.CHECKMATE || status == GameStatus.STALEMATE || 
                     status == GameStatus.RESIGNED || status == GameStatus.DRAW) {
                     // Game has ended - the GameEndMessage should already be sent by event listener
+                    journalGameEnded(gameId, status);
                     LOGGER.info("Game ended with status: " + status);
                 }
             } else {
@@ -389,17 +597,32 @@ public class GameServer implements NetworkMessageHandler {
             if (session != null) {
                 // Check if this is a draw acceptance
                 if (message.getContent().equals("DRAW_ACCEPT")) {
+                    // Only a player in the game can accept a draw
+                    if (!isParticipant(session, message.getSenderId())) {
+                        LOGGER.warning("Ignoring draw acceptance from non-participant " + message.getSenderId()
+                            + " in game " + targetId);
+                        return;
+                    }
+                    
                     // End the game as a draw
                     GameResult result = GameResult.draw(
                         session.getRedPlayer(), 
                         session.getBlackPlayer(), 
                         "Draw by mutual agreement"
                     );
-                    session.getGameState().setStatus(GameStatus.DRAW);
+                    synchronized (session) {
+                        if (session.isEnded()) {
+                            LOGGER.info("Ignoring draw acceptance for ended game " + targetId);
+                            return;
+                        }
+                        session.getGameState().setStatus(GameStatus.DRAW);
+                        journalGameEnded(targetId, GameStatus.DRAW);
+                        recordFinishedGame(session, session.getGameState(), result);
+                    }
                     
                     // Reset both players' status to ONLINE
-                    session.getRedPlayer().setStatus(PlayerStatus.ONLINE);
-                    session.getBlackPlayer().setStatus(PlayerStatus.ONLINE);
+                    updatePlayerStatus(session.getRedPlayer(), PlayerStatus.ONLINE);
+                    updatePlayerStatus(session.getBlackPlayer(), PlayerStatus.ONLINE);
                     LOGGER.info("Reset players " + session.getRedPlayer().getUsername() + " and " + 
                                session.getBlackPlayer().getUsername() + " status to ONLINE after draw");
                     
@@ -407,8 +630,8 @@ public class GameServer implements NetworkMessageHandler {
                     GameEndMessage endMessage = new GameEndMessage(targetId, result);
                     broadcastToGame(targetId, endMessage);
                     
-                    // Broadcast updated player list
-                    broadcastLobbyUpdate();
+                    // Remove the game from the lobby
+                    lobbyModel.gameEnded(targetId);
                     
                     LOGGER.info("Game " + targetId + " ended in draw by mutual agreement");
                     return;
@@ -490,82 +713,7 @@ public class GameServer implements NetworkMessageHandler {
                 Player player2 = players.get(message.getSenderId());
                 
                 if (player1 != null && player2 != null) {
-                    String gameId = UUID.randomUUID().toString();
-                    GameSession session = new GameSession(gameId, player1, player2);
-                    gameSessions.put(gameId, session);
-                    
-                    // Create ChessEngine for this game
-                    ChessEngine engine = new ChessEngine(session.getGameState());
-                    
-                    // Add event listener to handle game end
-                    engine.addEventListener(new GameEventListener() {
-                        @Override
-                        public void onMoveExecuted(Move move) {}
-                        
-                        @Override
-                        public void onGameStateChanged(GameState state) {}
-                        
-                        @Override
-                        public void onPlayerJoined(Player player) {}
-                        
-                        @Override
-                        public void onPlayerLeft(Player player) {}
-                        
-                        @Override
-                        public void onGameEnded(GameResult result) {
-                            // Add a small delay to ensure GameStateUpdateMessage is processed first
-                            new Thread(() -> {
-                                try {
-                                    Thread.sleep(100); // 100ms delay
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                }
-                                // Notify both players that game has ended
-                                GameEndMessage endMessage = new GameEndMessage(gameId, result);
-                                broadcastToGame(gameId, endMessage);
-                                LOGGER.info("Game ended: " + gameId + ", Result: " + result.getEndStatus());
-                                
-                                // Reset players' status to ONLINE after game ends
-                                GameSession endedSession = gameSessions.get(gameId);
-                                if (endedSession != null) {
-                                    Player p1 = endedSession.getRedPlayer();
-                                    Player p2 = endedSession.getBlackPlayer();
-                                    if (p1 != null) {
-                                        p1.setStatus(PlayerStatus.ONLINE);
-                                        LOGGER.info("Reset player " + p1.getUsername() + " status to ONLINE");
-                                    }
-                                    if (p2 != null) {
-                                        p2.setStatus(PlayerStatus.ONLINE);
-                                        LOGGER.info("Reset player " + p2.getUsername() + " status to ONLINE");
-                                    }
-                                    // Broadcast updated player list
-                                    broadcastLobbyUpdate();
-                                }
-                            }).start();
-                        }
-                        
-                        @Override
-                        public void onInvalidMoveAttempted(Move move, String reason) {}
-                        
-                        @Override
-                        public void onGameStateCorrupted(String reason) {
-                            LOGGER.severe("Game state corrupted for game " + gameId + ": " + reason);
-                        }
-                    });
-                    
-                    gameEngines.put(gameId, engine);
-                    
-                    // Set both players' status to IN_GAME
-                    player1.setStatus(PlayerStatus.IN_GAME);
-                    player2.setStatus(PlayerStatus.IN_GAME);
-                    LOGGER.info("Set players " + player1.getUsername() + " and " + player2.getUsername() + " status to IN_GAME");
-                    
-                    // Notify both players
-                    GameStartMessage startMessage = new GameStartMessage(null, gameId, session);
-                    broadcastToGame(gameId, startMessage);
-                    
-                    // Broadcast updated player list to all clients
-                    broadcastLobbyUpdate();
+                    startGame(player1, player2);
                 }
             } else {
                 // Notify inviter that invitation was declined
@@ -578,18 +726,156 @@ public class GameServer implements NetworkMessageHandler {
         }
     }
     
+    /**
+     * Starts a game between two players and announces it to them and the lobby.
+     */
+    GameSession startGame(Player player1, Player player2) {
+        String gameId = UUID.randomUUID().toString();
+        GameSession session = new GameSession(gameId, player1, player2);
+        gameSessions.put(gameId, session);
+        
+        // Create ChessEngine for this game
+        ChessEngine engine = createGameEngine(gameId, session);
+        gameEngines.put(gameId, engine);
+        journalGameStarted(session);
+        
+        // Set both players' status to IN_GAME
+        updatePlayerStatus(player1, PlayerStatus.IN_GAME);
+        updatePlayerStatus(player2, PlayerStatus.IN_GAME);
+        LOGGER.info("Set players " + player1.getUsername() + " and " + player2.getUsername() + " status to IN_GAME");
+        
+        // Notify both players
+        GameStartMessage startMessage = new GameStartMessage(null, gameId, session);
+        broadcastToGame(gameId, startMessage);
+        
+        // Announce the new game in the lobby
+        lobbyModel.gameStarted(session);
+        return session;
+    }
+    
+    /**
+     * Creates the engine for a game session, wired to announce the game's end.
+     */
+    private ChessEngine createGameEngine(String gameId, GameSession session) {
+        ChessEngine engine = new ChessEngine(session.getGameState());
+        engine.setGameId(gameId);
+        
+        // Add event listener to handle game end
+        engine.addEventListener(new GameEventListener() {
+            @Override
+            public void onMoveExecuted(Move move) {}
+            
+            @Override
+            public void onGameStateChanged(GameState state) {}
+            
+            @Override
+            public void onPlayerJoined(Player player) {}
+            
+            @Override
+            public void onPlayerLeft(Player player) {}
+            
+            @Override
+            public void onGameEnded(GameResult result) {
+                // Runs inside executeMove, under the session lock; the engine has already
+                // set the end status, so repeats are caught by the recorded-games guard
+                synchronized (session) {
+                    if (!recordFinishedGame(session, engine.getCurrentState(), result)) {
+                        LOGGER.info("Ignoring repeated end of game " + gameId);
+                        return;
+                    }
+                }
+                
+                // Add a small delay to ensure the final MoveDeltaMessage is processed first
+                new Thread(() -> {
+                    try {
+                        Thread.sleep(100); // 100ms delay
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    // Notify both players that game has ended
+                    GameEndMessage endMessage = new GameEndMessage(gameId, result);
+                    broadcastToGame(gameId, endMessage);
+                    LOGGER.info("Game ended: " + gameId + ", Result: " + result.getEndStatus());
+                    
+                    // Reset players' status to ONLINE after game ends
+                    GameSession endedSession = gameSessions.get(gameId);
+                    if (endedSession != null) {
+                        Player p1 = endedSession.getRedPlayer();
+                        Player p2 = endedSession.getBlackPlayer();
+                        if (p1 != null) {
+                            updatePlayerStatus(p1, PlayerStatus.ONLINE);
+                            LOGGER.info("Reset player " + p1.getUsername() + " status to ONLINE");
+                        }
+                        if (p2 != null) {
+                            updatePlayerStatus(p2, PlayerStatus.ONLINE);
+                            LOGGER.info("Reset player " + p2.getUsername() + " status to ONLINE");
+                        }
+                    }
+                    lobbyModel.gameEnded(gameId);
+                }).start();
+            }
+            
+            @Override
+            public void onInvalidMoveAttempted(Move move, String reason) {}
+            
+            @Override
+            public void onGameStateCorrupted(String reason) {
+                LOGGER.severe("Game state corrupted for game " + gameId + ": " + reason);
+            }
+        });
+        return engine;
+    }
+    
     public void handlePlayerListRequest(PlayerListRequestMessage message, ClientHandler client) {
-        List<Player> playerList = new ArrayList<>(players.values());
-        PlayerListResponseMessage response = new PlayerListResponseMessage(null, playerList);
+        // Served from the lobby's sorted indexes, one page at a time
+        PlayerListResponseMessage response = lobbyModel.queryPlayers(message);
         client.sendMessage(response);
     }
     
     public void handleGameListRequest(GameListRequestMessage message, ClientHandler client) {
-        List<GameSession> gameList = new ArrayList<>(gameSessions.values());
-        GameListResponseMessage response = new GameListResponseMessage(null, gameList);
+        GameListResponseMessage response = lobbyModel.queryGames(message);
         client.sendMessage(response);
     }
     
+    /**
+     * Handles a client asking for a full lobby snapshot, e.g. after
+     * detecting a gap in the delta sequence.
+     */
+    public void handleLobbySnapshotRequest(LobbySnapshotRequestMessage message, ClientHandler client) {
+        lobbyModel.sendSnapshot(client::sendMessage);
+    }
+    
+    /**
+     * Sends the full game state to a client whose local state diverged
+     * from the move deltas.
+     */
+    public void handleGameStateResyncRequest(GameStateResyncRequestMessage message, ClientHandler client) {
+        String gameId = message.getGameId();
+        GameSession session = gameSessions.get(gameId);
+        ChessEngine engine = gameEngines.get(gameId);
+        if (session == null || engine == null) {
+            LOGGER.warning("Resync requested for unknown game: " + gameId);
+            return;
+        }
+        
+        // Only the game's players may see its full state
+        String playerId = clientToPlayer.get(client.getClientId());
+        if (!isParticipant(session, playerId)) {
+            LOGGER.warning("Ignoring resync request for game " + gameId + " from non-participant client "
+                + client.getClientId());
+            return;
+        }
+        
+        // Copied under the session lock so a move being executed is seen fully or not at all
+        GameState state;
+        synchronized (session) {
+            state = engine.getCurrentState().copy();
+        }
+        GameStateUpdateMessage stateUpdate = new GameStateUpdateMessage(gameId, state);
+        client.sendMessage(stateUpdate);
+        LOGGER.info("Sent full game state for " + gameId + " to client " + client.getClientId());
+    }
+    
     public void handleLogout(LogoutMessage message, ClientHandler client) {
         String clientId = client.getClientId();
         removeClient(clientId);
@@ -598,6 +884,377 @@ public class GameServer implements NetworkMessageHandler {
     
     // Helper methods
     
+    /**
+     * Updates a player's status and publishes the change to the lobby.
+     */
+    private void updatePlayerStatus(Player player, PlayerStatus status) {
+        player.setStatus(status);
+        lobbyModel.playerStatusChanged(player);
+    }
+    
+    /**
+     * Opens the move journal, if configured, and rebuilds the games still in
+     * progress from the last snapshot plus the journal generations after it.
+     * Runs without a journal if it cannot be opened.
+     */
+    private void openJournal() {
+        File file = journalFile;
+        if (file == null) {
+            return;
+        }
+        
+        try {
+            moveJournal = MoveJournal.open(file, journalCommitDelayMillis);
+            moveJournal.setSyncListener(journalSyncs::increment);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to open move journal " + file + ", games will not survive a restart", e);
+            return;
+        }
+        
+        GameSnapshot snapshot = null;
+        File snapshotPath = snapshotFile;
+        if (snapshotPath != null) {
+            try {
+                snapshot = GameSnapshot.read(snapshotPath);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Ignoring unreadable snapshot " + snapshotPath, e);
+            }
+        }
+        
+        for (LiveGameRecord game : GameSnapshot.recover(snapshot, moveJournal)) {
+            recoverGame(game);
+        }
+        if (snapshot != null) {
+            // Left behind if the server stopped between writing a snapshot and pruning
+            moveJournal.deleteGenerationsBefore(snapshot.getJournalGeneration());
+        }
+    }
+    
+    /**
+     * Replays a recovered game through a fresh engine and registers it again.
+     */
+    private void recoverGame(LiveGameRecord game) {
+        String gameId = game.getGameId();
+        GameSession session = new GameSession(gameId, game.getRedPlayer(), game.getBlackPlayer());
+        ChessEngine engine = new ChessEngine(session.getGameState());
+        
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            Position from = game.getFrom(i);
+            Move move = new Move(from, game.getTo(i), engine.getCurrentState().getPiece(from));
+            if (move.getPiece() == null || !engine.executeMove(move)) {
+                LOGGER.warning("Replay of game " + gameId + " stopped at move " + (i + 1) + ": " + move);
+                break;
+            }
+        }
+        session.setGameState(engine.getCurrentState());
+        
+        // The listener is added after replay so replayed moves do not announce anything
+        engine = createGameEngine(gameId, session);
+        gameSessions.put(gameId, session);
+        gameEngines.put(gameId, engine);
+        lobbyModel.gameStarted(session);
+        LOGGER.info("Recovered game " + gameId + " at move " + engine.getCurrentState().getMoveCount());
+    }
+    
+    /**
+     * Sends a player who logs in the games they are still part of, such as
+     * games recovered from the journal or left by a dropped connection.
+     */
+    private void resumeGames(Player player, String clientId) {
+        for (GameSession session : gameSessions.values()) {
+            if (session.hasPlayer(player) && !session.isEnded()) {
+                updatePlayerStatus(player, PlayerStatus.IN_GAME);
+                sendToClient(clientId, new GameStartMessage(null, session.getSessionId(), session));
+                LOGGER.info("Resumed game " + session.getSessionId() + " for player " + player.getUsername());
+            }
+        }
+    }
+    
+    /**
+     * Schedules periodic snapshots when both a journal and a snapshot file are configured.
+     */
+    private void startSnapshots() {
+        long interval = snapshotIntervalSeconds;
+        if (moveJournal == null || snapshotFile == null || interval <= 0) {
+            return;
+        }
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GameServer-Snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(this::takeSnapshot, interval, interval, TimeUnit.SECONDS);
+    }
+    
+    private void stopSnapshots() {
+        ScheduledExecutorService scheduler = snapshotScheduler;
+        snapshotScheduler = null;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Writes a snapshot of the games in progress and deletes the journal
+     * generations it covers. The journal is rotated first, then each game is
+     * copied while holding only that game's session, so moves in other games
+     * carry on; a move is either in the copy or in the new generation.
+     * @return true if a snapshot was written
+     */
+    public boolean takeSnapshot() {
+        MoveJournal journal = moveJournal;
+        File file = snapshotFile;
+        if (journal == null || file == null) {
+            return false;
+        }
+        
+        synchronized (snapshotLock) {
+            try {
+                long start = System.nanoTime();
+                int generation = journal.rotate();
+                
+                List<LiveGameRecord> games = new ArrayList<>();
+                for (GameSession session : gameSessions.values()) {
+                    ChessEngine engine = gameEngines.get(session.getSessionId());
+                    if (engine == null) {
+                        continue;
+                    }
+                    synchronized (session) {
+                        if (!session.isEnded()) {
+                            games.add(LiveGameRecord.of(session, engine.getCurrentState().getMoveHistory()));
+                        }
+                    }
+                }
+                
+                GameSnapshot.write(file, generation, games);
+                int deleted = journal.deleteGenerationsBefore(generation);
+                LOGGER.info("Snapshot of " + games.size() + " games written in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms, " + deleted + " journal files deleted");
+                return true;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write snapshot " + file + ", journal kept", e);
+                return false;
+            }
+        }
+    }
+    
+    private void startMetricsServer() {
+        int port = metricsPort;
+        if (port <= 0) {
+            return;
+        }
+        try {
+            metricsServer = new MetricsHttpServer(metrics, port);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to start metrics endpoint on port " + port, e);
+        }
+    }
+    
+    private void stopMetricsServer() {
+        MetricsHttpServer server = metricsServer;
+        metricsServer = null;
+        if (server != null) {
+            server.close();
+        }
+    }
+    
+    private long getActiveGameCount() {
+        return gameSessions.values().stream().filter(session -> !session.isEnded()).count();
+    }
+    
+    private Map<String, Integer> getClientQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        for (ClientHandler client : clients.values()) {
+            depths.put(client.getClientId(), client.getQueuedMessageCount());
+        }
+        return depths;
+    }
+    
+    private void journalGameStarted(GameSession session) {
+        MoveJournal journal = moveJournal;
+        if (journal != null) {
+            try {
+                journal.gameStarted(session);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to journal start of game " + session.getSessionId(), e);
+            }
+        }
+    }
+    
+    private void journalMove(String gameId, GameState gameState, Move move) {
+        MoveJournal journal = moveJournal;
+        if (journal != null) {
+            try {
+                journal.moveAccepted(gameId, gameState.getMoveCount(), move.getFrom(), move.getTo());
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to journal move in game " + gameId, e);
+            }
+        }
+    }
+    
+    private void journalGameEnded(String gameId, GameStatus status) {
+        MoveJournal journal = moveJournal;
+        if (journal != null) {
+            try {
+                journal.gameEnded(gameId, status);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to journal end of game " + gameId, e);
+            }
+        }
+    }
+    
+    /**
+     * Opens the file-backed player store, if configured. Keeps the in-memory
+     * store if it cannot be opened.
+     */
+    private void openPlayerStore() {
+        File file = playerStoreFile;
+        if (file == null) {
+            return;
+        }
+        try {
+            playerStore = PlayerStore.open(file, PlayerStore.DEFAULT_FLUSH_INTERVAL_MS);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to open player store " + file + ", accounts will not be kept", e);
+        }
+    }
+    
+    /**
+     * Loads the stored ratings into the leaderboard and starts rating games.
+     */
+    private void startRatingService() {
+        leaderboard.clear();
+        playerStore.forEachRating(leaderboard::update);
+        ratingService = new RatingService(playerStore, leaderboard, this::applyRatingChanges);
+    }
+    
+    /**
+     * Pushes a batch of new ratings to online players and the lobby.
+     */
+    private void applyRatingChanges(Map<String, Integer> ratings) {
+        for (Map.Entry<String, Integer> entry : ratings.entrySet()) {
+            Player online = players.get(entry.getKey());
+            if (online != null) {
+                online.setRating(entry.getValue());
+                lobbyModel.playerStatusChanged(online);
+            }
+        }
+    }
+    
+    private void stopRatingService() {
+        RatingService service = ratingService;
+        ratingService = null;
+        if (service != null) {
+            service.close();
+        }
+    }
+    
+    private void closePlayerStore() {
+        try {
+            playerStore.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error closing player store", e);
+        }
+    }
+    
+    /**
+     * Opens the archive of finished games, if configured.
+     */
+    private void openArchive() {
+        File directory = archiveDirectory;
+        if (directory == null) {
+            return;
+        }
+        try {
+            gameArchive = GameArchive.open(directory);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to open game archive " + directory + ", finished games will not be kept", e);
+        }
+    }
+    
+    /**
+     * Records a finished game in the players' statistics, ratings and the
+     * archive, once per game.
+     * @return false if the game's result was already recorded
+     */
+    private boolean recordFinishedGame(GameSession session, GameState finalState, GameResult result) {
+        if (!recordedGames.add(session.getSessionId())) {
+            return false;
+        }
+        String winnerId = result.getWinner() != null ? result.getWinner().getPlayerId() : null;
+        playerStore.recordGame(session.getRedPlayer().getPlayerId(), session.getBlackPlayer().getPlayerId(), winnerId);
+        refreshStatistics(session.getRedPlayer());
+        refreshStatistics(session.getBlackPlayer());
+        RatingService service = ratingService;
+        if (service != null) {
+            service.submit(session.getRedPlayer().getPlayerId(), session.getBlackPlayer().getPlayerId(), winnerId);
+        }
+        archiveGame(session, finalState, result);
+        return true;
+    }
+    
+    /**
+     * Checks whether a player id belongs to one of a game's two players.
+     */
+    private static boolean isParticipant(GameSession session, String playerId) {
+        return playerId != null && (playerId.equals(session.getRedPlayer().getPlayerId())
+            || playerId.equals(session.getBlackPlayer().getPlayerId()));
+    }
+    
+    /**
+     * Copies stored statistics onto the online player object, if logged in.
+     */
+    private void refreshStatistics(Player player) {
+        Player online = players.get(player.getPlayerId());
+        GameStatistics statistics = playerStore.getStatistics(player.getPlayerId());
+        if (statistics != null) {
+            player.setStatistics(statistics);
+            if (online != null && online != player) {
+                online.setStatistics(statistics);
+            }
+        }
+    }
+    
+    private void archiveGame(GameSession session, GameState finalState, GameResult result) {
+        GameArchive archive = gameArchive;
+        if (archive != null) {
+            try {
+                archive.archive(ArchivedGame.of(session, finalState, result));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to archive game " + session.getSessionId(), e);
+            }
+        }
+    }
+    
+    private void closeArchive() {
+        GameArchive archive = gameArchive;
+        gameArchive = null;
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error closing game archive", e);
+            }
+        }
+    }
+    
+    private void closeJournal() {
+        MoveJournal journal = moveJournal;
+        moveJournal = null;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error closing move journal", e);
+            }
+        }
+    }
+    
     private String getClientIdForPlayer(String playerId) {
         return clientToPlayer.entrySet().stream()
             .filter(entry -> entry.getValue().equals(playerId))
@@ -623,6 +1280,9 @@ public class GameServer implements NetworkMessageHandler {
                     if (!client.isRunning() || 
                         (currentTime - client.getLastHeartbeat() > 120000)) { // 2 minutes timeout
                         inactiveClients.add(entry.getKey());
+                    } else if (client.isSlowConsumer()) {
+                        // Stalled clients that nothing new is sent to are caught here
+                        client.disconnectSlowConsumer();
                     }
                 }
                 
@@ -642,12 +1302,10 @@ public class GameServer implements NetworkMessageHandler {
                 
                 for (String gameId : finishedGames) {
                     gameSessions.remove(gameId);
+                    recordedGames.remove(gameId);
+                    lobbyModel.gameEnded(gameId);
                 }
-                
-                if (!inactiveClients.isEmpty() || !finishedGames.isEmpty()) {
-                    broadcastLobbyUpdate();
-                }
-                
+            
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
@@ -669,6 +1327,195 @@ public class GameServer implements NetworkMessageHandler {
         return gameSessions.size();
     }
     
+    /**
+     * Sets how many messages each connection writes between output stream
+     * resets. Applies to connections accepted afterwards; 0 disables resets.
+     */
+    public void setStreamResetInterval(int streamResetInterval) {
+        this.streamResetInterval = Math.max(0, streamResetInterval);
+    }
+    
+    /**
+     * Gets the output stream reset interval for new connections.
+     */
+    public int getStreamResetInterval() {
+        return streamResetInterval;
+    }
+    
+    /**
+     * Sets the output queue bounds for connections accepted afterwards.
+     * @param capacity the most messages queued for one client
+     * @param highWaterMark the depth at which low-priority messages are dropped
+     * @param slowConsumerTimeoutMillis how long a client may stay at the high-water
+     *        mark before it is disconnected
+     */
+    public void setOutboundQueueLimits(int capacity, int highWaterMark, long slowConsumerTimeoutMillis) {
+        this.outboundQueueCapacity = Math.max(1, capacity);
+        this.outboundHighWaterMark = Math.max(1, Math.min(highWaterMark, outboundQueueCapacity));
+        this.slowConsumerTimeoutMillis = Math.max(0, slowConsumerTimeoutMillis);
+    }
+    
+    /**
+     * Creates the output queue for a new connection.
+     */
+    OutboundQueue createOutboundQueue() {
+        return new OutboundQueue(outboundQueueCapacity, outboundHighWaterMark, slowConsumerTimeoutMillis,
+            outboundCoalesced, outboundDropped);
+    }
+    
+    /**
+     * Records that a client was disconnected for falling behind.
+     */
+    void recordSlowConsumerDisconnect() {
+        slowConsumerDisconnects.increment();
+    }
+    
+    /**
+     * Gets the serialized bytes pinned by all connections' output stream
+     * back-reference tables.
+     */
+    public long getRetainedStreamBytes() {
+        long total = 0;
+        for (ClientHandler client : clients.values()) {
+            total += client.getRetainedStreamBytes();
+        }
+        return total;
+    }
+    
+    /**
+     * Sets the write-ahead journal used to recover games in progress after a
+     * restart. Takes effect when the server starts; null disables journaling.
+     */
+    public void setJournalFile(File journalFile) {
+        this.journalFile = journalFile;
+    }
+    
+    /**
+     * Sets how long the journal waits to gather more moves into one sync.
+     * 0 syncs as soon as the previous sync finishes.
+     */
+    public void setJournalCommitDelayMillis(long journalCommitDelayMillis) {
+        this.journalCommitDelayMillis = Math.max(0, journalCommitDelayMillis);
+    }
+    
+    /**
+     * Sets the loopback port metrics are served on in Prometheus format.
+     * Takes effect when the server starts; 0 disables the endpoint.
+     */
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+    
+    /**
+     * Gets the registry holding the server's metrics.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Gets the tracer aggregating per-stage move latencies.
+     */
+    public MoveTracer getMoveTracer() {
+        return moveTracer;
+    }
+    
+    /**
+     * Sets the end-to-end move time above which a move's stage breakdown is
+     * written to the trace log; 0 disables sampling.
+     */
+    public void setSlowMoveThresholdMillis(long slowMoveThresholdMillis) {
+        moveTracer.setSlowThresholdMillis(slowMoveThresholdMillis);
+    }
+    
+    /**
+     * Gets the latency of move validation in the engine.
+     */
+    public LatencyHistogram getMoveValidationLatency() {
+        return moveValidationLatency;
+    }
+    
+    /**
+     * Gets the time taken to fan a broadcast out to its recipients.
+     */
+    public LatencyHistogram getBroadcastLatency() {
+        return broadcastLatency;
+    }
+    
+    /**
+     * Counts a message received from a client.
+     */
+    void recordMessageReceived(MessageType type) {
+        messagesReceived.get(type).increment();
+    }
+    
+    /**
+     * Counts a message written to a client.
+     */
+    void recordMessageSent(MessageType type) {
+        messagesSent.get(type).increment();
+    }
+    
+    /**
+     * Sets the snapshot file that lets old journal generations be deleted.
+     * Takes effect when the server starts; null keeps the whole journal.
+     */
+    public void setSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+    
+    /**
+     * Sets how often a snapshot is taken; 0 only snapshots on shutdown.
+     */
+    public void setSnapshotIntervalSeconds(long snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = Math.max(0, snapshotIntervalSeconds);
+    }
+    
+    /**
+     * Sets the directory finished games are archived to. Takes effect when
+     * the server starts; null disables archiving.
+     */
+    public void setArchiveDirectory(File archiveDirectory) {
+        this.archiveDirectory = archiveDirectory;
+    }
+    
+    /**
+     * Sets the file player accounts are stored in. Takes effect when the
+     * server starts; null keeps accounts in memory only.
+     */
+    public void setPlayerStoreFile(File playerStoreFile) {
+        this.playerStoreFile = playerStoreFile;
+    }
+    
+    /**
+     * Sets whether logins must match the stored password. When disabled,
+     * any non-empty password is accepted.
+     */
+    public void setAuthenticationEnabled(boolean authenticationEnabled) {
+        this.authenticationEnabled = authenticationEnabled;
+    }
+    
+    /**
+     * Gets the rating leaderboard.
+     */
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+    
+    /**
+     * Gets the player store.
+     */
+    public PlayerStore getPlayerStore() {
+        return playerStore;
+    }
+    
+    /**
+     * Gets the archive of finished games, or null if archiving is disabled.
+     */
+    public GameArchive getGameArchive() {
+        return gameArchive;
+    }
+    
     /**
      * Checks if the server is running.
      */
@@ -0,0 +1,207 @@
+package com.xiangqi.server.network;
+
+import com.xiangqi.server.metrics.Counter;
+import com.xiangqi.server.metrics.MoveTrace;
+import com.xiangqi.shared.network.MessageType;
+import com.xiangqi.shared.network.NetworkMessage;
+import com.xiangqi.shared.network.messages.ChatMessage;
+import com.xiangqi.shared.network.messages.GameStateUpdateMessage;
+import com.xiangqi.shared.network.messages.MoveDeltaMessage;
+import com.xiangqi.shared.network.messages.PreEncodedMessage;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Bounded queue of messages waiting to be written to one client.
+ *
+ * <p>A newer lobby snapshot, player or game list, or full game state replaces
+ * the queued messages it supersedes. Once the queue reaches its high-water
+ * mark, low-priority messages are dropped: heartbeats, lobby-wide chat and
+ * lobby deltas, which clients recover from by requesting a snapshot when they
+ * see a version gap. A client whose queue fills up, or stays over the
+ * high-water mark for longer than the slow-consumer timeout, is rejected so
+ * the caller can disconnect it instead of buffering without limit.</p>
+ */
+class OutboundQueue {
+    
+    /**
+     * What happened to an offered message.
+     */
+    enum Outcome {
+        QUEUED,
+        /** Queued, replacing one or more superseded messages. */
+        COALESCED,
+        /** Discarded because the queue is over its high-water mark. */
+        DROPPED,
+        /** Not queued; the client is not keeping up and should be disconnected. */
+        REJECTED
+    }
+    
+    private final LinkedBlockingQueue<Entry> queue;
+    private final int highWaterMark;
+    private final long slowConsumerTimeoutNanos;
+    private final Counter coalesced;
+    private final Counter dropped;
+    
+    // When the queue last rose to the high-water mark; 0 while it is below
+    private volatile long overHighWaterSince;
+    
+    /**
+     * @param capacity the most messages the queue holds
+     * @param highWaterMark the depth at which low-priority messages are dropped
+     * @param slowConsumerTimeoutMillis how long the queue may stay at the high-water mark
+     * @param coalesced counts messages replaced by newer ones
+     * @param dropped counts low-priority messages discarded
+     */
+    OutboundQueue(int capacity, int highWaterMark, long slowConsumerTimeoutMillis,
+                  Counter coalesced, Counter dropped) {
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, capacity));
+        this.highWaterMark = Math.max(1, Math.min(highWaterMark, capacity));
+        this.slowConsumerTimeoutNanos = Math.max(0, slowConsumerTimeoutMillis) * 1_000_000L;
+        this.coalesced = coalesced;
+        this.dropped = dropped;
+    }
+    
+    /**
+     * Queues a message without blocking.
+     * @param trace the trace of the move the message reports, or null
+     */
+    synchronized Outcome offer(NetworkMessage message, MoveTrace trace) {
+        long now = System.nanoTime();
+        if (queue.size() >= highWaterMark) {
+            if (overHighWaterSince == 0) {
+                overHighWaterSince = now;
+            } else if (now - overHighWaterSince >= slowConsumerTimeoutNanos) {
+                return Outcome.REJECTED;
+            }
+            if (isLowPriority(unwrap(message))) {
+                dropped.increment();
+                return Outcome.DROPPED;
+            }
+        }
+        
+        int replaced = removeSuperseded(unwrap(message));
+        if (!queue.offer(new Entry(message, trace))) {
+            return Outcome.REJECTED;
+        }
+        if (queue.size() >= highWaterMark && overHighWaterSince == 0) {
+            overHighWaterSince = now;
+        }
+        if (replaced > 0) {
+            coalesced.add(replaced);
+            return Outcome.COALESCED;
+        }
+        return Outcome.QUEUED;
+    }
+    
+    /**
+     * Waits for the next message to write.
+     */
+    Entry take() throws InterruptedException {
+        Entry entry = queue.take();
+        if (queue.size() < highWaterMark) {
+            overHighWaterSince = 0;
+        }
+        return entry;
+    }
+    
+    /**
+     * Checks whether the queue has stayed at the high-water mark past the
+     * slow-consumer timeout, for clients that have stopped being sent to.
+     */
+    boolean isSlowConsumer() {
+        long since = overHighWaterSince;
+        return since != 0 && System.nanoTime() - since >= slowConsumerTimeoutNanos;
+    }
+    
+    int size() {
+        return queue.size();
+    }
+    
+    void clear() {
+        queue.clear();
+    }
+    
+    private int removeSuperseded(NetworkMessage newer) {
+        MessageType type = newer.getType();
+        if (type != MessageType.LOBBY_UPDATE && type != MessageType.PLAYER_LIST_RESPONSE
+                && type != MessageType.GAME_LIST_RESPONSE && type != MessageType.GAME_STATE_UPDATE) {
+            return 0;
+        }
+        
+        int removed = 0;
+        for (Iterator<Entry> it = queue.iterator(); it.hasNext(); ) {
+            if (supersedes(newer, unwrap(it.next().message))) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Checks whether a client that receives the newer message no longer needs
+     * the older one.
+     */
+    static boolean supersedes(NetworkMessage newer, NetworkMessage older) {
+        switch (newer.getType()) {
+            case LOBBY_UPDATE:
+                // Clients discard deltas at or below the snapshot's version
+                return older.getType() == MessageType.LOBBY_UPDATE || older.getType() == MessageType.LOBBY_DELTA;
+            case PLAYER_LIST_RESPONSE:
+            case GAME_LIST_RESPONSE:
+                return older.getType() == newer.getType();
+            case GAME_STATE_UPDATE:
+                if (!(newer instanceof GameStateUpdateMessage)) {
+                    return false;
+                }
+                String gameId = ((GameStateUpdateMessage) newer).getGameId();
+                if (older instanceof GameStateUpdateMessage) {
+                    return Objects.equals(gameId, ((GameStateUpdateMessage) older).getGameId());
+                }
+                return older instanceof MoveDeltaMessage && Objects.equals(gameId, ((MoveDeltaMessage) older).getGameId());
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Checks whether a message may be dropped when the client falls behind.
+     */
+    static boolean isLowPriority(NetworkMessage message) {
+        switch (message.getType()) {
+            case HEARTBEAT:
+            case LOBBY_DELTA:
+                return true;
+            case CHAT_MESSAGE:
+                return message instanceof ChatMessage && ((ChatMessage) message).isBroadcast();
+            default:
+                return false;
+        }
+    }
+    
+    private static NetworkMessage unwrap(NetworkMessage message) {
+        if (message instanceof PreEncodedMessage) {
+            NetworkMessage source = ((PreEncodedMessage) message).getSource();
+            if (source != null) {
+                return source;
+            }
+        }
+        return message;
+    }
+    
+    /**
+     * A queued message and the move trace it completes, if any.
+     */
+    static final class Entry {
+        final NetworkMessage message;
+        final MoveTrace trace;
+        
+        Entry(NetworkMessage message, MoveTrace trace) {
+            this.message = message;
+            this.trace = trace;
+        }
+    }
+}
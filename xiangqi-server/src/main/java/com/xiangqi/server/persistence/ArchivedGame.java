@@ -0,0 +1,189 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameResult;
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.GameState;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.model.Position;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A finished game as stored in the archive: a small header with the players,
+ * result and timestamps, followed by the moves at two bytes each.
+ */
+public final class ArchivedGame {
+    private static final byte WINNER_NONE = 0;
+    private static final byte WINNER_RED = 1;
+    private static final byte WINNER_BLACK = 2;
+    
+    private final String gameId;
+    private final String redPlayerId;
+    private final String redPlayerName;
+    private final String blackPlayerId;
+    private final String blackPlayerName;
+    private final GameStatus endStatus;
+    private final byte winner;
+    private final long startTime;
+    private final long endTime;
+    private final byte[] squares; // from, to pairs
+    
+    private ArchivedGame(String gameId, String redPlayerId, String redPlayerName,
+                         String blackPlayerId, String blackPlayerName, GameStatus endStatus,
+                         byte winner, long startTime, long endTime, byte[] squares) {
+        this.gameId = Objects.requireNonNull(gameId, "Game ID cannot be null");
+        this.redPlayerId = redPlayerId;
+        this.redPlayerName = redPlayerName;
+        this.blackPlayerId = blackPlayerId;
+        this.blackPlayerName = blackPlayerName;
+        this.endStatus = endStatus;
+        this.winner = winner;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.squares = squares;
+    }
+    
+    /**
+     * Captures a finished session, its final state and its result for archiving.
+     */
+    public static ArchivedGame of(GameSession session, GameState finalState, GameResult result) {
+        Player red = session.getRedPlayer();
+        Player black = session.getBlackPlayer();
+        
+        byte winner = WINNER_NONE;
+        if (result.getWinner() != null) {
+            winner = result.getWinner().equals(red) ? WINNER_RED : WINNER_BLACK;
+        }
+        
+        List<Move> moves = finalState.getMoveHistory();
+        byte[] squares = new byte[moves.size() * 2];
+        for (int i = 0; i < moves.size(); i++) {
+            squares[i * 2] = moves.get(i).getFrom().toSquare();
+            squares[i * 2 + 1] = moves.get(i).getTo().toSquare();
+        }
+        
+        return new ArchivedGame(session.getSessionId(), red.getPlayerId(), red.getUsername(),
+            black.getPlayerId(), black.getUsername(), result.getEndStatus(), winner,
+            session.getCreationTime(), result.getGameEndTime(), squares);
+    }
+    
+    /**
+     * Writes the header and move list.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(gameId);
+        out.writeUTF(redPlayerId);
+        out.writeUTF(redPlayerName);
+        out.writeUTF(blackPlayerId);
+        out.writeUTF(blackPlayerName);
+        out.writeByte(endStatus.ordinal());
+        out.writeByte(winner);
+        out.writeLong(startTime);
+        out.writeLong(endTime);
+        out.writeShort(squares.length / 2);
+        out.write(squares);
+    }
+    
+    /**
+     * Reads a game written by {@link #writeTo(DataOutput)}.
+     */
+    static ArchivedGame readFrom(DataInput in) throws IOException {
+        String gameId = in.readUTF();
+        String redPlayerId = in.readUTF();
+        String redPlayerName = in.readUTF();
+        String blackPlayerId = in.readUTF();
+        String blackPlayerName = in.readUTF();
+        GameStatus endStatus = GameStatus.values()[in.readUnsignedByte()];
+        byte winner = in.readByte();
+        long startTime = in.readLong();
+        long endTime = in.readLong();
+        byte[] squares = new byte[in.readUnsignedShort() * 2];
+        in.readFully(squares);
+        return new ArchivedGame(gameId, redPlayerId, redPlayerName, blackPlayerId, blackPlayerName,
+            endStatus, winner, startTime, endTime, squares);
+    }
+    
+    public String getGameId() {
+        return gameId;
+    }
+    
+    public String getRedPlayerId() {
+        return redPlayerId;
+    }
+    
+    public String getRedPlayerName() {
+        return redPlayerName;
+    }
+    
+    public String getBlackPlayerId() {
+        return blackPlayerId;
+    }
+    
+    public String getBlackPlayerName() {
+        return blackPlayerName;
+    }
+    
+    public GameStatus getEndStatus() {
+        return endStatus;
+    }
+    
+    /**
+     * Gets the winner's player ID, or null for a draw.
+     */
+    public String getWinnerId() {
+        switch (winner) {
+            case WINNER_RED:
+                return redPlayerId;
+            case WINNER_BLACK:
+                return blackPlayerId;
+            default:
+                return null;
+        }
+    }
+    
+    public boolean isDraw() {
+        return winner == WINNER_NONE;
+    }
+    
+    public long getStartTime() {
+        return startTime;
+    }
+    
+    public long getEndTime() {
+        return endTime;
+    }
+    
+    public int getMoveCount() {
+        return squares.length / 2;
+    }
+    
+    public Position getFrom(int index) {
+        return Position.fromSquare(squares[index * 2]);
+    }
+    
+    public Position getTo(int index) {
+        return Position.fromSquare(squares[index * 2 + 1]);
+    }
+    
+    public boolean hasPlayer(String playerId) {
+        return redPlayerId.equals(playerId) || blackPlayerId.equals(playerId);
+    }
+    
+    
+    @Override
+    public String toString() {
+        return "ArchivedGame{" +
+                "gameId='" + gameId + '\'' +
+                ", red='" + redPlayerName + '\'' +
+                ", black='" + blackPlayerName + '\'' +
+                ", endStatus=" + endStatus +
+                ", moves=" + getMoveCount() +
+                '}';
+    }
+}
@@ -0,0 +1,651 @@
+package com.xiangqi.server.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only archive of finished games.
+ *
+ * <p>Games are written to numbered segment files by a single writer thread
+ * that drains queued games in batches and syncs once per batch. Each record
+ * is {@code [int length][game][int crc32]}; its location is the segment
+ * number and byte offset packed into a long. A separate index file maps
+ * locations to players and end times, and is loaded into memory on open so
+ * queries by player or date only read the matching records. Scans stream
+ * records from disk one at a time rather than loading segments into heap.</p>
+ */
+public class GameArchive implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(GameArchive.class.getName());
+    
+    static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final int SEGMENT_MAGIC = 0x58514131; // "XQA1"
+    private static final int SEGMENT_HEADER_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 16384;
+    private static final int MAX_BATCH = 1024;
+    private static final long WRITER_POLL_MS = 100;
+    private static final String INDEX_FILE = "games.idx";
+    private static final int OFFSET_BITS = 40;
+    
+    private final File directory;
+    private final long segmentSize;
+    private final BlockingQueue<ArchivedGame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<Integer, FileChannel> readChannels = new ConcurrentHashMap<>();
+    
+    // Writer thread only
+    private FileChannel segmentChannel;
+    private volatile int segmentNumber;
+    private long segmentPosition;
+    private final DataOutputStream indexOut;
+    
+    // Guarded by indexLock
+    private final Object indexLock = new Object();
+    private final Map<String, LongList> gamesByPlayer = new HashMap<>();
+    private final LongList endTimes = new LongList();
+    private final LongList locationsByTime = new LongList();
+    private long submittedGames;
+    private long writtenGames;
+    private IOException failure;
+    private boolean running = true;
+    
+    private final Thread writerThread;
+    
+    private GameArchive(File directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        
+        File indexFile = new File(directory, INDEX_FILE);
+        long[] resume = loadIndex(indexFile);
+        indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+        recoverSegments((int) resume[0], resume[1]);
+        indexOut.flush();
+        
+        writerThread = new Thread(this::runWriter, "GameArchive-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    /**
+     * Opens the archive in the given directory, creating it if needed.
+     */
+    public static GameArchive open(File directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+    
+    /**
+     * Opens the archive with a custom segment size.
+     */
+    public static GameArchive open(File directory, long segmentSize) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create archive directory: " + directory);
+        }
+        GameArchive archive = new GameArchive(directory, segmentSize);
+        LOGGER.info("Opened game archive " + directory + " with " + archive.getGameCount() + " games");
+        return archive;
+    }
+    
+    /**
+     * Queues a finished game for writing. Blocks only if the writer has
+     * fallen a full queue behind.
+     */
+    public void archive(ArchivedGame game) throws IOException {
+        synchronized (indexLock) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (!running) {
+                throw new IOException("Archive is closed");
+            }
+            submittedGames++;
+        }
+        try {
+            queue.put(game);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while archiving game " + game.getGameId(), e);
+        }
+    }
+    
+    /**
+     * Waits until every game queued so far is written and indexed.
+     */
+    public void flush() throws IOException {
+        synchronized (indexLock) {
+            long target = submittedGames;
+            while (writtenGames < target) {
+                if (failure != null) {
+                    throw failure;
+                }
+                try {
+                    indexLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while flushing archive", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads the game stored at the given location.
+     */
+    public ArchivedGame read(long location) throws IOException {
+        int segment = (int) (location >>> OFFSET_BITS);
+        long offset = location & ((1L << OFFSET_BITS) - 1);
+        FileChannel channel = readChannel(segment);
+        
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        readFully(channel, lengthBuffer, offset);
+        int length = lengthBuffer.getInt(0);
+        if (length < 1 || length > MAX_RECORD_SIZE) {
+            throw new IOException("Corrupt archive record at segment " + segment + " offset " + offset);
+        }
+        ByteBuffer record = ByteBuffer.allocate(length + 4);
+        readFully(channel, record, offset + 4);
+        return decode(record.array(), length);
+    }
+    
+    /**
+     * Streams every archived game, oldest first.
+     */
+    public void forEach(Consumer<ArchivedGame> consumer) throws IOException {
+        int lastSegment = segmentNumber;
+        for (int segment = 1; segment <= lastSegment; segment++) {
+            File file = segmentFile(segment);
+            if (!file.exists()) {
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+                if (in.readInt() != SEGMENT_MAGIC) {
+                    throw new IOException("Not an archive segment: " + file);
+                }
+                scanRecords(in, SEGMENT_HEADER_SIZE, (offset, game) -> consumer.accept(game));
+            }
+        }
+    }
+    
+    /**
+     * Streams the archived games a player took part in, oldest first.
+     */
+    public void forEachGameOf(String playerId, Consumer<ArchivedGame> consumer) throws IOException {
+        long[] locations;
+        synchronized (indexLock) {
+            LongList list = gamesByPlayer.get(playerId);
+            locations = list != null ? list.toArray() : new long[0];
+        }
+        for (long location : locations) {
+            consumer.accept(read(location));
+        }
+    }
+    
+    /**
+     * Streams the archived games that ended in {@code [fromTime, toTime)}, oldest first.
+     */
+    public void forEachGameBetween(long fromTime, long toTime, Consumer<ArchivedGame> consumer) throws IOException {
+        long[] locations;
+        synchronized (indexLock) {
+            int start = endTimes.lowerBound(fromTime);
+            int end = endTimes.lowerBound(toTime);
+            locations = locationsByTime.slice(start, end);
+        }
+        for (long location : locations) {
+            consumer.accept(read(location));
+        }
+    }
+    
+    /**
+     * Gets the number of archived games.
+     */
+    public int getGameCount() {
+        synchronized (indexLock) {
+            return locationsByTime.size();
+        }
+    }
+    
+    /**
+     * Gets the number of archived games a player took part in.
+     */
+    public int getGameCount(String playerId) {
+        synchronized (indexLock) {
+            LongList list = gamesByPlayer.get(playerId);
+            return list != null ? list.size() : 0;
+        }
+    }
+    
+    /**
+     * Writes queued games and closes the archive.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (indexLock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        // Never interrupted: an interrupt during a write would close the segment channel
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        indexOut.close();
+        if (segmentChannel != null) {
+            segmentChannel.close();
+        }
+        for (FileChannel channel : readChannels.values()) {
+            channel.close();
+        }
+        readChannels.clear();
+    }
+    
+    private void runWriter() {
+        List<ArchivedGame> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            ArchivedGame game;
+            try {
+                game = queue.poll(WRITER_POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                game = null; // Not used to stop the writer; closing is checked below
+            }
+            if (game == null) {
+                if (isDrained()) {
+                    return;
+                }
+                continue;
+            }
+            batch.add(game);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            if (!writeBatchSafely(batch)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the archive is closing and every game accepted before
+     * that, including any still being put on the queue, has been written.
+     */
+    private boolean isDrained() {
+        synchronized (indexLock) {
+            return !running && writtenGames >= submittedGames;
+        }
+    }
+    
+    private boolean writeBatchSafely(List<ArchivedGame> batch) {
+        try {
+            writeBatch(batch);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write game archive in " + directory, e);
+            synchronized (indexLock) {
+                failure = e;
+                indexLock.notifyAll();
+            }
+            return false;
+        } finally {
+            batch.clear();
+        }
+    }
+    
+    /**
+     * Appends a batch of games to the current segment, rolling to a new
+     * segment when it is full, then syncs and indexes them.
+     */
+    private void writeBatch(List<ArchivedGame> batch) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(batch.size() * 128);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        CRC32 crc = new CRC32();
+        long[] locations = new long[batch.size()];
+        
+        for (int i = 0; i < batch.size(); i++) {
+            body.reset();
+            batch.get(i).writeTo(bodyOut);
+            int recordSize = 4 + body.size() + 4;
+            
+            long position = segmentPosition + buffer.size();
+            if (position > SEGMENT_HEADER_SIZE && position + recordSize > segmentSize) {
+                writeToSegment(buffer);
+                rollSegment();
+                position = segmentPosition;
+            }
+            
+            crc.reset();
+            crc.update(body.toByteArray());
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(body.size());
+            body.writeTo(out);
+            out.writeInt((int) crc.getValue());
+            locations[i] = location(segmentNumber, position);
+        }
+        writeToSegment(buffer);
+        segmentChannel.force(false);
+        
+        for (int i = 0; i < batch.size(); i++) {
+            ArchivedGame game = batch.get(i);
+            writeIndexEntry(locations[i], game);
+        }
+        indexOut.flush();
+        
+        synchronized (indexLock) {
+            for (int i = 0; i < batch.size(); i++) {
+                addToIndex(locations[i], batch.get(i).getEndTime(),
+                    batch.get(i).getRedPlayerId(), batch.get(i).getBlackPlayerId());
+            }
+            writtenGames += batch.size();
+            indexLock.notifyAll();
+        }
+    }
+    
+    private void writeToSegment(ByteArrayOutputStream buffer) throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            segmentChannel.write(bytes);
+        }
+        segmentPosition = segmentChannel.position();
+        buffer.reset();
+    }
+    
+    private void rollSegment() throws IOException {
+        segmentChannel.force(false);
+        segmentChannel.close();
+        openSegment(segmentNumber + 1, false);
+    }
+    
+    private void openSegment(int number, boolean existing) throws IOException {
+        segmentNumber = number;
+        segmentChannel = FileChannel.open(segmentFile(number).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!existing || segmentChannel.size() < SEGMENT_HEADER_SIZE) {
+            segmentChannel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(SEGMENT_MAGIC);
+            header.flip();
+            segmentChannel.write(header, 0);
+        }
+        segmentPosition = Math.max(SEGMENT_HEADER_SIZE, segmentChannel.size());
+        segmentChannel.position(segmentPosition);
+    }
+    
+    /**
+     * Loads the persisted index.
+     * @return the segment and offset just past the last indexed record
+     */
+    private long[] loadIndex(File indexFile) throws IOException {
+        long lastLocation = -1;
+        long validLength = 0;
+        if (indexFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                while (true) {
+                    long location = in.readLong();
+                    long endTime = in.readLong();
+                    String redPlayerId = in.readUTF();
+                    String blackPlayerId = in.readUTF();
+                    addToIndex(location, endTime, redPlayerId, blackPlayerId);
+                    lastLocation = location;
+                    validLength += 16 + utfLength(redPlayerId) + utfLength(blackPlayerId);
+                }
+            } catch (EOFException e) {
+                // End of index, possibly a torn last entry
+            }
+            if (indexFile.length() > validLength) {
+                try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+        }
+        
+        if (lastLocation < 0) {
+            return new long[] {1, SEGMENT_HEADER_SIZE};
+        }
+        int segment = (int) (lastLocation >>> OFFSET_BITS);
+        long offset = lastLocation & ((1L << OFFSET_BITS) - 1);
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        try (FileChannel channel = FileChannel.open(segmentFile(segment).toPath(), StandardOpenOption.READ)) {
+            readFully(channel, lengthBuffer, offset);
+        }
+        return new long[] {segment, offset + 4 + lengthBuffer.getInt(0) + 4};
+    }
+    
+    /**
+     * Indexes records written after the last index entry (the writer syncs
+     * segments before the index), truncates a torn tail, and opens the last
+     * segment for appending.
+     */
+    private void recoverSegments(int startSegment, long startOffset) throws IOException {
+        int segment = startSegment;
+        long offset = startOffset;
+        int recovered = 0;
+        while (segmentFile(segment).exists()) {
+            long validEnd = offset;
+            try (InputStream raw = new FileInputStream(segmentFile(segment))) {
+                if (raw.skip(offset) == offset) {
+                    int current = segment;
+                    LongList found = new LongList();
+                    List<ArchivedGame> games = new ArrayList<>();
+                    validEnd = scanRecords(new DataInputStream(new BufferedInputStream(raw)), offset,
+                        (recordOffset, game) -> {
+                            found.add(location(current, recordOffset));
+                            games.add(game);
+                        });
+                    for (int i = 0; i < games.size(); i++) {
+                        ArchivedGame game = games.get(i);
+                        writeIndexEntry(found.get(i), game);
+                        addToIndex(found.get(i), game.getEndTime(), game.getRedPlayerId(), game.getBlackPlayerId());
+                    }
+                    recovered += games.size();
+                }
+            }
+            
+            if (!segmentFile(segment + 1).exists()) {
+                openSegment(segment, true);
+                if (segmentChannel.size() > validEnd) {
+                    LOGGER.warning("Truncating torn tail of archive segment " + segmentFile(segment));
+                    segmentChannel.truncate(validEnd);
+                    segmentPosition = validEnd;
+                    segmentChannel.position(validEnd);
+                }
+                break;
+            }
+            segment++;
+            offset = SEGMENT_HEADER_SIZE;
+        }
+        if (segmentChannel == null) {
+            openSegment(segment, false);
+        }
+        if (recovered > 0) {
+            LOGGER.info("Re-indexed " + recovered + " archived games");
+        }
+    }
+    
+    private void writeIndexEntry(long location, ArchivedGame game) throws IOException {
+        indexOut.writeLong(location);
+        indexOut.writeLong(game.getEndTime());
+        indexOut.writeUTF(game.getRedPlayerId());
+        indexOut.writeUTF(game.getBlackPlayerId());
+    }
+    
+    /**
+     * Adds a game to the in-memory indexes. Must hold indexLock or be
+     * called before the writer starts.
+     */
+    private void addToIndex(long location, long endTime, String redPlayerId, String blackPlayerId) {
+        gamesByPlayer.computeIfAbsent(redPlayerId, id -> new LongList()).add(location);
+        gamesByPlayer.computeIfAbsent(blackPlayerId, id -> new LongList()).add(location);
+        
+        // End times arrive almost sorted; keep the date index sorted by inserting from the back
+        int index = endTimes.size();
+        while (index > 0 && endTimes.get(index - 1) > endTime) {
+            index--;
+        }
+        endTimes.insert(index, endTime);
+        locationsByTime.insert(index, location);
+    }
+    
+    /**
+     * Visits intact records until the end of the stream or the first torn
+     * or corrupt record.
+     * @return the offset just past the last intact record
+     */
+    private static long scanRecords(DataInputStream in, long offset, RecordVisitor visitor) throws IOException {
+        CRC32 crc = new CRC32();
+        long end = offset;
+        while (true) {
+            byte[] record;
+            int length;
+            try {
+                length = in.readInt();
+                if (length < 1 || length > MAX_RECORD_SIZE) {
+                    return end;
+                }
+                record = new byte[length + 4];
+                in.readFully(record);
+            } catch (EOFException e) {
+                return end;
+            }
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != ByteBuffer.wrap(record, length, 4).getInt()) {
+                return end;
+            }
+            visitor.visit(end, ArchivedGame.readFrom(new DataInputStream(new ByteArrayInputStream(record, 0, length))));
+            end += 4 + record.length;
+        }
+    }
+    
+    private static ArchivedGame decode(byte[] record, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, length);
+        if ((int) crc.getValue() != ByteBuffer.wrap(record, length, 4).getInt()) {
+            throw new IOException("Archive record checksum mismatch");
+        }
+        return ArchivedGame.readFrom(new DataInputStream(new ByteArrayInputStream(record, 0, length)));
+    }
+    
+    private FileChannel readChannel(int segment) throws IOException {
+        FileChannel channel = readChannels.get(segment);
+        if (channel == null) {
+            synchronized (readChannels) {
+                channel = readChannels.get(segment);
+                if (channel == null) {
+                    channel = FileChannel.open(segmentFile(segment).toPath(), StandardOpenOption.READ);
+                    readChannels.put(segment, channel);
+                }
+            }
+        }
+        return channel;
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of archive segment");
+            }
+        }
+    }
+    
+    private File segmentFile(int number) {
+        return new File(directory, String.format("games-%06d.seg", number));
+    }
+    
+    private static long location(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+    
+    private static int utfLength(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value.length() + 2);
+        new DataOutputStream(bytes).writeUTF(value);
+        return bytes.size();
+    }
+    
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(long offset, ArchivedGame game) throws IOException;
+    }
+    
+    /**
+     * Growable array of primitive longs, to keep index memory small.
+     */
+    private static final class LongList {
+        private long[] values = new long[8];
+        private int size;
+        
+        void add(long value) {
+            insert(size, value);
+        }
+        
+        void insert(int index, long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+        
+        long get(int index) {
+            return values[index];
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        /**
+         * Index of the first value not less than the key.
+         */
+        int lowerBound(long key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+        
+        long[] slice(int from, int to) {
+            return Arrays.copyOfRange(values, from, to);
+        }
+    }
+}
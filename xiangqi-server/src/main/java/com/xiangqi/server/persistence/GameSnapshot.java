@@ -0,0 +1,219 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.Player;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Compact point-in-time image of the games in progress, written alongside
+ * the {@link MoveJournal} so old journal generations can be deleted.
+ *
+ * <p>Layout: {@code [int magic][int journalGeneration][long createdAt][int games]},
+ * then per game its id, creation time, players and moves (two square bytes
+ * each), then an {@code int crc32} of everything before it. The file is
+ * replaced atomically and read through a memory mapping, so loading costs
+ * only the games still in progress, however long the server has been up.</p>
+ */
+public final class GameSnapshot {
+    private static final Logger LOGGER = Logger.getLogger(GameSnapshot.class.getName());
+    
+    private static final int MAGIC = 0x58515331; // "XQS1"
+    
+    private final int journalGeneration;
+    private final long createdAt;
+    private final List<LiveGameRecord> games;
+    
+    private GameSnapshot(int journalGeneration, long createdAt, List<LiveGameRecord> games) {
+        this.journalGeneration = journalGeneration;
+        this.createdAt = createdAt;
+        this.games = Collections.unmodifiableList(games);
+    }
+    
+    /**
+     * Writes a snapshot to a temporary file, syncs it and moves it over the
+     * previous snapshot.
+     * @param journalGeneration the first journal generation not covered by the snapshot
+     */
+    public static void write(File file, int journalGeneration, Collection<LiveGameRecord> games) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create snapshot directory: " + parent);
+        }
+        
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 + games.size() * 256);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeInt(journalGeneration);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(games.size());
+        for (LiveGameRecord game : games) {
+            writeString(out, game.getGameId());
+            out.writeLong(game.getCreationTime());
+            writePlayer(out, game.getRedPlayer());
+            writePlayer(out, game.getBlackPlayer());
+            out.writeShort(game.getMoveCount());
+            for (int i = 0; i < game.getMoveCount() * 2; i++) {
+                out.writeByte(game.squareAt(i));
+            }
+        }
+        CRC32 crc = new CRC32();
+        byte[] body = buffer.toByteArray();
+        crc.update(body);
+        out.writeInt((int) crc.getValue());
+        
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Reads a snapshot through a memory mapping.
+     * @return the snapshot, or null if the file does not exist
+     * @throws IOException if the file is not an intact snapshot
+     */
+    public static GameSnapshot read(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 24 || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot size " + size + ": " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            
+            ByteBuffer body = mapped.duplicate();
+            body.limit((int) size - 4);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != mapped.getInt((int) size - 4)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            
+            try {
+                if (mapped.getInt() != MAGIC) {
+                    throw new IOException("Not a game snapshot: " + file);
+                }
+                int journalGeneration = mapped.getInt();
+                long createdAt = mapped.getLong();
+                int count = mapped.getInt();
+                List<LiveGameRecord> games = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String gameId = readString(mapped);
+                    long creationTime = mapped.getLong();
+                    Player red = readPlayer(mapped);
+                    Player black = readPlayer(mapped);
+                    LiveGameRecord game = new LiveGameRecord(gameId, creationTime, red, black, 0);
+                    int moves = mapped.getShort() & 0xFFFF;
+                    for (int m = 0; m < moves; m++) {
+                        game.addMove(mapped.get(), mapped.get());
+                    }
+                    games.add(game);
+                }
+                return new GameSnapshot(journalGeneration, createdAt, games);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated snapshot: " + file, e);
+            }
+        }
+    }
+    
+    /**
+     * Gets the first journal generation not covered by this snapshot.
+     */
+    public int getJournalGeneration() {
+        return journalGeneration;
+    }
+    
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    
+    public List<LiveGameRecord> getGames() {
+        return games;
+    }
+    
+    /**
+     * Combines the snapshot with what the journal recorded after it: moves past
+     * the snapshot are appended, games the journal saw end are dropped, and
+     * games started after the snapshot are added.
+     * @param snapshot the snapshot, or null if there is none
+     * @return the games to rebuild, each holding its moves from the first one
+     */
+    public static List<LiveGameRecord> recover(GameSnapshot snapshot, MoveJournal journal) {
+        Map<String, LiveGameRecord> games = new LinkedHashMap<>();
+        if (snapshot != null) {
+            for (LiveGameRecord game : snapshot.games) {
+                if (!journal.getEndedGameIds().contains(game.getGameId())) {
+                    games.put(game.getGameId(), game);
+                }
+            }
+        }
+        
+        for (LiveGameRecord later : journal.getLiveGames()) {
+            LiveGameRecord game = games.get(later.getGameId());
+            if (game == null) {
+                if (later.getBaseSequence() == 0) {
+                    games.put(later.getGameId(), later);
+                } else {
+                    LOGGER.warning("Game " + later.getGameId() + " is missing its first "
+                        + later.getBaseSequence() + " moves and cannot be recovered");
+                }
+            } else if (!game.append(later)) {
+                LOGGER.warning("Game " + game.getGameId() + " has a gap between snapshot move "
+                    + game.getLastSequence() + " and journal move " + (later.getBaseSequence() + 1));
+            }
+        }
+        return new ArrayList<>(games.values());
+    }
+    
+    private static void writePlayer(DataOutputStream out, Player player) throws IOException {
+        writeString(out, player.getPlayerId());
+        writeString(out, player.getUsername());
+        out.writeInt(player.getRating());
+    }
+    
+    private static Player readPlayer(ByteBuffer in) {
+        Player player = new Player(readString(in), readString(in));
+        player.setRating(in.getInt());
+        return player;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,142 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.model.Position;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The players and moves needed to rebuild a game in progress, as read from
+ * a snapshot or the move journal. Holds the moves after {@link #getBaseSequence()},
+ * which is 0 unless the earlier moves are covered by a snapshot.
+ */
+public final class LiveGameRecord {
+    private final String gameId;
+    private final long creationTime;
+    private final Player redPlayer;
+    private final Player blackPlayer;
+    private final int baseSequence;
+    private byte[] squares;
+    private int moveCount;
+    private boolean ended;
+    
+    LiveGameRecord(String gameId, long creationTime, Player redPlayer, Player blackPlayer, int baseSequence) {
+        this.gameId = gameId;
+        this.creationTime = creationTime;
+        this.redPlayer = redPlayer;
+        this.blackPlayer = blackPlayer;
+        this.baseSequence = baseSequence;
+        this.squares = new byte[64];
+    }
+    
+    /**
+     * Captures a session and its moves for a snapshot.
+     */
+    public static LiveGameRecord of(GameSession session, List<Move> moves) {
+        LiveGameRecord record = new LiveGameRecord(session.getSessionId(), session.getCreationTime(),
+            session.getRedPlayer(), session.getBlackPlayer(), 0);
+        for (Move move : moves) {
+            record.addMove(move.getFrom().toSquare(), move.getTo().toSquare());
+        }
+        return record;
+    }
+    
+    public String getGameId() {
+        return gameId;
+    }
+    
+    public long getCreationTime() {
+        return creationTime;
+    }
+    
+    public Player getRedPlayer() {
+        return redPlayer;
+    }
+    
+    public Player getBlackPlayer() {
+        return blackPlayer;
+    }
+    
+    /**
+     * Gets the number of moves played before the first move held here.
+     */
+    public int getBaseSequence() {
+        return baseSequence;
+    }
+    
+    /**
+     * Gets the number of moves held.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+    
+    /**
+     * Gets the sequence number of the last move held.
+     */
+    public int getLastSequence() {
+        return baseSequence + moveCount;
+    }
+    
+    public Position getFrom(int index) {
+        return Position.fromSquare(squares[index * 2]);
+    }
+    
+    public Position getTo(int index) {
+        return Position.fromSquare(squares[index * 2 + 1]);
+    }
+    
+    public boolean isEnded() {
+        return ended;
+    }
+    
+    void markEnded() {
+        ended = true;
+    }
+    
+    byte squareAt(int index) {
+        return squares[index];
+    }
+    
+    /**
+     * Appends a move if it is the next one in sequence.
+     * @return false if the sequence does not follow the last move held
+     */
+    boolean addMove(int sequence, byte from, byte to) {
+        if (sequence != getLastSequence() + 1) {
+            return false;
+        }
+        addMove(from, to);
+        return true;
+    }
+    
+    void addMove(byte from, byte to) {
+        if (moveCount * 2 + 2 > squares.length) {
+            squares = Arrays.copyOf(squares, squares.length * 2);
+        }
+        squares[moveCount * 2] = from;
+        squares[moveCount * 2 + 1] = to;
+        moveCount++;
+    }
+    
+    /**
+     * Appends the moves of a later record of the same game that follow this one.
+     * @return false if the later record starts after a gap
+     */
+    boolean append(LiveGameRecord later) {
+        if (later.baseSequence > getLastSequence()) {
+            return false;
+        }
+        for (int i = 0; i < later.moveCount; i++) {
+            int sequence = later.baseSequence + i + 1;
+            if (sequence > getLastSequence()) {
+                addMove(later.squares[i * 2], later.squares[i * 2 + 1]);
+            }
+        }
+        return true;
+    }
+    
+}
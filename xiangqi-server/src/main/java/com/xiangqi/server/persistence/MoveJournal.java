@@ -0,0 +1,674 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.model.Position;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of game starts, accepted moves and game ends.
+ * Callers append a record and wait until it is on disk; a single flusher thread
+ * writes everything appended since the last flush and forces it with one fsync,
+ * so concurrent games share the cost of each sync (group commit).
+ *
+ * <p>Record layout: {@code [int length][byte type][payload][int crc32]}.
+ * Moves refer to their game by a small integer handle assigned in the game's
+ * start record, so a move record is 17 bytes on disk.</p>
+ *
+ * <p>The journal is a series of numbered generation files next to the
+ * configured path ({@code moves.journal.000001}, ...). {@link #rotate()}
+ * starts a new generation that begins with a start record for every live
+ * game, carrying the number of moves already played, so once a snapshot
+ * covers those moves the older generations can be deleted.</p>
+ */
+public class MoveJournal implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(MoveJournal.class.getName());
+    
+    private static final int MAGIC = 0x58514A32; // "XQJ2"
+    private static final int HEADER_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    
+    private static final byte RECORD_GAME_START = 1;
+    private static final byte RECORD_MOVE = 2;
+    private static final byte RECORD_GAME_END = 3;
+    
+    private final File baseFile;
+    private final long commitDelayMillis;
+    private final List<LiveGameRecord> liveGames;
+    private final Set<String> endedGameIds;
+    
+    // Guarded by lock
+    private final Object lock = new Object();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(4096);
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+    private final Map<String, LiveGame> games = new LinkedHashMap<>();
+    private FileChannel channel;
+    private int generation;
+    private int nextHandle;
+    private long appendedRecords;
+    private long durableRecords;
+    private long syncCount;
+    private IOException failure;
+    private boolean running = true;
+    private volatile Runnable syncListener;
+    
+    private final Thread flusherThread;
+    
+    private MoveJournal(File baseFile, int generation, FileChannel channel, long commitDelayMillis,
+                        Replay replay) {
+        this.baseFile = baseFile;
+        this.generation = generation;
+        this.channel = channel;
+        this.commitDelayMillis = Math.max(0, commitDelayMillis);
+        this.nextHandle = replay.nextHandle;
+        
+        List<LiveGameRecord> live = new ArrayList<>();
+        Set<String> ended = new HashSet<>();
+        for (LiveGameRecord game : replay.games.values()) {
+            if (game.isEnded()) {
+                ended.add(game.getGameId());
+            } else {
+                live.add(game);
+                Integer handle = replay.currentHandles.get(game.getGameId());
+                LiveGame liveGame = new LiveGame(handle != null ? handle : nextHandle++,
+                    game.getGameId(), game.getCreationTime(), game.getRedPlayer(), game.getBlackPlayer(),
+                    game.getLastSequence());
+                games.put(game.getGameId(), liveGame);
+                if (handle == null) {
+                    // Not restated in the current generation; do so before its next move
+                    synchronized (lock) {
+                        try {
+                            writeStart(liveGame);
+                            appendRecord(RECORD_GAME_START, pending);
+                        } catch (IOException e) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+        }
+        this.liveGames = Collections.unmodifiableList(live);
+        this.endedGameIds = Collections.unmodifiableSet(ended);
+        
+        flusherThread = new Thread(this::runFlusher, "MoveJournal-Flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+    
+    /**
+     * Opens a journal, replaying every generation to find games that were
+     * still in progress. A torn or corrupt tail left by a crash is truncated.
+     * @param file the base path; generation files are created next to it
+     * @param commitDelayMillis extra time the flusher waits to gather more
+     *        records into one sync; 0 syncs as soon as the previous sync ends
+     */
+    public static MoveJournal open(File file, long commitDelayMillis) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create journal directory: " + parent);
+        }
+        
+        List<Integer> generations = listGenerations(file);
+        Replay replay = new Replay();
+        long validLength = 0;
+        for (int generation : generations) {
+            replay.currentHandles.clear();
+            validLength = replay(generationFile(file, generation), replay);
+        }
+        int generation = generations.isEmpty() ? 1 : generations.get(generations.size() - 1);
+        File current = generationFile(file, generation);
+        
+        FileChannel channel = FileChannel.open(current.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (validLength < HEADER_SIZE) {
+                channel.truncate(0);
+                writeHeader(channel);
+                channel.force(true);
+                validLength = HEADER_SIZE;
+            } else if (channel.size() > validLength) {
+                LOGGER.warning("Truncating " + (channel.size() - validLength) + " bytes of incomplete journal tail in " + current);
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            channel.position(validLength);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        
+        MoveJournal journal = new MoveJournal(file, generation, channel, commitDelayMillis, replay);
+        LOGGER.info("Opened move journal " + current + ": " + generations.size() + " generations, "
+            + replay.games.size() + " games, " + journal.liveGames.size() + " in progress");
+        return journal;
+    }
+    
+    /**
+     * Gets the games that had started but not ended when the journal was opened.
+     * A game's moves start after {@link LiveGameRecord#getBaseSequence()}.
+     */
+    public List<LiveGameRecord> getLiveGames() {
+        return liveGames;
+    }
+    
+    /**
+     * Gets the ids of games the journal recorded as ended when it was opened.
+     */
+    public Set<String> getEndedGameIds() {
+        return endedGameIds;
+    }
+    
+    /**
+     * Records the start of a game and waits until it is durable.
+     */
+    public void gameStarted(GameSession session) throws IOException {
+        long ticket;
+        synchronized (lock) {
+            LiveGame game = new LiveGame(nextHandle++, session.getSessionId(), session.getCreationTime(),
+                session.getRedPlayer(), session.getBlackPlayer(), 0);
+            games.put(game.gameId, game);
+            writeStart(game);
+            ticket = appendRecord(RECORD_GAME_START, pending);
+        }
+        awaitDurable(ticket);
+    }
+    
+    /**
+     * Records an accepted move and waits until it is durable.
+     * @param sequence the game's move count after the move
+     */
+    public void moveAccepted(String gameId, int sequence, Position from, Position to) throws IOException {
+        long ticket;
+        synchronized (lock) {
+            LiveGame game = games.get(gameId);
+            if (game == null) {
+                throw new IOException("Game not journaled: " + gameId);
+            }
+            game.lastSequence = sequence;
+            
+            scratch.reset();
+            scratchOut.writeInt(game.handle);
+            scratchOut.writeShort(sequence);
+            scratchOut.writeByte(from.toSquare());
+            scratchOut.writeByte(to.toSquare());
+            ticket = appendRecord(RECORD_MOVE, pending);
+        }
+        awaitDurable(ticket);
+    }
+    
+    /**
+     * Records the end of a game. Does not wait for the sync: losing an end
+     * record only means the game is recovered and ended again.
+     */
+    public void gameEnded(String gameId, GameStatus status) throws IOException {
+        synchronized (lock) {
+            LiveGame game = games.remove(gameId);
+            if (game == null) {
+                return;
+            }
+            
+            scratch.reset();
+            scratchOut.writeInt(game.handle);
+            scratchOut.writeByte(status.ordinal());
+            appendRecord(RECORD_GAME_END, pending);
+        }
+    }
+    
+    /**
+     * Starts a new generation file. Waits for outstanding records to be synced,
+     * then writes a start record for every live game into the new file, so the
+     * new generation plus a snapshot taken after this call is enough to recover.
+     * @return the new generation number
+     */
+    public int rotate() throws IOException {
+        synchronized (lock) {
+            while (pending.size() > 0 || durableRecords < appendedRecords) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (!running) {
+                    throw new IOException("Journal is closed");
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for journal sync", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            
+            int nextGeneration = generation + 1;
+            File next = generationFile(baseFile, nextGeneration);
+            FileChannel nextChannel = FileChannel.open(next.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                ByteArrayOutputStream starts = new ByteArrayOutputStream(HEADER_SIZE + games.size() * 64);
+                new DataOutputStream(starts).writeInt(MAGIC);
+                for (LiveGame game : games.values()) {
+                    writeStart(game);
+                    appendRecord(RECORD_GAME_START, starts);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(starts.toByteArray());
+                while (buffer.hasRemaining()) {
+                    nextChannel.write(buffer);
+                }
+                nextChannel.force(true);
+            } catch (IOException e) {
+                nextChannel.close();
+                Files.deleteIfExists(next.toPath());
+                throw e;
+            }
+            
+            channel.close();
+            channel = nextChannel;
+            generation = nextGeneration;
+            durableRecords = appendedRecords;
+            syncCount++;
+            notifySynced();
+            LOGGER.info("Rotated move journal to " + next + " with " + games.size() + " live games");
+            return nextGeneration;
+        }
+    }
+    
+    /**
+     * Deletes generation files older than the given generation. Call once a
+     * snapshot covering everything before that generation is durable.
+     * @return the number of files deleted
+     */
+    public int deleteGenerationsBefore(int oldestToKeep) {
+        int current;
+        synchronized (lock) {
+            current = generation;
+        }
+        int deleted = 0;
+        for (int generation : listGenerations(baseFile)) {
+            if (generation < oldestToKeep && generation < current) {
+                File file = generationFile(baseFile, generation);
+                if (file.delete()) {
+                    deleted++;
+                } else {
+                    LOGGER.warning("Failed to delete old journal generation " + file);
+                }
+            }
+        }
+        return deleted;
+    }
+    
+    /**
+     * Gets the generation currently appended to.
+     */
+    public int getGeneration() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+    
+    /**
+     * Gets the number of records appended since the journal was opened.
+     */
+    public long getRecordCount() {
+        synchronized (lock) {
+            return appendedRecords;
+        }
+    }
+    
+    /**
+     * Sets a callback run after every fsync, such as a metrics counter.
+     * It may run while the journal lock is held, so it must be quick.
+     */
+    public void setSyncListener(Runnable listener) {
+        this.syncListener = listener;
+    }
+    
+    private void notifySynced() {
+        Runnable listener = syncListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+    
+    /**
+     * Gets the number of fsyncs performed since the journal was opened.
+     */
+    public long getSyncCount() {
+        synchronized (lock) {
+            return syncCount;
+        }
+    }
+    
+    /**
+     * Gets the generation file currently appended to.
+     */
+    public File getFile() {
+        return generationFile(baseFile, getGeneration());
+    }
+    
+    /**
+     * Syncs outstanding records and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            flusherThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            channel.close();
+        }
+    }
+    
+    private void writeStart(LiveGame game) throws IOException {
+        scratch.reset();
+        scratchOut.writeInt(game.handle);
+        scratchOut.writeUTF(game.gameId);
+        scratchOut.writeLong(game.creationTime);
+        writePlayer(game.redPlayer);
+        writePlayer(game.blackPlayer);
+        scratchOut.writeShort(game.lastSequence);
+    }
+    
+    private void writePlayer(Player player) throws IOException {
+        scratchOut.writeUTF(player.getPlayerId());
+        scratchOut.writeUTF(player.getUsername());
+        scratchOut.writeInt(player.getRating());
+    }
+    
+    /**
+     * Frames the record in scratch and appends it to the given batch.
+     * Must be called holding the lock.
+     */
+    private long appendRecord(byte type, ByteArrayOutputStream batch) throws IOException {
+        if (!running) {
+            throw new IOException("Journal is closed");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        
+        byte[] body = scratch.toByteArray();
+        crc.reset();
+        crc.update(type);
+        crc.update(body);
+        
+        DataOutputStream out = new DataOutputStream(batch);
+        out.writeInt(body.length + 1);
+        out.writeByte(type);
+        out.write(body);
+        out.writeInt((int) crc.getValue());
+        
+        appendedRecords++;
+        lock.notifyAll();
+        return appendedRecords;
+    }
+    
+    private void awaitDurable(long ticket) throws IOException {
+        synchronized (lock) {
+            while (durableRecords < ticket) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (!running && flusherThread.getState() == Thread.State.TERMINATED) {
+                    throw new IOException("Journal closed before record was synced");
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for journal sync", e);
+                }
+            }
+        }
+    }
+    
+    private void runFlusher() {
+        while (true) {
+            byte[] batch;
+            long batchEnd;
+            FileChannel target;
+            synchronized (lock) {
+                while (running && pending.size() == 0) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                if (pending.size() == 0) {
+                    lock.notifyAll();
+                    return; // Closed and fully synced
+                }
+                if (running && commitDelayMillis > 0) {
+                    // Let more games join this sync
+                    try {
+                        lock.wait(commitDelayMillis);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                batch = pending.toByteArray();
+                pending.reset();
+                batchEnd = appendedRecords;
+                target = channel;
+            }
+            
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+                synchronized (lock) {
+                    durableRecords = batchEnd;
+                    syncCount++;
+                    lock.notifyAll();
+                }
+                notifySynced();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to write move journal " + baseFile, e);
+                synchronized (lock) {
+                    failure = e;
+                    running = false;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+    
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+        header.flip();
+        channel.write(header, 0);
+    }
+    
+    static File generationFile(File baseFile, int generation) {
+        return new File(baseFile.getPath() + "." + String.format("%06d", generation));
+    }
+    
+    private static List<Integer> listGenerations(File baseFile) {
+        File parent = baseFile.getAbsoluteFile().getParentFile();
+        String prefix = baseFile.getName() + ".";
+        String[] names = parent != null ? parent.list() : null;
+        List<Integer> generations = new ArrayList<>();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(prefix) && name.length() > prefix.length()) {
+                    try {
+                        generations.add(Integer.parseInt(name.substring(prefix.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a generation file
+                    }
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+    
+    /**
+     * Reads all intact records of one generation file.
+     * @return the length of the valid prefix of the file
+     */
+    private static long replay(File file, Replay replay) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a move journal: " + file);
+                }
+            } catch (EOFException e) {
+                return 0;
+            }
+            
+            long validLength = HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] record;
+                try {
+                    int length = in.readInt();
+                    if (length < 1 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                    int expected = in.readInt();
+                    crc.reset();
+                    crc.update(record);
+                    if ((int) crc.getValue() != expected) {
+                        break;
+                    }
+                    validLength += 4 + length + 4;
+                } catch (EOFException e) {
+                    break;
+                }
+                replay.apply(record);
+            }
+            return validLength;
+        }
+    }
+    
+    private static Player readPlayer(DataInputStream in) throws IOException {
+        Player player = new Player(in.readUTF(), in.readUTF());
+        player.setRating(in.readInt());
+        return player;
+    }
+    
+    /**
+     * A game being journaled, with what is needed to restate its start record
+     * in a new generation.
+     */
+    private static final class LiveGame {
+        final int handle;
+        final String gameId;
+        final long creationTime;
+        final Player redPlayer;
+        final Player blackPlayer;
+        int lastSequence;
+        
+        LiveGame(int handle, String gameId, long creationTime, Player redPlayer, Player blackPlayer, int lastSequence) {
+            this.handle = handle;
+            this.gameId = gameId;
+            this.creationTime = creationTime;
+            this.redPlayer = redPlayer;
+            this.blackPlayer = blackPlayer;
+            this.lastSequence = lastSequence;
+        }
+    }
+    
+    /**
+     * Games rebuilt while replaying the generations in order. Handles are
+     * resolved per file because each generation restates its live games.
+     */
+    private static final class Replay {
+        final Map<String, LiveGameRecord> games = new LinkedHashMap<>();
+        final Map<Integer, LiveGameRecord> byHandle = new HashMap<>();
+        final Map<String, Integer> currentHandles = new HashMap<>();
+        int nextHandle;
+        
+        void apply(byte[] record) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+            int handle = in.readInt();
+            switch (record[0]) {
+                case RECORD_GAME_START:
+                    String gameId = in.readUTF();
+                    long creationTime = in.readLong();
+                    Player red = readPlayer(in);
+                    Player black = readPlayer(in);
+                    int baseSequence = in.readUnsignedShort();
+                    LiveGameRecord game = games.get(gameId);
+                    if (game == null) {
+                        game = new LiveGameRecord(gameId, creationTime, red, black, baseSequence);
+                        games.put(gameId, game);
+                    } else if (baseSequence > game.getLastSequence()) {
+                        LOGGER.warning("Journal generation for game " + gameId + " starts after move "
+                            + baseSequence + " but only " + game.getLastSequence() + " were found");
+                    }
+                    byHandle.put(handle, game);
+                    currentHandles.put(gameId, handle);
+                    nextHandle = Math.max(nextHandle, handle + 1);
+                    break;
+                
+                case RECORD_MOVE:
+                    LiveGameRecord moved = byHandle.get(handle);
+                    int sequence = in.readUnsignedShort();
+                    byte from = in.readByte();
+                    byte to = in.readByte();
+                    if (moved != null && sequence > moved.getLastSequence()
+                            && !moved.addMove(sequence, from, to)) {
+                        LOGGER.warning("Skipping out of order journal move " + sequence + " for game " + moved.getGameId());
+                    }
+                    break;
+                
+                case RECORD_GAME_END:
+                    LiveGameRecord ended = byHandle.remove(handle);
+                    if (ended != null) {
+                        ended.markEnded();
+                        currentHandles.remove(ended.getGameId());
+                    }
+                    break;
+                
+                default:
+                    LOGGER.warning("Unknown journal record type: " + record[0]);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,667 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameStatistics;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.network.MessageHandler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Embedded store of player accounts, ratings and game statistics.
+ *
+ * <p>Every account is held in memory, so logins and lookups never touch the
+ * disk. Changes only mark the account dirty; a background flusher appends
+ * dirty accounts to a log file and syncs it (write-behind). On open the log
+ * is replayed, the latest record per player wins, and the log is compacted
+ * once most of it is superseded records.</p>
+ *
+ * <p>Passwords are hashed with PBKDF2, which is deliberately slow. A login
+ * that has been verified is remembered in memory for a while, so players who
+ * reconnect are not hashed again; the remembered digest is keyed with a
+ * secret that never leaves the process.</p>
+ */
+public class PlayerStore implements MessageHandler.Authenticator, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(PlayerStore.class.getName());
+    
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    public static final int DEFAULT_HASH_ITERATIONS = 600_000;
+    private static final int MAGIC = 0x58515032; // "XQP2"
+    private static final int LEGACY_MAGIC = 0x58515031; // "XQP1", passwords hashed with one round of SHA-256
+    private static final int HEADER_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 4096;
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final long VERIFIED_LOGIN_TTL_MS = 30 * 60 * 1000;
+    private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+    
+    private final File file;
+    private final long flushIntervalMillis;
+    private final int hashIterations;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final SecureRandom random = new SecureRandom();
+    private final byte[] loginKey = new byte[HASH_LENGTH];
+    private final Object flushLock = new Object();
+    
+    // Guarded by flushLock
+    private FileChannel channel;
+    private long liveBytes;
+    
+    private volatile boolean running = true;
+    private final Object flusherSignal = new Object();
+    private final Thread flusherThread;
+    
+    private PlayerStore(File file, long flushIntervalMillis, int hashIterations) throws IOException {
+        this.file = file;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.hashIterations = Math.max(1, hashIterations);
+        random.nextBytes(loginKey);
+        
+        if (file != null) {
+            load();
+            flusherThread = new Thread(this::runFlusher, "PlayerStore-Flusher");
+            flusherThread.setDaemon(true);
+            flusherThread.start();
+        } else {
+            flusherThread = null;
+        }
+    }
+    
+    /**
+     * Opens a store backed by the given file, creating it if needed.
+     */
+    public static PlayerStore open(File file, long flushIntervalMillis) throws IOException {
+        return open(file, flushIntervalMillis, DEFAULT_HASH_ITERATIONS);
+    }
+    
+    /**
+     * Opens a store backed by the given file, hashing passwords with the given
+     * number of PBKDF2 iterations. Passwords stored with a different count are
+     * rehashed at their next login.
+     */
+    public static PlayerStore open(File file, long flushIntervalMillis, int hashIterations) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create player store directory: " + parent);
+        }
+        PlayerStore store = new PlayerStore(file, flushIntervalMillis, hashIterations);
+        LOGGER.info("Opened player store " + file + " with " + store.size() + " players");
+        return store;
+    }
+    
+    /**
+     * Creates a store that keeps accounts only in memory.
+     */
+    public static PlayerStore inMemory() {
+        return inMemory(DEFAULT_HASH_ITERATIONS);
+    }
+    
+    /**
+     * Creates a store that keeps accounts only in memory, hashing passwords
+     * with the given number of PBKDF2 iterations.
+     */
+    public static PlayerStore inMemory(int hashIterations) {
+        try {
+            return new PlayerStore(null, DEFAULT_FLUSH_INTERVAL_MS, hashIterations);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Not reachable without a file
+        }
+    }
+    
+    /**
+     * Checks a login. An unknown username registers a new account with the
+     * given password; a known one must match its stored password.
+     * @return the player with stored rating and statistics, or null if rejected
+     */
+    @Override
+    public Player authenticate(String username, String password) {
+        if (username == null || username.trim().isEmpty() || password == null || password.isEmpty()) {
+            return null;
+        }
+        
+        Account account = accounts.get(username);
+        if (account == null) {
+            byte[] salt = newSalt();
+            Account created = new Account(username, username, salt, hash(salt, password, hashIterations), hashIterations);
+            account = accounts.putIfAbsent(username, created);
+            if (account == null) {
+                synchronized (created) {
+                    rememberLogin(created, password);
+                }
+                markDirty(created);
+                return created.toPlayer();
+            }
+        }
+        
+        // The slow hash is worked out without holding the account, so rating updates are not held up
+        byte[] storedHash;
+        byte[] salt;
+        int iterations;
+        synchronized (account) {
+            if (isRememberedLogin(account, password)) {
+                return account.toPlayer();
+            }
+            storedHash = account.passwordHash;
+            salt = account.salt;
+            iterations = account.hashIterations;
+        }
+        if (storedHash.length > 0 && !MessageDigest.isEqual(storedHash, hash(salt, password, iterations))) {
+            return null;
+        }
+        
+        synchronized (account) {
+            if (account.passwordHash != storedHash) {
+                // Another login set the password meanwhile; check against that one
+                return authenticate(username, password);
+            }
+            if (storedHash.length == 0 || iterations != hashIterations) {
+                // Created while authentication was disabled, or hashed with other settings
+                account.salt = newSalt();
+                account.passwordHash = hash(account.salt, password, hashIterations);
+                account.hashIterations = hashIterations;
+                markDirty(account);
+            }
+            rememberLogin(account, password);
+        }
+        return account.toPlayer();
+    }
+    
+    /**
+     * Gets a player with stored rating and statistics, creating an account
+     * without a password check. Used when authentication is disabled.
+     */
+    public Player getOrCreatePlayer(String username) {
+        Account account = accounts.computeIfAbsent(username, name -> {
+            Account created = new Account(name, name, new byte[SALT_LENGTH], new byte[0], hashIterations);
+            markDirty(created);
+            return created;
+        });
+        return account.toPlayer();
+    }
+    
+    /**
+     * Gets a player with stored rating and statistics, or null if unknown.
+     */
+    public Player getPlayer(String playerId) {
+        Account account = accounts.get(playerId);
+        return account != null ? account.toPlayer() : null;
+    }
+    
+    /**
+     * Updates a player's rating.
+     */
+    public void updateRating(String playerId, int rating) {
+        Account account = accounts.get(playerId);
+        if (account != null) {
+            synchronized (account) {
+                account.rating = rating;
+            }
+            markDirty(account);
+        }
+    }
+    
+    /**
+     * Records a finished game in both players' statistics.
+     * @param winnerId the winner, or null for a draw
+     */
+    public void recordGame(String redPlayerId, String blackPlayerId, String winnerId) {
+        recordGameFor(redPlayerId, winnerId);
+        recordGameFor(blackPlayerId, winnerId);
+    }
+    
+    /**
+     * Gets a copy of a player's stored statistics, or null if unknown.
+     */
+    public GameStatistics getStatistics(String playerId) {
+        Account account = accounts.get(playerId);
+        if (account == null) {
+            return null;
+        }
+        synchronized (account) {
+            return new GameStatistics(account.gamesPlayed, account.gamesWon, account.gamesLost, account.gamesDraw);
+        }
+    }
+    
+    /**
+     * Visits every player's stored rating.
+     */
+    public void forEachRating(ObjIntConsumer<String> visitor) {
+        for (Account account : accounts.values()) {
+            int rating;
+            synchronized (account) {
+                rating = account.rating;
+            }
+            visitor.accept(account.playerId, rating);
+        }
+    }
+    
+    /**
+     * Gets the number of accounts.
+     */
+    public int size() {
+        return accounts.size();
+    }
+    
+    /**
+     * Gets the number of accounts changed since the last flush.
+     */
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+    
+    /**
+     * Writes all dirty accounts to disk and syncs.
+     */
+    public void flush() throws IOException {
+        if (file == null) {
+            dirty.clear();
+            return;
+        }
+        
+        synchronized (flushLock) {
+            if (dirty.isEmpty() || channel == null) {
+                return;
+            }
+            
+            // Ids are taken off the dirty set before their records are built, so a
+            // change made meanwhile marks them dirty again for the next flush
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            List<String> written = new ArrayList<>(dirty);
+            List<Account> firstWritten = new ArrayList<>();
+            long firstWrittenBytes = 0;
+            for (String playerId : written) {
+                dirty.remove(playerId);
+                Account account = accounts.get(playerId);
+                if (account != null) {
+                    int before = buffer.size();
+                    writeRecord(buffer, account);
+                    if (!account.persisted) {
+                        firstWritten.add(account);
+                        firstWrittenBytes += buffer.size() - before;
+                    }
+                }
+            }
+            
+            long position = channel.position();
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                // Nothing written is known to be durable; keep the changes for the next attempt
+                dirty.addAll(written);
+                if (channel.isOpen()) {
+                    channel.position(position);
+                }
+                throw e;
+            }
+            for (Account account : firstWritten) {
+                account.persisted = true;
+            }
+            liveBytes += firstWrittenBytes;
+            
+            if (channel.size() > MIN_COMPACT_BYTES && channel.size() > 2 * liveBytes) {
+                compact();
+            }
+        }
+    }
+    
+    /**
+     * Flushes outstanding changes and stops the background flusher.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (flusherThread != null) {
+            // Woken rather than interrupted: an interrupt during a write would close the channel
+            synchronized (flusherSignal) {
+                flusherSignal.notifyAll();
+            }
+            try {
+                flusherThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        synchronized (flushLock) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+    
+    private void recordGameFor(String playerId, String winnerId) {
+        Account account = accounts.get(playerId);
+        if (account == null) {
+            return;
+        }
+        synchronized (account) {
+            account.gamesPlayed++;
+            if (winnerId == null) {
+                account.gamesDraw++;
+            } else if (winnerId.equals(playerId)) {
+                account.gamesWon++;
+            } else {
+                account.gamesLost++;
+            }
+        }
+        markDirty(account);
+    }
+    
+    /**
+     * Gets the number of PBKDF2 iterations a player's password is stored with,
+     * or 0 for a password stored by an older version as one round of SHA-256.
+     */
+    int getHashIterations(String playerId) {
+        Account account = accounts.get(playerId);
+        if (account == null) {
+            return -1;
+        }
+        synchronized (account) {
+            return account.hashIterations;
+        }
+    }
+    
+    private byte[] newSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        return salt;
+    }
+    
+    /**
+     * Remembers a verified login for a while. Must be called holding the account's monitor.
+     */
+    private void rememberLogin(Account account, String password) {
+        account.verifiedLogin = loginDigest(account.salt, password);
+        account.verifiedUntil = System.currentTimeMillis() + VERIFIED_LOGIN_TTL_MS;
+    }
+    
+    /**
+     * Checks a login against the remembered one. Must be called holding the account's monitor.
+     */
+    private boolean isRememberedLogin(Account account, String password) {
+        return account.verifiedLogin != null && System.currentTimeMillis() < account.verifiedUntil
+            && MessageDigest.isEqual(account.verifiedLogin, loginDigest(account.salt, password));
+    }
+    
+    private byte[] loginDigest(byte[] salt, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(loginKey);
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private void markDirty(Account account) {
+        if (file != null) {
+            dirty.add(account.playerId);
+        }
+    }
+    
+    private void runFlusher() {
+        while (running) {
+            synchronized (flusherSignal) {
+                if (running) {
+                    try {
+                        flusherSignal.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return; // close() flushes what is left
+                    }
+                }
+            }
+            if (!running) {
+                return; // close() flushes what is left
+            }
+            try {
+                flush();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to flush player store " + file, e);
+            }
+        }
+    }
+    
+    /**
+     * Replays the log into memory and opens it for appending.
+     */
+    private void load() throws IOException {
+        long validLength = 0;
+        boolean legacy = false;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                int magic = in.readInt();
+                if (magic != MAGIC && magic != LEGACY_MAGIC) {
+                    throw new IOException("Not a player store: " + file);
+                }
+                legacy = magic == LEGACY_MAGIC;
+                validLength = HEADER_SIZE;
+                CRC32 crc = new CRC32();
+                while (true) {
+                    int length = in.readInt();
+                    if (length < 1 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    byte[] record = new byte[length];
+                    in.readFully(record);
+                    crc.reset();
+                    crc.update(record);
+                    if ((int) crc.getValue() != in.readInt()) {
+                        break;
+                    }
+                    Account account = Account.readFrom(new DataInputStream(new ByteArrayInputStream(record)), legacy);
+                    account.persisted = true;
+                    accounts.put(account.playerId, account);
+                    validLength += 4 + length + 4;
+                }
+            } catch (EOFException e) {
+                // End of log, possibly a torn last record
+            }
+        }
+        
+        synchronized (flushLock) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (validLength < HEADER_SIZE) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+                validLength = HEADER_SIZE;
+            } else if (channel.size() > validLength) {
+                LOGGER.warning("Truncating incomplete tail of player store " + file);
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            
+            liveBytes = estimateLiveBytes();
+            if (legacy || (channel.size() > MIN_COMPACT_BYTES && channel.size() > 2 * liveBytes)) {
+                // Older logs are rewritten in the current record format
+                compact();
+            }
+        }
+    }
+    
+    /**
+     * Rewrites the log with one record per account and swaps it in atomically.
+     * Must be called holding flushLock.
+     */
+    private void compact() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        new DataOutputStream(buffer).writeInt(MAGIC);
+        for (Account account : accounts.values()) {
+            writeRecord(buffer, account);
+        }
+        
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(true);
+        }
+        
+        long before = channel.size();
+        channel.close();
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        liveBytes = channel.size();
+        LOGGER.info("Compacted player store " + file + " from " + before + " to " + liveBytes + " bytes");
+    }
+    
+    private long estimateLiveBytes() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        long total = HEADER_SIZE;
+        for (Account account : accounts.values()) {
+            buffer.reset();
+            writeRecord(buffer, account);
+            total += buffer.size();
+        }
+        return total;
+    }
+    
+    private static void writeRecord(ByteArrayOutputStream buffer, Account account) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(96);
+        synchronized (account) {
+            account.writeTo(new DataOutputStream(body));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(body.size());
+        body.writeTo(out);
+        out.writeInt((int) crc.getValue());
+    }
+    
+    /**
+     * Hashes a password with PBKDF2, or with one round of SHA-256 for
+     * passwords stored by an older version (zero iterations).
+     */
+    private static byte[] hash(byte[] salt, String password, int iterations) {
+        if (iterations == 0) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(salt);
+                return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+        
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_LENGTH * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    
+    /**
+     * A stored account. Mutable fields are guarded by the account's monitor.
+     */
+    private static final class Account {
+        final String playerId;
+        final String username;
+        byte[] salt;
+        byte[] passwordHash;
+        int hashIterations; // 0 for a single round of SHA-256
+        int rating = 1000;
+        int gamesPlayed;
+        int gamesWon;
+        int gamesLost;
+        int gamesDraw;
+        boolean persisted; // Guarded by flushLock
+        
+        // Last verified login, kept in memory only
+        byte[] verifiedLogin;
+        long verifiedUntil;
+        
+        Account(String playerId, String username, byte[] salt, byte[] passwordHash, int hashIterations) {
+            this.playerId = playerId;
+            this.username = username;
+            this.salt = salt;
+            this.passwordHash = passwordHash;
+            this.hashIterations = hashIterations;
+        }
+        
+        synchronized Player toPlayer() {
+            Player player = new Player(playerId, username);
+            player.setRating(rating);
+            player.setStatistics(new GameStatistics(gamesPlayed, gamesWon, gamesLost, gamesDraw));
+            return player;
+        }
+        
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(playerId);
+            out.writeUTF(username);
+            out.writeByte(salt.length);
+            out.write(salt);
+            out.writeByte(passwordHash.length);
+            out.write(passwordHash);
+            out.writeInt(hashIterations);
+            out.writeInt(rating);
+            out.writeInt(gamesPlayed);
+            out.writeInt(gamesWon);
+            out.writeInt(gamesLost);
+            out.writeInt(gamesDraw);
+        }
+        
+        static Account readFrom(DataInputStream in, boolean legacy) throws IOException {
+            String playerId = in.readUTF();
+            String username = in.readUTF();
+            byte[] salt = new byte[in.readUnsignedByte()];
+            in.readFully(salt);
+            byte[] passwordHash = new byte[in.readUnsignedByte()];
+            in.readFully(passwordHash);
+            int hashIterations = legacy ? 0 : in.readInt();
+            
+            Account account = new Account(playerId, username, salt, passwordHash, hashIterations);
+            account.rating = in.readInt();
+            account.gamesPlayed = in.readInt();
+            account.gamesWon = in.readInt();
+            account.gamesLost = in.readInt();
+            account.gamesDraw = in.readInt();
+            return account;
+        }
+    }
+}
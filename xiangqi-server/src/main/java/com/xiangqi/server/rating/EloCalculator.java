@@ -0,0 +1,43 @@
+package com.xiangqi.server.rating;
+
+/**
+ * Elo rating arithmetic. New players move faster (higher K) until their
+ * rating settles; established strong players move slower.
+ */
+public final class EloCalculator {
+    public static final int MIN_RATING = 100;
+    static final int PROVISIONAL_GAMES = 30;
+    static final int PROVISIONAL_K = 40;
+    static final int STANDARD_K = 20;
+    static final int MASTER_K = 10;
+    static final int MASTER_RATING = 2400;
+    
+    private EloCalculator() {
+    }
+    
+    /**
+     * Gets the expected score (0..1) of a player against an opponent.
+     */
+    public static double expectedScore(int rating, int opponentRating) {
+        return 1.0 / (1.0 + Math.pow(10.0, (opponentRating - rating) / 400.0));
+    }
+    
+    /**
+     * Gets the K-factor for a player with the given rating and experience.
+     */
+    public static int kFactor(int rating, int gamesPlayed) {
+        if (gamesPlayed < PROVISIONAL_GAMES) {
+            return PROVISIONAL_K;
+        }
+        return rating >= MASTER_RATING ? MASTER_K : STANDARD_K;
+    }
+    
+    /**
+     * Computes a player's new rating after one game.
+     * @param score 1 for a win, 0.5 for a draw, 0 for a loss
+     */
+    public static int newRating(int rating, int opponentRating, double score, int kFactor) {
+        long updated = Math.round(rating + kFactor * (score - expectedScore(rating, opponentRating)));
+        return (int) Math.max(MIN_RATING, updated);
+    }
+}
@@ -0,0 +1,273 @@
+package com.xiangqi.server.rating;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Players ordered by rating (highest first, ties by player ID), kept in an
+ * order-statistics tree so rating changes, "rank of player X" and "top N"
+ * are O(log n) instead of re-sorting every player.
+ *
+ * <p>The tree is a treap whose nodes carry their subtree size.</p>
+ */
+public class Leaderboard {
+    private final Map<String, Integer> ratings = new HashMap<>();
+    private final Random random = new Random();
+    private Node root;
+    
+    /**
+     * Adds a player or moves them to a new rating.
+     */
+    public synchronized void update(String playerId, int rating) {
+        Integer previous = ratings.put(playerId, rating);
+        if (previous != null) {
+            if (previous == rating) {
+                return;
+            }
+            root = remove(root, previous, playerId);
+        }
+        root = insert(root, new Node(playerId, rating, random.nextInt()));
+    }
+    
+    /**
+     * Removes a player.
+     */
+    public synchronized void remove(String playerId) {
+        Integer previous = ratings.remove(playerId);
+        if (previous != null) {
+            root = remove(root, previous, playerId);
+        }
+    }
+    
+    /**
+     * Gets a player's 1-based rank, or 0 if the player is not ranked.
+     */
+    public synchronized int getRank(String playerId) {
+        Integer rating = ratings.get(playerId);
+        if (rating == null) {
+            return 0;
+        }
+        
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int order = compare(rating, playerId, node);
+            if (order < 0) {
+                node = node.left;
+            } else {
+                before += size(node.left);
+                if (order == 0) {
+                    break;
+                }
+                before++;
+                node = node.right;
+            }
+        }
+        return before + 1;
+    }
+    
+    /**
+     * Gets the highest rated players.
+     */
+    public synchronized List<Entry> getTop(int count) {
+        return getPage(0, count);
+    }
+    
+    /**
+     * Gets {@code limit} players starting at 0-based rank {@code offset}.
+     * Costs O(log n + limit).
+     */
+    public synchronized List<Entry> getPage(int offset, int limit) {
+        List<Entry> page = new ArrayList<>(Math.max(0, Math.min(limit, size(root) - offset)));
+        if (offset < 0 || limit <= 0) {
+            return page;
+        }
+        
+        // Descend to the node at rank offset, keeping the ancestors still to visit in order
+        Deque<Node> pending = new ArrayDeque<>();
+        Node node = root;
+        int skip = offset;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (skip < leftSize) {
+                pending.push(node);
+                node = node.left;
+            } else if (skip == leftSize) {
+                pending.push(node);
+                break;
+            } else {
+                skip -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        
+        int rank = offset + 1;
+        while (!pending.isEmpty() && page.size() < limit) {
+            Node current = pending.pop();
+            page.add(new Entry(current.playerId, current.rating, rank++));
+            for (Node next = current.right; next != null; next = next.left) {
+                pending.push(next);
+            }
+        }
+        return page;
+    }
+    
+    /**
+     * Gets a player's rating on the leaderboard, or null if not ranked.
+     */
+    public synchronized Integer getRating(String playerId) {
+        return ratings.get(playerId);
+    }
+    
+    /**
+     * Gets the number of ranked players.
+     */
+    public synchronized int size() {
+        return size(root);
+    }
+    
+    /**
+     * Removes all players.
+     */
+    public synchronized void clear() {
+        ratings.clear();
+        root = null;
+    }
+    
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.rating, added.playerId);
+            added.left = parts[0];
+            added.right = parts[1];
+            return added.update();
+        }
+        if (compare(added.rating, added.playerId, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return node.update();
+    }
+    
+    private Node remove(Node node, int rating, String playerId) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(rating, playerId, node);
+        if (order == 0) {
+            return merge(node.left, node.right);
+        }
+        if (order < 0) {
+            node.left = remove(node.left, rating, playerId);
+        } else {
+            node.right = remove(node.right, rating, playerId);
+        }
+        return node.update();
+    }
+    
+    /**
+     * Splits into nodes ordered before the key and nodes ordered after it.
+     */
+    private Node[] split(Node node, int rating, String playerId) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(rating, playerId, node) > 0) {
+            Node[] parts = split(node.right, rating, playerId);
+            node.right = parts[0];
+            parts[0] = node.update();
+            return parts;
+        }
+        Node[] parts = split(node.left, rating, playerId);
+        node.left = parts[1];
+        parts[1] = node.update();
+        return parts;
+    }
+    
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left.update();
+        }
+        right.left = merge(left, right.left);
+        return right.update();
+    }
+    
+    /**
+     * Orders by rating descending, then player ID ascending.
+     */
+    private static int compare(int rating, String playerId, Node node) {
+        int order = Integer.compare(node.rating, rating);
+        return order != 0 ? order : playerId.compareTo(node.playerId);
+    }
+    
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+    
+    private static final class Node {
+        final String playerId;
+        final int rating;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+        
+        Node(String playerId, int rating, int priority) {
+            this.playerId = playerId;
+            this.rating = rating;
+            this.priority = priority;
+        }
+        
+        Node update() {
+            size = 1 + size(left) + size(right);
+            return this;
+        }
+    }
+    
+    /**
+     * A player's position on the leaderboard.
+     */
+    public static final class Entry {
+        private final String playerId;
+        private final int rating;
+        private final int rank;
+        
+        Entry(String playerId, int rating, int rank) {
+            this.playerId = playerId;
+            this.rating = rating;
+            this.rank = rank;
+        }
+        
+        public String getPlayerId() {
+            return playerId;
+        }
+        
+        public int getRating() {
+            return rating;
+        }
+        
+        public int getRank() {
+            return rank;
+        }
+        
+        @Override
+        public String toString() {
+            return "#" + rank + " " + playerId + " (" + rating + ")";
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.xiangqi.server.rating;
+
+import com.xiangqi.server.persistence.PlayerStore;
+import com.xiangqi.shared.model.GameStatistics;
+import com.xiangqi.shared.model.Player;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Updates Elo ratings from finished games on a background thread.
+ * Results queue up while a batch is processed; each batch is applied in
+ * game order, written to the player store and leaderboard, and reported
+ * to the listener as one map of changed ratings.
+ */
+public class RatingService implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(RatingService.class.getName());
+    private static final int MAX_BATCH = 256;
+    
+    private final PlayerStore playerStore;
+    private final Leaderboard leaderboard;
+    private final Consumer<Map<String, Integer>> listener;
+    private final BlockingQueue<RatedGame> queue = new LinkedBlockingQueue<>();
+    
+    // Guarded by this
+    private long submittedGames;
+    private long processedGames;
+    private long batchCount;
+    
+    private final Thread workerThread;
+    private volatile boolean running = true;
+    
+    /**
+     * Creates a service that rates games for players in the given store.
+     * @param listener receives the new ratings of every player changed by a batch
+     */
+    public RatingService(PlayerStore playerStore, Leaderboard leaderboard, Consumer<Map<String, Integer>> listener) {
+        this.playerStore = playerStore;
+        this.leaderboard = leaderboard;
+        this.listener = listener;
+        
+        workerThread = new Thread(this::runWorker, "RatingService-Worker");
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+    
+    /**
+     * Queues a finished game for rating. The game should already be recorded
+     * in the players' statistics, which give each player's experience for
+     * the K-factor.
+     * @param winnerId the winner, or null for a draw
+     */
+    public void submit(String redPlayerId, String blackPlayerId, String winnerId) {
+        synchronized (this) {
+            submittedGames++;
+        }
+        queue.add(new RatedGame(redPlayerId, blackPlayerId, winnerId,
+            gamesPlayedBefore(redPlayerId), gamesPlayedBefore(blackPlayerId)));
+    }
+    
+    /**
+     * Gets how many games a player had finished before the game just recorded.
+     * Taken per game, so games rated in the same batch each use the K-factor
+     * for the player's experience at that game.
+     */
+    private int gamesPlayedBefore(String playerId) {
+        GameStatistics statistics = playerStore.getStatistics(playerId);
+        return statistics != null ? Math.max(0, statistics.getGamesPlayed() - 1) : 0;
+    }
+    
+    /**
+     * Waits until every game submitted so far has been rated.
+     * @return true if rating caught up within the timeout
+     */
+    public synchronized boolean awaitProcessed(long timeoutMillis) throws InterruptedException {
+        long target = submittedGames;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (processedGames < target) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the number of batches processed.
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+    
+    /**
+     * Rates what is already queued and stops the worker.
+     */
+    @Override
+    public void close() {
+        running = false;
+        workerThread.interrupt();
+        try {
+            workerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void runWorker() {
+        List<RatedGame> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if (queue.isEmpty()) {
+                    break;
+                }
+                continue; // Closing: finish what is queued
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            
+            try {
+                processBatch(batch);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Failed to process rating batch of " + batch.size() + " games", e);
+            }
+            
+            synchronized (this) {
+                processedGames += batch.size();
+                batchCount++;
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+    
+    private void processBatch(List<RatedGame> batch) {
+        // Ratings as they evolve within the batch
+        Map<String, Integer> ratings = new HashMap<>();
+        Map<String, Integer> changed = new LinkedHashMap<>();
+        
+        for (RatedGame game : batch) {
+            if (!load(game.redPlayerId, ratings) || !load(game.blackPlayerId, ratings)) {
+                LOGGER.warning("Skipping rating for game with unknown player: " + game.redPlayerId + " vs " + game.blackPlayerId);
+                continue;
+            }
+            
+            int redRating = ratings.get(game.redPlayerId);
+            int blackRating = ratings.get(game.blackPlayerId);
+            double redScore = game.winnerId == null ? 0.5 : game.winnerId.equals(game.redPlayerId) ? 1.0 : 0.0;
+            
+            int newRed = EloCalculator.newRating(redRating, blackRating, redScore,
+                EloCalculator.kFactor(redRating, game.redGamesPlayed));
+            int newBlack = EloCalculator.newRating(blackRating, redRating, 1.0 - redScore,
+                EloCalculator.kFactor(blackRating, game.blackGamesPlayed));
+            
+            ratings.put(game.redPlayerId, newRed);
+            ratings.put(game.blackPlayerId, newBlack);
+            changed.put(game.redPlayerId, newRed);
+            changed.put(game.blackPlayerId, newBlack);
+        }
+        
+        for (Map.Entry<String, Integer> entry : changed.entrySet()) {
+            playerStore.updateRating(entry.getKey(), entry.getValue());
+            leaderboard.update(entry.getKey(), entry.getValue());
+        }
+        if (!changed.isEmpty()) {
+            listener.accept(Collections.unmodifiableMap(changed));
+        }
+    }
+    
+    private boolean load(String playerId, Map<String, Integer> ratings) {
+        if (ratings.containsKey(playerId)) {
+            return true;
+        }
+        Player player = playerStore.getPlayer(playerId);
+        if (player == null) {
+            return false;
+        }
+        ratings.put(playerId, player.getRating());
+        return true;
+    }
+    
+    private static final class RatedGame {
+        final String redPlayerId;
+        final String blackPlayerId;
+        final String winnerId;
+        final int redGamesPlayed;
+        final int blackGamesPlayed;
+        
+        RatedGame(String redPlayerId, String blackPlayerId, String winnerId, int redGamesPlayed, int blackGamesPlayed) {
+            this.redPlayerId = redPlayerId;
+            this.blackPlayerId = blackPlayerId;
+            this.winnerId = winnerId;
+            this.redGamesPlayed = redGamesPlayed;
+            this.blackGamesPlayed = blackGamesPlayed;
+        }
+    }
+}
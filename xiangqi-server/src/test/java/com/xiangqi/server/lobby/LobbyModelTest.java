@@ -0,0 +1,201 @@
+package com.xiangqi.server.lobby;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.model.PlayerStatus;
+import com.xiangqi.shared.network.NetworkMessage;
+import com.xiangqi.shared.network.messages.LobbyDeltaMessage;
+import com.xiangqi.shared.network.messages.GameListRequestMessage;
+import com.xiangqi.shared.network.messages.GameListResponseMessage;
+import com.xiangqi.shared.network.messages.LobbyUpdateMessage;
+import com.xiangqi.shared.network.messages.PlayerListRequestMessage;
+import com.xiangqi.shared.network.messages.PlayerListResponseMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LobbyModel.
+ */
+public class LobbyModelTest {
+    
+    private List<NetworkMessage> published;
+    private LobbyModel lobbyModel;
+    
+    @BeforeEach
+    void setUp() {
+        published = new ArrayList<>();
+        lobbyModel = new LobbyModel(published::add);
+    }
+    
+    @Test
+    void testDeltasHaveConsecutiveVersions() {
+        Player alice = new Player("alice", "alice");
+        Player bob = new Player("bob", "bob");
+        
+        lobbyModel.playerJoined(alice);
+        lobbyModel.playerJoined(bob);
+        lobbyModel.playerLeft("alice");
+        
+        assertEquals(3, published.size());
+        for (int i = 0; i < published.size(); i++) {
+            LobbyDeltaMessage delta = (LobbyDeltaMessage) published.get(i);
+            assertEquals(i + 1, delta.getVersion());
+        }
+        assertEquals(LobbyDeltaMessage.ChangeType.PLAYER_LEFT,
+            ((LobbyDeltaMessage) published.get(2)).getChangeType());
+        assertEquals(3, lobbyModel.getVersion());
+    }
+    
+    @Test
+    void testUnchangedOrUnknownEntriesPublishNothing() {
+        Player alice = new Player("alice", "alice");
+        lobbyModel.playerJoined(alice);
+        
+        lobbyModel.playerStatusChanged(alice);
+        lobbyModel.playerLeft("nobody");
+        lobbyModel.gameEnded("no-game");
+        
+        assertEquals(1, published.size());
+    }
+    
+    @Test
+    void testPublishedPlayerIsDetachedCopy() {
+        Player alice = new Player("alice", "alice");
+        alice.setStatus(PlayerStatus.ONLINE);
+        lobbyModel.playerJoined(alice);
+        
+        alice.setStatus(PlayerStatus.IN_GAME);
+        
+        LobbyDeltaMessage joined = (LobbyDeltaMessage) published.get(0);
+        assertEquals(PlayerStatus.ONLINE, joined.getPlayer().getStatus());
+        
+        lobbyModel.playerStatusChanged(alice);
+        LobbyDeltaMessage changed = (LobbyDeltaMessage) published.get(1);
+        assertEquals(LobbyDeltaMessage.ChangeType.PLAYER_STATUS_CHANGED, changed.getChangeType());
+        assertEquals(PlayerStatus.IN_GAME, changed.getPlayer().getStatus());
+        assertNotSame(alice, changed.getPlayer());
+    }
+    
+    @Test
+    void testSnapshotReflectsCurrentState() {
+        Player red = new Player("red", "red");
+        Player black = new Player("black", "black");
+        lobbyModel.playerJoined(red);
+        lobbyModel.playerJoined(black);
+        GameSession session = new GameSession("game-1", red, black);
+        lobbyModel.gameStarted(session);
+        
+        LobbyUpdateMessage snapshot = lobbyModel.snapshot();
+        assertEquals(3, snapshot.getVersion());
+        assertEquals(2, snapshot.getPlayers().size());
+        assertEquals(1, snapshot.getGames().size());
+        assertEquals("game-1", snapshot.getGames().get(0).getSessionId());
+        
+        lobbyModel.gameEnded("game-1");
+        assertTrue(lobbyModel.snapshot().getGames().isEmpty());
+        assertEquals(4, lobbyModel.getVersion());
+    }
+    
+    @Test
+    void testPlayerQueryPagesByRating() {
+        for (int i = 0; i < 10; i++) {
+            Player player = new Player("p" + i, "player" + i);
+            player.setRating(1000 + i * 10);
+            lobbyModel.playerJoined(player);
+        }
+        
+        PlayerListResponseMessage first = lobbyModel.queryPlayers(new PlayerListRequestMessage(
+            "p0", 0, 4, PlayerListRequestMessage.SortKey.RATING, null));
+        assertEquals(10, first.getTotalCount());
+        assertEquals(4, first.getPlayers().size());
+        assertEquals("p9", first.getPlayers().get(0).getPlayerId());
+        assertTrue(first.hasMore());
+        
+        PlayerListResponseMessage last = lobbyModel.queryPlayers(new PlayerListRequestMessage(
+            "p0", 8, 4, PlayerListRequestMessage.SortKey.RATING, null));
+        assertEquals(2, last.getPlayers().size());
+        assertEquals("p0", last.getPlayers().get(1).getPlayerId());
+        assertFalse(last.hasMore());
+    }
+    
+    @Test
+    void testPlayerQueryPrefixFilter() {
+        lobbyModel.playerJoined(new Player("1", "Alice"));
+        lobbyModel.playerJoined(new Player("2", "alfred"));
+        lobbyModel.playerJoined(new Player("3", "bob"));
+        
+        PlayerListResponseMessage byName = lobbyModel.queryPlayers(new PlayerListRequestMessage(
+            "3", 0, 10, PlayerListRequestMessage.SortKey.NAME, "AL"));
+        assertEquals(2, byName.getTotalCount());
+        assertEquals("alfred", byName.getPlayers().get(0).getUsername());
+        assertEquals("Alice", byName.getPlayers().get(1).getUsername());
+        
+        PlayerListResponseMessage byStatus = lobbyModel.queryPlayers(new PlayerListRequestMessage(
+            "3", 0, 10, PlayerListRequestMessage.SortKey.STATUS, "b"));
+        assertEquals(1, byStatus.getTotalCount());
+        assertEquals("bob", byStatus.getPlayers().get(0).getUsername());
+    }
+    
+    @Test
+    void testPrefixCountsFollowJoinsAndLeaves() {
+        lobbyModel.playerJoined(new Player("1", "Alice"));
+        lobbyModel.gameStarted(new GameSession("g1", new Player("1", "Alice"), new Player("2", "bob")));
+        PlayerListRequestMessage byRating = new PlayerListRequestMessage(
+            "3", 0, 10, PlayerListRequestMessage.SortKey.RATING, "al");
+        GameListRequestMessage games = new GameListRequestMessage("3", 0, 10, "al");
+        assertEquals(1, lobbyModel.queryPlayers(byRating).getTotalCount());
+        assertEquals(1, lobbyModel.queryGames(games).getTotalCount());
+        
+        lobbyModel.playerJoined(new Player("2", "alfred"));
+        lobbyModel.gameStarted(new GameSession("g2", new Player("2", "alfred"), new Player("3", "carol")));
+        assertEquals(2, lobbyModel.queryPlayers(byRating).getTotalCount());
+        assertEquals(2, lobbyModel.queryGames(games).getTotalCount());
+        
+        lobbyModel.playerLeft("1");
+        lobbyModel.gameEnded("g1");
+        PlayerListResponseMessage players = lobbyModel.queryPlayers(byRating);
+        assertEquals(1, players.getTotalCount());
+        assertEquals("alfred", players.getPlayers().get(0).getUsername());
+        assertEquals(1, lobbyModel.queryGames(games).getTotalCount());
+    }
+    
+    @Test
+    void testIndexesFollowStatusChanges() {
+        Player alice = new Player("alice", "alice");
+        alice.setStatus(PlayerStatus.IN_GAME);
+        Player bob = new Player("bob", "bob");
+        bob.setStatus(PlayerStatus.ONLINE);
+        lobbyModel.playerJoined(alice);
+        lobbyModel.playerJoined(bob);
+        
+        alice.setStatus(PlayerStatus.OFFLINE);
+        lobbyModel.playerStatusChanged(alice);
+        
+        PlayerListResponseMessage response = lobbyModel.queryPlayers(new PlayerListRequestMessage(
+            "bob", 0, 10, PlayerListRequestMessage.SortKey.STATUS, null));
+        assertEquals(2, response.getTotalCount());
+        assertEquals("alice", response.getPlayers().get(0).getPlayerId());
+        assertEquals(PlayerStatus.OFFLINE, response.getPlayers().get(0).getStatus());
+    }
+    
+    @Test
+    void testGameQueryFiltersByEitherPlayer() {
+        Player red = new Player("red", "red");
+        Player black = new Player("black", "black");
+        Player other = new Player("other", "other");
+        lobbyModel.gameStarted(new GameSession("g1", red, black));
+        lobbyModel.gameStarted(new GameSession("g2", other, red));
+        
+        GameListResponseMessage all = lobbyModel.queryGames(new GameListRequestMessage("red"));
+        assertEquals(2, all.getTotalCount());
+        
+        GameListResponseMessage filtered = lobbyModel.queryGames(new GameListRequestMessage("red", 0, 10, "bl"));
+        assertEquals(1, filtered.getTotalCount());
+        assertEquals("g1", filtered.getGames().get(0).getSessionId());
+    }
+}
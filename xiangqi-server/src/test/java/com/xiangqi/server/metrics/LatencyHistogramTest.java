@@ -0,0 +1,59 @@
+package com.xiangqi.server.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+    
+    @Test
+    public void testBucketsCoverEveryValue() {
+        long previousTop = -1;
+        for (int index = 0; index < 300; index++) {
+            long top = LatencyHistogram.highestValueInBucket(index);
+            assertTrue(top > previousTop);
+            assertEquals(index, LatencyHistogram.bucketIndex(previousTop + 1));
+            assertEquals(index, LatencyHistogram.bucketIndex(top));
+            previousTop = top;
+        }
+    }
+    
+    @Test
+    public void testQuantilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + (long) (random.nextDouble() * random.nextDouble() * 50_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long reported = histogram.getValueAtQuantile(quantile);
+            assertTrue(reported >= exact, "p" + quantile + " " + reported + " < " + exact);
+            assertTrue(reported <= exact * 1.125 + 1, "p" + quantile + " " + reported + " too far above " + exact);
+        }
+    }
+    
+    @Test
+    public void testEmptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+        
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.5));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtQuantile(1.0));
+    }
+}
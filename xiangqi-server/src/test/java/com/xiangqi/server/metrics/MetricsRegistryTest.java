@@ -0,0 +1,80 @@
+package com.xiangqi.server.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MetricsRegistry and MetricsHttpServer.
+ */
+public class MetricsRegistryTest {
+    
+    @Test
+    public void testPrometheusTextFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter moves = registry.counter("xq_messages_total", "Messages", "type", "MOVE_REQUEST");
+        registry.counter("xq_messages_total", "Messages", "type", "CHAT_MESSAGE").add(3);
+        moves.increment();
+        moves.increment();
+        assertSame(moves, registry.counter("xq_messages_total", "Messages", "type", "MOVE_REQUEST"));
+        
+        registry.gauge("xq_games", "Games", () -> 7);
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        depths.put("client-1", 4);
+        depths.put("client-\"2\"", 0);
+        registry.gaugeFamily("xq_queue_depth", "Queue depth", "client", () -> depths);
+        registry.histogram("xq_latency_seconds", "Latency").record(2_000_000);
+        
+        String text = registry.scrape();
+        assertTrue(text.contains("# HELP xq_messages_total Messages\n# TYPE xq_messages_total counter\n"));
+        assertTrue(text.contains("xq_messages_total{type=\"MOVE_REQUEST\"} 2\n"));
+        assertTrue(text.contains("xq_messages_total{type=\"CHAT_MESSAGE\"} 3\n"));
+        assertTrue(text.contains("# TYPE xq_games gauge\nxq_games 7\n"));
+        assertTrue(text.contains("xq_queue_depth{client=\"client-1\"} 4\n"));
+        assertTrue(text.contains("xq_queue_depth{client=\"client-\\\"2\\\"\"} 0\n"));
+        assertTrue(text.contains("# TYPE xq_latency_seconds summary\n"));
+        assertTrue(text.contains("xq_latency_seconds{quantile=\"0.99\"} 0.002"));
+        assertTrue(text.contains("xq_latency_seconds_sum 0.002\n"));
+        assertTrue(text.contains("xq_latency_seconds_count 1\n"));
+        
+        // Gauges are read at scrape time
+        depths.put("client-1", 9);
+        assertTrue(registry.scrape().contains("xq_queue_depth{client=\"client-1\"} 9\n"));
+    }
+    
+    @Test
+    public void testConflictingTypeIsRejected() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("xq_metric", "A counter");
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("xq_metric", "A histogram"));
+    }
+    
+    @Test
+    public void testHttpEndpointServesScrape() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("xq_requests_total", "Requests").add(5);
+        
+        try (MetricsHttpServer server = new MetricsHttpServer(registry, 0)) {
+            URL url = URI.create("http://127.0.0.1:" + server.getPort() + "/metrics").toURL();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                in.transferTo(body);
+            }
+            assertTrue(body.toString(StandardCharsets.UTF_8.name()).contains("xq_requests_total 5\n"));
+        }
+    }
+}
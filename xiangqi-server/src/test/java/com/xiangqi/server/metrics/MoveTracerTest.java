@@ -0,0 +1,62 @@
+package com.xiangqi.server.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MoveTracer.
+ */
+public class MoveTracerTest {
+    
+    @Test
+    public void testStagesAreMeasuredBetweenStamps() {
+        MetricsRegistry registry = new MetricsRegistry();
+        MoveTracer tracer = new MoveTracer(registry);
+        
+        MoveTrace trace = tracer.start(1_000, 1_500);
+        trace.describe("game", "alice", 3);
+        trace.stamp(MoveTrace.Stage.DISPATCHED, 1_600);
+        trace.moveValidated(11_600);
+        trace.endConditionsChecked(41_600);
+        // No journal stamp: encoding is measured from the last stamp taken
+        trace.stamp(MoveTrace.Stage.ENCODED, 51_600);
+        trace.stamp(MoveTrace.Stage.DEQUEUED, 61_600);
+        
+        assertEquals(500, trace.getStageNanos(MoveTrace.Stage.DECODED));
+        assertEquals(10_000, trace.getStageNanos(MoveTrace.Stage.VALIDATED));
+        assertEquals(30_000, trace.getStageNanos(MoveTrace.Stage.END_CHECKED));
+        assertEquals(-1, trace.getStageNanos(MoveTrace.Stage.JOURNALED));
+        assertEquals(10_000, trace.getStageNanos(MoveTrace.Stage.ENCODED));
+        assertEquals(60_600, trace.getTotalNanos());
+        assertTrue(trace.toString().contains("checkmate_detection=0.030ms"));
+        
+        trace.complete();
+        assertEquals(1, tracer.getStageLatency(MoveTrace.Stage.VALIDATED).getCount());
+        assertEquals(0, tracer.getStageLatency(MoveTrace.Stage.JOURNALED).getCount());
+        assertEquals(1, tracer.getTotalLatency().getCount());
+        
+        String text = registry.scrape();
+        assertTrue(text.contains("xiangqi_move_stage_seconds{stage=\"validation\",quantile=\"0.99\"}"));
+        assertTrue(text.contains("xiangqi_move_stage_seconds_count{stage=\"socket_write\"} 1\n"));
+    }
+    
+    @Test
+    public void testSlowMovesAreCountedAboveThreshold() {
+        MoveTracer tracer = new MoveTracer(new MetricsRegistry(), 0);
+        tracer.setSlowThresholdMillis(500);
+        
+        long now = System.nanoTime();
+        tracer.start(now, now).complete();
+        assertEquals(0, tracer.getSlowMoveCount());
+        
+        tracer.start(now - 2_000_000_000L, now).complete();
+        tracer.start(now - 3_000_000_000L, now).complete();
+        assertEquals(2, tracer.getSlowMoveCount());
+        
+        tracer.setSlowThresholdMillis(0);
+        tracer.start(now - 3_000_000_000L, now).complete();
+        assertEquals(2, tracer.getSlowMoveCount());
+        assertEquals(4, tracer.getTotalLatency().getCount());
+    }
+}
@@ -1,6 +1,12 @@
 package com.xiangqi.server.network;
 
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.network.messages.ChatMessage;
 import com.xiangqi.shared.network.messages.LoginMessage;
+import com.xiangqi.shared.network.messages.MoveMessage;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -102,6 +108,41 @@ public class GameServerTest {
         assertDoesNotThrow(() -> gameServer.broadcastToGame("non-existent", message));
     }
     
+    @Test
+    void testRepeatedResignationIsRecordedOnce() {
+        Player red = gameServer.getPlayerStore().getOrCreatePlayer("red");
+        Player black = gameServer.getPlayerStore().getOrCreatePlayer("black");
+        GameSession session = gameServer.startGame(red, black);
+        
+        MoveMessage resign = new MoveMessage(red.getPlayerId(), Move.createResignMove(red), session.getSessionId());
+        gameServer.handleMoveMessage(resign);
+        gameServer.handleMoveMessage(resign);
+        
+        assertEquals(GameStatus.RESIGNED, session.getGameState().getStatus());
+        assertEquals(1, gameServer.getPlayerStore().getStatistics(red.getPlayerId()).getGamesPlayed());
+        assertEquals(1, gameServer.getPlayerStore().getStatistics(black.getPlayerId()).getGamesWon());
+    }
+    
+    @Test
+    void testDrawAcceptOnlyFromParticipantsAndOnce() {
+        Player red = gameServer.getPlayerStore().getOrCreatePlayer("red");
+        Player black = gameServer.getPlayerStore().getOrCreatePlayer("black");
+        Player outsider = gameServer.getPlayerStore().getOrCreatePlayer("outsider");
+        GameSession session = gameServer.startGame(red, black);
+        String gameId = session.getSessionId();
+        
+        gameServer.handleChatMessage(new ChatMessage(outsider.getPlayerId(), "DRAW_ACCEPT", gameId));
+        assertFalse(session.isEnded(), "A non-participant cannot end the game");
+        
+        gameServer.handleChatMessage(new ChatMessage(black.getPlayerId(), "DRAW_ACCEPT", gameId));
+        gameServer.handleChatMessage(new ChatMessage(black.getPlayerId(), "DRAW_ACCEPT", gameId));
+        gameServer.handleMoveMessage(new MoveMessage(red.getPlayerId(), Move.createResignMove(red), gameId));
+        
+        assertEquals(GameStatus.DRAW, session.getGameState().getStatus());
+        assertEquals(1, gameServer.getPlayerStore().getStatistics(red.getPlayerId()).getGamesPlayed());
+        assertEquals(1, gameServer.getPlayerStore().getStatistics(black.getPlayerId()).getGamesDraw());
+    }
+    
     /**
      * **Feature: networked-xiangqi-game, Property 14: 并发连接处理**
      * Property test for concurrent connection handling.
@@ -205,7 +246,7 @@ public class GameServerTest {
             
             // Allow time for cleanup
             Thread.sleep(200);
-            
+        
         } catch (Exception e) {
             fail("Concurrent connection test failed with connection count " + connectionCount + 
                  ": " + e.getMessage());
@@ -0,0 +1,123 @@
+package com.xiangqi.server.network;
+
+import com.xiangqi.server.metrics.Counter;
+import com.xiangqi.server.metrics.MetricsRegistry;
+import com.xiangqi.shared.model.GameState;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Position;
+import com.xiangqi.shared.network.MessageType;
+import com.xiangqi.shared.network.NetworkMessage;
+import com.xiangqi.shared.network.messages.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OutboundQueue.
+ */
+public class OutboundQueueTest {
+    
+    private Counter coalesced;
+    private Counter dropped;
+    
+    @BeforeEach
+    public void setUp() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        coalesced = metrics.counter("coalesced", "coalesced");
+        dropped = metrics.counter("dropped", "dropped");
+    }
+    
+    @Test
+    public void testLobbySnapshotReplacesQueuedLobbyMessages() throws Exception {
+        OutboundQueue queue = new OutboundQueue(16, 8, 60000, coalesced, dropped);
+        assertEquals(OutboundQueue.Outcome.QUEUED, queue.offer(lobbySnapshot(1), null));
+        assertEquals(OutboundQueue.Outcome.QUEUED, queue.offer(LobbyDeltaMessage.playerLeft(2, "alice"), null));
+        assertEquals(OutboundQueue.Outcome.QUEUED, queue.offer(new ChatMessage("bob", "hi", "carol"), null));
+        
+        // Broadcasts arrive pre-encoded and are still recognised
+        assertEquals(OutboundQueue.Outcome.COALESCED,
+            queue.offer(PreEncodedMessage.encode(lobbySnapshot(3)), null));
+        assertEquals(2, coalesced.get());
+        assertEquals(List.of(MessageType.CHAT_MESSAGE, MessageType.LOBBY_UPDATE), drain(queue));
+    }
+    
+    @Test
+    public void testGameStateReplacesOnlyThatGamesUpdates() throws Exception {
+        OutboundQueue queue = new OutboundQueue(16, 8, 60000, coalesced, dropped);
+        queue.offer(moveDelta("game-1", 1), null);
+        queue.offer(moveDelta("game-2", 1), null);
+        queue.offer(new GameStateUpdateMessage("game-1", new GameState()), null);
+        queue.offer(moveDelta("game-1", 2), null);
+        
+        assertEquals(OutboundQueue.Outcome.COALESCED,
+            queue.offer(new GameStateUpdateMessage("game-1", new GameState()), null));
+        assertEquals(3, coalesced.get());
+        
+        List<String> games = new ArrayList<>();
+        while (queue.size() > 0) {
+            NetworkMessage message = queue.take().message;
+            games.add(message.getType() + ":" + (message instanceof MoveDeltaMessage
+                ? ((MoveDeltaMessage) message).getGameId() : ((GameStateUpdateMessage) message).getGameId()));
+        }
+        assertEquals(List.of("MOVE_DELTA:game-2", "GAME_STATE_UPDATE:game-1"), games);
+    }
+    
+    @Test
+    public void testLowPriorityMessagesDroppedOverHighWaterMark() throws IOException {
+        OutboundQueue queue = new OutboundQueue(16, 2, 60000, coalesced, dropped);
+        queue.offer(new ChatMessage("alice", "one", "bob"), null);
+        queue.offer(new ChatMessage("alice", "two", "bob"), null);
+        
+        assertEquals(OutboundQueue.Outcome.DROPPED, queue.offer(new HeartbeatMessage(null), null));
+        assertEquals(OutboundQueue.Outcome.DROPPED,
+            queue.offer(PreEncodedMessage.encode(new ChatMessage("carol", "lobby chat", null)), null));
+        assertEquals(OutboundQueue.Outcome.QUEUED, queue.offer(new ChatMessage("alice", "three", "bob"), null));
+        assertEquals(2, dropped.get());
+        assertEquals(3, queue.size());
+    }
+    
+    @Test
+    public void testFullQueueRejects() {
+        OutboundQueue queue = new OutboundQueue(2, 2, 60000, coalesced, dropped);
+        queue.offer(new ChatMessage("alice", "one", "bob"), null);
+        queue.offer(new ChatMessage("alice", "two", "bob"), null);
+        
+        assertEquals(OutboundQueue.Outcome.REJECTED, queue.offer(new ChatMessage("alice", "three", "bob"), null));
+    }
+    
+    @Test
+    public void testStayingOverHighWaterMarkMakesSlowConsumer() throws Exception {
+        OutboundQueue queue = new OutboundQueue(16, 1, 0, coalesced, dropped);
+        assertFalse(queue.isSlowConsumer());
+        queue.offer(new ChatMessage("alice", "one", "bob"), null);
+        assertTrue(queue.isSlowConsumer());
+        assertEquals(OutboundQueue.Outcome.REJECTED, queue.offer(new ChatMessage("alice", "two", "bob"), null));
+        
+        // Draining below the mark clears the state
+        queue.take();
+        assertFalse(queue.isSlowConsumer());
+    }
+    
+    private List<MessageType> drain(OutboundQueue queue) throws InterruptedException {
+        List<MessageType> types = new ArrayList<>();
+        while (queue.size() > 0) {
+            types.add(queue.take().message.getType());
+        }
+        return types;
+    }
+    
+    private LobbyUpdateMessage lobbySnapshot(long version) {
+        return new LobbyUpdateMessage(null, Collections.emptyList(), Collections.emptyList(), version);
+    }
+    
+    private MoveDeltaMessage moveDelta(String gameId, int sequence) {
+        return new MoveDeltaMessage(gameId, sequence, new Position(6, 0), new Position(5, 0),
+            false, GameStatus.IN_PROGRESS, 0L);
+    }
+}
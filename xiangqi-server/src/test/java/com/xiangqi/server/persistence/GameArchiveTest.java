@@ -0,0 +1,175 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.engine.ChessEngine;
+import com.xiangqi.shared.model.GameResult;
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.GameState;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GameArchive.
+ */
+public class GameArchiveTest {
+    
+    @TempDir
+    File archiveDir;
+    
+    @Test
+    public void testArchivedGameRoundTripsMoves() throws IOException {
+        GameSession session = TestSessions.newSession("game-1", "alice", "bob");
+        ChessEngine engine = new ChessEngine(session.getGameState());
+        play(engine, new Position(9, 1), new Position(7, 2));
+        play(engine, new Position(0, 1), new Position(2, 2));
+        GameResult result = GameResult.resignation(session.getBlackPlayer(), session.getRedPlayer());
+        
+        try (GameArchive archive = GameArchive.open(archiveDir)) {
+            archive.archive(ArchivedGame.of(session, engine.getCurrentState(), result));
+            archive.flush();
+            
+            List<ArchivedGame> games = collectGamesOf(archive, "alice");
+            assertEquals(1, games.size());
+            ArchivedGame game = games.get(0);
+            assertEquals("game-1", game.getGameId());
+            assertEquals(GameStatus.RESIGNED, game.getEndStatus());
+            assertEquals("bob", game.getWinnerId());
+            assertEquals(2, game.getMoveCount());
+            assertEquals(new Position(9, 1), game.getFrom(0));
+            assertEquals(new Position(2, 2), game.getTo(1));
+        }
+    }
+    
+    @Test
+    public void testQueriesByPlayerAndDateAcrossSegments() throws IOException {
+        try (GameArchive archive = GameArchive.open(archiveDir, 1024)) {
+            for (int i = 0; i < 60; i++) {
+                archive.archive(newArchivedGame("game-" + i, "p" + (i % 3), "p" + ((i + 1) % 3), 1000L + i));
+            }
+            archive.flush();
+            
+            assertEquals(60, archive.getGameCount());
+            assertEquals(40, archive.getGameCount("p0"));
+            assertTrue(new File(archiveDir, "games-000002.seg").exists(), "Expected more than one segment");
+            
+            List<ArchivedGame> window = new ArrayList<>();
+            archive.forEachGameBetween(1010, 1020, window::add);
+            assertEquals(10, window.size());
+            assertEquals("game-10", window.get(0).getGameId());
+            assertEquals("game-19", window.get(9).getGameId());
+        }
+        
+        // The index is persisted, and the streaming scan sees every game in order
+        try (GameArchive archive = GameArchive.open(archiveDir, 1024)) {
+            assertEquals(60, archive.getGameCount());
+            assertEquals(40, collectGamesOf(archive, "p1").size());
+            
+            AtomicInteger seen = new AtomicInteger();
+            archive.forEach(game -> assertEquals("game-" + seen.getAndIncrement(), game.getGameId()));
+            assertEquals(60, seen.get());
+        }
+    }
+    
+    @Test
+    public void testRebuildsMissingIndexEntries() throws IOException {
+        try (GameArchive archive = GameArchive.open(archiveDir, 1024)) {
+            for (int i = 0; i < 30; i++) {
+                archive.archive(newArchivedGame("game-" + i, "alice", "bob", 1000L + i));
+            }
+            archive.flush();
+        }
+        
+        // Simulate a crash after the segments were synced but before the index was written
+        assertTrue(new File(archiveDir, "games.idx").delete());
+        
+        try (GameArchive archive = GameArchive.open(archiveDir, 1024)) {
+            assertEquals(30, archive.getGameCount());
+            assertEquals(30, archive.getGameCount("bob"));
+            archive.archive(newArchivedGame("game-30", "alice", "carol", 2000L));
+            archive.flush();
+        }
+        
+        try (GameArchive archive = GameArchive.open(archiveDir, 1024)) {
+            assertEquals(31, archive.getGameCount());
+            assertEquals(1, collectGamesOf(archive, "carol").size());
+        }
+    }
+    
+    @Test
+    public void testSustainsManyWrites() throws IOException {
+        int gameCount = 5000;
+        try (GameArchive archive = GameArchive.open(archiveDir)) {
+            for (int i = 0; i < gameCount; i++) {
+                archive.archive(newArchivedGame("game-" + i, "red-" + (i % 100), "black-" + (i % 100), 1000L + i));
+            }
+            archive.flush();
+            assertEquals(gameCount, archive.getGameCount());
+        }
+        
+        // Every record survives a reopen intact and in order
+        try (GameArchive archive = GameArchive.open(archiveDir)) {
+            assertEquals(gameCount, archive.getGameCount());
+            assertEquals(gameCount / 100, archive.getGameCount("red-7"));
+            
+            List<ArchivedGame> games = new ArrayList<>();
+            archive.forEach(games::add);
+            assertEquals(gameCount, games.size());
+            for (int i = 0; i < gameCount; i++) {
+                ArchivedGame game = games.get(i);
+                assertEquals("game-" + i, game.getGameId());
+                assertEquals("red-" + (i % 100), game.getRedPlayerId());
+                assertEquals("black-" + (i % 100), game.getBlackPlayerId());
+                assertEquals(1000L + i, game.getEndTime());
+                assertEquals(GameStatus.CHECKMATE, game.getEndStatus());
+            }
+        }
+    }
+    
+    @Test
+    public void testCloseWritesEverythingQueued() throws IOException {
+        int gameCount = 3000;
+        GameArchive archive = GameArchive.open(archiveDir);
+        for (int i = 0; i < gameCount; i++) {
+            archive.archive(newArchivedGame("game-" + i, "alice", "bob", 1000L + i));
+        }
+        // No flush: closing alone must write the games still queued
+        archive.close();
+        
+        try (GameArchive reopened = GameArchive.open(archiveDir)) {
+            assertEquals(gameCount, reopened.getGameCount());
+            assertEquals(gameCount, reopened.getGameCount("alice"));
+        }
+    }
+    
+    private List<ArchivedGame> collectGamesOf(GameArchive archive, String playerId) throws IOException {
+        List<ArchivedGame> games = new ArrayList<>();
+        archive.forEachGameOf(playerId, games::add);
+        return games;
+    }
+    
+    private ArchivedGame newArchivedGame(String gameId, String red, String black, long endTime) {
+        GameSession session = TestSessions.newSession(gameId, red, black);
+        GameResult result = new GameResult(session.getRedPlayer(), session.getBlackPlayer(), GameStatus.CHECKMATE, "Checkmate") {
+            @Override
+            public long getGameEndTime() {
+                return endTime;
+            }
+        };
+        return ArchivedGame.of(session, session.getGameState(), result);
+    }
+    
+    private void play(ChessEngine engine, Position from, Position to) {
+        GameState state = engine.getCurrentState();
+        assertTrue(engine.executeMove(new Move(from, to, state.getPiece(from))));
+    }
+}
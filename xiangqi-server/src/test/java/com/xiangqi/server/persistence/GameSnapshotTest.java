@@ -0,0 +1,139 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.model.Position;
+import com.xiangqi.shared.model.pieces.Chariot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GameSnapshot.
+ */
+public class GameSnapshotTest {
+    
+    @TempDir
+    File tempDir;
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = new File(tempDir, "games.snapshot");
+        assertNull(GameSnapshot.read(file));
+        
+        GameSession session = TestSessions.newSession("game", "alice", "bob");
+        session.getRedPlayer().setRating(1650);
+        List<Move> moves = Arrays.asList(
+            move(9, 1, 7, 2),
+            move(0, 1, 2, 2));
+        GameSnapshot.write(file, 7, Collections.singletonList(LiveGameRecord.of(session, moves)));
+        
+        GameSnapshot snapshot = GameSnapshot.read(file);
+        assertEquals(7, snapshot.getJournalGeneration());
+        assertEquals(1, snapshot.getGames().size());
+        
+        LiveGameRecord game = snapshot.getGames().get(0);
+        assertEquals("game", game.getGameId());
+        assertEquals(session.getCreationTime(), game.getCreationTime());
+        assertEquals(1650, game.getRedPlayer().getRating());
+        assertEquals("bob", game.getBlackPlayer().getPlayerId());
+        assertEquals(2, game.getMoveCount());
+        assertEquals(new Position(9, 1), game.getFrom(0));
+        assertEquals(new Position(2, 2), game.getTo(1));
+        assertFalse(new File(tempDir, "games.snapshot.tmp").exists());
+    }
+    
+    @Test
+    public void testCorruptSnapshotIsRejected() throws IOException {
+        File file = new File(tempDir, "games.snapshot");
+        GameSnapshot.write(file, 1, Collections.singletonList(
+            LiveGameRecord.of(TestSessions.newSession("game", "alice", "bob"), Collections.emptyList())));
+        
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20);
+            int value = raf.read();
+            raf.seek(20);
+            raf.write(value ^ 0xff);
+        }
+        assertThrows(IOException.class, () -> GameSnapshot.read(file));
+    }
+    
+    @Test
+    public void testRecoverAppliesJournalAfterSnapshot() throws IOException {
+        File journalFile = new File(tempDir, "moves.journal");
+        File snapshotFile = new File(tempDir, "games.snapshot");
+        
+        try (MoveJournal journal = MoveJournal.open(journalFile, 0)) {
+            GameSession kept = TestSessions.newSession("kept", "alice", "bob");
+            GameSession ended = TestSessions.newSession("ended", "carol", "dave");
+            journal.gameStarted(kept);
+            journal.gameStarted(ended);
+            journal.moveAccepted("kept", 1, new Position(9, 1), new Position(7, 2));
+            journal.moveAccepted("kept", 2, new Position(0, 1), new Position(2, 2));
+            
+            // A move accepted between the rotation and the copy lands in both
+            int generation = journal.rotate();
+            journal.moveAccepted("kept", 3, new Position(7, 1), new Position(7, 4));
+            List<Move> keptMoves = Arrays.asList(
+                move(9, 1, 7, 2),
+                move(0, 1, 2, 2),
+                move(7, 1, 7, 4));
+            GameSnapshot.write(snapshotFile, generation, Arrays.asList(
+                LiveGameRecord.of(kept, keptMoves),
+                LiveGameRecord.of(ended, Collections.emptyList())));
+            journal.deleteGenerationsBefore(generation);
+            
+            journal.moveAccepted("kept", 4, new Position(0, 7), new Position(2, 6));
+            journal.gameEnded("ended", GameStatus.RESIGNED);
+            journal.gameStarted(TestSessions.newSession("new", "erin", "frank"));
+            journal.moveAccepted("new", 1, new Position(6, 0), new Position(5, 0));
+        }
+        
+        try (MoveJournal journal = MoveJournal.open(journalFile, 0)) {
+            Map<String, LiveGameRecord> games = new HashMap<>();
+            for (LiveGameRecord game : GameSnapshot.recover(GameSnapshot.read(snapshotFile), journal)) {
+                games.put(game.getGameId(), game);
+            }
+            
+            assertEquals(2, games.size());
+            LiveGameRecord kept = games.get("kept");
+            assertEquals(0, kept.getBaseSequence());
+            assertEquals(4, kept.getMoveCount());
+            assertEquals(new Position(7, 4), kept.getTo(2));
+            assertEquals(new Position(2, 6), kept.getTo(3));
+            assertEquals(1, games.get("new").getMoveCount());
+        }
+    }
+    
+    @Test
+    public void testJournalWithoutSnapshotNeedsFullHistory() throws IOException {
+        File journalFile = new File(tempDir, "moves.journal");
+        try (MoveJournal journal = MoveJournal.open(journalFile, 0)) {
+            journal.gameStarted(TestSessions.newSession("game", "alice", "bob"));
+            journal.moveAccepted("game", 1, new Position(9, 1), new Position(7, 2));
+            journal.deleteGenerationsBefore(journal.rotate());
+        }
+        
+        // The first move only lived in the deleted generation
+        try (MoveJournal journal = MoveJournal.open(journalFile, 0)) {
+            assertTrue(GameSnapshot.recover(null, journal).isEmpty());
+        }
+    }
+    
+    private Move move(int fromRow, int fromCol, int toRow, int toCol) {
+        Position from = new Position(fromRow, fromCol);
+        return new Move(from, new Position(toRow, toCol), new Chariot(new Player("owner", "owner"), from));
+    }
+}
@@ -0,0 +1,217 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MoveJournal.
+ */
+public class MoveJournalTest {
+    
+    @TempDir
+    File tempDir;
+    
+    @Test
+    public void testRecoversOnlyLiveGames() throws IOException {
+        File file = new File(tempDir, "moves.journal");
+        GameSession live = TestSessions.newSession("live", "alice", "bob");
+        GameSession finished = TestSessions.newSession("finished", "carol", "dave");
+        
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            assertTrue(journal.getLiveGames().isEmpty());
+            journal.gameStarted(live);
+            journal.gameStarted(finished);
+            journal.moveAccepted("live", 1, new Position(9, 1), new Position(7, 2));
+            journal.moveAccepted("finished", 1, new Position(6, 0), new Position(5, 0));
+            journal.moveAccepted("live", 2, new Position(0, 1), new Position(2, 2));
+            journal.gameEnded("finished", GameStatus.RESIGNED);
+        }
+        
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            List<LiveGameRecord> games = journal.getLiveGames();
+            assertEquals(1, games.size());
+            
+            LiveGameRecord game = games.get(0);
+            assertEquals("live", game.getGameId());
+            assertEquals("alice", game.getRedPlayer().getPlayerId());
+            assertEquals("bob", game.getBlackPlayer().getUsername());
+            assertEquals(2, game.getMoveCount());
+            assertEquals(new Position(9, 1), game.getFrom(0));
+            assertEquals(new Position(2, 2), game.getTo(1));
+            
+            // Handles survive reopening, so the recovered game can keep journaling
+            journal.moveAccepted("live", 3, new Position(7, 1), new Position(7, 4));
+        }
+        
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            assertEquals(3, journal.getLiveGames().get(0).getMoveCount());
+        }
+    }
+    
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        File file = new File(tempDir, "moves.journal");
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            journal.gameStarted(TestSessions.newSession("game", "alice", "bob"));
+            journal.moveAccepted("game", 1, new Position(9, 1), new Position(7, 2));
+        }
+        File current = MoveJournal.generationFile(file, 1);
+        long intactLength = current.length();
+        
+        // Simulate a crash in the middle of writing the next record
+        try (FileOutputStream out = new FileOutputStream(current, true)) {
+            out.write(new byte[] {0, 0, 0, 11, 2, 0, 0});
+        }
+        
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            assertEquals(1, journal.getLiveGames().get(0).getMoveCount());
+        }
+        assertEquals(intactLength, current.length());
+        
+        // A corrupted checksum also ends the valid prefix
+        try (RandomAccessFile raf = new RandomAccessFile(current, "rw")) {
+            raf.seek(intactLength - 1);
+            int last = raf.read();
+            raf.seek(intactLength - 1);
+            raf.write(last ^ 0xff);
+        }
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            assertEquals(0, journal.getLiveGames().get(0).getMoveCount());
+        }
+    }
+    
+    @Test
+    public void testRotationRestatesLiveGames() throws IOException {
+        File file = new File(tempDir, "moves.journal");
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            journal.gameStarted(TestSessions.newSession("live", "alice", "bob"));
+            journal.gameStarted(TestSessions.newSession("finished", "carol", "dave"));
+            journal.moveAccepted("live", 1, new Position(9, 1), new Position(7, 2));
+            journal.moveAccepted("live", 2, new Position(0, 1), new Position(2, 2));
+            journal.gameEnded("finished", GameStatus.DRAW);
+            
+            assertEquals(2, journal.rotate());
+            journal.moveAccepted("live", 3, new Position(7, 1), new Position(7, 4));
+            assertEquals(1, journal.deleteGenerationsBefore(2));
+        }
+        assertFalse(MoveJournal.generationFile(file, 1).exists());
+        
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            assertEquals(2, journal.getGeneration());
+            List<LiveGameRecord> games = journal.getLiveGames();
+            assertEquals(1, games.size());
+            
+            // Only the move after the rotation is left; the first two belong to a snapshot
+            LiveGameRecord game = games.get(0);
+            assertEquals("live", game.getGameId());
+            assertEquals(2, game.getBaseSequence());
+            assertEquals(1, game.getMoveCount());
+            assertEquals(new Position(7, 4), game.getTo(0));
+        }
+    }
+    
+    @Test
+    public void testReplaysEveryGenerationInOrder() throws IOException {
+        File file = new File(tempDir, "moves.journal");
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            journal.gameStarted(TestSessions.newSession("early", "alice", "bob"));
+            journal.moveAccepted("early", 1, new Position(9, 1), new Position(7, 2));
+            journal.rotate();
+            journal.gameStarted(TestSessions.newSession("late", "carol", "dave"));
+            journal.moveAccepted("early", 2, new Position(0, 1), new Position(2, 2));
+            journal.rotate();
+            journal.gameEnded("late", GameStatus.RESIGNED);
+        }
+        
+        // Without a snapshot nothing was pruned, so the full history is rebuilt
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            assertEquals(1, journal.getLiveGames().size());
+            LiveGameRecord game = journal.getLiveGames().get(0);
+            assertEquals(0, game.getBaseSequence());
+            assertEquals(2, game.getMoveCount());
+            assertTrue(journal.getEndedGameIds().contains("late"));
+        }
+    }
+    
+    @Test
+    public void testConcurrentGamesShareSyncs() throws Exception {
+        File file = new File(tempDir, "moves.journal");
+        int gameCount = 8;
+        int movesPerGame = 50;
+        
+        try (MoveJournal journal = MoveJournal.open(file, 1)) {
+            for (int g = 0; g < gameCount; g++) {
+                journal.gameStarted(TestSessions.newSession("game-" + g, "red-" + g, "black-" + g));
+            }
+            long syncsBefore = journal.getSyncCount();
+            
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            for (int g = 0; g < gameCount; g++) {
+                String gameId = "game-" + g;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int m = 1; m <= movesPerGame; m++) {
+                            journal.moveAccepted(gameId, m, new Position(0, 0), new Position(1, 0));
+                        }
+                    } catch (Exception e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            
+            assertTrue(errors.isEmpty(), errors.toString());
+            long syncs = journal.getSyncCount() - syncsBefore;
+            assertTrue(syncs < gameCount * movesPerGame, "Expected grouped syncs but got " + syncs);
+        }
+        
+        try (MoveJournal journal = MoveJournal.open(file, 0)) {
+            assertEquals(gameCount, journal.getLiveGames().size());
+            for (LiveGameRecord game : journal.getLiveGames()) {
+                assertEquals(movesPerGame, game.getMoveCount());
+            }
+        }
+    }
+    
+    @Test
+    public void testSyncListenerSeesEverySync() throws IOException {
+        File file = new File(tempDir, "moves.journal");
+        AtomicLong notified = new AtomicLong();
+        MoveJournal journal = MoveJournal.open(file, 0);
+        long syncsBefore = journal.getSyncCount();
+        journal.setSyncListener(notified::incrementAndGet);
+        
+        journal.gameStarted(TestSessions.newSession("game", "alice", "bob"));
+        for (int m = 1; m <= 20; m++) {
+            journal.moveAccepted("game", m, new Position(0, 0), new Position(1, 0));
+        }
+        journal.close();
+        
+        assertTrue(notified.get() > 0);
+        assertEquals(journal.getSyncCount() - syncsBefore, notified.get());
+    }
+}
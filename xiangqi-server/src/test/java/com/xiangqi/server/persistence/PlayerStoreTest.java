@@ -0,0 +1,215 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameStatistics;
+import com.xiangqi.shared.model.Player;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PlayerStore.
+ */
+public class PlayerStoreTest {
+    
+    // Far below the default so the tests stay quick; the hashing itself is the same
+    private static final int ITERATIONS = 1000;
+    
+    @TempDir
+    File tempDir;
+    
+    @Test
+    public void testFirstLoginRegistersPassword() {
+        PlayerStore store = PlayerStore.inMemory(ITERATIONS);
+        
+        Player player = store.authenticate("alice", "secret");
+        assertNotNull(player);
+        assertEquals("alice", player.getPlayerId());
+        assertEquals(1000, player.getRating());
+        
+        assertNotNull(store.authenticate("alice", "secret"));
+        assertNull(store.authenticate("alice", "wrong"));
+        assertNull(store.authenticate("", "secret"));
+        assertNull(store.authenticate("bob", ""));
+    }
+    
+    @Test
+    public void testRatingsAndStatisticsSurviveRestart() throws IOException {
+        File file = new File(tempDir, "players.db");
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            store.authenticate("alice", "secret");
+            store.authenticate("bob", "hunter2");
+            store.recordGame("alice", "bob", "alice");
+            store.recordGame("alice", "bob", null);
+            store.updateRating("alice", 1032);
+        }
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            assertEquals(2, store.size());
+            Player alice = store.authenticate("alice", "secret");
+            assertNotNull(alice);
+            assertEquals(1032, alice.getRating());
+            
+            GameStatistics stats = alice.getStatistics();
+            assertEquals(2, stats.getGamesPlayed());
+            assertEquals(1, stats.getGamesWon());
+            assertEquals(1, stats.getGamesDraw());
+            
+            GameStatistics bob = store.getStatistics("bob");
+            assertEquals(1, bob.getGamesLost());
+            assertNull(store.authenticate("bob", "secret"));
+        }
+    }
+    
+    @Test
+    public void testChangesAreWrittenBehind() throws IOException {
+        File file = new File(tempDir, "players.db");
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            long emptySize = file.length();
+            store.authenticate("alice", "secret");
+            store.updateRating("alice", 1100);
+            
+            // Nothing reaches the disk until the flusher runs
+            assertEquals(emptySize, file.length());
+            assertEquals(1, store.getDirtyCount());
+            
+            store.flush();
+            assertTrue(file.length() > emptySize);
+            assertEquals(0, store.getDirtyCount());
+        }
+    }
+    
+    @Test
+    public void testCloseWhileFlusherIsWritingKeepsEveryChange() throws IOException {
+        File file = new File(tempDir, "players.db");
+        try (PlayerStore store = PlayerStore.open(file, 1, 1)) {
+            for (int i = 0; i < 2000; i++) {
+                store.getOrCreatePlayer("player" + i);
+                store.updateRating("player" + i, 1000 + i);
+            }
+        }
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, 1)) {
+            assertEquals(2000, store.size());
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(1000 + i, store.getPlayer("player" + i).getRating());
+            }
+        }
+    }
+    
+    @Test
+    public void testLogIsCompactedAndKeepsLatestValues() throws IOException {
+        File file = new File(tempDir, "players.db");
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            store.authenticate("alice", "secret");
+            for (int i = 0; i < 30000; i++) {
+                store.updateRating("alice", 1000 + i);
+                store.flush();
+            }
+        }
+        assertTrue(file.length() < 1024 * 1024 + 1024, "Expected the log to be compacted, was " + file.length());
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            assertEquals(1000 + 29999, store.getPlayer("alice").getRating());
+        }
+    }
+    
+    @Test
+    public void testLoginDoesNotWaitForDisk() throws IOException {
+        File file = new File(tempDir, "players.db");
+        int playerCount = 20000;
+        try (PlayerStore store = PlayerStore.open(file, 60000, 1)) {
+            for (int i = 0; i < playerCount; i++) {
+                store.authenticate("player" + i, "pw" + i);
+            }
+            store.flush();
+        }
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, 1)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < playerCount; i++) {
+                assertNotNull(store.authenticate("player" + i, "pw" + i));
+            }
+            double averageMicros = (System.nanoTime() - start) / 1000.0 / playerCount;
+            assertTrue(averageMicros < 1000, "Average login took " + averageMicros + " us");
+        }
+    }
+    
+    @Test
+    public void testPasswordsAreRehashedWhenIterationsChange() throws IOException {
+        File file = new File(tempDir, "players.db");
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            store.authenticate("alice", "secret");
+            assertEquals(ITERATIONS, store.getHashIterations("alice"));
+        }
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, 2 * ITERATIONS)) {
+            assertNull(store.authenticate("alice", "wrong"));
+            assertEquals(ITERATIONS, store.getHashIterations("alice"));
+            assertNotNull(store.authenticate("alice", "secret"));
+            assertEquals(2 * ITERATIONS, store.getHashIterations("alice"));
+        }
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, 2 * ITERATIONS)) {
+            assertEquals(2 * ITERATIONS, store.getHashIterations("alice"));
+            assertNotNull(store.authenticate("alice", "secret"));
+        }
+    }
+    
+    @Test
+    public void testLegacySha256StoreIsUpgraded() throws Exception {
+        File file = new File(tempDir, "players.db");
+        byte[] salt = new byte[16];
+        salt[0] = 7;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(salt);
+        byte[] legacyHash = digest.digest("secret".getBytes(StandardCharsets.UTF_8));
+        
+        // A store written before passwords were hashed with PBKDF2
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(body);
+        record.writeUTF("alice");
+        record.writeUTF("alice");
+        record.writeByte(salt.length);
+        record.write(salt);
+        record.writeByte(legacyHash.length);
+        record.write(legacyHash);
+        record.writeInt(1200);
+        record.writeInt(3);
+        record.writeInt(2);
+        record.writeInt(1);
+        record.writeInt(0);
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x58515031);
+            out.writeInt(body.size());
+            body.writeTo(out);
+            out.writeInt((int) crc.getValue());
+        }
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            assertEquals(0, store.getHashIterations("alice"));
+            assertNull(store.authenticate("alice", "wrong"));
+            Player alice = store.authenticate("alice", "secret");
+            assertNotNull(alice);
+            assertEquals(1200, alice.getRating());
+            assertEquals(ITERATIONS, store.getHashIterations("alice"));
+        }
+        
+        try (PlayerStore store = PlayerStore.open(file, 60000, ITERATIONS)) {
+            assertEquals(ITERATIONS, store.getHashIterations("alice"));
+            assertEquals(3, store.getStatistics("alice").getGamesPlayed());
+            assertNotNull(store.authenticate("alice", "secret"));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.xiangqi.server.persistence;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.Player;
+
+/**
+ * Game sessions shared by the persistence tests.
+ */
+final class TestSessions {
+    
+    private TestSessions() {
+    }
+    
+    /**
+     * Creates a new game between two players whose names are their ids.
+     */
+    static GameSession newSession(String gameId, String red, String black) {
+        return new GameSession(gameId, new Player(red, red), new Player(black, black));
+    }
+}
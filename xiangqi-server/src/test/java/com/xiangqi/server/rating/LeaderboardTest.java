@@ -0,0 +1,81 @@
+package com.xiangqi.server.rating;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Leaderboard.
+ */
+public class LeaderboardTest {
+    
+    @Test
+    public void testRanksAndTopPlayers() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 1200);
+        leaderboard.update("bob", 1500);
+        leaderboard.update("carol", 1200);
+        leaderboard.update("dave", 900);
+        
+        assertEquals(1, leaderboard.getRank("bob"));
+        assertEquals(2, leaderboard.getRank("alice")); // Ties are ordered by player ID
+        assertEquals(3, leaderboard.getRank("carol"));
+        assertEquals(4, leaderboard.getRank("dave"));
+        assertEquals(0, leaderboard.getRank("nobody"));
+        
+        leaderboard.update("dave", 1600);
+        List<Leaderboard.Entry> top = leaderboard.getTop(2);
+        assertEquals(2, top.size());
+        assertEquals("dave", top.get(0).getPlayerId());
+        assertEquals(1, top.get(0).getRank());
+        assertEquals("bob", top.get(1).getPlayerId());
+        assertEquals(1500, top.get(1).getRating());
+        
+        leaderboard.remove("bob");
+        assertEquals(3, leaderboard.size());
+        assertEquals(2, leaderboard.getRank("alice"));
+    }
+    
+    @Test
+    public void testMatchesFullSortUnderRandomUpdates() {
+        Leaderboard leaderboard = new Leaderboard();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        
+        for (int i = 0; i < 5000; i++) {
+            String playerId = "p" + random.nextInt(500);
+            if (random.nextInt(10) == 0) {
+                leaderboard.remove(playerId);
+                expected.remove(playerId);
+            } else {
+                int rating = 800 + random.nextInt(100);
+                leaderboard.update(playerId, rating);
+                expected.put(playerId, rating);
+            }
+        }
+        
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(expected.entrySet());
+        sorted.sort(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue).reversed()
+            .thenComparing(Map.Entry::getKey));
+        
+        assertEquals(sorted.size(), leaderboard.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(i + 1, leaderboard.getRank(sorted.get(i).getKey()));
+        }
+        
+        List<Leaderboard.Entry> page = leaderboard.getPage(100, 25);
+        assertEquals(25, page.size());
+        for (int i = 0; i < page.size(); i++) {
+            assertEquals(sorted.get(100 + i).getKey(), page.get(i).getPlayerId());
+            assertEquals(101 + i, page.get(i).getRank());
+        }
+        assertTrue(leaderboard.getPage(sorted.size(), 10).isEmpty());
+    }
+}
@@ -0,0 +1,114 @@
+package com.xiangqi.server.rating;
+
+import com.xiangqi.server.persistence.PlayerStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RatingService and EloCalculator.
+ */
+public class RatingServiceTest {
+    
+    @Test
+    public void testEloArithmetic() {
+        assertEquals(0.5, EloCalculator.expectedScore(1500, 1500), 1e-9);
+        assertEquals(0.909, EloCalculator.expectedScore(1800, 1400), 1e-3);
+        
+        assertEquals(1020, EloCalculator.newRating(1000, 1000, 1.0, 40));
+        assertEquals(980, EloCalculator.newRating(1000, 1000, 0.0, 40));
+        assertEquals(1000, EloCalculator.newRating(1000, 1000, 0.5, 40));
+        assertEquals(EloCalculator.MIN_RATING, EloCalculator.newRating(EloCalculator.MIN_RATING, 2000, 0.0, 40));
+        
+        assertEquals(40, EloCalculator.kFactor(1000, 5));
+        assertEquals(20, EloCalculator.kFactor(1800, 100));
+        assertEquals(10, EloCalculator.kFactor(2500, 100));
+    }
+    
+    @Test
+    public void testFinishedGamesUpdateStoreAndLeaderboard() throws InterruptedException {
+        PlayerStore store = PlayerStore.inMemory();
+        store.authenticate("alice", "pw");
+        store.authenticate("bob", "pw");
+        Leaderboard leaderboard = new Leaderboard();
+        List<Map<String, Integer>> notifications = new ArrayList<>();
+        
+        RatingService service = new RatingService(store, leaderboard, changes -> {
+            synchronized (notifications) {
+                notifications.add(changes);
+            }
+        });
+        try {
+            store.recordGame("alice", "bob", "alice");
+            service.submit("alice", "bob", "alice");
+            assertTrue(service.awaitProcessed(5000));
+            
+            assertEquals(1020, store.getPlayer("alice").getRating());
+            assertEquals(980, store.getPlayer("bob").getRating());
+            assertEquals(1, leaderboard.getRank("alice"));
+            assertEquals(2, leaderboard.getRank("bob"));
+            synchronized (notifications) {
+                assertEquals(1020, notifications.get(notifications.size() - 1).get("alice"));
+            }
+        } finally {
+            service.close();
+        }
+    }
+    
+    @Test
+    public void testKFactorFollowsExperienceOfEachGame() throws InterruptedException {
+        PlayerStore store = PlayerStore.inMemory();
+        store.authenticate("alice", "pw");
+        store.authenticate("bob", "pw");
+        for (int i = 0; i < EloCalculator.PROVISIONAL_GAMES - 1; i++) {
+            store.recordGame("alice", "bob", null);
+        }
+        RatingService service = new RatingService(store, new Leaderboard(), changes -> { });
+        try {
+            // The last provisional game and the first established one, however they are batched
+            for (int i = 0; i < 2; i++) {
+                store.recordGame("alice", "bob", "alice");
+                service.submit("alice", "bob", "alice");
+            }
+            assertTrue(service.awaitProcessed(5000));
+            
+            // 1000 -> 1020 with K=40, then 1020 -> 1029 with K=20
+            assertEquals(1029, store.getPlayer("alice").getRating());
+            assertEquals(971, store.getPlayer("bob").getRating());
+        } finally {
+            service.close();
+        }
+    }
+    
+    @Test
+    public void testGamesAreRatedInBatchesInOrder() throws InterruptedException {
+        PlayerStore store = PlayerStore.inMemory();
+        for (int i = 0; i < 10; i++) {
+            store.authenticate("p" + i, "pw");
+        }
+        Leaderboard leaderboard = new Leaderboard();
+        RatingService service = new RatingService(store, leaderboard, changes -> { });
+        try {
+            int games = 2000;
+            for (int g = 0; g < games; g++) {
+                String red = "p" + (g % 10);
+                String black = "p" + ((g + 1) % 10);
+                service.submit(red, black, g % 3 == 0 ? null : red);
+            }
+            assertTrue(service.awaitProcessed(10000));
+            assertTrue(service.getBatchCount() < games, "Expected games to be grouped into batches");
+            
+            // Every rating change is mirrored on the leaderboard
+            for (int i = 0; i < 10; i++) {
+                String playerId = "p" + i;
+                assertEquals(store.getPlayer(playerId).getRating(), leaderboard.getRating(playerId));
+            }
+        } finally {
+            service.close();
+        }
+    }
+}
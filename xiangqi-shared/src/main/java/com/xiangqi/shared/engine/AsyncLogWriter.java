@@ -0,0 +1,305 @@
+package com.xiangqi.shared.engine;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous appender for the error log files.
+ * Callers only place entries into a bounded lock-free ring buffer; a single
+ * writer thread drains it in batches, appends each batch to the log files,
+ * and rotates files by size. When the buffer is full, entries are dropped
+ * and counted instead of blocking the caller.
+ */
+class AsyncLogWriter {
+    private static final Logger LOGGER = Logger.getLogger(AsyncLogWriter.class.getName());
+    
+    static final int DEFAULT_CAPACITY = 8192;
+    static final long DEFAULT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+    static final int DEFAULT_MAX_BACKUPS = 5;
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private final File directory;
+    private final long maxFileBytes;
+    private final int maxBackups;
+    
+    // Ring buffer: multiple producers claim slots by CAS, the writer thread is the only consumer
+    private final int mask;
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private long consumerIndex; // Writer thread only
+    
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private long reportedDrops; // Writer thread only
+    
+    private final Map<String, OpenLog> openLogs = new HashMap<>(); // Writer thread only
+    private volatile boolean running;
+    private volatile boolean writerIdle;
+    private Thread writerThread;
+    
+    AsyncLogWriter(File directory) {
+        this(directory, DEFAULT_CAPACITY, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_BACKUPS);
+    }
+    
+    AsyncLogWriter(File directory, int capacity, long maxFileBytes, int maxBackups) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1; // Round up to a power of two
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxBackups = maxBackups;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    /**
+     * Starts the writer thread.
+     */
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "GameErrorLogger-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    /**
+     * Queues a line for the given log file without blocking.
+     * @return false if the buffer was full and the line was dropped
+     */
+    boolean append(String filename, String line) {
+        Entry entry = new Entry(filename, line);
+        while (true) {
+            long position = producerIndex.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (producerIndex.compareAndSet(position, position + 1)) {
+                    slots.set(index, entry);
+                    sequences.set(index, position + 1); // Publish to the writer
+                    if (writerIdle) {
+                        LockSupport.unpark(writerThread);
+                    }
+                    return true;
+                }
+            } else if (difference < 0) {
+                droppedCount.incrementAndGet(); // Buffer full
+                return false;
+            }
+            // Another producer claimed this slot first; retry with the new index
+        }
+    }
+    
+    /**
+     * Waits until every line queued so far has been written.
+     * @return true if the buffer drained within the timeout
+     */
+    boolean flush(long timeoutMillis) {
+        long target = producerIndex.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (writtenCount.get() < target) {
+            if (!running || System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+    
+    /**
+     * Stops the writer thread after draining what is already queued.
+     */
+    void close(long timeoutMillis) {
+        flush(timeoutMillis);
+        running = false;
+        Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of lines dropped because the buffer was full.
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * Gets the number of lines written to disk.
+     */
+    long getWrittenCount() {
+        return writtenCount.get();
+    }
+    
+    private void runWriter() {
+        while (running) {
+            int written = drainBatch();
+            if (written == 0) {
+                writerIdle = true;
+                if (!hasPending()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerIdle = false;
+            }
+        }
+        drainBatch();
+        closeAll();
+    }
+    
+    private boolean hasPending() {
+        return sequences.get((int) (consumerIndex & mask)) == consumerIndex + 1;
+    }
+    
+    /**
+     * Writes up to one batch of queued lines, grouped per file.
+     */
+    private int drainBatch() {
+        Map<String, StringBuilder> batch = new HashMap<>();
+        int count = 0;
+        while (count < BATCH_SIZE && hasPending()) {
+            int index = (int) (consumerIndex & mask);
+            Entry entry = slots.get(index);
+            slots.set(index, null);
+            sequences.set(index, consumerIndex + mask + 1); // Free the slot for the next lap
+            consumerIndex++;
+            batch.computeIfAbsent(entry.filename, name -> new StringBuilder())
+                 .append(entry.line).append(System.lineSeparator());
+            count++;
+        }
+        
+        for (Map.Entry<String, StringBuilder> file : batch.entrySet()) {
+            writeBatch(file.getKey(), file.getValue().toString());
+        }
+        reportDrops();
+        writtenCount.addAndGet(count);
+        return count;
+    }
+    
+    private void writeBatch(String filename, String text) {
+        try {
+            OpenLog log = openLogs.get(filename);
+            if (log == null) {
+                log = open(filename);
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (log.size > 0 && log.size + bytes.length > maxFileBytes) {
+                log.writer.close();
+                openLogs.remove(filename);
+                rotate(filename);
+                log = open(filename);
+            }
+            log.writer.write(text);
+            log.writer.flush();
+            log.size += bytes.length;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write to log file: " + filename, e);
+            OpenLog broken = openLogs.remove(filename);
+            if (broken != null) {
+                try {
+                    broken.writer.close();
+                } catch (IOException ignored) {
+                    // Already failing; the next batch reopens the file
+                }
+            }
+        }
+    }
+    
+    private OpenLog open(String filename) throws IOException {
+        File file = new File(directory, filename);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        OpenLog log = new OpenLog(writer, file.length());
+        openLogs.put(filename, log);
+        return log;
+    }
+    
+    /**
+     * Shifts name.1 .. name.(n-1) up by one and moves the current file to name.1.
+     */
+    private void rotate(String filename) {
+        File oldest = new File(directory, filename + "." + maxBackups);
+        if (oldest.exists() && !oldest.delete()) {
+            LOGGER.warning("Failed to delete old log file: " + oldest);
+        }
+        for (int i = maxBackups - 1; i >= 1; i--) {
+            File source = new File(directory, filename + "." + i);
+            if (source.exists() && !source.renameTo(new File(directory, filename + "." + (i + 1)))) {
+                LOGGER.warning("Failed to rotate log file: " + source);
+            }
+        }
+        File current = new File(directory, filename);
+        if (maxBackups > 0) {
+            if (!current.renameTo(new File(directory, filename + ".1"))) {
+                LOGGER.warning("Failed to rotate log file: " + current);
+            }
+        } else if (!current.delete()) {
+            LOGGER.warning("Failed to truncate log file: " + current);
+        }
+    }
+    
+    private void reportDrops() {
+        long dropped = droppedCount.get();
+        if (dropped > reportedDrops) {
+            LOGGER.warning("Error log buffer full, dropped " + (dropped - reportedDrops) + " entries");
+            reportedDrops = dropped;
+        }
+    }
+    
+    private void closeAll() {
+        for (OpenLog log : openLogs.values()) {
+            try {
+                log.writer.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close log file", e);
+            }
+        }
+        openLogs.clear();
+    }
+    
+    private static final class Entry {
+        final String filename;
+        final String line;
+        
+        Entry(String filename, String line) {
+            this.filename = filename;
+            this.line = line;
+        }
+    }
+    
+    private static final class OpenLog {
+        final Writer writer;
+        long size;
+        
+        OpenLog(Writer writer, long size) {
+            this.writer = writer;
+            this.size = size;
+        }
+    }
+}
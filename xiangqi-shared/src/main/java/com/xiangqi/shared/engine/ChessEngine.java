@@ -2,6 +2,7 @@ package com.xiangqi.shared.engine;
 
 import com.xiangqi.shared.model.*;
 import com.xiangqi.shared.model.pieces.*;
+import com.xiangqi.shared.profiling.ExecuteMoveEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
@@ -19,6 +20,7 @@ public class ChessEngine {
     private final RuleValidator ruleValidator;
     private final List<GameEventListener> eventListeners;
     private final GameErrorLogger errorLogger;
+    private String gameId;
     
     public ChessEngine() {
         this.ruleValidator = new RuleValidator();
@@ -46,6 +48,40 @@ public class ChessEngine {
      * Attempts to execute a move. Returns true if successful, false if invalid.
      */
     public boolean executeMove(Move move) {
+        return executeMove(move, null);
+    }
+    
+    /**
+     * Attempts to execute a move, reporting when each phase finishes.
+     * @param timer receives phase timestamps, or null
+     */
+    public boolean executeMove(Move move, MoveTimer timer) {
+        ExecuteMoveEvent event = new ExecuteMoveEvent();
+        event.begin();
+        boolean accepted = doExecuteMove(move, timer);
+        event.end();
+        if (event.shouldCommit()) {
+            event.gameId = gameId;
+            event.move = describe(move);
+            event.accepted = accepted;
+            if (currentState != null) {
+                event.moveCount = currentState.getMoveCount();
+                event.status = String.valueOf(currentState.getStatus());
+            }
+            event.commit();
+        }
+        return accepted;
+    }
+    
+    private static String describe(Move move) {
+        if (move == null || move.getFrom() == null || move.getTo() == null) {
+            return null;
+        }
+        return move.getFrom().getRow() + "," + move.getFrom().getCol()
+            + "-" + move.getTo().getRow() + "," + move.getTo().getCol();
+    }
+    
+    private boolean doExecuteMove(Move move, MoveTimer timer) {
         try {
             // Save current state for potential recovery
             saveCurrentState();
@@ -69,9 +105,15 @@ public class ChessEngine {
             
             // Switch to the other player
             currentState.switchPlayer();
+            if (timer != null) {
+                timer.moveValidated(System.nanoTime());
+            }
             
             // Check for game end conditions
             checkGameEndConditions();
+            if (timer != null) {
+                timer.endConditionsChecked(System.nanoTime());
+            }
             
             // Notify listeners
             notifyMoveExecuted(move);
@@ -172,6 +214,17 @@ public class ChessEngine {
         }
     }
     
+    /**
+     * Sets the game id reported in profiling events.
+     */
+    public void setGameId(String gameId) {
+        this.gameId = gameId;
+    }
+    
+    public String getGameId() {
+        return gameId;
+    }
+    
     /**
      * Gets the current game state.
      */
@@ -442,4 +495,20 @@ public class ChessEngine {
             listener.onGameStateCorrupted(reason);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Receives {@link System#nanoTime()} stamps as a move passes through the
+     * engine, so callers can tell validation time from end-of-game detection.
+     */
+    public interface MoveTimer {
+        /**
+         * Called once the move has been validated and applied.
+         */
+        void moveValidated(long nanoTime);
+        
+        /**
+         * Called once check, checkmate and stalemate have been evaluated.
+         */
+        void endConditionsChecked(long nanoTime);
+    }
+}
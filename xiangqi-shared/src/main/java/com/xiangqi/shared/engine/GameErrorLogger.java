@@ -14,18 +14,15 @@ import java.util.logging.Level;
 public class GameErrorLogger {
     private static final Logger LOGGER = Logger.getLogger(GameErrorLogger.class.getName());
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MS = 2000;
     
     private static GameErrorLogger instance;
-    private final String logDirectory;
-    private final boolean enableFileLogging;
+    private static boolean shutdownHookRegistered;
+    private volatile boolean enableFileLogging;
+    private volatile AsyncLogWriter fileWriter;
     
     private GameErrorLogger(String logDirectory, boolean enableFileLogging) {
-        this.logDirectory = logDirectory;
-        this.enableFileLogging = enableFileLogging;
-        
-        if (enableFileLogging) {
-            createLogDirectory();
-        }
+        configure(logDirectory, enableFileLogging);
     }
     
     /**
@@ -42,9 +39,63 @@ public class GameErrorLogger {
     
     /**
      * Initializes the error logger with custom configuration.
+     * An existing instance is reconfigured rather than replaced, since
+     * components such as ChessEngine keep the instance they were given.
      */
     public static synchronized void initialize(String logDirectory, boolean enableFileLogging) {
-        instance = new GameErrorLogger(logDirectory, enableFileLogging);
+        if (instance != null) {
+            instance.configure(logDirectory, enableFileLogging);
+        } else {
+            instance = new GameErrorLogger(logDirectory, enableFileLogging);
+        }
+    }
+    
+    /**
+     * Starts a file writer for the given directory in place of the current
+     * one, which writes out its queued entries and stops.
+     */
+    private synchronized void configure(String logDirectory, boolean enableFileLogging) {
+        AsyncLogWriter previous = fileWriter;
+        AsyncLogWriter writer = null;
+        if (enableFileLogging) {
+            createLogDirectory(logDirectory);
+            writer = new AsyncLogWriter(new File(logDirectory));
+            writer.start();
+            registerShutdownHook();
+        }
+        fileWriter = writer;
+        this.enableFileLogging = enableFileLogging;
+        
+        if (previous != null) {
+            previous.close(SHUTDOWN_FLUSH_TIMEOUT_MS);
+        }
+    }
+    
+    /**
+     * Waits until all queued log entries have been written to disk.
+     * @return true if everything was written within the timeout
+     */
+    public boolean flush(long timeoutMillis) {
+        AsyncLogWriter writer = fileWriter;
+        return writer == null || writer.flush(timeoutMillis);
+    }
+    
+    /**
+     * Gets the number of file log entries dropped because the write buffer was full.
+     */
+    public long getDroppedEntryCount() {
+        AsyncLogWriter writer = fileWriter;
+        return writer != null ? writer.getDroppedCount() : 0;
+    }
+    
+    /**
+     * Writes out queued entries and stops the background file writer.
+     */
+    public void shutdown() {
+        AsyncLogWriter writer = fileWriter;
+        if (writer != null) {
+            writer.close(SHUTDOWN_FLUSH_TIMEOUT_MS);
+        }
     }
     
     /**
@@ -130,7 +181,7 @@ public class GameErrorLogger {
             sb.append("Current Player: ").append(gameState.getCurrentPlayer() != null ? 
                 gameState.getCurrentPlayer().getUsername() : "null").append(" | ");
             sb.append("Game Status: ").append(gameState.getStatus()).append(" | ");
-            sb.append("Move Count: ").append(gameState.getMoveHistory().size());
+            sb.append("Move Count: ").append(gameState.getMoveCount());
         } else {
             sb.append("Game State: null");
         }
@@ -152,7 +203,7 @@ public class GameErrorLogger {
             sb.append("Black Player: ").append(corruptedState.getBlackPlayer() != null ? 
                 corruptedState.getBlackPlayer().getUsername() : "unknown").append(" | ");
             sb.append("Status: ").append(corruptedState.getStatus()).append(" | ");
-            sb.append("Move Count: ").append(corruptedState.getMoveHistory().size()).append(" | ");
+            sb.append("Move Count: ").append(corruptedState.getMoveCount()).append(" | ");
         }
         
         if (cause != null) {
@@ -217,7 +268,7 @@ public class GameErrorLogger {
     /**
      * Creates the log directory if it doesn't exist.
      */
-    private void createLogDirectory() {
+    private static void createLogDirectory(String logDirectory) {
         try {
             File dir = new File(logDirectory);
             if (!dir.exists()) {
@@ -234,22 +285,32 @@ public class GameErrorLogger {
     }
     
     /**
-     * Writes a log entry to the specified file.
+     * Registers a JVM shutdown hook that drains the current logger's file writer.
      */
-    private void writeToFile(String filename, String logEntry) {
-        try {
-            File logFile = new File(logDirectory, filename);
-            
-            try (FileWriter writer = new FileWriter(logFile, true);
-                 BufferedWriter bufferedWriter = new BufferedWriter(writer)) {
-                
-                bufferedWriter.write(logEntry);
-                bufferedWriter.newLine();
-                bufferedWriter.flush();
+    private static synchronized void registerShutdownHook() {
+        if (shutdownHookRegistered) {
+            return;
+        }
+        shutdownHookRegistered = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            GameErrorLogger current;
+            synchronized (GameErrorLogger.class) {
+                current = instance;
             }
-            
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "Failed to write to log file: " + filename, e);
+            if (current != null) {
+                current.shutdown();
+            }
+        }, "GameErrorLogger-Shutdown"));
+    }
+    
+    /**
+     * Queues a log entry for the specified file. The entry is written by the
+     * background writer; if its buffer is full the entry is dropped and counted.
+     */
+    private void writeToFile(String filename, String logEntry) {
+        AsyncLogWriter writer = fileWriter;
+        if (writer != null) {
+            writer.append(filename, logEntry);
         }
     }
 }
\ No newline at end of file
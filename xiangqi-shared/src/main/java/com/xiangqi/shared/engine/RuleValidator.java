@@ -2,6 +2,7 @@ package com.xiangqi.shared.engine;
 
 import com.xiangqi.shared.model.*;
 import com.xiangqi.shared.model.pieces.*;
+import com.xiangqi.shared.profiling.RuleCheckEvent;
 
 /**
  * Validates Xiangqi game rules and move legality.
@@ -13,6 +14,13 @@ public class RuleValidator {
      * Validates if a move is legal according to Xiangqi rules.
      */
     public boolean isValidMove(Move move, GameState state) {
+        RuleCheckEvent event = new RuleCheckEvent();
+        event.begin();
+        boolean result = checkValidMove(move, state);
+        return commit(event, "legality", state, result);
+    }
+    
+    private boolean checkValidMove(Move move, GameState state) {
         if (move == null || state == null) {
             return false;
         }
@@ -111,6 +119,13 @@ public class RuleValidator {
      * Checks if a player is in checkmate.
      */
     public boolean isCheckmate(Player player, GameState state) {
+        RuleCheckEvent event = new RuleCheckEvent();
+        event.begin();
+        boolean result = checkCheckmate(player, state);
+        return commit(event, "checkmate", state, result);
+    }
+    
+    private boolean checkCheckmate(Player player, GameState state) {
         if (!isInCheck(player, state)) {
             return false; // Not in check, so not checkmate
         }
@@ -146,6 +161,13 @@ public class RuleValidator {
      * Checks if the game is in stalemate (no legal moves but not in check).
      */
     public boolean isStalemate(Player player, GameState state) {
+        RuleCheckEvent event = new RuleCheckEvent();
+        event.begin();
+        boolean result = checkStalemate(player, state);
+        return commit(event, "stalemate", state, result);
+    }
+    
+    private boolean checkStalemate(Player player, GameState state) {
         if (isInCheck(player, state)) {
             return false; // In check, so not stalemate
         }
@@ -199,6 +221,20 @@ public class RuleValidator {
         return isInCheck(tempPiece.getOwner(), tempState);
     }
     
+    /**
+     * Records a rule check event if the check took longer than the event threshold.
+     */
+    private static boolean commit(RuleCheckEvent event, String check, GameState state, boolean result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.check = check;
+            event.moveCount = state != null ? state.getMoveCount() : 0;
+            event.result = result;
+            event.commit();
+        }
+        return result;
+    }
+    
     /**
      * Finds a player's general on the board.
      */
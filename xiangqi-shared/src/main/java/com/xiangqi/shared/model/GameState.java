@@ -1,6 +1,7 @@
 package com.xiangqi.shared.model;
 
 import com.xiangqi.shared.model.pieces.*;
+import com.xiangqi.shared.profiling.GameStateCopyEvent;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -89,6 +90,13 @@ public class GameState implements Serializable {
         moveHistory.add(Objects.requireNonNull(move, "Move cannot be null"));
     }
     
+    /**
+     * Gets the number of moves played without copying the history.
+     */
+    public int getMoveCount() {
+        return moveHistory.size();
+    }
+    
     public Move getLastMove() {
         return moveHistory.isEmpty() ? null : moveHistory.get(moveHistory.size() - 1);
     }
@@ -195,10 +203,54 @@ public class GameState implements Serializable {
         return true;
     }
     
+    /**
+     * Applies a move that has already been validated elsewhere, such as a
+     * move delta confirmed by the server. No rule checks are performed.
+     * @return the move as recorded in the history, or null if the source square is empty
+     */
+    public Move applyValidatedMove(Position from, Position to) {
+        ChessPiece piece = getPiece(from);
+        if (piece == null || !to.isValid()) {
+            return null;
+        }
+        
+        ChessPiece capturedPiece = getPiece(to);
+        removePiece(from);
+        setPiece(to, piece);
+        
+        Move move = new Move(from, to, piece, capturedPiece);
+        addMove(move);
+        switchPlayer();
+        return move;
+    }
+    
+    /**
+     * Computes a compact hash of the position, side to move, status and
+     * move count. Two states with equal hashes are treated as in sync.
+     */
+    public long stateHash() {
+        // 64-bit FNV-1a over one byte per square plus the game counters
+        long hash = 0xcbf29ce484222325L;
+        for (int row = 0; row < Position.BOARD_ROWS; row++) {
+            for (int col = 0; col < Position.BOARD_COLS; col++) {
+                ChessPiece piece = board[row][col];
+                int code = piece == null ? 0 : (piece.getType().ordinal() + 1) | (piece.isRed() ? 0x10 : 0);
+                hash = (hash ^ code) * 0x100000001b3L;
+            }
+        }
+        hash = (hash ^ (currentPlayer != null && currentPlayer.equals(redPlayer) ? 1 : 2)) * 0x100000001b3L;
+        hash = (hash ^ (status != null ? status.ordinal() : 0xff)) * 0x100000001b3L;
+        hash = (hash ^ moveHistory.size()) * 0x100000001b3L;
+        return hash;
+    }
+    
     /**
      * Creates a deep copy of the current game state.
      */
     public GameState copy() {
+        GameStateCopyEvent event = new GameStateCopyEvent();
+        event.begin();
+        
         // Create an empty game state without initializing the board
         GameState copy = new GameState();
         copy.redPlayer = this.redPlayer;
@@ -223,9 +275,27 @@ public class GameState implements Serializable {
         copy.moveHistory.clear(); // Clear any existing moves
         copy.moveHistory.addAll(this.moveHistory);
         
+        event.end();
+        if (event.shouldCommit()) {
+            event.moveCount = moveHistory.size();
+            event.pieceCount = countPieces();
+            event.commit();
+        }
         return copy;
     }
     
+    private int countPieces() {
+        int count = 0;
+        for (int row = 0; row < Position.BOARD_ROWS; row++) {
+            for (int col = 0; col < Position.BOARD_COLS; col++) {
+                if (board[row][col] != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
     /**
      * Creates a copy of a chess piece.
      */
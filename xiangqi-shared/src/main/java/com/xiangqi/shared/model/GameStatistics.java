@@ -20,6 +20,16 @@ public class GameStatistics implements Serializable {
         this.gamesDraw = 0;
     }
     
+    /**
+     * Restores statistics loaded from storage.
+     */
+    public GameStatistics(int gamesPlayed, int gamesWon, int gamesLost, int gamesDraw) {
+        this.gamesPlayed = gamesPlayed;
+        this.gamesWon = gamesWon;
+        this.gamesLost = gamesLost;
+        this.gamesDraw = gamesDraw;
+    }
+    
     public int getGamesPlayed() {
         return gamesPlayed;
     }
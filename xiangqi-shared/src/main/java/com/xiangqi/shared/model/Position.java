@@ -49,6 +49,21 @@ public class Position implements Serializable {
         return Math.abs(this.row - other.row) + Math.abs(this.col - other.col);
     }
     
+    /**
+     * Gets this position as one square number, row * BOARD_COLS + col, which
+     * fits in a byte for compact encodings such as move deltas and journals.
+     */
+    public byte toSquare() {
+        return (byte) (row * BOARD_COLS + col);
+    }
+    
+    /**
+     * Gets the position of a square number made by {@link #toSquare()}.
+     */
+    public static Position fromSquare(int square) {
+        return new Position(square / BOARD_COLS, square % BOARD_COLS);
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
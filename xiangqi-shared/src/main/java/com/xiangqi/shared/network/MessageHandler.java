@@ -25,6 +25,7 @@ public class MessageHandler implements NetworkMessageHandler {
     
     // Message routing callbacks
     private MessageRoutingCallback routingCallback;
+    private Authenticator authenticator;
     
     /**
      * Interface for message routing callbacks.
@@ -37,6 +38,20 @@ public class MessageHandler implements NetworkMessageHandler {
         void removeClient(String clientId);
     }
     
+    /**
+     * Interface for checking login credentials against a player store.
+     * There is no separate sign-up step: an implementation may register a
+     * username it has never seen on that name's first login, in which case the
+     * password given then becomes the account's password. PlayerStore does this.
+     */
+    public interface Authenticator {
+        /**
+         * Returns the authenticated player, or null if the credentials are rejected.
+         * An unknown username may be registered with the given password.
+         */
+        Player authenticate(String username, String password);
+    }
+    
     /**
      * Constructs a new MessageHandler with the specified chess engine.
      */
@@ -54,6 +69,14 @@ public class MessageHandler implements NetworkMessageHandler {
         this.routingCallback = callback;
     }
     
+    /**
+     * Sets the authenticator used for login requests. Without one, any
+     * non-empty username and password is accepted.
+     */
+    public void setAuthenticator(Authenticator authenticator) {
+        this.authenticator = authenticator;
+    }
+    
     @Override
     public void handleLoginRequest(LoginMessage message) {
         LOGGER.info("Processing login request for user: " + message.getUsername());
@@ -355,8 +378,12 @@ public class MessageHandler implements NetworkMessageHandler {
     // Helper methods
     
     private AuthenticationResult authenticateUser(String username, String password) {
-        // Simple authentication for demo purposes
-        // In a real implementation, this would check against a database
+        if (authenticator != null) {
+            Player player = authenticator.authenticate(username, password);
+            return player != null ? AuthenticationResult.success(player) : AuthenticationResult.failure("Invalid credentials");
+        }
+        
+        // Simple authentication for demo purposes when no player store is configured
         if (username != null && !username.trim().isEmpty() && 
             password != null && !password.trim().isEmpty()) {
             
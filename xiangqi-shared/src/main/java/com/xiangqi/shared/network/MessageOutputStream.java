@@ -0,0 +1,155 @@
+package com.xiangqi.shared.network;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * ObjectOutputStream for long-lived connections.
+ * A plain ObjectOutputStream keeps every object it has written in its
+ * back-reference table until reset() is called, so a connection that is
+ * never reset retains every message it ever sent, on both ends.
+ * This stream resets after a configurable number of messages and tracks
+ * how much the reference table is currently holding on to.
+ */
+public class MessageOutputStream extends ObjectOutputStream {
+    /** Reset after every message: no retention and no stale back-references. */
+    public static final int DEFAULT_RESET_INTERVAL = 1;
+    
+    private final CountingOutputStream counter;
+    private final int resetInterval;
+    private int messagesSinceReset;
+    
+    // Statistics are written by the sending thread and may be read by monitoring threads
+    private volatile long retainedObjects;
+    private volatile long peakRetainedObjects;
+    private volatile long bytesAtReset;
+    private volatile long resetCount;
+    
+    /**
+     * Creates a stream using the default reset interval.
+     */
+    public MessageOutputStream(OutputStream out) throws IOException {
+        this(out, DEFAULT_RESET_INTERVAL);
+    }
+    
+    /**
+     * Creates a stream that resets after the given number of messages.
+     * 
+     * @param resetInterval messages between resets, 0 to never reset
+     */
+    public MessageOutputStream(OutputStream out, int resetInterval) throws IOException {
+        this(new CountingOutputStream(out), resetInterval);
+    }
+    
+    private MessageOutputStream(CountingOutputStream out, int resetInterval) throws IOException {
+        super(out);
+        this.counter = out;
+        this.resetInterval = Math.max(0, resetInterval);
+        enableReplaceObject(true); // Lets replaceObject count newly referenced objects
+    }
+    
+    /**
+     * Writes one message, applies the reset policy and flushes.
+     */
+    public void writeMessage(Object message) throws IOException {
+        writeObject(message);
+        messagesSinceReset++;
+        if (resetInterval > 0 && messagesSinceReset >= resetInterval) {
+            reset();
+        }
+        flush();
+    }
+    
+    /**
+     * Called once for every object that gets a new back-reference handle.
+     */
+    @Override
+    protected Object replaceObject(Object obj) {
+        retainedObjects++;
+        if (retainedObjects > peakRetainedObjects) {
+            peakRetainedObjects = retainedObjects;
+        }
+        return obj;
+    }
+    
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        messagesSinceReset = 0;
+        retainedObjects = 0;
+        bytesAtReset = counter.getCount();
+        resetCount++;
+    }
+    
+    /**
+     * Gets the reset interval in messages; 0 means the stream is never reset.
+     */
+    public int getResetInterval() {
+        return resetInterval;
+    }
+    
+    /**
+     * Gets the number of objects currently pinned by the back-reference table.
+     */
+    public long getRetainedObjectCount() {
+        return retainedObjects;
+    }
+    
+    /**
+     * Gets the highest number of objects the back-reference table has held at once.
+     */
+    public long getPeakRetainedObjectCount() {
+        return peakRetainedObjects;
+    }
+    
+    /**
+     * Gets the serialized size of everything written since the last reset,
+     * an estimate of the heap the back-reference table keeps reachable.
+     */
+    public long getRetainedBytes() {
+        return counter.getCount() - bytesAtReset;
+    }
+    
+    /**
+     * Gets the total number of bytes written to the underlying stream.
+     */
+    public long getBytesWritten() {
+        return counter.getCount();
+    }
+    
+    /**
+     * Gets how many times the stream has been reset.
+     */
+    public long getResetCount() {
+        return resetCount;
+    }
+    
+    /**
+     * Output stream that counts the bytes passing through it.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private volatile long count;
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+        
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -11,6 +11,8 @@ public enum MessageType {
     
     // Lobby messages
     LOBBY_UPDATE,
+    LOBBY_DELTA,
+    LOBBY_SNAPSHOT_REQUEST,
     PLAYER_LIST_REQUEST,
     PLAYER_LIST_RESPONSE,
     GAME_LIST_REQUEST,
@@ -24,6 +26,8 @@ public enum MessageType {
     MOVE_REQUEST,
     MOVE_RESPONSE,
     GAME_STATE_UPDATE,
+    MOVE_DELTA,
+    GAME_STATE_RESYNC_REQUEST,
     GAME_START,
     GAME_END,
     
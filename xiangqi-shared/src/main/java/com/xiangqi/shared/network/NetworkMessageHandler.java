@@ -63,6 +63,13 @@ public interface NetworkMessageHandler {
         // Default empty implementation
     }
     
+    /**
+     * Handles incremental lobby change messages.
+     */
+    default void handleLobbyDelta(LobbyDeltaMessage message) {
+        // Default empty implementation
+    }
+    
     /**
      * Handles player list response messages.
      */
@@ -84,6 +91,13 @@ public interface NetworkMessageHandler {
         // Default empty implementation
     }
     
+    /**
+     * Handles sequence-numbered move deltas.
+     */
+    default void handleMoveDelta(MoveDeltaMessage message) {
+        // Default empty implementation
+    }
+    
     /**
      * Handles game end messages.
      */
@@ -5,11 +5,46 @@ import com.xiangqi.shared.network.NetworkMessage;
 
 /**
  * Message for requesting the list of active games.
+ * Games are returned newest first; they can be paged and filtered by
+ * a case-insensitive prefix of either player's username.
  */
 public class GameListRequestMessage extends NetworkMessage {
     private static final long serialVersionUID = 1L;
     
+    private final int offset;
+    private final int limit;
+    private final String playerPrefix;
+    
+    /**
+     * Requests the first page of active games.
+     */
     public GameListRequestMessage(String senderId) {
+        this(senderId, 0, 0, null);
+    }
+    
+    /**
+     * Requests one page of active games.
+     * 
+     * @param offset index of the first game to return
+     * @param limit maximum number of games to return, 0 for the server default page size
+     * @param playerPrefix username prefix either player must match, or null for all games
+     */
+    public GameListRequestMessage(String senderId, int offset, int limit, String playerPrefix) {
         super(MessageType.GAME_LIST_REQUEST, senderId);
+        this.offset = Math.max(0, offset);
+        this.limit = Math.max(0, limit);
+        this.playerPrefix = playerPrefix;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public String getPlayerPrefix() {
+        return playerPrefix;
     }
-}
\ No newline at end of file
+}
@@ -8,18 +8,43 @@ import java.util.List;
 
 /**
  * Message containing the list of games in response to a game list request.
+ * For paged requests only one page is included; totalCount is the number of
+ * games matching the request across all pages.
  */
 public class GameListResponseMessage extends NetworkMessage {
     private static final long serialVersionUID = 1L;
     
     private final List<GameSession> games;
+    private final int offset;
+    private final int totalCount;
     
     public GameListResponseMessage(String senderId, List<GameSession> games) {
+        this(senderId, games, 0, games != null ? games.size() : 0);
+    }
+    
+    public GameListResponseMessage(String senderId, List<GameSession> games, int offset, int totalCount) {
         super(MessageType.GAME_LIST_RESPONSE, senderId);
         this.games = games;
+        this.offset = offset;
+        this.totalCount = totalCount;
     }
     
     public List<GameSession> getGames() {
         return games;
     }
-}
\ No newline at end of file
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public int getTotalCount() {
+        return totalCount;
+    }
+    
+    /**
+     * Checks whether more matching games exist after this page.
+     */
+    public boolean hasMore() {
+        return games != null && offset + games.size() < totalCount;
+    }
+}
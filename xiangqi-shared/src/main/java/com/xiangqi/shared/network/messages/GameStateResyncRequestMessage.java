@@ -0,0 +1,23 @@
+package com.xiangqi.shared.network.messages;
+
+import com.xiangqi.shared.network.MessageType;
+import com.xiangqi.shared.network.NetworkMessage;
+
+/**
+ * Message for requesting a full game state after a client detects that its
+ * local state no longer matches the server's move deltas.
+ */
+public class GameStateResyncRequestMessage extends NetworkMessage {
+    private static final long serialVersionUID = 1L;
+    
+    private final String gameId;
+    
+    public GameStateResyncRequestMessage(String senderId, String gameId) {
+        super(MessageType.GAME_STATE_RESYNC_REQUEST, senderId);
+        this.gameId = gameId;
+    }
+    
+    public String getGameId() {
+        return gameId;
+    }
+}
@@ -0,0 +1,91 @@
+package com.xiangqi.shared.network.messages;
+
+import com.xiangqi.shared.model.GameSession;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.network.MessageType;
+import com.xiangqi.shared.network.NetworkMessage;
+
+/**
+ * Message describing a single change to the lobby.
+ * Each delta carries the lobby version it produces; a client that sees a
+ * version other than its last applied version + 1 must request a snapshot.
+ */
+public class LobbyDeltaMessage extends NetworkMessage {
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Kinds of lobby changes.
+     */
+    public enum ChangeType {
+        PLAYER_JOINED,
+        PLAYER_LEFT,
+        PLAYER_STATUS_CHANGED,
+        GAME_STARTED,
+        GAME_ENDED
+    }
+    
+    private final long version;
+    private final ChangeType changeType;
+    private final String subjectId;
+    private final Player player;
+    private final GameSession game;
+    
+    private LobbyDeltaMessage(long version, ChangeType changeType, String subjectId,
+                              Player player, GameSession game) {
+        super(MessageType.LOBBY_DELTA, null); // Server message
+        this.version = version;
+        this.changeType = changeType;
+        this.subjectId = subjectId;
+        this.player = player;
+        this.game = game;
+    }
+    
+    public static LobbyDeltaMessage playerJoined(long version, Player player) {
+        return new LobbyDeltaMessage(version, ChangeType.PLAYER_JOINED, player.getPlayerId(), player, null);
+    }
+    
+    public static LobbyDeltaMessage playerLeft(long version, String playerId) {
+        return new LobbyDeltaMessage(version, ChangeType.PLAYER_LEFT, playerId, null, null);
+    }
+    
+    public static LobbyDeltaMessage playerStatusChanged(long version, Player player) {
+        return new LobbyDeltaMessage(version, ChangeType.PLAYER_STATUS_CHANGED, player.getPlayerId(), player, null);
+    }
+    
+    public static LobbyDeltaMessage gameStarted(long version, GameSession game) {
+        return new LobbyDeltaMessage(version, ChangeType.GAME_STARTED, game.getSessionId(), null, game);
+    }
+    
+    public static LobbyDeltaMessage gameEnded(long version, String gameId) {
+        return new LobbyDeltaMessage(version, ChangeType.GAME_ENDED, gameId, null, null);
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+    
+    /**
+     * Gets the ID of the player or game this change applies to.
+     */
+    public String getSubjectId() {
+        return subjectId;
+    }
+    
+    /**
+     * Gets the player payload, or null for changes that only carry an ID.
+     */
+    public Player getPlayer() {
+        return player;
+    }
+    
+    /**
+     * Gets the game payload, or null for changes that only carry an ID.
+     */
+    public GameSession getGame() {
+        return game;
+    }
+}
@@ -0,0 +1,16 @@
+package com.xiangqi.shared.network.messages;
+
+import com.xiangqi.shared.network.MessageType;
+import com.xiangqi.shared.network.NetworkMessage;
+
+/**
+ * Message for requesting a full, versioned lobby snapshot.
+ * Sent by clients that detect a gap in the lobby delta sequence.
+ */
+public class LobbySnapshotRequestMessage extends NetworkMessage {
+    private static final long serialVersionUID = 1L;
+    
+    public LobbySnapshotRequestMessage(String senderId) {
+        super(MessageType.LOBBY_SNAPSHOT_REQUEST, senderId);
+    }
+}
@@ -9,17 +9,24 @@ import java.util.List;
 
 /**
  * Message for lobby updates and player list changes.
+ * Carries a full snapshot of the lobby at the given version.
  */
 public class LobbyUpdateMessage extends NetworkMessage {
     private static final long serialVersionUID = 1L;
     
     private final List<Player> players;
     private final List<GameSession> games;
+    private final long version;
     
     public LobbyUpdateMessage(String senderId, List<Player> players, List<GameSession> games) {
+        this(senderId, players, games, 0);
+    }
+    
+    public LobbyUpdateMessage(String senderId, List<Player> players, List<GameSession> games, long version) {
         super(MessageType.LOBBY_UPDATE, senderId);
         this.players = players;
         this.games = games;
+        this.version = version;
     }
     
     public List<Player> getPlayers() {
@@ -29,4 +36,11 @@ public class LobbyUpdateMessage extends NetworkMessage {
     public List<GameSession> getGames() {
         return games;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Gets the lobby version this snapshot reflects.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
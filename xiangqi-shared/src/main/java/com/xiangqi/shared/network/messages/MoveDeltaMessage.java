@@ -0,0 +1,64 @@
+package com.xiangqi.shared.network.messages;
+
+import com.xiangqi.shared.model.GameStatus;
+import com.xiangqi.shared.model.Position;
+import com.xiangqi.shared.network.MessageType;
+import com.xiangqi.shared.network.NetworkMessage;
+
+/**
+ * Message announcing one executed move in place of a full game state update.
+ * The sequence number is the move count after this move; the state hash lets
+ * the receiver verify its local state and ask for a resync on divergence.
+ */
+public class MoveDeltaMessage extends NetworkMessage {
+    private static final long serialVersionUID = 1L;
+    
+    private final String gameId;
+    private final int sequence;
+    private final byte fromSquare;
+    private final byte toSquare;
+    private final boolean capture;
+    private final GameStatus resultingStatus;
+    private final long stateHash;
+    
+    public MoveDeltaMessage(String gameId, int sequence, Position from, Position to,
+                            boolean capture, GameStatus resultingStatus, long stateHash) {
+        super(MessageType.MOVE_DELTA, null); // Server message
+        this.gameId = gameId;
+        this.sequence = sequence;
+        this.fromSquare = from.toSquare();
+        this.toSquare = to.toSquare();
+        this.capture = capture;
+        this.resultingStatus = resultingStatus;
+        this.stateHash = stateHash;
+    }
+    
+    public String getGameId() {
+        return gameId;
+    }
+    
+    public int getSequence() {
+        return sequence;
+    }
+    
+    public Position getFrom() {
+        return Position.fromSquare(fromSquare);
+    }
+    
+    public Position getTo() {
+        return Position.fromSquare(toSquare);
+    }
+    
+    public boolean isCapture() {
+        return capture;
+    }
+    
+    public GameStatus getResultingStatus() {
+        return resultingStatus;
+    }
+    
+    public long getStateHash() {
+        return stateHash;
+    }
+    
+}
@@ -5,11 +5,61 @@ import com.xiangqi.shared.network.NetworkMessage;
 
 /**
  * Message for requesting the list of online players.
+ * Supports paging, sorting and a case-insensitive username prefix filter.
  */
 public class PlayerListRequestMessage extends NetworkMessage {
     private static final long serialVersionUID = 1L;
     
+    /**
+     * Order in which players are returned.
+     */
+    public enum SortKey {
+        NAME,
+        RATING,
+        STATUS
+    }
+    
+    private final int offset;
+    private final int limit;
+    private final SortKey sortKey;
+    private final String namePrefix;
+    
+    /**
+     * Requests the first page of players sorted by name.
+     */
     public PlayerListRequestMessage(String senderId) {
+        this(senderId, 0, 0, SortKey.NAME, null);
+    }
+    
+    /**
+     * Requests one page of players.
+     * 
+     * @param offset index of the first player to return
+     * @param limit maximum number of players to return, 0 for the server default page size
+     * @param sortKey order of the results
+     * @param namePrefix username prefix to match, or null for all players
+     */
+    public PlayerListRequestMessage(String senderId, int offset, int limit, SortKey sortKey, String namePrefix) {
         super(MessageType.PLAYER_LIST_REQUEST, senderId);
+        this.offset = Math.max(0, offset);
+        this.limit = Math.max(0, limit);
+        this.sortKey = sortKey != null ? sortKey : SortKey.NAME;
+        this.namePrefix = namePrefix;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+    
+    public String getNamePrefix() {
+        return namePrefix;
     }
-}
\ No newline at end of file
+}
@@ -8,18 +8,43 @@ import java.util.List;
 
 /**
  * Message containing the list of players in response to a player list request.
+ * For paged requests only one page is included; totalCount is the number of
+ * players matching the request across all pages.
  */
 public class PlayerListResponseMessage extends NetworkMessage {
     private static final long serialVersionUID = 1L;
     
     private final List<Player> players;
+    private final int offset;
+    private final int totalCount;
     
     public PlayerListResponseMessage(String senderId, List<Player> players) {
+        this(senderId, players, 0, players != null ? players.size() : 0);
+    }
+    
+    public PlayerListResponseMessage(String senderId, List<Player> players, int offset, int totalCount) {
         super(MessageType.PLAYER_LIST_RESPONSE, senderId);
         this.players = players;
+        this.offset = offset;
+        this.totalCount = totalCount;
     }
     
     public List<Player> getPlayers() {
         return players;
     }
-}
\ No newline at end of file
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public int getTotalCount() {
+        return totalCount;
+    }
+    
+    /**
+     * Checks whether more matching players exist after this page.
+     */
+    public boolean hasMore() {
+        return players != null && offset + players.size() < totalCount;
+    }
+}
@@ -0,0 +1,93 @@
+package com.xiangqi.shared.network.messages;
+
+import com.xiangqi.shared.network.NetworkMessage;
+import com.xiangqi.shared.profiling.MessageSerializationEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+
+/**
+ * Wrapper carrying a message that has already been serialized.
+ * A broadcast is encoded once and the same bytes are written to every
+ * recipient; on the receiving side the wrapper resolves back into the
+ * original message, so receivers never see this type.
+ */
+public final class PreEncodedMessage extends NetworkMessage {
+    private static final long serialVersionUID = 1L;
+    
+    private final byte[] payload;
+    
+    // Sending side only, so output queues can tell what the bytes hold
+    private final transient NetworkMessage source;
+    
+    private PreEncodedMessage(NetworkMessage message, byte[] payload) {
+        super(message.getType(), message.getSenderId());
+        this.payload = payload;
+        this.source = message;
+    }
+    
+    /**
+     * Serializes a message once so it can be sent to many recipients.
+     * Already encoded messages are returned unchanged.
+     */
+    public static PreEncodedMessage encode(NetworkMessage message) throws IOException {
+        if (message instanceof PreEncodedMessage) {
+            return (PreEncodedMessage) message;
+        }
+        MessageSerializationEvent event = new MessageSerializationEvent();
+        event.begin();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.direction = MessageSerializationEvent.ENCODE;
+            event.messageType = String.valueOf(message.getType());
+            event.payloadSize = bytes.size();
+            event.commit();
+        }
+        return new PreEncodedMessage(message, bytes.toByteArray());
+    }
+    
+    /**
+     * Deserializes the wrapped message.
+     */
+    public NetworkMessage decode() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+            return (NetworkMessage) in.readObject();
+        }
+    }
+    
+    /**
+     * Gets the message that was encoded. Only available on the sending side.
+     */
+    public NetworkMessage getSource() {
+        return source;
+    }
+    
+    /**
+     * Gets the size of the encoded message in bytes.
+     */
+    public int getEncodedSize() {
+        return payload.length;
+    }
+    
+    /**
+     * Replaces the wrapper with the original message during deserialization.
+     */
+    private Object readResolve() throws ObjectStreamException {
+        try {
+            return decode();
+        } catch (IOException | ClassNotFoundException e) {
+            InvalidObjectException invalid = new InvalidObjectException("Corrupt pre-encoded " + type + " message");
+            invalid.initCause(e);
+            throw invalid;
+        }
+    }
+}
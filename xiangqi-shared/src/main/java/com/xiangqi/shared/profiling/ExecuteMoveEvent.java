@@ -0,0 +1,33 @@
+package com.xiangqi.shared.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one {@code ChessEngine.executeMove} call.
+ */
+@Name("com.xiangqi.ExecuteMove")
+@Label("Execute Move")
+@Category({"Xiangqi", "Engine"})
+@Description("Validation, application and end-of-game detection of one move")
+@StackTrace(false)
+public class ExecuteMoveEvent extends jdk.jfr.Event {
+    @Label("Game Id")
+    public String gameId;
+    
+    @Label("Move Count")
+    @Description("Moves played after this one was applied")
+    public int moveCount;
+    
+    @Label("Move")
+    public String move;
+    
+    @Label("Accepted")
+    public boolean accepted;
+    
+    @Label("Status")
+    public String status;
+}
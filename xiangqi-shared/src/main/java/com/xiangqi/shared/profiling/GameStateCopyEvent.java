@@ -0,0 +1,23 @@
+package com.xiangqi.shared.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a deep copy of a {@code GameState}.
+ */
+@Name("com.xiangqi.GameStateCopy")
+@Label("Game State Copy")
+@Category({"Xiangqi", "Engine"})
+@StackTrace(false)
+@Threshold("20 us")
+public class GameStateCopyEvent extends jdk.jfr.Event {
+    @Label("Move Count")
+    public int moveCount;
+    
+    @Label("Pieces")
+    public int pieceCount;
+}
@@ -0,0 +1,26 @@
+package com.xiangqi.shared.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a message broadcast to every connected client.
+ */
+@Name("com.xiangqi.LobbyBroadcast")
+@Label("Lobby Broadcast")
+@Category({"Xiangqi", "Network"})
+@StackTrace(false)
+public class LobbyBroadcastEvent extends jdk.jfr.Event {
+    @Label("Message Type")
+    public String messageType;
+    
+    @Label("Recipients")
+    public int recipients;
+    
+    @Label("Payload Size")
+    @DataAmount
+    public long payloadSize;
+}
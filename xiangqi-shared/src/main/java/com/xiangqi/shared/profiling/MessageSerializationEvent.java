@@ -0,0 +1,35 @@
+package com.xiangqi.shared.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for serializing or deserializing a network message.
+ */
+@Name("com.xiangqi.MessageSerialization")
+@Label("Message Serialization")
+@Category({"Xiangqi", "Network"})
+@StackTrace(false)
+public class MessageSerializationEvent extends jdk.jfr.Event {
+    public static final String ENCODE = "encode";
+    public static final String DECODE = "decode";
+    
+    @Label("Direction")
+    @Description("encode or decode")
+    public String direction;
+    
+    @Label("Message Type")
+    public String messageType;
+    
+    @Label("Payload Size")
+    @DataAmount
+    public long payloadSize;
+    
+    @Label("Client Id")
+    @Description("Connection the message was read from or written to; empty for broadcasts encoded once")
+    public String clientId;
+}
@@ -0,0 +1,29 @@
+package com.xiangqi.shared.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a {@code RuleValidator} legality check. Checks
+ * run many times per move, so only slow ones are recorded by default.
+ */
+@Name("com.xiangqi.RuleCheck")
+@Label("Rule Check")
+@Category({"Xiangqi", "Engine"})
+@Description("A move legality, checkmate or stalemate check")
+@StackTrace(false)
+@Threshold("50 us")
+public class RuleCheckEvent extends jdk.jfr.Event {
+    @Label("Check")
+    public String check;
+    
+    @Label("Move Count")
+    public int moveCount;
+    
+    @Label("Result")
+    public boolean result;
+}
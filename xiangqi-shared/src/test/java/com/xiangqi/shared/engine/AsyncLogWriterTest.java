@@ -0,0 +1,135 @@
+package com.xiangqi.shared.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AsyncLogWriter.
+ */
+public class AsyncLogWriterTest {
+    
+    @TempDir
+    File logDirectory;
+    
+    @Test
+    public void testConcurrentAppendsAreAllWritten() throws Exception {
+        AsyncLogWriter writer = new AsyncLogWriter(logDirectory);
+        writer.start();
+        
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int producer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    writer.append(producer % 2 == 0 ? "a.log" : "b.log", "entry " + producer + "-" + i);
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        
+        assertTrue(writer.flush(5000));
+        writer.close(5000);
+        
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(2000, writer.getWrittenCount());
+        assertEquals(1000, readLines("a.log").size());
+        assertEquals(1000, readLines("b.log").size());
+    }
+    
+    @Test
+    public void testFullBufferDropsAndCountsEntries() throws Exception {
+        AsyncLogWriter writer = new AsyncLogWriter(logDirectory, 4, AsyncLogWriter.DEFAULT_MAX_FILE_BYTES, 1);
+        
+        // Writer thread not started yet, so nothing drains the buffer
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (writer.append("drop.log", "entry " + i)) {
+                accepted++;
+            }
+        }
+        assertEquals(4, accepted);
+        assertEquals(6, writer.getDroppedCount());
+        
+        writer.start();
+        assertTrue(writer.flush(5000));
+        writer.close(5000);
+        
+        List<String> lines = readLines("drop.log");
+        assertEquals(List.of("entry 0", "entry 1", "entry 2", "entry 3"), lines);
+    }
+    
+    @Test
+    public void testRotatesBySize() throws Exception {
+        AsyncLogWriter writer = new AsyncLogWriter(logDirectory, 16, 200, 2);
+        writer.start();
+        
+        for (int i = 0; i < 40; i++) {
+            writer.append("rotate.log", String.format("entry %03d ..............................", i));
+            assertTrue(writer.flush(5000)); // One batch per entry so every write checks the size
+        }
+        writer.close(5000);
+        
+        File current = new File(logDirectory, "rotate.log");
+        assertTrue(current.length() <= 200);
+        assertTrue(new File(logDirectory, "rotate.log.1").exists());
+        assertTrue(new File(logDirectory, "rotate.log.2").exists());
+        assertFalse(new File(logDirectory, "rotate.log.3").exists());
+        
+        List<String> latest = readLines("rotate.log");
+        assertTrue(latest.get(latest.size() - 1).startsWith("entry 039"));
+    }
+    
+    @Test
+    public void testGameErrorLoggerWritesThroughAsyncWriter() throws Exception {
+        GameErrorLogger.initialize(logDirectory.getAbsolutePath(), true);
+        try {
+            GameErrorLogger logger = GameErrorLogger.getInstance();
+            logger.logNetworkError("client-1", "sendMessage", new IOException("connection reset"));
+            
+            assertTrue(logger.flush(5000));
+            assertEquals(0, logger.getDroppedEntryCount());
+            List<String> lines = readLines("network_errors.log");
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).contains("connection reset"));
+        } finally {
+            // Point the shared logger back at the default directory for other tests
+            GameErrorLogger.initialize(System.getProperty("java.io.tmpdir") + File.separator + "xiangqi-logs", true);
+        }
+    }
+    
+    @Test
+    public void testInitializeKeepsInstanceHeldByEngine() throws Exception {
+        GameErrorLogger held = GameErrorLogger.getInstance();
+        File otherDirectory = new File(logDirectory, "other");
+        GameErrorLogger.initialize(otherDirectory.getAbsolutePath(), true);
+        try {
+            assertSame(held, GameErrorLogger.getInstance());
+            held.logNetworkError("client-2", "receiveMessage", new IOException("broken pipe"));
+            
+            assertTrue(held.flush(5000));
+            List<String> lines = Files.readAllLines(new File(otherDirectory, "network_errors.log").toPath(),
+                                                    StandardCharsets.UTF_8);
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).contains("broken pipe"));
+        } finally {
+            GameErrorLogger.initialize(System.getProperty("java.io.tmpdir") + File.separator + "xiangqi-logs", true);
+        }
+    }
+    
+    private List<String> readLines(String filename) throws IOException {
+        return Files.readAllLines(new File(logDirectory, filename).toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -142,4 +142,29 @@ class ChessEngineTest {
         assertTrue(engine.isInCheck(blackPlayer));
         assertFalse(engine.isInCheck(redPlayer));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testMoveDeltaReproducesEngineState() {
+        engine.initializeGame(redPlayer, blackPlayer);
+        GameState state = engine.getCurrentState();
+        GameState replica = state.copy();
+        assertEquals(state.stateHash(), replica.stateHash());
+        
+        // Red cannon captures the black horse
+        Position from = new Position(7, 1);
+        Position to = new Position(0, 1);
+        assertTrue(engine.executeMove(new Move(from, to, state.getPiece(from))));
+        
+        Move applied = replica.applyValidatedMove(from, to);
+        replica.setStatus(state.getStatus());
+        
+        assertNotNull(applied);
+        assertTrue(applied.isCapture());
+        assertEquals(1, replica.getMoveCount());
+        assertEquals(state.stateHash(), replica.stateHash());
+        
+        // A diverged replica no longer matches
+        replica.applyValidatedMove(new Position(3, 0), new Position(4, 0));
+        assertNotEquals(state.stateHash(), replica.stateHash());
+    }
+}
@@ -54,4 +54,16 @@ class PositionTest {
         assertEquals(7, pos2.distanceTo(pos1)); // Should be symmetric
         assertEquals(0, pos1.distanceTo(pos1)); // Distance to self is 0
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testSquareRoundTrip() {
+        assertEquals(0, new Position(0, 0).toSquare());
+        assertEquals(89, new Position(9, 8).toSquare());
+        for (int row = 0; row < Position.BOARD_ROWS; row++) {
+            for (int col = 0; col < Position.BOARD_COLS; col++) {
+                Position position = new Position(row, col);
+                assertEquals(position, Position.fromSquare(position.toSquare()));
+            }
+        }
+    }
+}
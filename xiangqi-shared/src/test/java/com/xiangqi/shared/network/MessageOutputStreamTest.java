@@ -0,0 +1,111 @@
+package com.xiangqi.shared.network;
+
+import com.xiangqi.shared.engine.ChessEngine;
+import com.xiangqi.shared.model.GameState;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.model.Position;
+import com.xiangqi.shared.network.messages.GameStateUpdateMessage;
+import com.xiangqi.shared.network.messages.MoveDeltaMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MessageOutputStream.
+ */
+public class MessageOutputStreamTest {
+    
+    private static final int LONG_GAME_MOVES = 1000;
+    
+    @Test
+    public void testLongGameKeepsRetainedMemoryBounded() throws IOException {
+        MessageOutputStream stream = new MessageOutputStream(OutputStream.nullOutputStream());
+        long peakAfterFirstMoves = playLongGame(stream, 20);
+        
+        MessageOutputStream longStream = new MessageOutputStream(OutputStream.nullOutputStream());
+        long peakAfterLongGame = playLongGame(longStream, LONG_GAME_MOVES);
+        
+        // Per-message reset: the table never holds more than one message,
+        // so a long game peaks no higher than a short one
+        assertEquals(peakAfterFirstMoves, peakAfterLongGame);
+        assertEquals(0, longStream.getRetainedObjectCount());
+        assertEquals(0, longStream.getRetainedBytes());
+        assertEquals(LONG_GAME_MOVES, longStream.getResetCount());
+    }
+    
+    @Test
+    public void testNeverResetRetainsEveryMessage() throws IOException {
+        MessageOutputStream stream = new MessageOutputStream(OutputStream.nullOutputStream(), 0);
+        playLongGame(stream, LONG_GAME_MOVES);
+        
+        assertEquals(0, stream.getResetCount());
+        assertTrue(stream.getRetainedObjectCount() > LONG_GAME_MOVES,
+            "Without resets every delta stays pinned: " + stream.getRetainedObjectCount());
+        assertEquals(stream.getBytesWritten(), stream.getRetainedBytes());
+    }
+    
+    @Test
+    public void testIntervalBoundsRetention() throws IOException {
+        MessageOutputStream stream = new MessageOutputStream(OutputStream.nullOutputStream(), 50);
+        playLongGame(stream, LONG_GAME_MOVES);
+        
+        assertEquals(LONG_GAME_MOVES / 50, stream.getResetCount());
+        assertTrue(stream.getPeakRetainedObjectCount() < 50 * 20,
+            "Peak retention should be bounded by the interval: " + stream.getPeakRetainedObjectCount());
+    }
+    
+    @Test
+    public void testReceiverSeesFreshStateAfterReset() throws Exception {
+        Player red = new Player("red", "Red");
+        Player black = new Player("black", "Black");
+        GameState state = new GameState(red, black);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MessageOutputStream stream = new MessageOutputStream(bytes)) {
+            stream.writeMessage(new GameStateUpdateMessage("game", state));
+            state.applyValidatedMove(new Position(6, 0), new Position(5, 0));
+            stream.writeMessage(new GameStateUpdateMessage("game", state));
+        }
+        
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            GameStateUpdateMessage first = (GameStateUpdateMessage) in.readObject();
+            GameStateUpdateMessage second = (GameStateUpdateMessage) in.readObject();
+            
+            // Without a reset the second message would be a back-reference to the first state
+            assertEquals(0, first.getGameState().getMoveCount());
+            assertEquals(1, second.getGameState().getMoveCount());
+        }
+    }
+    
+    /**
+     * Shuffles both horses back and forth, writing a move delta per move,
+     * and returns the stream's peak retained object count.
+     */
+    private long playLongGame(MessageOutputStream stream, int moves) throws IOException {
+        ChessEngine engine = new ChessEngine();
+        engine.initializeGame(new Player("red", "Red"), new Player("black", "Black"));
+        GameState state = engine.getCurrentState();
+        
+        Position[][] cycle = {
+            {new Position(9, 1), new Position(7, 2)},
+            {new Position(0, 1), new Position(2, 2)},
+            {new Position(7, 2), new Position(9, 1)},
+            {new Position(2, 2), new Position(0, 1)}
+        };
+        for (int i = 0; i < moves; i++) {
+            Position from = cycle[i % cycle.length][0];
+            Position to = cycle[i % cycle.length][1];
+            assertTrue(engine.executeMove(new Move(from, to, state.getPiece(from))), "Move " + i);
+            stream.writeMessage(new MoveDeltaMessage("game", state.getMoveCount(), from, to,
+                false, state.getStatus(), state.stateHash()));
+        }
+        return stream.getPeakRetainedObjectCount();
+    }
+}
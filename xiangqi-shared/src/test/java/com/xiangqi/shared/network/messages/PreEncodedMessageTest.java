@@ -0,0 +1,56 @@
+package com.xiangqi.shared.network.messages;
+
+import com.xiangqi.shared.network.MessageType;
+import com.xiangqi.shared.network.NetworkMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PreEncodedMessage.
+ */
+public class PreEncodedMessageTest {
+    
+    @Test
+    public void testEncodeKeepsTypeAndSender() throws IOException {
+        ChatMessage chat = new ChatMessage("alice", "hello", null);
+        PreEncodedMessage encoded = PreEncodedMessage.encode(chat);
+        
+        assertEquals(MessageType.CHAT_MESSAGE, encoded.getType());
+        assertEquals("alice", encoded.getSenderId());
+        assertTrue(encoded.getEncodedSize() > 0);
+        assertSame(encoded, PreEncodedMessage.encode(encoded));
+    }
+    
+    @Test
+    public void testReceiverSeesOriginalMessage() throws Exception {
+        ChatMessage chat = new ChatMessage("alice", "hello", "bob");
+        PreEncodedMessage encoded = PreEncodedMessage.encode(chat);
+        
+        // The same encoded instance is written to several independent streams
+        for (int i = 0; i < 3; i++) {
+            NetworkMessage received = roundTrip(encoded);
+            assertTrue(received instanceof ChatMessage);
+            ChatMessage receivedChat = (ChatMessage) received;
+            assertEquals("hello", receivedChat.getContent());
+            assertEquals("bob", receivedChat.getTargetId());
+            assertEquals(chat.getTimestamp(), receivedChat.getTimestamp());
+        }
+    }
+    
+    private NetworkMessage roundTrip(NetworkMessage message) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (NetworkMessage) in.readObject();
+        }
+    }
+}
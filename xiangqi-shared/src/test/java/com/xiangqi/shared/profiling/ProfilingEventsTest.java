@@ -0,0 +1,94 @@
+package com.xiangqi.shared.profiling;
+
+import com.xiangqi.shared.engine.ChessEngine;
+import com.xiangqi.shared.model.Move;
+import com.xiangqi.shared.model.Player;
+import com.xiangqi.shared.model.Position;
+import com.xiangqi.shared.network.messages.ChatMessage;
+import com.xiangqi.shared.network.messages.PreEncodedMessage;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Flight Recorder events.
+ */
+public class ProfilingEventsTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    public void testEngineEventsAreRecorded() throws IOException {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(ExecuteMoveEvent.class);
+            recording.enable(RuleCheckEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(GameStateCopyEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            
+            Player red = new Player("red", "Red");
+            ChessEngine engine = new ChessEngine();
+            engine.setGameId("game-1");
+            engine.initializeGame(red, new Player("black", "Black"));
+            Position from = new Position(6, 0);
+            Move move = new Move(from, new Position(5, 0), engine.getCurrentState().getPiece(from));
+            assertTrue(engine.executeMove(move));
+            
+            recording.stop();
+            events = read(recording);
+        }
+        
+        RecordedEvent execute = only(events, "com.xiangqi.ExecuteMove");
+        assertEquals("game-1", execute.getString("gameId"));
+        assertEquals(1, execute.getInt("moveCount"));
+        assertEquals("6,0-5,0", execute.getString("move"));
+        assertTrue(execute.getBoolean("accepted"));
+        
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.xiangqi.RuleCheck")
+            && "legality".equals(e.getString("check")) && e.getBoolean("result")));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.xiangqi.GameStateCopy")
+            && e.getInt("pieceCount") == 32));
+    }
+    
+    @Test
+    public void testPreEncodingIsRecorded() throws IOException {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(MessageSerializationEvent.class);
+            recording.start();
+            PreEncodedMessage encoded = PreEncodedMessage.encode(new ChatMessage("alice", "hello", null));
+            recording.stop();
+            events = read(recording);
+            
+            RecordedEvent event = only(events, "com.xiangqi.MessageSerialization");
+            assertEquals(MessageSerializationEvent.ENCODE, event.getString("direction"));
+            assertEquals("CHAT_MESSAGE", event.getString("messageType"));
+            assertEquals(encoded.getEncodedSize(), event.getLong("payloadSize"));
+        }
+    }
+    
+    private List<RecordedEvent> read(Recording recording) throws IOException {
+        Path file = tempDir.resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+    
+    private RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+            .filter(e -> e.getEventType().getName().equals(name))
+            .collect(Collectors.toList());
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}